@@ -366,6 +366,7 @@ public final class RodaConstants {
   public static final String API_QUERY_VALUE_ACCEPT_FORMAT_ZIP = "zip";
   public static final String API_QUERY_VALUE_ACCEPT_FORMAT_CSV = "csv";
   public static final String API_QUERY_VALUE_ACCEPT_FORMAT_JSONP = "jsonp";
+  public static final String API_QUERY_VALUE_ACCEPT_FORMAT_NDJSON = "ndjson";
   public static final String API_QUERY_KEY_LANG = "lang";
   public static final String API_QUERY_VALUE_LANG_DEFAULT = RodaConstants.API_QUERY_VALUE_LANG_PT_PT;
   public static final String API_QUERY_VALUE_LANG_PT_PT = "pt_PT";
@@ -380,6 +381,7 @@ public final class RodaConstants {
   public static final String API_QUERY_KEY_SORT = "sort";
   public static final String API_QUERY_KEY_FACET_LIMIT = "facetLimit";
   public static final String API_QUERY_KEY_EXPORT_FACETS = "exportFacets";
+  public static final String API_QUERY_KEY_EXPORT_ALL = "exportAll";
   public static final String API_QUERY_KEY_FILENAME = "filename";
   public static final String API_QUERY_KEY_FILE = "file";
 
@@ -771,6 +773,82 @@ public final class RodaConstants {
   public static final String SOLR_RETRY_MAX_RETRIES = "core.solr.retry.maxRetries";
   public static final String SOLR_RETRY_HANDLE_EXCEPTIONS = "core.solr.retry.handleExceptions[]";
 
+  /*
+   * Solr batch indexing
+   */
+  public static final String SOLR_BATCH_ENABLED = "core.solr.batch.enabled";
+  public static final String SOLR_BATCH_SIZE = "core.solr.batch.size";
+  public static final String SOLR_BATCH_FLUSH_INTERVAL_MS = "core.solr.batch.flush_interval_ms";
+  public static final String SOLR_BATCH_MAX_PENDING_BATCHES = "core.solr.batch.max_pending_batches";
+
+  /*
+   * Solr blue/green reindex
+   */
+  public static final String SOLR_BLUE_GREEN_BATCH_SIZE = "core.solr.blue_green.batch_size";
+  public static final String SOLR_BLUE_GREEN_MIN_DOCUMENTS_RATIO = "core.solr.blue_green.min_documents_ratio";
+  public static final String SOLR_BLUE_GREEN_TIMEOUT_MINUTES = "core.solr.blue_green.timeout_minutes";
+
+  /*
+   * Reindex from storage
+   */
+  public static final String CORE_REINDEX_STORAGE_THREADS = "core.reindex.storage.threads";
+  public static final String CORE_REINDEX_STORAGE_CHUNK_SIZE = "core.reindex.storage.chunk_size";
+  public static final String CORE_REINDEX_STORAGE_BATCH_SIZE = "core.reindex.storage.batch_size";
+
+  /*
+   * Fixity engine
+   */
+  public static final String CORE_FIXITY_THREADS = "core.fixity.threads";
+  public static final String CORE_FIXITY_MAX_READS_PER_STORE = "core.fixity.max_reads_per_store";
+  public static final String CORE_FIXITY_BUFFER_SIZE = "core.fixity.buffer_size";
+
+  /*
+   * Job reports write-behind buffer
+   */
+  public static final String CORE_JOB_REPORTS_BUFFER_ENABLED = "core.jobs.reports.buffer.enabled";
+  public static final String CORE_JOB_REPORTS_BUFFER_SIZE = "core.jobs.reports.buffer.size";
+  public static final String CORE_JOB_REPORTS_BUFFER_FLUSH_INTERVAL_MS = "core.jobs.reports.buffer.flush_interval_ms";
+
+  /*
+   * AIP metadata cache
+   */
+  public static final String CORE_MODEL_AIP_CACHE_ENABLED = "core.model.aip_cache.enabled";
+  public static final String CORE_MODEL_AIP_CACHE_MAX_SIZE_IN_MB = "core.model.aip_cache.max_size_mb";
+  public static final String CORE_MODEL_AIP_CACHE_EXPIRE_AFTER_WRITE = "core.model.aip_cache.expire_after_write_minutes";
+
+  /*
+   * Transferred resources scanner
+   */
+  public static final String CORE_TRANSFERRED_RESOURCES_SCAN_INCREMENTAL = "core.transferred_resources.scan.incremental";
+  public static final String CORE_TRANSFERRED_RESOURCES_SCAN_THREADS = "core.transferred_resources.scan.threads";
+  public static final String CORE_TRANSFERRED_RESOURCES_SCAN_BATCH_SIZE = "core.transferred_resources.scan.batch_size";
+
+  /*
+   * API authentication cache
+   */
+  public static final String CORE_API_AUTH_CACHE_ENABLED = "core.api.auth_cache.enabled";
+  public static final String CORE_API_AUTH_CACHE_MAX_ENTRIES = "core.api.auth_cache.max_entries";
+  public static final String CORE_API_AUTH_CACHE_EXPIRE_AFTER_WRITE = "core.api.auth_cache.expire_after_write_seconds";
+
+  /*
+   * Pipelined ingest
+   */
+  public static final String CORE_INGEST_PIPELINE_ENABLED = "core.ingest.pipeline.enabled";
+  public static final String CORE_INGEST_PIPELINE_THREADS = "core.ingest.pipeline.threads";
+
+  /*
+   * Asynchronous action log
+   */
+  public static final String CORE_ACTION_LOGS_ASYNC_ENABLED = "core.action_logs.async.enabled";
+  public static final String CORE_ACTION_LOGS_ASYNC_QUEUE_SIZE = "core.action_logs.async.queue_size";
+  public static final String CORE_ACTION_LOGS_ASYNC_BATCH_SIZE = "core.action_logs.async.batch_size";
+
+  /*
+   * Synchronization bundles
+   */
+  public static final String CORE_SYNCHRONIZATION_CENTRAL_DELTA_ENABLED = "core.synchronization.central.delta.enabled";
+  public static final String CORE_SYNCHRONIZATION_IMPORT_THREADS = "core.synchronization.import.threads";
+
   /*
    * USER REGISTRATION SETTINGS
    */
@@ -1184,6 +1262,7 @@ public final class RodaConstants {
   public static final String PLUGIN_PARAMS_BOOLEAN_VALUE = "parameter.boolean_value";
   public static final String PLUGIN_PARAMS_CLEAR_INDEXES = "parameter.clear_indexes";
   public static final String PLUGIN_PARAMS_OPTIMIZE_INDEXES = "parameter.optimize_indexes";
+  public static final String PLUGIN_PARAMS_BLUE_GREEN = "parameter.blue_green";
   public static final String PLUGIN_PARAMS_INSTANCE_IDENTIFIER = "parameter.instance_identifier";
   public static final String PLUGIN_PARAMS_OBJECT_CLASS = "parameter.object_class";
   public static final String PLUGIN_PARAMS_CLASS_CANONICAL_NAME = "parameter.class_canonical_name";
@@ -2044,6 +2123,7 @@ public final class RodaConstants {
   public static final String SYNCHRONIZATION_REPORT_FILE = "last_synchronization";
   public static final String SYNCHRONIZATION_ISSUES_FILE = "issues";
   public static final String SYNCHRONIZATION_REMOVED_FILE = "removed";
+  public static final String SYNCHRONIZATION_DIGESTS_FILE = "digests";
   public static final String SYNCHRONIZATION_ISSUE_TYPE_MISSING = "missing";
 
   public static final String SYNCHRONIZATION_REPORT_KEY_UUID = "uuid";
@@ -8,22 +8,21 @@
 package org.roda.core.data.utils;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.IOUtils;
-import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadataMixIn;
@@ -32,16 +31,41 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 
+/**
+ * JSON (de)serialization utilities.
+ *
+ * <p>
+ * Mappers are shared and configured once, so that the (de)serializers Jackson
+ * builds for each type are reused, and readers and writers are cached by type
+ * (and mixin).
+ * </p>
+ */
 public final class JsonUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(JsonUtils.class);
   private static final String JSON_ERROR_MESSAGE = "Error while parsing JSON";
 
+  private static final ObjectMapper MAPPER = new ObjectMapper(new JsonFactory());
+  private static final ObjectWriter WRITER = MAPPER.writer();
+  private static final ObjectWriter DESCRIPTIVE_METADATA_MIXIN_WRITER = new ObjectMapper(new JsonFactory())
+    .addMixIn(DescriptiveMetadata.class, DescriptiveMetadataMixIn.class).writer();
+  private static final ObjectWriter JSON_LINES_WRITER = new ObjectMapper(new JsonFactory())
+    .setSerializationInclusion(JsonInclude.Include.NON_EMPTY).writer();
+  private static final ObjectReader MAP_READER = MAPPER.readerFor(new TypeReference<Map<String, String>>() {});
+
+  private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, ObjectReader> LIST_READERS = new ConcurrentHashMap<>();
+  private static final Map<String, ObjectWriter> MIXIN_WRITERS = new ConcurrentHashMap<>();
+
   private JsonUtils() {
     // do nothing
   }
@@ -55,20 +79,37 @@ public final class JsonUtils {
   }
 
   public static void writeObjectToFile(Object object, Path file) throws GenericException {
-    try {
-      String json = getJsonFromObject(object);
-      if (json != null) {
-        Files.write(file, json.getBytes(), StandardOpenOption.CREATE);
-      }
+    try (OutputStream out = Files.newOutputStream(file)) {
+      writeObjectToStream(object, out);
     } catch (IOException e) {
       throw new GenericException("Error writing object, as json, to file", e);
     }
   }
 
+  /**
+   * Writes the object, as json, to the stream, which is not closed.
+   */
+  public static void writeObjectToStream(Object object, OutputStream out) throws GenericException {
+    writeObjectToStream(object, null, out);
+  }
+
+  /**
+   * Writes the object, as json, to the stream, which is not closed.
+   */
+  public static void writeObjectToStream(Object object, Class<?> mixin, OutputStream out) throws GenericException {
+    try {
+      getWriter(object, mixin).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, object);
+    } catch (IOException e) {
+      throw new GenericException("Error writing object, as json, to stream", e);
+    }
+  }
+
   public static void appendObjectToFile(Object object, Path file) throws GenericException {
     try {
-      String json = getJsonFromObject(object) + "\n";
-      Files.write(file, json.getBytes(), StandardOpenOption.APPEND);
+      byte[] json = getWriter(object, null).writeValueAsBytes(object);
+      byte[] line = Arrays.copyOf(json, json.length + 1);
+      line[json.length] = '\n';
+      Files.write(file, line, StandardOpenOption.APPEND);
     } catch (IOException e) {
       throw new GenericException("Error writing object, as json, to file", e);
     }
@@ -77,8 +118,7 @@ public final class JsonUtils {
   public static Map<String, String> getMapFromJson(String json) {
     Map<String, String> ret = new HashMap<>();
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      ret = mapper.readValue(json, new TypeReference<Map<String, String>>() {});
+      ret = MAP_READER.readValue(json);
     } catch (IOException e) {
       LOGGER.error("Error transforming json string to Map<String,String>", e);
     }
@@ -92,9 +132,7 @@ public final class JsonUtils {
   public static String getJsonFromObject(Object object, Class<?> mixin) {
     String ret = null;
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      mapper = addMixinsToMapper(mapper, object, mixin);
-      ret = mapper.writeValueAsString(object);
+      ret = getWriter(object, mixin).writeValueAsString(object);
     } catch (IOException e) {
       LOGGER.error("Error transforming object '{}' to json string", object, e);
     }
@@ -108,10 +146,7 @@ public final class JsonUtils {
         if (!ret.isEmpty()) {
           ret.append("\n");
         }
-        ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-        mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        mapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
-        ret.append(mapper.writer().writeValueAsString(object));
+        ret.append(JSON_LINES_WRITER.writeValueAsString(object));
       } catch (IOException e) {
         LOGGER.error("Error transforming object '{}' to json string", object, e);
       }
@@ -119,57 +154,58 @@ public final class JsonUtils {
     return ret.toString();
   }
 
-  private static ObjectMapper addMixinsToMapper(ObjectMapper mapper, Object object, Class<?> mixin) {
-    if (!(object instanceof DescriptiveMetadata)) {
-      if (object instanceof List<?>) {
-        List<?> objectList = (List<?>) object;
-        if (!objectList.isEmpty() && !(objectList.get(0) instanceof DescriptiveMetadata)) {
-          mapper.addMixIn(DescriptiveMetadata.class, DescriptiveMetadataMixIn.class);
-        }
-      } else {
-        mapper.addMixIn(DescriptiveMetadata.class, DescriptiveMetadataMixIn.class);
-      }
+  private static boolean needsDescriptiveMetadataMixin(Object object) {
+    if (object instanceof DescriptiveMetadata) {
+      return false;
+    } else if (object instanceof List<?>) {
+      List<?> objectList = (List<?>) object;
+      return !objectList.isEmpty() && !(objectList.get(0) instanceof DescriptiveMetadata);
     }
+    return true;
+  }
 
-    if (mixin != null) {
-      mapper.addMixIn(object.getClass(), mixin);
+  private static ObjectWriter getWriter(Object object, Class<?> mixin) {
+    boolean descriptiveMetadataMixin = needsDescriptiveMetadataMixin(object);
+    if (mixin == null) {
+      return descriptiveMetadataMixin ? DESCRIPTIVE_METADATA_MIXIN_WRITER : WRITER;
     }
 
-    return mapper;
+    Class<?> objectClass = object.getClass();
+    String key = descriptiveMetadataMixin + ":" + objectClass.getName() + ":" + mixin.getName();
+    return MIXIN_WRITERS.computeIfAbsent(key, k -> {
+      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
+      if (descriptiveMetadataMixin) {
+        mapper.addMixIn(DescriptiveMetadata.class, DescriptiveMetadataMixIn.class);
+      }
+      return mapper.addMixIn(objectClass, mixin).writer();
+    });
+  }
+
+  private static ObjectReader getReader(Class<?> objectClass) {
+    return READERS.computeIfAbsent(objectClass, MAPPER::readerFor);
   }
 
   public static <T> T getObjectFromJson(Path json, Class<T> objectClass) throws GenericException {
-    T ret;
-    InputStream stream = null;
-    try {
-      stream = Files.newInputStream(json);
-      String jsonString = IOUtils.toString(stream, RodaConstants.DEFAULT_ENCODING);
-      ret = getObjectFromJson(jsonString, objectClass);
+    try (InputStream stream = Files.newInputStream(json)) {
+      return getReader(objectClass).readValue(stream);
     } catch (IOException e) {
       throw new GenericException(JSON_ERROR_MESSAGE, e);
-    } finally {
-      IOUtils.closeQuietly(stream);
     }
-    return ret;
   }
 
   public static <T> T getObjectFromJson(InputStream json, Class<T> objectClass) throws GenericException {
-    T ret;
     try {
-      String jsonString = IOUtils.toString(json, RodaConstants.DEFAULT_ENCODING);
-      ret = getObjectFromJson(jsonString, objectClass);
+      return getReader(objectClass).readValue(json);
     } catch (IOException e) {
       throw new GenericException(e);
     } finally {
       IOUtils.closeQuietly(json);
     }
-    return ret;
   }
 
   public static <T> T getObjectFromJson(String json, Class<T> objectClass) throws GenericException {
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      return mapper.readValue(json, objectClass);
+      return getReader(objectClass).readValue(json);
     } catch (IOException e) {
       throw new GenericException(JSON_ERROR_MESSAGE, e);
     }
@@ -177,12 +213,9 @@ public final class JsonUtils {
 
   public static <T> List<T> getListFromJsonLines(InputStream jsonLines, Class<T> objectClass) throws GenericException {
     ArrayList<T> list = new ArrayList<>();
-    try {
-      InputStreamReader inputStreamReader = new InputStreamReader(jsonLines, StandardCharsets.UTF_8);
-      BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-      String json;
-      while ((json = bufferedReader.readLine()) != null) {
-        list.add(getObjectFromJson(json, objectClass));
+    try (MappingIterator<T> iterator = getReader(objectClass).readValues(jsonLines)) {
+      while (iterator.hasNextValue()) {
+        list.add(iterator.nextValue());
       }
     } catch (IOException e) {
       throw new GenericException(JSON_ERROR_MESSAGE, e);
@@ -192,9 +225,9 @@ public final class JsonUtils {
 
   public static <T> List<T> getListFromJson(String json, Class<T> objectClass) throws GenericException {
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      TypeFactory t = TypeFactory.defaultInstance();
-      return mapper.readValue(json, t.constructCollectionType(ArrayList.class, objectClass));
+      return LIST_READERS.computeIfAbsent(objectClass,
+        c -> MAPPER.readerFor(TypeFactory.defaultInstance().constructCollectionType(ArrayList.class, c)))
+        .readValue(json);
     } catch (IOException e) {
       throw new GenericException(JSON_ERROR_MESSAGE, e);
     }
@@ -202,8 +235,7 @@ public final class JsonUtils {
 
   public static JsonNode parseJson(String json) throws GenericException {
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      return mapper.readTree(json);
+      return MAPPER.readTree(json);
     } catch (IOException e) {
       throw new GenericException(JSON_ERROR_MESSAGE, e);
     }
@@ -211,8 +243,7 @@ public final class JsonUtils {
 
   public static JsonNode parseJson(InputStream json) throws GenericException {
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      return mapper.readTree(json);
+      return MAPPER.readTree(json);
     } catch (IOException e) {
       throw new GenericException(JSON_ERROR_MESSAGE, e);
     } finally {
@@ -223,8 +254,7 @@ public final class JsonUtils {
   public static String getJsonFromNode(JsonNode node) {
     String ret = null;
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      ret = mapper.writeValueAsString(node);
+      ret = WRITER.writeValueAsString(node);
     } catch (IOException e) {
       LOGGER.error("Error transforming object '{}' to json string", node, e);
     }
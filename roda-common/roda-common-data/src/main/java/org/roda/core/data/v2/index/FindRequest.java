@@ -32,6 +32,11 @@ public class FindRequest extends CountRequest {
   public Facets facets;
   /** For CSV results, export only facets? */
   public boolean exportFacets;
+  /**
+   * For CSV and NDJSON results, export all results (ignoring sorter and sublist)
+   * streaming them from the index?
+   */
+  public boolean exportAll;
   /** The filename for exported CSV. */
   public String filename;
   /** The index fields to return and use to construct the indexed object. */
@@ -0,0 +1,62 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.benchmarks;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the RODA benchmarks with the JMH command line options.
+ *
+ * <p>
+ * Unless other result format and file are given ({@code -rf} and
+ * {@code -rff} options), the results are written as JSON to
+ * {@code roda-benchmarks-<timestamp>.json} in the working directory, so that
+ * the results of different releases can be compared.
+ * </p>
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+    // do nothing
+  }
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    if (commandLineOptions.shouldHelp()) {
+      commandLineOptions.showHelp();
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+    if (!commandLineOptions.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+    }
+    if (!commandLineOptions.getResult().hasValue()) {
+      String timestamp = new SimpleDateFormat("yyyyMMdd'T'HHmmss").format(new Date());
+      String extension = commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON).toString().toLowerCase();
+      options.result("roda-benchmarks-" + timestamp + "." + extension);
+    }
+
+    Runner runner = new Runner(options.build());
+    if (commandLineOptions.shouldList()) {
+      runner.list();
+    } else {
+      runner.run();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.index.IndexResult;
+import org.roda.core.data.v2.index.filter.DateIntervalFilterParameter;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.NotSimpleFilterParameter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
+import org.roda.core.data.v2.index.filter.OrFiltersParameters;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.index.sort.SortParameter;
+import org.roda.core.data.v2.index.sort.Sorter;
+import org.roda.core.data.v2.index.sublist.Sublist;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.model.ModelService;
+import org.roda.core.storage.fs.FSUtils;
+
+/**
+ * Benchmarks of the index queries (filter parsing and search), on a test RODA
+ * instance with an embedded Solr.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IndexBenchmark {
+  private static final String AIP_TYPE = "benchmark";
+
+  @Param({"1000"})
+  public int numberOfAIPs;
+
+  @Param({"100"})
+  public int pageSize;
+
+  private Path basePath;
+  private SolrClient index;
+  private Filter filter;
+  private Sorter sorter;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, RODAException {
+    basePath = Files.createTempDirectory("roda-benchmarks");
+    System.setProperty(RodaConstants.INSTALL_FOLDER_SYSTEM_PROPERTY, basePath.toString());
+    RodaCoreFactory.instantiateTest(true, false, false, false, false, false);
+    index = RodaCoreFactory.getSolr();
+
+    ModelService model = RodaCoreFactory.getModelService();
+    for (int i = 0; i < numberOfAIPs; i++) {
+      model.createAIP(null, AIP_TYPE, new Permissions(), RodaConstants.ADMIN);
+    }
+    RodaCoreFactory.getIndexService().commit(IndexedAIP.class);
+
+    filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_GHOST, Boolean.FALSE.toString()),
+      new NotSimpleFilterParameter(RodaConstants.INDEX_STATE, "DELETED"),
+      new OneOfManyFilterParameter(RodaConstants.AIP_LEVEL, Arrays.asList("fonds", "series", "file", "item")),
+      new DateIntervalFilterParameter(RodaConstants.AIP_DATE_INITIAL, RodaConstants.AIP_DATE_FINAL, new Date(0),
+        new Date()),
+      new OrFiltersParameters(Arrays.asList(new SimpleFilterParameter(RodaConstants.AIP_PARENT_ID, "parent1"),
+        new SimpleFilterParameter(RodaConstants.AIP_PARENT_ID, "parent2"))));
+    sorter = new Sorter(new SortParameter(RodaConstants.AIP_TITLE_SORT, false));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  @Benchmark
+  public String parseFilter() throws RODAException {
+    return SolrUtils.parseFilter(filter);
+  }
+
+  @Benchmark
+  public IndexResult<IndexedAIP> find() throws RODAException {
+    Filter ghostFilter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_GHOST, Boolean.FALSE.toString()));
+    return SolrUtils.find(index, IndexedAIP.class, ghostFilter, sorter, new Sublist(0, pageSize),
+      Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_TITLE, RodaConstants.AIP_LEVEL));
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.ip.Representation;
+import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.data.v2.log.LogEntryParameter;
+
+/**
+ * Benchmarks of the JSON (de)serialization of the model objects that are most
+ * often written to and read from storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JsonBenchmark {
+
+  /**
+   * Number of representations of the AIP, items of the report and parameters
+   * of the log entry.
+   */
+  @Param({"10"})
+  public int size;
+
+  private AIP aip;
+  private Report report;
+  private LogEntry logEntry;
+  private String aipJson;
+  private String reportJson;
+  private String logEntryJson;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    aip = new AIP("aip", "parent", "benchmark", AIPState.ACTIVE, new Permissions(), RodaConstants.ADMIN);
+    List<Representation> representations = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      representations.add(new Representation("representation" + i, aip.getId(), i == 0,
+        RodaConstants.REPRESENTATION_TYPE_MIXED));
+    }
+    aip.setRepresentations(representations);
+    List<DescriptiveMetadata> descriptiveMetadata = new ArrayList<>();
+    descriptiveMetadata.add(new DescriptiveMetadata("ead.xml", aip.getId(), "ead", "2002"));
+    aip.setDescriptiveMetadata(descriptiveMetadata);
+
+    report = new Report();
+    report.setId("report");
+    report.setJobId("job");
+    report.setSourceAndOutcomeObjectId("source", "outcome").setTitle("Benchmark report").setDateCreated(new Date());
+    for (int i = 0; i < size; i++) {
+      Report item = new Report();
+      item.setId("item" + i);
+      item.setPlugin("org.roda.core.plugins.Benchmark").setPluginName("Benchmark").setPluginVersion("1.0")
+        .setDateCreated(new Date());
+      report.addReport(item);
+    }
+
+    logEntry = new LogEntry();
+    logEntry.setUUID("uuid");
+    logEntry.setId("log");
+    logEntry.setAddress("127.0.0.1");
+    logEntry.setDatetime(new Date());
+    logEntry.setUsername(RodaConstants.ADMIN);
+    logEntry.setActionComponent("org.roda.wui.api.controllers.Browser");
+    logEntry.setActionMethod("retrieve");
+    List<LogEntryParameter> parameters = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      parameters.add(new LogEntryParameter("parameter" + i, "value" + i));
+    }
+    logEntry.setParameters(parameters);
+    logEntry.setDuration(10);
+
+    aipJson = JsonUtils.getJsonFromObject(aip);
+    reportJson = JsonUtils.getJsonFromObject(report);
+    logEntryJson = JsonUtils.getJsonFromObject(logEntry);
+  }
+
+  @Benchmark
+  public String serializeAIP() {
+    return JsonUtils.getJsonFromObject(aip);
+  }
+
+  @Benchmark
+  public AIP deserializeAIP() throws GenericException {
+    return JsonUtils.getObjectFromJson(aipJson, AIP.class);
+  }
+
+  @Benchmark
+  public String serializeReport() {
+    return JsonUtils.getJsonFromObject(report);
+  }
+
+  @Benchmark
+  public Report deserializeReport() throws GenericException {
+    return JsonUtils.getObjectFromJson(reportJson, Report.class);
+  }
+
+  @Benchmark
+  public String serializeLogEntry() {
+    return JsonUtils.getJsonFromObject(logEntry);
+  }
+
+  @Benchmark
+  public LogEntry deserializeLogEntry() throws GenericException {
+    return JsonUtils.getObjectFromJson(logEntryJson, LogEntry.class);
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.model.ModelService;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+
+/**
+ * Benchmarks of the model service write operations (AIP and file creation),
+ * on a test RODA instance without index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ModelBenchmark {
+  private static final String AIP_TYPE = "benchmark";
+  private static final String REPRESENTATION_ID = "representation";
+  private static final String FILE_ID = "file";
+
+  @Param({"1024", "1048576"})
+  public int fileSize;
+
+  private Path basePath;
+  private ModelService model;
+  private String aipId;
+  private String content;
+  private final AtomicLong counter = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, RODAException {
+    basePath = Files.createTempDirectory("roda-benchmarks");
+    System.setProperty(RodaConstants.INSTALL_FOLDER_SYSTEM_PROPERTY, basePath.toString());
+    RodaCoreFactory.instantiateTest(false, false, false, false, false, false);
+    model = RodaCoreFactory.getModelService();
+
+    aipId = model.createAIP(null, AIP_TYPE, new Permissions(), RodaConstants.ADMIN).getId();
+    model.createRepresentation(aipId, REPRESENTATION_ID, true, RodaConstants.REPRESENTATION_TYPE_MIXED, true,
+      RodaConstants.ADMIN);
+    content = StringUtils.repeat('x', fileSize);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  @Benchmark
+  public AIP createAIP() throws RODAException {
+    return model.createAIP(null, AIP_TYPE, new Permissions(), RodaConstants.ADMIN);
+  }
+
+  @Benchmark
+  public File createFile() throws RODAException {
+    return model.createFile(aipId, REPRESENTATION_ID, Collections.emptyList(), FILE_ID + counter.incrementAndGet(),
+      new StringContentPayload(content), RodaConstants.ADMIN);
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.BinaryVersion;
+import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.Resource;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+
+/**
+ * Benchmarks of the file system storage: binary creation, retrieval, listing
+ * and versioning.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StorageBenchmark {
+  private static final String CREATE_CONTAINER = "create";
+  private static final String LIST_CONTAINER = "list";
+  private static final String BINARY_ID = "binary";
+  private static final int LIST_FOLDERS = 10;
+
+  @Param({"1024", "1048576"})
+  public int binarySize;
+
+  @Param({"1000"})
+  public int binariesToList;
+
+  private Path basePath;
+  private Path storagePath;
+  private FileStorageService storage;
+  private String content;
+  private StoragePath binaryPath;
+  private StoragePath listContainerPath;
+  private final AtomicLong counter = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, RODAException {
+    basePath = Files.createTempDirectory("roda-benchmarks");
+    storagePath = basePath.resolve("storage");
+    storage = new FileStorageService(storagePath);
+    content = StringUtils.repeat('x', binarySize);
+
+    storage.createContainer(DefaultStoragePath.parse(CREATE_CONTAINER));
+    binaryPath = DefaultStoragePath.parse(CREATE_CONTAINER, BINARY_ID);
+    storage.createBinary(binaryPath, new StringContentPayload(content), false);
+
+    listContainerPath = DefaultStoragePath.parse(LIST_CONTAINER);
+    storage.createContainer(listContainerPath);
+    for (int i = 0; i < binariesToList; i++) {
+      StoragePath path = DefaultStoragePath.parse(LIST_CONTAINER, "folder" + (i % LIST_FOLDERS), BINARY_ID + i);
+      storage.createBinary(path, new StringContentPayload(BINARY_ID + i), false);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  @Benchmark
+  public Binary createBinary() throws RODAException {
+    StoragePath path = DefaultStoragePath.parse(CREATE_CONTAINER, BINARY_ID + counter.incrementAndGet());
+    return storage.createBinary(path, new StringContentPayload(content), false);
+  }
+
+  @Benchmark
+  public long getBinary() throws RODAException, IOException {
+    Binary binary = storage.getBinary(binaryPath);
+    try (InputStream inputStream = binary.getContent().createInputStream()) {
+      return inputStream.transferTo(OutputStream.nullOutputStream());
+    }
+  }
+
+  @Benchmark
+  public long listResourcesUnderContainer() throws RODAException, IOException {
+    long count = 0;
+    try (CloseableIterable<Resource> resources = storage.listResourcesUnderContainer(listContainerPath, true)) {
+      for (Resource resource : resources) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public long recursivelyListPath() throws RODAException, IOException {
+    long count = 0;
+    try (CloseableIterable<Resource> resources = FSUtils.recursivelyListPath(storagePath,
+      storage.resolve(listContainerPath))) {
+      for (Resource resource : resources) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public BinaryVersion createBinaryVersion() throws RODAException {
+    return storage.createBinaryVersion(binaryPath, Collections.emptyMap());
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roda.core.common.tools.ZipEntryInfo;
+import org.roda.core.common.tools.ZipTools;
+import org.roda.core.storage.fs.FSUtils;
+
+/**
+ * Benchmark of the creation of zips from files (as done for downloads).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ZipBenchmark {
+
+  @Param({"100"})
+  public int numberOfFiles;
+
+  @Param({"65536"})
+  public int fileSize;
+
+  private Path basePath;
+  private List<ZipEntryInfo> entries;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    basePath = Files.createTempDirectory("roda-benchmarks");
+    Random random = new Random(numberOfFiles);
+    byte[] content = new byte[fileSize];
+    entries = new ArrayList<>();
+    for (int i = 0; i < numberOfFiles; i++) {
+      // half random (incompressible) and half repeated content
+      random.nextBytes(content);
+      for (int j = content.length / 2; j < content.length; j++) {
+        content[j] = 'x';
+      }
+      Path file = Files.write(basePath.resolve("file" + i), content);
+      entries.add(new ZipEntryInfo("data/file" + i, file));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  @Benchmark
+  public List<ZipEntryInfo> zip() throws IOException {
+    ZipTools.zip(entries, OutputStream.nullOutputStream());
+    return entries;
+  }
+}
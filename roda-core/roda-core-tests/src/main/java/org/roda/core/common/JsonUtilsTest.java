@@ -7,6 +7,11 @@
  */
 package org.roda.core.common;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 
@@ -14,6 +19,7 @@ import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.storage.fs.FSUtils;
 import org.testng.Assert;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
@@ -45,4 +51,37 @@ public class JsonUtilsTest {
       AssertJUnit.assertNotNull(report);
     }
   }
+
+  @Test
+  public void testStreams() throws GenericException {
+    Report report = new Report();
+    report.setId("report1");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonUtils.writeObjectToStream(report, out);
+    Assert.assertEquals(out.toString(), JsonUtils.getJsonFromObject(report));
+
+    Report report2 = JsonUtils.getObjectFromJson(new ByteArrayInputStream(out.toByteArray()), Report.class);
+    Assert.assertEquals(report2.getId(), "report1");
+  }
+
+  @Test
+  public void testWriteReplacesFile() throws GenericException, IOException {
+    Path file = Files.createTempFile("json", ".json");
+    try {
+      Files.writeString(file, "{\"id\":\"a previous, longer content than the new one\"}");
+      Report report = new Report();
+      report.setId("report1");
+      JsonUtils.writeObjectToFile(report, file);
+      Assert.assertEquals(JsonUtils.readObjectFromFile(file, Report.class).getId(), "report1");
+
+      Files.writeString(file, "");
+      JsonUtils.appendObjectToFile(report, file);
+      JsonUtils.appendObjectToFile(report, file);
+      Assert.assertEquals(JsonUtils.calculateNumberOfLines(file), 2);
+      Assert.assertEquals(JsonUtils.getListFromJsonLines(Files.newInputStream(file), Report.class).size(), 2);
+    } finally {
+      FSUtils.deletePathQuietly(file);
+    }
+  }
 }
@@ -0,0 +1,70 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class PremisV3FileExtractorTest {
+
+  private static final String PREMIS_FILE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<premis:object xmlns:premis=\"http://www.loc.gov/premis/v3\""
+    + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:type=\"premis:file\">"
+    + "<premis:objectIdentifier><premis:objectIdentifierType>local</premis:objectIdentifierType>"
+    + "<premis:objectIdentifierValue>file.pdf</premis:objectIdentifierValue></premis:objectIdentifier>"
+    + "<premis:objectCharacteristics><premis:compositionLevel>0</premis:compositionLevel>"
+    + "<premis:fixity><premis:messageDigestAlgorithm>SHA-256</premis:messageDigestAlgorithm>"
+    + "<premis:messageDigest>abc</premis:messageDigest>"
+    + "<premis:messageDigestOriginator>RODA</premis:messageDigestOriginator></premis:fixity>"
+    + "<premis:fixity><premis:messageDigestAlgorithm>MD5</premis:messageDigestAlgorithm>"
+    + "<premis:messageDigest>def</premis:messageDigest>"
+    + "<premis:messageDigestOriginator></premis:messageDigestOriginator></premis:fixity>"
+    + "<premis:size>1234</premis:size>"
+    + "<premis:format><premis:formatDesignation><premis:formatName>PDF</premis:formatName>"
+    + "<premis:formatVersion>1.4</premis:formatVersion></premis:formatDesignation>"
+    + "<premis:formatRegistry><premis:formatRegistryName>pronom</premis:formatRegistryName>"
+    + "<premis:formatRegistryKey>fmt/18</premis:formatRegistryKey></premis:formatRegistry></premis:format>"
+    + "<premis:format><premis:formatRegistry><premis:formatRegistryName>mime</premis:formatRegistryName>"
+    + "<premis:formatRegistryKey>application/pdf</premis:formatRegistryKey></premis:formatRegistry></premis:format>"
+    + "<premis:creatingApplication><premis:creatingApplicationName>Writer</premis:creatingApplicationName>"
+    + "<premis:creatingApplicationVersion>7</premis:creatingApplicationVersion>"
+    + "</premis:creatingApplication></premis:objectCharacteristics>"
+    + "<premis:originalName>original.pdf</premis:originalName></premis:object>";
+
+  @Test
+  public void testExtractFileFields() throws GenericException {
+    SolrInputDocument doc = PremisV3FileExtractor
+      .getSolrDocument(new ByteArrayInputStream(PREMIS_FILE.getBytes(StandardCharsets.UTF_8)));
+
+    Assert.assertEquals(doc.getFieldValue(RodaConstants.FILE_ORIGINALNAME), "original.pdf");
+    Assert.assertEquals(doc.getFieldValue(RodaConstants.FILE_SIZE), 1234L);
+    Assert.assertEquals(doc.getFieldValues(RodaConstants.FILE_HASH), Arrays.asList("abc (SHA-256, RODA)", "def (MD5)"));
+    Assert.assertEquals(doc.getFieldValue(RodaConstants.FILE_FILEFORMAT), "PDF");
+    Assert.assertEquals(doc.getFieldValue(RodaConstants.FILE_FORMAT_VERSION), "1.4");
+    Assert.assertEquals(doc.getFieldValue(RodaConstants.FILE_FORMAT_DESIGNATION), "PDF 1.4");
+    Assert.assertEquals(doc.getFieldValue(RodaConstants.FILE_PRONOM), "fmt/18");
+    Assert.assertEquals(doc.getFieldValue(RodaConstants.FILE_FORMAT_MIMETYPE), "application/pdf");
+    Assert.assertEquals(doc.getFieldValue(RodaConstants.FILE_CREATING_APPLICATION_NAME), "Writer");
+    Assert.assertEquals(doc.getFieldValues(RodaConstants.FILE_CREATING_APPLICATION_VERSION),
+      Collections.singletonList("7"));
+  }
+
+  @Test(expectedExceptions = GenericException.class)
+  public void testInvalidXml() throws GenericException {
+    PremisV3FileExtractor.getSolrDocument(new ByteArrayInputStream("<premis:object>".getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.synchronization;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.common.SyncUtils;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.v2.risks.IndexedRisk;
+import org.roda.core.data.v2.risks.Risk;
+import org.roda.core.data.v2.risks.SeverityLevel;
+import org.roda.core.index.IndexService;
+import org.roda.core.index.IndexTestUtils;
+import org.roda.core.model.ModelService;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.util.IdUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class SyncBundleDigestsTest {
+  private static Path basePath;
+
+  private static ModelService model;
+  private static IndexService index;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(SyncBundleDigestsTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    model = RodaCoreFactory.getModelService();
+    index = RodaCoreFactory.getIndexService();
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    IndexTestUtils.resetIndex();
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  private Risk createRisk() throws Exception {
+    Risk risk = new Risk();
+    risk.setId(IdUtils.createUUID());
+    risk.setName("Risk");
+    risk.setIdentifiedOn(new Date());
+    risk.setPreMitigationSeverityLevel(SeverityLevel.LOW);
+    risk.setCreatedOn(new Date());
+    risk.setCreatedBy(RodaConstants.ADMIN);
+    risk.setUpdatedOn(new Date());
+    risk.setUpdatedBy(RodaConstants.ADMIN);
+    model.createRisk(risk, false);
+    index.commit(IndexedRisk.class);
+    return risk;
+  }
+
+  private void updateRisk(Risk risk) throws Exception {
+    risk.setName("Risk new name");
+    Map<String, String> properties = new HashMap<>();
+    properties.put(RodaConstants.VERSION_ACTION, RodaConstants.VersionAction.UPDATED.toString());
+    model.updateRisk(risk, properties, false, 0);
+    index.commit(IndexedRisk.class);
+  }
+
+  private Path createBundle(String instanceId, String bundleName) throws Exception {
+    Path workingDir = SyncUtils.getBundleWorkingDirectory(instanceId);
+    try {
+      return SyncUtils.createCentralSyncBundle(workingDir, instanceId, bundleName);
+    } finally {
+      FSUtils.deletePathQuietly(workingDir);
+    }
+  }
+
+  /**
+   * Removes the bundle from the outcome folder, as the instance does after
+   * importing it.
+   */
+  private void acknowledge(String bundleName) throws Exception {
+    Files.delete(SyncUtils.getSyncOutcomeBundlePath(bundleName));
+    SyncUtils.acknowledgeCentralSyncBundle(bundleName);
+  }
+
+  private boolean containsRisk(Path bundle, Risk risk) throws Exception {
+    String entryName = RodaConstants.CORE_STORAGE_FOLDER + "/" + RodaConstants.STORAGE_CONTAINER_RISK + "/"
+      + risk.getId() + RodaConstants.RISK_FILE_EXTENSION;
+    try (ZipFile zip = new ZipFile(bundle.toFile())) {
+      return zip.getEntry(entryName) != null;
+    }
+  }
+
+  private Path getPendingPath(String bundleName) {
+    return SyncUtils.getSyncOutcomeBundlePath(bundleName + ".digests.json");
+  }
+
+  @Test
+  public void testUnchangedEntitiesAreNotSent() throws Exception {
+    Risk risk = createRisk();
+    String instanceId = IdUtils.createUUID();
+
+    Path bundle = createBundle(instanceId, instanceId + "_1.zip");
+    Assert.assertNotNull(bundle);
+    Assert.assertTrue(containsRisk(bundle, risk));
+    acknowledge(instanceId + "_1.zip");
+
+    Assert.assertNull(createBundle(instanceId, instanceId + "_2.zip"));
+  }
+
+  @Test
+  public void testChangedEntitiesAreSent() throws Exception {
+    Risk unchanged = createRisk();
+    Risk changed = createRisk();
+    String instanceId = IdUtils.createUUID();
+
+    Assert.assertNotNull(createBundle(instanceId, instanceId + "_1.zip"));
+    acknowledge(instanceId + "_1.zip");
+    updateRisk(changed);
+
+    Path bundle = createBundle(instanceId, instanceId + "_2.zip");
+    Assert.assertNotNull(bundle);
+    Assert.assertTrue(containsRisk(bundle, changed));
+    Assert.assertFalse(containsRisk(bundle, unchanged));
+  }
+
+  @Test
+  public void testRemovalsOnlyCreateBundle() throws Exception {
+    Risk unchanged = createRisk();
+    Risk removed = createRisk();
+    String instanceId = IdUtils.createUUID();
+
+    Assert.assertNotNull(createBundle(instanceId, instanceId + "_1.zip"));
+    acknowledge(instanceId + "_1.zip");
+    model.deleteRisk(removed.getId(), false);
+    index.commit(IndexedRisk.class);
+
+    // removed entities reach the instance through the validation lists
+    Path bundle = createBundle(instanceId, instanceId + "_2.zip");
+    Assert.assertNotNull(bundle);
+    Assert.assertFalse(containsRisk(bundle, unchanged));
+    Assert.assertFalse(containsRisk(bundle, removed));
+  }
+
+  @Test
+  public void testOnlyAcknowledgedBundlesAreExcluded() throws Exception {
+    Risk risk = createRisk();
+    String instanceId = IdUtils.createUUID();
+
+    Assert.assertNotNull(createBundle(instanceId, instanceId + "_1.zip"));
+    Assert.assertTrue(Files.exists(getPendingPath(instanceId + "_1.zip")));
+
+    // the first bundle was not imported, so its entities are sent again, and
+    // its pending digests replaced by the ones of the new bundle
+    Path bundle = createBundle(instanceId, instanceId + "_2.zip");
+    Assert.assertNotNull(bundle);
+    Assert.assertTrue(containsRisk(bundle, risk));
+    Assert.assertFalse(Files.exists(getPendingPath(instanceId + "_1.zip")));
+    Assert.assertTrue(Files.exists(getPendingPath(instanceId + "_2.zip")));
+
+    acknowledge(instanceId + "_2.zip");
+    Assert.assertFalse(Files.exists(getPendingPath(instanceId + "_2.zip")));
+    Assert.assertNull(createBundle(instanceId, instanceId + "_3.zip"));
+  }
+}
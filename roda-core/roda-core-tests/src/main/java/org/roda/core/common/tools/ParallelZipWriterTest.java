@@ -0,0 +1,115 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.storage.StringContentPayload;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class ParallelZipWriterTest {
+
+  @Test
+  public void testZipIsReadable() throws IOException {
+    Map<String, String> files = new LinkedHashMap<>();
+    files.put("data/text.txt", StringUtils.repeat("some text ", 1000));
+    files.put("data/image.jpg", "not really a jpeg");
+    files.put("data/ação.xml", "<a/>");
+    // larger than what is kept in memory while compressing
+    files.put("data/large.txt", StringUtils.repeat("0123456789abcdef", 1024 * 1024));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ParallelZipWriter zip = new ParallelZipWriter(out)) {
+      zip.addDirectory("data/");
+      for (Map.Entry<String, String> file : files.entrySet()) {
+        zip.addEntry(file.getKey(), new StringContentPayload(file.getValue()));
+      }
+    }
+
+    List<String> names = new ArrayList<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        names.add(entry.getName());
+        if (!entry.isDirectory()) {
+          Assert.assertEquals(new String(zip.readAllBytes(), StandardCharsets.UTF_8), files.get(entry.getName()));
+          Assert.assertEquals(entry.getMethod(),
+            entry.getName().endsWith(".jpg") ? ZipEntry.STORED : ZipEntry.DEFLATED);
+        }
+      }
+    }
+    Assert.assertEquals(names,
+      Arrays.asList("data/", "data/text.txt", "data/image.jpg", "data/ação.xml", "data/large.txt"));
+  }
+
+  @Test
+  public void testEntriesBeyondInMemoryBudget() throws IOException {
+    // hardly compressible entries, which together do not fit in memory
+    List<String> contents = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      contents.add(RandomStringUtils.randomAlphanumeric(64 * 1024));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ParallelZipWriter zip = new ParallelZipWriter(out, 100 * 1024)) {
+      for (int i = 0; i < contents.size(); i++) {
+        zip.addEntry("file" + i + ".txt", new StringContentPayload(contents.get(i)));
+      }
+    }
+
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+      for (int i = 0; i < contents.size(); i++) {
+        ZipEntry entry = zip.getNextEntry();
+        Assert.assertEquals(entry.getName(), "file" + i + ".txt");
+        Assert.assertEquals(new String(zip.readAllBytes(), StandardCharsets.UTF_8), contents.get(i));
+      }
+      Assert.assertNull(zip.getNextEntry());
+    }
+  }
+
+  @Test
+  public void testZip64EntryCount() throws IOException {
+    int count = 70000;
+    Path zipFile = Files.createTempFile("roda-zip-test", ".zip");
+    try {
+      try (ParallelZipWriter zip = new ParallelZipWriter(Files.newOutputStream(zipFile))) {
+        for (int i = 0; i < count; i++) {
+          zip.addEntry("file" + i + ".txt", new StringContentPayload("file " + i));
+        }
+      }
+
+      try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+        Assert.assertEquals(zip.size(), count);
+        try (InputStream in = zip.getInputStream(zip.getEntry("file" + (count - 1) + ".txt"))) {
+          Assert.assertEquals(new String(in.readAllBytes(), StandardCharsets.UTF_8), "file " + (count - 1));
+        }
+      }
+    } finally {
+      Files.deleteIfExists(zipFile);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.disposal;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.ip.disposal.ConditionType;
+import org.roda.core.data.v2.ip.disposal.DisposalRule;
+import org.roda.core.data.v2.ip.disposal.DisposalRules;
+import org.roda.core.plugins.base.disposal.rules.ApplyDisposalRulesPluginUtils;
+import org.roda.core.plugins.base.disposal.rules.DisposalRulesEvaluator;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class DisposalRulesEvaluatorTest {
+
+  private DisposalRule createChildOfRule(String id, int order, String parentId) {
+    DisposalRule rule = new DisposalRule();
+    rule.setId(id);
+    rule.setOrder(order);
+    rule.setType(ConditionType.IS_CHILD_OF);
+    rule.setConditionKey(parentId);
+    rule.setDisposalScheduleId("schedule-" + id);
+    return rule;
+  }
+
+  private AIP createAIP(String id, String parentId) {
+    return new AIP(id, parentId, "type", AIPState.ACTIVE, new Permissions());
+  }
+
+  @Test
+  public void testFirstMatchingRuleIsUsed() throws RODAException {
+    DisposalRules rules = new DisposalRules(Arrays.asList(createChildOfRule("second", 2, "parent1"),
+      createChildOfRule("first", 1, "parent1"), createChildOfRule("other", 3, "parent2")));
+    DisposalRulesEvaluator evaluator = new DisposalRulesEvaluator(rules);
+
+    // only child of rules, so the index is not used
+    Map<String, DisposalRule> rulesUsed = evaluator.evaluate(
+      Arrays.asList(createAIP("aip1", "parent1"), createAIP("aip2", "parent2"), createAIP("aip3", null)), null);
+
+    Assert.assertEquals(rulesUsed.size(), 2);
+    Assert.assertEquals(rulesUsed.get("aip1").getId(), "first");
+    Assert.assertEquals(rulesUsed.get("aip2").getId(), "other");
+    Assert.assertFalse(rulesUsed.containsKey("aip3"));
+  }
+
+  @Test
+  public void testRuleApplied() {
+    DisposalRule rule = createChildOfRule("rule", 1, "parent");
+    AIP aip = createAIP("aip", "parent");
+    Assert.assertFalse(ApplyDisposalRulesPluginUtils.isRuleApplied(aip, rule));
+
+    ApplyDisposalRulesPluginUtils.applyRule(aip, rule);
+    Assert.assertTrue(ApplyDisposalRulesPluginUtils.isRuleApplied(aip, rule));
+    Assert.assertFalse(ApplyDisposalRulesPluginUtils.isRuleApplied(aip, createChildOfRule("other", 2, "parent")));
+  }
+}
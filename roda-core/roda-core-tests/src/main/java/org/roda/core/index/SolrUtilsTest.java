@@ -108,6 +108,21 @@ public class SolrUtilsTest {
     assertEquals("Tove", field1.getValue());
   }
 
+  @Test
+  public void testGetDescriptiveMetadataFieldsWithReusedTransformer() throws RODAException {
+    final DefaultStoragePath strangeMetadataPath = DefaultStoragePath
+      .parse(CorporaConstants.SOURCE_DESC_METADATA_CONTAINER, CorporaConstants.STRANGE_DESC_METADATA_FILE);
+    Binary strangeMetadata = corporaService.getBinary(strangeMetadataPath);
+
+    SolrInputDocument first = SolrUtils.getDescriptiveMetadataFields(strangeMetadata, null, null);
+    SolrInputDocument second = SolrUtils.getDescriptiveMetadataFields(strangeMetadata, null, null);
+
+    assertEquals(first.size(), second.size());
+    for (SolrInputField field : first) {
+      assertEquals(field.getValue(), second.getFieldValue(field.getName()));
+    }
+  }
+
   @Test
   public void testParserWithNullFilter() {
     try {
@@ -0,0 +1,193 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.common.SolrException;
+import org.mockito.Mockito;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.risks.IncidenceStatus;
+import org.roda.core.data.v2.risks.RiskIncidence;
+import org.roda.core.data.v2.risks.SeverityLevel;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.Resource;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+import org.roda.core.util.IdUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class StorageReindexerTest {
+  private static final int INCIDENCES = 5;
+  private static final int THREADS = 2;
+  private static final int CHUNK_SIZE = 2;
+  private static final int BATCH_SIZE = 2;
+
+  private static Path basePath;
+  private static IndexService index;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(StorageReindexerTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    index = RodaCoreFactory.getIndexService();
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    IndexTestUtils.resetIndex();
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  /**
+   * Creates a storage with incidences of the given risk, and a file that cannot
+   * be parsed.
+   */
+  private StorageService createStorage(String riskId) throws Exception {
+    StorageService storage = new FileStorageService(basePath.resolve(riskId));
+    storage.createContainer(ModelUtils.getRiskIncidenceContainerPath());
+    for (int i = 0; i < INCIDENCES; i++) {
+      RiskIncidence incidence = new RiskIncidence();
+      incidence.setId(riskId + "-" + i);
+      incidence.setRiskId(riskId);
+      incidence.setStatus(IncidenceStatus.UNMITIGATED);
+      incidence.setSeverity(SeverityLevel.LOW);
+      storage.createBinary(ModelUtils.getRiskIncidenceStoragePath(incidence.getId()),
+        new StringContentPayload(JsonUtils.getJsonFromObject(incidence)), false);
+    }
+    storage.createBinary(
+      DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_RISK_INCIDENCE,
+        "broken" + RodaConstants.RISK_INCIDENCE_FILE_EXTENSION),
+      new StringContentPayload("{"), false);
+    return storage;
+  }
+
+  private RecordingListener reindex(IndexService indexService, StorageService storage) throws Exception {
+    RecordingListener listener = new RecordingListener();
+    StorageReindexer reindexer = new StorageReindexer(indexService, THREADS, CHUNK_SIZE, BATCH_SIZE);
+    try (CloseableIterable<Resource> resources = storage
+      .listResourcesUnderContainer(ModelUtils.getRiskIncidenceContainerPath(), false)) {
+      reindexer.reindex(resources, RiskIncidence.class, resource -> true, listener);
+    }
+    index.commit(RiskIncidence.class);
+    return listener;
+  }
+
+  private long countIncidences(String riskId) throws Exception {
+    return index.count(RiskIncidence.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_RISK_ID, riskId)));
+  }
+
+  @Test
+  public void testChunksAreIndexedInBulk() throws Exception {
+    String riskId = IdUtils.createUUID();
+    RecordingListener listener = reindex(index, createStorage(riskId));
+
+    Assert.assertEquals(listener.found.get(), INCIDENCES + 1);
+    Assert.assertEquals(listener.succeeded.get(), INCIDENCES);
+    // the file that could not be parsed counts as one failed object
+    Assert.assertEquals(listener.failed.get(), 1);
+    Assert.assertEquals(listener.failures.size(), 1);
+    Assert.assertTrue(listener.failures.keySet().iterator().next().endsWith("broken.json"));
+    Assert.assertEquals(listener.processedFiles.get(), INCIDENCES + 1);
+    Assert.assertEquals(listener.listedFiles.get(), INCIDENCES + 1);
+    Assert.assertEquals(countIncidences(riskId), INCIDENCES);
+  }
+
+  @Test
+  public void testBulkFailureFallsBackToOneByOne() throws Exception {
+    String riskId = IdUtils.createUUID();
+    String failingId = riskId + "-0";
+
+    // bulk requests fail, while the objects indexed one by one use the real
+    // index, except for one of them
+    SolrClient failingClient = Mockito.mock(SolrClient.class);
+    Mockito.doThrow(new SolrException(SolrException.ErrorCode.SERVER_ERROR, "test")).when(failingClient)
+      .add(anyString(), anyCollection());
+    IndexService indexService = Mockito.spy(index);
+    Mockito.doReturn(failingClient).when(indexService).getSolrClient();
+    Mockito.doThrow(new IllegalStateException("test")).when(indexService)
+      .reindex(Mockito.<Serializable> argThat(
+        object -> object instanceof RiskIncidence && failingId.equals(((RiskIncidence) object).getId())));
+
+    RecordingListener listener = reindex(indexService, createStorage(riskId));
+
+    // one bulk request per chunk of parsed incidences
+    Mockito.verify(failingClient, times(3)).add(anyString(), anyCollection());
+    Assert.assertEquals(listener.found.get(), INCIDENCES + 1);
+    Assert.assertEquals(listener.succeeded.get(), INCIDENCES - 1);
+    Assert.assertEquals(listener.failed.get(), 2);
+    Assert.assertTrue(listener.failures.containsKey(failingId));
+    Assert.assertEquals(countIncidences(riskId), INCIDENCES - 1);
+  }
+
+  private static class RecordingListener implements StorageReindexer.Listener {
+    private final AtomicInteger found = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+    private final AtomicLong processedFiles = new AtomicLong();
+    private final AtomicLong listedFiles = new AtomicLong();
+
+    @Override
+    public void objectsFound(int count) {
+      found.addAndGet(count);
+    }
+
+    @Override
+    public void objectsProcessed(int succeededCount, int failedCount) {
+      succeeded.addAndGet(succeededCount);
+      failed.addAndGet(failedCount);
+    }
+
+    @Override
+    public void objectFailed(String id, String message) {
+      failures.put(id, message);
+    }
+
+    @Override
+    public void progress(long processed, long listed, Optional<Duration> estimatedTimeLeft) {
+      processedFiles.accumulateAndGet(processed, Math::max);
+      listedFiles.accumulateAndGet(listed, Math::max);
+    }
+  }
+}
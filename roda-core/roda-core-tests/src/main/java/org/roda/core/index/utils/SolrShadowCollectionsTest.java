@@ -0,0 +1,236 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CollectionParams;
+import org.apache.solr.common.params.CoreAdminParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class SolrShadowCollectionsTest {
+  private static final String COLLECTION = "collection";
+  private static final String SHADOW = "collection_20240101000000";
+
+  private CloudSolrClient client;
+  private SolrShadowCollections shadows;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    client = Mockito.mock(CloudSolrClient.class);
+
+    // collection admin requests succeed
+    NamedList<Object> success = new NamedList<>();
+    success.add("success", new NamedList<>());
+    Mockito.when(client.request(any(), any())).thenReturn(success);
+
+    // live and shadow collections have the same number of documents
+    SolrDocumentList results = new SolrDocumentList();
+    results.setNumFound(1);
+    QueryResponse response = Mockito.mock(QueryResponse.class);
+    Mockito.when(response.getResults()).thenReturn(results);
+    Mockito.when(client.query(anyString(), any(SolrParams.class))).thenReturn(response);
+
+    shadows = new SolrShadowCollections(client, 2, SolrShadowCollections.DEFAULT_MIN_DOCUMENTS_RATIO);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    SolrShadowCollections.endRebuildWrites();
+  }
+
+  private SolrInputDocument createDocument(String id) {
+    SolrInputDocument document = new SolrInputDocument();
+    document.addField(RodaConstants.INDEX_UUID, id);
+    return document;
+  }
+
+  /**
+   * @return the number of collection admin requests with the given action on
+   *         the given collection or alias
+   */
+  private long countAdminRequests(CollectionParams.CollectionAction action, String name) throws Exception {
+    ArgumentCaptor<SolrRequest> requests = ArgumentCaptor.forClass(SolrRequest.class);
+    Mockito.verify(client, Mockito.atLeast(0)).request(requests.capture(), any());
+    return requests.getAllValues().stream().map(SolrRequest::getParams)
+      .filter(params -> action.toLower().equals(params.get(CoreAdminParams.ACTION))
+        && name.equals(params.get(CoreAdminParams.NAME)))
+      .count();
+  }
+
+  private SolrInputDocument createAtomicUpdate(String id) {
+    SolrInputDocument document = createDocument(id);
+    document.addField("title", Collections.singletonMap("set", "title"));
+    return document;
+  }
+
+  @Test
+  public void testWritesWithoutShadow() throws Exception {
+    SolrShadowCollections.startRebuildWrites();
+    Assert.assertFalse(shadows.add(COLLECTION, Arrays.asList(createDocument("1"))));
+    Assert.assertFalse(shadows.delete(COLLECTION, Arrays.asList("1")));
+    Assert.assertFalse(shadows.deleteByQuery(COLLECTION, "*:*"));
+    Assert.assertFalse(shadows.isRunning());
+    Mockito.verifyNoInteractions(client);
+  }
+
+  @Test
+  public void testRebuildWritesOnlyGoToShadow() throws Exception {
+    shadows.register(COLLECTION, COLLECTION, SHADOW);
+    SolrShadowCollections.startRebuildWrites();
+
+    SolrInputDocument first = createDocument("1");
+    SolrInputDocument second = createDocument("2");
+    Assert.assertTrue(shadows.add(COLLECTION, Arrays.asList(first)));
+    // buffered until the batch is full
+    Mockito.verifyNoInteractions(client);
+    Assert.assertTrue(shadows.add(COLLECTION, Arrays.asList(second)));
+    Mockito.verify(client).add(SHADOW, Arrays.asList(first, second));
+
+    // deletes are sent after the buffered documents
+    SolrInputDocument third = createDocument("3");
+    Assert.assertTrue(shadows.add(COLLECTION, Arrays.asList(third)));
+    Assert.assertTrue(shadows.delete(COLLECTION, Arrays.asList("1")));
+    Assert.assertTrue(shadows.deleteByQuery(COLLECTION, "id:2"));
+
+    InOrder inOrder = Mockito.inOrder(client);
+    inOrder.verify(client).add(SHADOW, Arrays.asList(third));
+    inOrder.verify(client).deleteById(SHADOW, "1");
+    inOrder.verify(client).deleteByQuery(SHADOW, "id:2");
+    Mockito.verify(client, never()).add(eq(COLLECTION), any(SolrInputDocument.class));
+  }
+
+  @Test
+  public void testLiveWritesAreRecorded() throws Exception {
+    shadows.register(COLLECTION, COLLECTION, SHADOW);
+
+    SolrInputDocument document = createDocument("1");
+    Assert.assertFalse(shadows.add(COLLECTION, Arrays.asList(document)));
+    Assert.assertFalse(shadows.delete(COLLECTION, Arrays.asList("2")));
+    Assert.assertFalse(shadows.deleteByQuery(COLLECTION, "id:3"));
+    // only written to the shadow collection when the rebuild finishes
+    Mockito.verifyNoInteractions(client);
+
+    shadows.finish();
+    InOrder inOrder = Mockito.inOrder(client);
+    inOrder.verify(client).add(SHADOW, document);
+    inOrder.verify(client).deleteById(SHADOW, "2");
+    inOrder.verify(client).deleteByQuery(SHADOW, "id:3");
+    inOrder.verify(client).commit(SHADOW);
+    Assert.assertFalse(shadows.isRunning());
+  }
+
+  @Test
+  public void testReplayOfAddThenAtomicUpdateThenDelete() throws Exception {
+    shadows.register(COLLECTION, COLLECTION, SHADOW);
+
+    SolrInputDocument document = createDocument("1");
+    SolrInputDocument update = createAtomicUpdate("1");
+    shadows.add(COLLECTION, Arrays.asList(document));
+    shadows.add(COLLECTION, Arrays.asList(update));
+    shadows.delete(COLLECTION, Arrays.asList("1"));
+
+    shadows.finish();
+    // the delete replaces the add and is replayed after the update
+    InOrder inOrder = Mockito.inOrder(client);
+    inOrder.verify(client).add(SHADOW, update);
+    inOrder.verify(client).deleteById(SHADOW, "1");
+    inOrder.verify(client).commit(SHADOW);
+    Mockito.verify(client, never()).add(SHADOW, document);
+  }
+
+  @Test
+  public void testReplayOfDeleteThenAdd() throws Exception {
+    shadows.register(COLLECTION, COLLECTION, SHADOW);
+
+    SolrInputDocument document = createDocument("1");
+    SolrInputDocument update = createAtomicUpdate("1");
+    shadows.delete(COLLECTION, Arrays.asList("1"));
+    shadows.add(COLLECTION, Arrays.asList(document));
+    shadows.add(COLLECTION, Arrays.asList(update));
+
+    shadows.finish();
+    InOrder inOrder = Mockito.inOrder(client);
+    inOrder.verify(client).add(SHADOW, document);
+    inOrder.verify(client).add(SHADOW, update);
+    inOrder.verify(client).commit(SHADOW);
+    Mockito.verify(client, never()).deleteById(anyString(), anyString());
+  }
+
+  @Test
+  public void testFirstSwapKeepsCollectionName() throws Exception {
+    shadows.register(COLLECTION, COLLECTION, SHADOW);
+    shadows.finish();
+
+    // the collection is replaced by an alias, which must not be deleted after
+    // the swap
+    Assert.assertEquals(countAdminRequests(CollectionParams.CollectionAction.DELETE, COLLECTION), 1);
+    Assert.assertEquals(countAdminRequests(CollectionParams.CollectionAction.CREATEALIAS, COLLECTION), 1);
+    Assert.assertFalse(shadows.isRunning());
+  }
+
+  @Test
+  public void testSwapDeletesPreviousCollection() throws Exception {
+    String previous = "collection_20230101000000";
+    shadows.register(COLLECTION, previous, SHADOW);
+    shadows.finish();
+
+    Assert.assertEquals(countAdminRequests(CollectionParams.CollectionAction.CREATEALIAS, COLLECTION), 1);
+    Assert.assertEquals(countAdminRequests(CollectionParams.CollectionAction.DELETE, previous), 1);
+    Assert.assertEquals(countAdminRequests(CollectionParams.CollectionAction.DELETE, COLLECTION), 0);
+  }
+
+  @Test
+  public void testFailedReplayDuringSwapKeepsLiveCollection() throws Exception {
+    shadows.register(COLLECTION, COLLECTION, SHADOW);
+
+    // a live change is recorded while the shadow collection is being verified,
+    // and cannot be written to it when replayed before the swap
+    SolrInputDocument document = createDocument("1");
+    QueryResponse response = client.query(anyString(), any(SolrParams.class));
+    Mockito.when(client.query(anyString(), any(SolrParams.class))).thenAnswer(invocation -> {
+      shadows.add(COLLECTION, Arrays.asList(document));
+      return response;
+    });
+    Mockito.when(client.add(SHADOW, document)).thenThrow(new IOException("Shadow collection unavailable"));
+
+    try {
+      shadows.finish();
+      Assert.fail("The failed replay should have stopped the swap");
+    } catch (GenericException e) {
+      // expected
+    }
+
+    Assert.assertEquals(countAdminRequests(CollectionParams.CollectionAction.DELETE, COLLECTION), 0);
+    Assert.assertEquals(countAdminRequests(CollectionParams.CollectionAction.CREATEALIAS, COLLECTION), 0);
+    Assert.assertTrue(shadows.isRunning());
+  }
+}
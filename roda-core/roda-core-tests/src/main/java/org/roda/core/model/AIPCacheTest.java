@@ -0,0 +1,50 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class AIPCacheTest {
+
+  @Test
+  public void testLoadAndInvalidate() throws RODAException {
+    AIPCache cache = new AIPCache(new MetricRegistry(), 1, 10);
+    AtomicInteger loads = new AtomicInteger(0);
+    AIPCache.AIPMetadataLoader loader = aipId -> aipId + "-" + loads.incrementAndGet();
+
+    Assert.assertEquals(cache.get("aip1", loader), "aip1-1");
+    Assert.assertEquals(cache.get("aip1", loader), "aip1-1");
+    Assert.assertEquals(loads.get(), 1);
+
+    cache.invalidate("aip1");
+    Assert.assertEquals(cache.get("aip1", loader), "aip1-2");
+  }
+
+  @Test
+  public void testNotFoundIsNotCached() throws RODAException {
+    AIPCache cache = new AIPCache(new MetricRegistry(), 1, 10);
+    try {
+      cache.get("aip1", aipId -> {
+        throw new NotFoundException("AIP not found");
+      });
+      Assert.fail("Not found exception should have been thrown");
+    } catch (NotFoundException e) {
+      // expected
+    }
+    Assert.assertEquals(cache.get("aip1", aipId -> "found"), "found");
+  }
+}
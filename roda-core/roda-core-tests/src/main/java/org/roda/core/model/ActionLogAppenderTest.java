@@ -0,0 +1,118 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class ActionLogAppenderTest {
+  private static final String INSTANCE_ID = "instance";
+
+  private Path logDirectory;
+  private List<Path> rotations;
+  private List<LogEntry> indexed;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    logDirectory = Files.createTempDirectory("action-logs");
+    rotations = Collections.synchronizedList(new ArrayList<>());
+    indexed = Collections.synchronizedList(new ArrayList<>());
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FSUtils.deletePathQuietly(logDirectory);
+  }
+
+  private ActionLogAppender createAppender() {
+    return new ActionLogAppender(INSTANCE_ID, (directory, newLogFile) -> rotations.add(newLogFile), indexed::add,
+      new MetricRegistry(), 10, 4);
+  }
+
+  private LogEntry createLogEntry(String uuid) {
+    LogEntry logEntry = new LogEntry();
+    logEntry.setUUID(uuid);
+    return logEntry;
+  }
+
+  @Test
+  public void testEntriesAreWrittenInOrder() throws Exception {
+    ActionLogAppender appender = createAppender();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      LogEntry logEntry = createLogEntry("entry" + i);
+      boolean notify = i % 2 == 0;
+      futures.add(executor.submit(() -> {
+        appender.append(logEntry, logDirectory, notify);
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    appender.shutdown();
+
+    Assert.assertEquals(rotations.size(), 1);
+    Path logFile = rotations.get(0);
+    Assert.assertEquals(JsonUtils.calculateNumberOfLines(logFile), 100);
+
+    List<String> lines = Files.readAllLines(logFile);
+    for (int i = 0; i < lines.size(); i++) {
+      LogEntry logEntry = JsonUtils.getObjectFromJson(lines.get(i), LogEntry.class);
+      Assert.assertEquals(logEntry.getLineNumber(), i + 1);
+      Assert.assertTrue(logEntry.getId().endsWith(INSTANCE_ID + "-" + (i + 1)), logEntry.getId());
+      Assert.assertEquals(logEntry.getInstanceId(), INSTANCE_ID);
+    }
+    Assert.assertEquals(indexed.size(), 50);
+  }
+
+  @Test
+  public void testLineNumbersContinueExistingFile() throws Exception {
+    ActionLogAppender appender = createAppender();
+    appender.append(createLogEntry("entry1"), logDirectory, false);
+    appender.shutdown();
+
+    appender = createAppender();
+    LogEntry logEntry = createLogEntry("entry2");
+    appender.append(logEntry, logDirectory, true);
+    appender.shutdown();
+
+    Assert.assertEquals(rotations.size(), 1);
+    Assert.assertEquals(logEntry.getLineNumber(), 2);
+    Assert.assertEquals(indexed, Collections.singletonList(logEntry));
+  }
+
+  @Test(expectedExceptions = GenericException.class)
+  public void testAppendAfterShutdown() throws GenericException {
+    ActionLogAppender appender = createAppender();
+    appender.shutdown();
+    appender.append(createLogEntry("entry"), logDirectory, true);
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.roda.core.data.common.RodaConstants;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class JobReportBufferTest {
+  private static final String JOB_ID = "job";
+
+  private List<String> written;
+  private JobReportBuffer buffer;
+
+  @BeforeMethod
+  public void setUp() {
+    written = Collections.synchronizedList(new ArrayList<>());
+    buffer = new JobReportBuffer((jobId, jobReportId, json, cachedJob) -> written.add(jobReportId + "=" + json),
+      new MetricRegistry(), 3, 60000);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    buffer.shutdown();
+  }
+
+  @Test
+  public void testUpdatesAreCoalesced() {
+    buffer.put(JOB_ID, "report1", "v1", null);
+    buffer.put(JOB_ID, "report1", "v2", null);
+    Assert.assertEquals(buffer.get(JOB_ID, "report1"), "v2");
+    Assert.assertTrue(written.isEmpty());
+
+    buffer.flush(JOB_ID);
+    Assert.assertEquals(written, Collections.singletonList("report1=v2"));
+    Assert.assertNull(buffer.get(JOB_ID, "report1"));
+  }
+
+  @Test
+  public void testFlushWhenFull() {
+    buffer.put(JOB_ID, "report1", "v1", null);
+    buffer.put(JOB_ID, "report2", "v1", null);
+    buffer.put("otherJob", "report3", "v1", null);
+    Assert.assertTrue(written.isEmpty());
+
+    buffer.put(JOB_ID, "report3", "v1", null);
+    Assert.assertEquals(written.size(), 3);
+    Assert.assertEquals(buffer.get("otherJob", "report3"), "v1");
+  }
+
+  @Test
+  public void testRemovedReportIsNotWritten() {
+    buffer.put(JOB_ID, "report1", "v1", null);
+    Assert.assertTrue(buffer.remove(JOB_ID, "report1"));
+    Assert.assertFalse(buffer.remove(JOB_ID, "report1"));
+
+    buffer.shutdown();
+    Assert.assertTrue(written.isEmpty());
+  }
+
+  @Test
+  public void testRemoveWaitsForRunningFlush() throws Exception {
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    JobReportBuffer blockingBuffer = new JobReportBuffer((jobId, jobReportId, json, cachedJob) -> {
+      writing.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      written.add(jobReportId + "=" + json);
+    }, new MetricRegistry(), 3, 60000);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try {
+      blockingBuffer.put(JOB_ID, "report1", "v1", null);
+      Future<?> flush = executor.submit(() -> blockingBuffer.flush(JOB_ID));
+      writing.await();
+
+      Future<Boolean> removed = executor.submit(() -> blockingBuffer.remove(JOB_ID, "report1"));
+      Thread.sleep(200);
+      Assert.assertFalse(removed.isDone());
+
+      release.countDown();
+      flush.get();
+      // already written by the flush, so it must be deleted from storage
+      Assert.assertFalse(removed.get());
+      Assert.assertEquals(written, Collections.singletonList("report1=v1"));
+    } finally {
+      release.countDown();
+      executor.shutdown();
+      blockingBuffer.shutdown();
+    }
+  }
+}
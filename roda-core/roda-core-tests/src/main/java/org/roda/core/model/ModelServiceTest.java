@@ -11,6 +11,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
 import static org.testng.Assert.fail;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
@@ -812,6 +813,36 @@ public class ModelServiceTest {
     model.deleteAIP(aipId);
   }
 
+  @Test
+  public void testCreateFilesInWriteSession() throws RODAException, IOException {
+    // set up
+    final String aipId = IdUtils.createUUID();
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID),
+      RodaConstants.ADMIN);
+
+    final String username = "write-session-user";
+    final StoragePath corporaFilePath = DefaultStoragePath.parse(CorporaConstants.OTHER_FILE_STORAGEPATH);
+    final Binary binary = corporaService.getBinary(corporaFilePath);
+
+    try (AIPWriteSession session = model.openWriteSession()) {
+      for (int i = 0; i < 3; i++) {
+        model.createFile(aipId, CorporaConstants.REPRESENTATION_1_ID, new ArrayList<>(), IdUtils.createUUID(),
+          binary.getContent(), username, false);
+      }
+
+      // AIP metadata is only updated when the session is closed
+      assertFalse(username.equals(model.retrieveAIP(aipId).getUpdatedBy()));
+    }
+
+    AIP aip = model.retrieveAIP(aipId);
+    assertEquals(username, aip.getUpdatedBy());
+    assertEquals(username, model.retrieveRepresentation(aipId, CorporaConstants.REPRESENTATION_1_ID).getUpdatedBy());
+
+    // cleanup
+    model.deleteAIP(aipId);
+  }
+
   @Test
   public void testUpdateFile() throws RODAException, IOException {
     // set up
@@ -0,0 +1,68 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AuthenticationDeniedException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.user.User;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class UserAuthenticationCacheTest {
+
+  @Test
+  public void testCredentialsAreCachedUntilInvalidated() throws RODAException {
+    UserAuthenticationCache cache = new UserAuthenticationCache(new MetricRegistry(), 10, 60);
+    AtomicInteger binds = new AtomicInteger(0);
+    AtomicInteger lookups = new AtomicInteger(0);
+    UserAuthenticationCache.AuthenticatedUserLoader authenticatedUserLoader = (username, password) -> {
+      binds.incrementAndGet();
+      if (!"secret".equals(password)) {
+        throw new AuthenticationDeniedException("Wrong credentials");
+      }
+      return new User(username);
+    };
+    UserAuthenticationCache.UserLoader userLoader = username -> {
+      lookups.incrementAndGet();
+      return new User(username);
+    };
+
+    Assert.assertEquals(cache.getAuthenticatedUser("user1", "secret", authenticatedUserLoader, userLoader).getId(),
+      "user1");
+    Assert.assertEquals(cache.getAuthenticatedUser("user1", "secret", authenticatedUserLoader, userLoader).getId(),
+      "user1");
+    Assert.assertEquals(binds.get(), 1);
+    Assert.assertEquals(lookups.get(), 0);
+
+    try {
+      cache.getAuthenticatedUser("user1", "wrong", authenticatedUserLoader, userLoader);
+      Assert.fail("Authentication denied exception should have been thrown");
+    } catch (AuthenticationDeniedException e) {
+      // expected
+    }
+
+    cache.invalidate("user1");
+    cache.getAuthenticatedUser("user1", "secret", authenticatedUserLoader, userLoader);
+    Assert.assertEquals(binds.get(), 3);
+  }
+
+  @Test
+  public void testCachedUserIsCopied() throws RODAException {
+    UserAuthenticationCache cache = new UserAuthenticationCache(new MetricRegistry(), 10, 60);
+    UserAuthenticationCache.UserLoader userLoader = User::new;
+
+    cache.getUser("user1", userLoader).setIpAddress("127.0.0.1");
+    Assert.assertNotEquals(cache.getUser("user1", userLoader).getIpAddress(), "127.0.0.1");
+  }
+}
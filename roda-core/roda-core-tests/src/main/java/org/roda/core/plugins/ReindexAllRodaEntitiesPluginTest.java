@@ -0,0 +1,96 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.v2.Void;
+import org.roda.core.data.v2.index.select.SelectedItemsNone;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginState;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.index.IndexService;
+import org.roda.core.index.IndexTestUtils;
+import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.model.ModelService;
+import org.roda.core.plugins.base.maintenance.reindex.ReindexAllRodaEntitiesPlugin;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class ReindexAllRodaEntitiesPluginTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReindexAllRodaEntitiesPluginTest.class);
+
+  private static Path basePath;
+
+  private static ModelService model;
+  private static IndexService index;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(getClass(), true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = true;
+    boolean deployFolderMonitor = true;
+    boolean deployOrchestrator = true;
+    boolean deployPluginManager = true;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources, false);
+    model = RodaCoreFactory.getModelService();
+    index = RodaCoreFactory.getIndexService();
+
+    LOGGER.info("Running '{}' tests under storage {}", getClass().getName(), basePath);
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    IndexTestUtils.resetIndex();
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @Test
+  public void testBlueGreenReindex() throws Exception {
+    AIP aip = model.createAIP(null, "", new Permissions(), RodaConstants.ADMIN);
+
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN, "true");
+    Job job = TestsHelper.executeJob(ReindexAllRodaEntitiesPlugin.class, parameters, PluginType.MISC,
+      SelectedItemsNone.<Void> create());
+
+    // the shadow collections only replace the current ones after all reindex
+    // jobs have ended successfully
+    List<Report> reports = TestsHelper.getJobReports(index, job, true);
+    Assert.assertFalse(reports.isEmpty());
+    for (Report report : reports) {
+      Assert.assertEquals(report.getPluginState(), PluginState.SUCCESS, report.getPluginDetails());
+    }
+    Assert.assertFalse(SolrUtils.getShadowCollections().isRunning());
+
+    IndexedAIP indexedAIP = index.retrieve(IndexedAIP.class, aip.getId(), new ArrayList<>());
+    Assert.assertEquals(indexedAIP.getId(), aip.getId());
+  }
+}
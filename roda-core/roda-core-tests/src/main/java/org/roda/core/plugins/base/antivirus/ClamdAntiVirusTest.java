@@ -0,0 +1,154 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.base.antivirus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class ClamdAntiVirusTest {
+  private static final String VIRUS = "VIRUS";
+
+  private ServerSocket server;
+  private final AtomicInteger connections = new AtomicInteger(0);
+  private ExecutorService executor;
+  private Path basePath;
+
+  @BeforeClass
+  public void setUp() throws IOException {
+    server = new ServerSocket(0);
+    executor = Executors.newCachedThreadPool();
+    executor.submit(this::acceptConnections);
+    basePath = Files.createTempDirectory("clamd-test");
+  }
+
+  @AfterClass
+  public void tearDown() throws IOException {
+    server.close();
+    executor.shutdownNow();
+    FSUtils.deletePathQuietly(basePath);
+  }
+
+  /**
+   * Minimal clamd, answers {@code FOUND} to streams that contain
+   * {@link #VIRUS}.
+   */
+  private void acceptConnections() {
+    while (!server.isClosed()) {
+      try {
+        Socket socket = server.accept();
+        connections.incrementAndGet();
+        executor.submit(() -> handle(socket));
+      } catch (IOException e) {
+        // server closed
+      }
+    }
+  }
+
+  private void handle(Socket socket) {
+    try (Socket s = socket; DataInputStream in = new DataInputStream(s.getInputStream());
+      OutputStream out = s.getOutputStream()) {
+      String prefix = "";
+      int id = 0;
+      String command;
+      while ((command = readCommand(in)) != null) {
+        if ("zIDSESSION".equals(command)) {
+          prefix = "session";
+        } else if ("zVERSION".equals(command)) {
+          out.write("ClamAV 1.0.0/1/Test\0".getBytes(StandardCharsets.UTF_8));
+        } else if ("zINSTREAM".equals(command)) {
+          ByteArrayOutputStream content = new ByteArrayOutputStream();
+          int length;
+          while ((length = in.readInt()) > 0) {
+            byte[] chunk = new byte[length];
+            in.readFully(chunk);
+            content.write(chunk);
+          }
+          String result = content.toString(StandardCharsets.UTF_8).contains(VIRUS) ? "Test-Signature FOUND" : "OK";
+          String reply = (prefix.isEmpty() ? "" : ++id + ": ") + "stream: " + result + "\0";
+          out.write(reply.getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+      }
+    } catch (IOException e) {
+      // connection closed
+    }
+  }
+
+  private String readCommand(DataInputStream in) throws IOException {
+    ByteArrayOutputStream command = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) > 0) {
+      command.write(b);
+    }
+    return b < 0 ? null : command.toString(StandardCharsets.UTF_8);
+  }
+
+  private ClamdAntiVirus createAntiVirus(ClamdClient client) {
+    return new ClamdAntiVirus(client, executor, true);
+  }
+
+  @Test
+  public void testStreamScan() throws IOException {
+    Path aip = Files.createDirectories(basePath.resolve("aip"));
+    Files.createDirectories(aip.resolve("data"));
+    for (int i = 0; i < 20; i++) {
+      Files.writeString(aip.resolve("data").resolve("file" + i + ".txt"), StringUtils.repeat("clean ", 20000 * i));
+    }
+
+    ClamdClient client = new ClamdClient(new InetSocketAddress("localhost", server.getLocalPort()), 4, 5000, 5000);
+    ClamdAntiVirus antiVirus = createAntiVirus(client);
+    connections.set(0);
+    VirusCheckResult result = antiVirus.checkForVirus(aip);
+    Assert.assertTrue(result.isClean(), result.getReport());
+    Assert.assertTrue(result.getReport().contains("Scanned files: 20"), result.getReport());
+    // connections are reused
+    Assert.assertTrue(connections.get() <= 4, "Connections opened: " + connections.get());
+
+    Files.writeString(aip.resolve("data").resolve("infected.txt"), "some " + VIRUS + " content");
+    result = antiVirus.checkForVirus(aip);
+    Assert.assertFalse(result.isClean());
+    Assert.assertTrue(result.getReport().contains("infected.txt: Test-Signature FOUND"), result.getReport());
+    Assert.assertTrue(result.getReport().contains("Infected files: 1"), result.getReport());
+
+    Assert.assertEquals(antiVirus.getVersion(), "ClamAV 1.0.0/1/Test");
+    client.close();
+  }
+
+  @Test(expectedExceptions = RuntimeException.class)
+  public void testClamdNotRunning() throws IOException {
+    int port;
+    try (ServerSocket unused = new ServerSocket(0)) {
+      port = unused.getLocalPort();
+    }
+    Path aip = Files.createDirectories(basePath.resolve("aip2"));
+    Files.writeString(aip.resolve("file.txt"), "content");
+
+    ClamdClient client = new ClamdClient(new InetSocketAddress("localhost", port), 1, 1000, 1000);
+    createAntiVirus(client).checkForVirus(aip);
+  }
+}
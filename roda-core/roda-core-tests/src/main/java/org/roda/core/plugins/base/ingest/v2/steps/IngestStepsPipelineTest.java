@@ -0,0 +1,138 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.base.ingest.v2.steps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.mockito.Mockito;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.JobException;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.orchestrate.IngestJobPluginInfo;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class IngestStepsPipelineTest {
+  private static final int BUNDLES = 20;
+
+  private ExecutorService executor;
+  private Plugin<?> ingestPlugin;
+  // steps each bundle went through, by AIP id
+  private final Map<String, List<String>> executions = new ConcurrentHashMap<>();
+
+  @BeforeMethod
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+    executions.clear();
+
+    // another plugin reports the job information, so the orchestrator is not
+    // needed
+    ingestPlugin = Mockito.mock(Plugin.class);
+    Mockito.when(ingestPlugin.getParameterValues())
+      .thenReturn(Collections.singletonMap(RodaConstants.PLUGIN_PARAMS_REPORTING_CLASS, "none"));
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private List<IngestStepBundle> createBundles(IngestJobPluginInfo jobPluginInfo) {
+    List<IngestStepBundle> bundles = new ArrayList<>();
+    for (int i = 0; i < BUNDLES; i++) {
+      AIP aip = new AIP("aip" + i, null, "type", AIPState.INGEST_PROCESSING, new Permissions());
+      bundles.add(new IngestStepBundle(ingestPlugin, null, null, null, jobPluginInfo, null, Collections.emptyMap(),
+        Collections.emptyList(), new ArrayList<>(Arrays.asList(aip)), null, null));
+    }
+    return bundles;
+  }
+
+  @Test
+  public void testStepsOrderAndStepsCompleted() throws JobException {
+    List<IngestStep> steps = Arrays.asList(new RecordingStep("first", true, false),
+      new RecordingStep("skipped", false, false), new RecordingStep("last", true, false));
+    IngestJobPluginInfo jobPluginInfo = new IngestJobPluginInfo();
+
+    new IngestStepsPipeline(ingestPlugin, steps, name -> null, executor).execute(jobPluginInfo,
+      createBundles(jobPluginInfo));
+
+    Assert.assertEquals(executions.size(), BUNDLES);
+    for (List<String> bundleSteps : executions.values()) {
+      Assert.assertEquals(bundleSteps, Arrays.asList("first", "skip skipped", "last"));
+    }
+    // skipped steps are not counted
+    Assert.assertEquals(jobPluginInfo.getStepsCompleted(), 2);
+  }
+
+  @Test
+  public void testFailingStepStopsPipeline() {
+    List<IngestStep> steps = Arrays.asList(new RecordingStep("first", true, false),
+      new RecordingStep("failing", true, true), new RecordingStep("last", true, false));
+    IngestJobPluginInfo jobPluginInfo = new IngestJobPluginInfo();
+
+    try {
+      new IngestStepsPipeline(ingestPlugin, steps, name -> null, executor).execute(jobPluginInfo,
+        createBundles(jobPluginInfo));
+      Assert.fail("The failure of a step should have been thrown");
+    } catch (JobException e) {
+      // expected
+    }
+
+    for (List<String> bundleSteps : executions.values()) {
+      Assert.assertFalse(bundleSteps.contains("last"));
+    }
+  }
+
+  private class RecordingStep extends IngestStep {
+    private final boolean performed;
+    private final boolean fails;
+
+    RecordingStep(String name, boolean performed, boolean fails) {
+      super(name, name, true, false, true, false);
+      this.performed = performed;
+      this.fails = fails;
+    }
+
+    @Override
+    public boolean isToBePerformed(Plugin<?> plugin, PluginParameter pluginParameter) {
+      return performed;
+    }
+
+    @Override
+    public void process(IngestStepBundle bundle) throws JobException {
+      if (fails) {
+        throw new JobException("Step " + getPluginName() + " failed");
+      }
+      record(bundle, getPluginName());
+    }
+
+    @Override
+    public void skip(IngestStepBundle bundle) {
+      record(bundle, "skip " + getPluginName());
+    }
+
+    private void record(IngestStepBundle bundle, String execution) {
+      executions.computeIfAbsent(bundle.getAips().get(0).getId(), id -> Collections.synchronizedList(new ArrayList<>()))
+        .add(execution);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.orchestrate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AcquireLockTimeoutException;
+import org.roda.core.data.exceptions.LockingException;
+import org.roda.core.data.exceptions.NotLockableAtTheTimeException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+@Test(groups = {RodaConstants.TEST_GROUP_ALL, RodaConstants.TEST_GROUP_DEV, RodaConstants.TEST_GROUP_TRAVIS})
+public class ObjectLockManagerTest {
+  private static final String LITE_1 = "lite1";
+  private static final String LITE_2 = "lite2";
+
+  private ObjectLockManager lockManager;
+
+  @BeforeMethod
+  public void setUp() {
+    lockManager = new ObjectLockManager(new MetricRegistry(), 4, () -> 600);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    lockManager.shutdown();
+  }
+
+  @Test
+  public void testReentrantLock() throws LockingException {
+    lockManager.acquire(Arrays.asList(LITE_1), 1, false, "request1");
+    lockManager.acquire(Arrays.asList(LITE_1, LITE_2), 1, false, "request1");
+
+    // one release per acquisition is needed
+    lockManager.release(Arrays.asList(LITE_1), "request1");
+    assertNotLockable(LITE_1, "request2");
+    lockManager.release(Arrays.asList(LITE_1), "request1");
+    lockManager.acquire(Arrays.asList(LITE_1), 1, false, "request2");
+
+    // releasing all locks of a request ignores reentrancy
+    assertNotLockable(LITE_2, "request2");
+    lockManager.release(Collections.emptyList(), "request1");
+    lockManager.acquire(Arrays.asList(LITE_2), 1, false, "request2");
+  }
+
+  @Test
+  public void testAllOrNothing() throws LockingException {
+    lockManager.acquire(Arrays.asList(LITE_2), 1, false, "request1");
+    try {
+      lockManager.acquire(Arrays.asList(LITE_1, LITE_2), 1, false, "request2");
+      Assert.fail("Lock should not have been acquired");
+    } catch (NotLockableAtTheTimeException e) {
+      // expected
+    }
+    // lite1 must not have been locked by the failed request
+    lockManager.acquire(Arrays.asList(LITE_1), 1, false, "request3");
+  }
+
+  @Test
+  public void testTimeout() throws LockingException {
+    lockManager.acquire(Arrays.asList(LITE_1), 1, false, "request1");
+    try {
+      lockManager.acquire(Arrays.asList(LITE_1), 1, true, "request2");
+      Assert.fail("Lock request should have timed out");
+    } catch (AcquireLockTimeoutException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testWaiterIsWokenUpOnRelease() throws Exception {
+    lockManager.acquire(Arrays.asList(LITE_1), 1, false, "request1");
+
+    CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+      try {
+        lockManager.acquire(Arrays.asList(LITE_1), 30, true, "request2");
+      } catch (LockingException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    Thread.sleep(200);
+    Assert.assertFalse(waiting.isDone());
+    lockManager.release(Arrays.asList(LITE_1), "request1");
+    waiting.get(5, TimeUnit.SECONDS);
+    assertNotLockable(LITE_1, "request1");
+  }
+
+  private void assertNotLockable(String lite, String requestUuid) throws LockingException {
+    try {
+      lockManager.acquire(Arrays.asList(lite), 1, false, requestUuid);
+      Assert.fail("Object '" + lite + "' should be locked");
+    } catch (NotLockableAtTheTimeException e) {
+      // expected
+    }
+  }
+}
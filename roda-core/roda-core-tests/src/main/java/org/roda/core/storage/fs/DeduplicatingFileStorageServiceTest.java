@@ -0,0 +1,177 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.common.RodaConstants.NodeType;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.AbstractStorageServiceTest;
+import org.roda.core.storage.ContentPayload;
+import org.roda.core.storage.RandomMockContentPayload;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StorageServiceWrapper;
+import org.roda.core.storage.StorageTestUtils;
+import org.roda.core.util.FileUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the storage service tests on {@link DeduplicatingFileStorageService} and
+ * checks that identical contents and versions share the same blob.
+ */
+public class DeduplicatingFileStorageServiceTest extends AbstractStorageServiceTest<DeduplicatingFileStorageService> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DeduplicatingFileStorageServiceTest.class);
+
+  private static Path basePath;
+  private static DeduplicatingFileStorageService storage;
+
+  @BeforeMethod
+  public static void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(DeduplicatingFileStorageServiceTest.class, true);
+    storage = new DeduplicatingFileStorageService(basePath);
+  }
+
+  @AfterMethod
+  public static void tearDown() throws RODAException {
+    FSUtils.deletePath(basePath);
+    FSUtils.deletePath(basePath.getParent().resolve(basePath.getFileName() + FileStorageService.HISTORY_SUFFIX));
+    FSUtils.deletePath(
+      basePath.getParent().resolve(basePath.getFileName() + DeduplicatingFileStorageService.BLOBS_SUFFIX));
+  }
+
+  @Override
+  @Test
+  public void testClassInstantiation() throws RODAException {
+    Assert.assertTrue(Files.isDirectory(
+      basePath.getParent().resolve(basePath.getFileName() + DeduplicatingFileStorageService.BLOBS_SUFFIX)));
+  }
+
+  @Test
+  public void testDeduplication() throws RODAException, IOException, NoSuchAlgorithmException {
+    final StoragePath containerStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+    storage.createContainer(containerStoragePath);
+
+    final ContentPayload payload = new RandomMockContentPayload();
+    String digest;
+    try (InputStream in = payload.createInputStream()) {
+      digest = FileUtility.checksum(in, RodaConstants.SHA256);
+    }
+
+    // 1) two binaries with the same content share one blob
+    final StoragePath binary1 = StorageTestUtils.generateRandomResourceStoragePathUnder(containerStoragePath);
+    final StoragePath binary2 = StorageTestUtils.generateRandomResourceStoragePathUnder(containerStoragePath);
+    storage.createBinary(binary1, payload, false);
+    storage.createBinary(binary2, payload, false);
+    Assert.assertEquals(storage.getReferenceCount(digest), 2);
+
+    // 2) a version only adds a reference
+    Map<String, String> properties = new HashMap<>();
+    properties.put(RodaConstants.VERSION_MESSAGE, "v1");
+    String versionId = storage.createBinaryVersion(binary1, properties).getId();
+    Assert.assertEquals(storage.getReferenceCount(digest), 3);
+
+    // 3) updating a binary does not change the content of the others
+    final ContentPayload otherPayload = new RandomMockContentPayload();
+    storage.updateBinaryContent(binary1, otherPayload, false, false);
+    Assert.assertEquals(storage.getReferenceCount(digest), 2);
+    Assert.assertTrue(
+      IOUtils.contentEquals(payload.createInputStream(), storage.getBinary(binary2).getContent().createInputStream()));
+
+    // 4) reverting restores the shared content
+    storage.revertBinaryVersion(binary1, versionId);
+    Assert.assertTrue(
+      IOUtils.contentEquals(payload.createInputStream(), storage.getBinary(binary1).getContent().createInputStream()));
+    Assert.assertEquals(storage.getReferenceCount(digest), 3);
+
+    // 5) blobs still referenced by a version are kept by the garbage collector
+    storage.updateBinaryContent(binary1, otherPayload, false, false);
+    storage.updateBinaryContent(binary2, otherPayload, false, false);
+    Assert.assertEquals(storage.getReferenceCount(digest), 1);
+    storage.collectGarbage();
+    Assert.assertEquals(storage.getReferenceCount(digest), 1);
+    Assert.assertTrue(IOUtils.contentEquals(payload.createInputStream(),
+      storage.getBinaryVersion(binary1, versionId).getBinary().getContent().createInputStream()));
+
+    storage.deleteContainer(containerStoragePath);
+  }
+
+  @Test
+  public void testCopyThroughWrapperSharesBlobs() throws RODAException, IOException, NoSuchAlgorithmException {
+    // the storage service is always wrapped outside of tests
+    StorageService wrapper = new StorageServiceWrapper(storage, NodeType.PRIMARY);
+
+    final StoragePath containerStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+    wrapper.createContainer(containerStoragePath);
+
+    final ContentPayload payload = new RandomMockContentPayload();
+    String digest;
+    try (InputStream in = payload.createInputStream()) {
+      digest = FileUtility.checksum(in, RodaConstants.SHA256);
+    }
+
+    final StoragePath binary = StorageTestUtils.generateRandomResourceStoragePathUnder(containerStoragePath);
+    wrapper.createBinary(binary, payload, false);
+    Assert.assertEquals(storage.getReferenceCount(digest), 1);
+
+    final StoragePath copyStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+    wrapper.copy(wrapper, containerStoragePath, copyStoragePath);
+    Assert.assertEquals(storage.getReferenceCount(digest), 2);
+
+    wrapper.deleteContainer(containerStoragePath);
+    wrapper.deleteContainer(copyStoragePath);
+  }
+
+  @Override
+  protected DeduplicatingFileStorageService getStorage() {
+    return storage;
+  }
+
+  @Override
+  public void cleanUp() {
+    LOGGER.debug("Cleanning up");
+    try {
+      // recursively delete directory
+      Files.walkFileTree(basePath, new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          Files.delete(file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+          Files.delete(dir);
+          return FileVisitResult.CONTINUE;
+        }
+
+      });
+      // re-create directory
+      Files.createDirectory(basePath);
+    } catch (IOException e) {
+      LOGGER.error("Could not clean up", e);
+    }
+  }
+}
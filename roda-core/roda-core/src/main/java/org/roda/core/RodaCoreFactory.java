@@ -143,11 +143,13 @@ import org.roda.core.model.utils.UserUtility;
 import org.roda.core.plugins.PluginManager;
 import org.roda.core.plugins.PluginManagerException;
 import org.roda.core.plugins.PluginOrchestrator;
+import org.roda.core.plugins.base.characterization.SiegfriedServer;
 import org.roda.core.plugins.orchestrate.AkkaEmbeddedPluginOrchestrator;
 import org.roda.core.protocols.Protocol;
 import org.roda.core.protocols.ProtocolManager;
 import org.roda.core.protocols.ProtocolManagerException;
 import org.roda.core.storage.DefaultStoragePath;
+import org.roda.core.storage.FixityEngine;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.StorageServiceWrapper;
@@ -247,6 +249,9 @@ public class RodaCoreFactory {
   // TransferredResources related objects
   private static TransferredResourcesScanner transferredResourcesScanner;
 
+  // Fixity related objects
+  private static FixityEngine fixityEngine = null;
+
   // Configuration related objects
   private static CompositeConfiguration rodaConfiguration = null;
   private static List<String> configurationFiles = null;
@@ -1144,6 +1149,10 @@ public class RodaCoreFactory {
     storage = new StorageServiceWrapper(instantiateStorage(), nodeType);
     LOGGER.debug("Finished instantiating storage...");
     model = new ModelService(storage, eventsManager, nodeType, instanceId);
+    model.configJobReportBuffer(metricsRegistry, getRodaConfiguration());
+    model.configActionLogAppender(metricsRegistry, getRodaConfiguration());
+    model.configAIPCache(metricsRegistry, getRodaConfiguration());
+    model.configUserAuthenticationCache(metricsRegistry, getRodaConfiguration());
     LOGGER.debug("Finished instantiating model...");
   }
 
@@ -1432,13 +1441,19 @@ public class RodaCoreFactory {
         existingCollections = new ArrayList<>();
       }
 
+      // collections rebuilt by a blue/green reindex are aliases
+      Map<String, String> aliases = new CollectionAdminRequest.ListAliases().process(cloudSolrClient).getAliases();
+      if (aliases == null) {
+        aliases = new HashMap<>();
+      }
+
       Path commonConf = solrHome.resolve(SolrUtils.COMMON).resolve(SolrUtils.CONF);
 
       copyFilesFromClasspath(RodaConstants.CORE_CONFIG_FOLDER + "/" + RodaConstants.CORE_INDEX_FOLDER + "/"
         + SolrUtils.COMMON + "/" + SolrUtils.CONF + "/", commonConf, true);
 
       for (String collection : SolrCollectionRegistry.registryIndexNames()) {
-        if (!existingCollections.contains(collection)) {
+        if (!existingCollections.contains(collection) && !aliases.containsKey(collection)) {
           createCollection(cloudSolrClient, collection, commonConf);
         }
       }
@@ -1594,7 +1609,14 @@ public class RodaCoreFactory {
 
   public static void shutdown() {
     if (instantiated) {
+      if (model != null) {
+        // write pending job reports while index is still available
+        model.shutdown();
+      }
       if (INSTANTIATE_SOLR) {
+        if (index != null) {
+          index.shutdown();
+        }
         try {
           solr.close();
         } catch (IOException e) {
@@ -1622,6 +1644,13 @@ public class RodaCoreFactory {
         eventsManager.shutdown();
       }
 
+      if (fixityEngine != null) {
+        fixityEngine.shutdown();
+      }
+
+      // stop siegfried server, if started by RODA
+      SiegfriedServer.shutdownInstance();
+
       // stop jmx metrics reporter
       if (getSystemProperty("com.sun.management.jmxremote", null) != null) {
         jmxMetricsReporter.stop();
@@ -1846,6 +1875,16 @@ public class RodaCoreFactory {
     return transferredResourcesScanner;
   }
 
+  public static synchronized FixityEngine getFixityEngine() {
+    if (fixityEngine == null) {
+      Configuration configuration = getRodaConfiguration();
+      fixityEngine = new FixityEngine(metricsRegistry, configuration.getInt(RodaConstants.CORE_FIXITY_THREADS, 0),
+        configuration.getInt(RodaConstants.CORE_FIXITY_MAX_READS_PER_STORE, FixityEngine.DEFAULT_MAX_READS_PER_STORE),
+        configuration.getInt(RodaConstants.CORE_FIXITY_BUFFER_SIZE, FixityEngine.DEFAULT_BUFFER_SIZE));
+    }
+    return fixityEngine;
+  }
+
   public static NodeType getNodeType() {
     return nodeType;
   }
@@ -7,17 +7,13 @@
  */
 package org.roda.core.common;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
-import org.apache.commons.io.IOUtils;
 import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.common.tools.ParallelZipWriter;
 import org.roda.core.common.tools.ZipEntryInfo;
 import org.roda.core.common.tools.ZipTools;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
@@ -25,7 +21,6 @@ import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.ip.StoragePath;
-import org.roda.core.storage.Binary;
 import org.roda.core.storage.BinaryConsumesOutputStream;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
@@ -65,8 +60,7 @@ public class DownloadUtils {
         @Override
         public void consumeOutputStream(OutputStream out) throws IOException {
 
-          try (BufferedOutputStream bos = new BufferedOutputStream(out);
-            ZipOutputStream zos = new ZipOutputStream(bos);
+          try (ParallelZipWriter zip = new ParallelZipWriter(out);
             CloseableIterable<Resource> resources = storage.listResourcesUnderDirectory(storagePath, true);) {
             int basePathSize = storagePath.asList().size();
 
@@ -82,18 +76,10 @@ public class DownloadUtils {
               }
               if (r.isDirectory()) {
                 // adding a directory
-                entryDirectoryPath += ZIP_PATH_DELIMITER;
-                zos.putNextEntry(new ZipEntry(entryDirectoryPath));
-                zos.closeEntry();
+                zip.addDirectory(entryDirectoryPath + ZIP_PATH_DELIMITER);
               } else {
-                // adding a file
-                ZipEntry entry = new ZipEntry(entryDirectoryPath);
-                zos.putNextEntry(entry);
-                Binary binary = storage.getBinary(r.getStoragePath());
-                try (InputStream inputStream = binary.getContent().createInputStream()) {
-                  IOUtils.copy(inputStream, zos);
-                }
-                zos.closeEntry();
+                // adding a file, compressed in the background
+                zip.addEntry(entryDirectoryPath, storage.getBinary(r.getStoragePath()).getContent());
               }
             }
           } catch (GenericException | RequestNotValidException | NotFoundException | AuthorizationDeniedException e) {
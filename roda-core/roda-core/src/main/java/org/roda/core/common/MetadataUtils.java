@@ -14,6 +14,8 @@ import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -38,11 +40,31 @@ import org.slf4j.LoggerFactory;
 public final class MetadataUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(MetadataUtils.class);
 
+  /** JAXB contexts are thread-safe and expensive to create, so they are shared */
+  private static final Map<Class<?>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<>();
+
   /** Private empty constructor */
   private MetadataUtils() {
 
   }
 
+  /**
+   * @return the (shared) JAXB context for the class. Marshallers and
+   *         unmarshallers created from it are not thread-safe and must not be
+   *         shared.
+   */
+  public static JAXBContext getJAXBContext(final Class<?> tClass) throws JAXBException {
+    JAXBContext jaxbContext = JAXB_CONTEXTS.get(tClass);
+    if (jaxbContext == null) {
+      jaxbContext = JAXBContext.newInstance(tClass);
+      JAXBContext previous = JAXB_CONTEXTS.putIfAbsent(tClass, jaxbContext);
+      if (previous != null) {
+        jaxbContext = previous;
+      }
+    }
+    return jaxbContext;
+  }
+
   public static ContentPayload saveToContentPayload(final JAXBElement<?> object, final Class<?> tClass) {
     return new InputStreamContentPayload(() -> {
       try {
@@ -57,7 +79,7 @@ public final class MetadataUtils {
     throws ValidationException {
     try {
       StringWriter writer = new StringWriter();
-      JAXBContext jaxbContext = JAXBContext.newInstance(tClass);
+      JAXBContext jaxbContext = getJAXBContext(tClass);
       Marshaller marshaller = jaxbContext.createMarshaller();
       marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
       marshaller.marshal(object, writer);
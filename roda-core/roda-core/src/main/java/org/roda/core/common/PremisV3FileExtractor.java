@@ -0,0 +1,289 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+
+/**
+ * Extracts the information of a file PREMIS object that is indexed (original
+ * name, size, fixities, format, format registries and creating application)
+ * while streaming through the XML, without unmarshalling the whole object.
+ *
+ * <p>
+ * The extracted fields are the same as the ones that would be taken from the
+ * unmarshalled {@code gov.loc.premis.v3.File}: only the first object
+ * characteristics, the format designation of its first format and the first
+ * registry of each format are considered.
+ * </p>
+ */
+final class PremisV3FileExtractor {
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXMLInputFactory();
+
+  private static final String OBJECT_CHARACTERISTICS = "objectCharacteristics";
+  private static final String FIXITY = "fixity";
+  private static final String FORMAT = "format";
+  private static final String FORMAT_DESIGNATION = "formatDesignation";
+  private static final String FORMAT_REGISTRY = "formatRegistry";
+  private static final String CREATING_APPLICATION = "creatingApplication";
+
+  // path of the current element, starting on the children of the root element
+  private final List<String> path = new ArrayList<>();
+  private final StringBuilder text = new StringBuilder();
+
+  private String originalName = null;
+  private int objectCharacteristicsCount = 0;
+  private String size = null;
+  private final List<String[]> fixities = new ArrayList<>();
+  private String[] fixity = null;
+  private int formatCount = 0;
+  private int formatDesignationCount = 0;
+  private String formatName = null;
+  private String formatVersion = null;
+  private int formatRegistryCount = 0;
+  private final List<String[]> formatRegistries = new ArrayList<>();
+  private String[] formatRegistry = null;
+  private int creatingApplicationCount = 0;
+  private String creatingApplicationName = null;
+  private final List<String> creatingApplicationVersions = new ArrayList<>();
+  private final List<String> datesCreatedByApplication = new ArrayList<>();
+
+  private PremisV3FileExtractor() {
+    // instances are only used by getSolrDocument
+  }
+
+  private static XMLInputFactory createXMLInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  static SolrInputDocument getSolrDocument(InputStream premisInputStream) throws GenericException {
+    PremisV3FileExtractor extractor = new PremisV3FileExtractor();
+    XMLStreamReader reader = null;
+    try {
+      reader = XML_INPUT_FACTORY.createXMLStreamReader(premisInputStream);
+      int depth = 0;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          if (depth > 0) {
+            extractor.path.add(reader.getLocalName());
+            extractor.startElement();
+          }
+          depth++;
+          extractor.text.setLength(0);
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+          if (depth > 0) {
+            extractor.endElement(extractor.text.toString());
+            extractor.path.remove(extractor.path.size() - 1);
+          }
+          extractor.text.setLength(0);
+        } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+          extractor.text.append(reader.getText());
+        }
+      }
+    } catch (XMLStreamException e) {
+      throw new GenericException("Failed to load file PREMIS: " + e.getMessage(), e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // do nothing
+        }
+      }
+    }
+
+    return extractor.toSolrDocument();
+  }
+
+  private boolean isAt(String... elements) {
+    if (path.size() != elements.length) {
+      return false;
+    }
+    for (int i = 0; i < elements.length; i++) {
+      if (!elements[i].equals(path.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String parent() {
+    return path.size() > 1 ? path.get(path.size() - 2) : null;
+  }
+
+  private void startElement() {
+    if (isAt(OBJECT_CHARACTERISTICS)) {
+      objectCharacteristicsCount++;
+    } else if (objectCharacteristicsCount == 1) {
+      if (isAt(OBJECT_CHARACTERISTICS, FIXITY)) {
+        fixity = new String[3];
+      } else if (isAt(OBJECT_CHARACTERISTICS, FORMAT)) {
+        formatCount++;
+        formatRegistryCount = 0;
+      } else if (isAt(OBJECT_CHARACTERISTICS, FORMAT, FORMAT_DESIGNATION)) {
+        formatDesignationCount++;
+      } else if (isAt(OBJECT_CHARACTERISTICS, FORMAT, FORMAT_REGISTRY)) {
+        formatRegistryCount++;
+        formatRegistry = formatRegistryCount == 1 ? new String[2] : null;
+      } else if (isAt(OBJECT_CHARACTERISTICS, CREATING_APPLICATION)) {
+        creatingApplicationCount++;
+      }
+    }
+  }
+
+  private void endElement(String value) {
+    String name = path.get(path.size() - 1);
+    if (isAt("originalName")) {
+      originalName = value;
+    } else if (objectCharacteristicsCount != 1 || !OBJECT_CHARACTERISTICS.equals(path.get(0))) {
+      // only the first object characteristics are indexed
+    } else if (path.size() == 2) {
+      endObjectCharacteristicsChild(name, value);
+    } else if (path.size() == 3 && FIXITY.equals(parent()) && fixity != null) {
+      if ("messageDigestAlgorithm".equals(name)) {
+        fixity[0] = value;
+      } else if ("messageDigest".equals(name)) {
+        fixity[1] = value;
+      } else if ("messageDigestOriginator".equals(name)) {
+        fixity[2] = value;
+      }
+    } else if (path.size() == 4 && FORMAT_DESIGNATION.equals(parent()) && formatCount == 1
+      && formatDesignationCount == 1) {
+      if ("formatName".equals(name)) {
+        formatName = value;
+      } else if ("formatVersion".equals(name)) {
+        formatVersion = value;
+      }
+    } else if (path.size() == 4 && FORMAT_REGISTRY.equals(parent()) && formatRegistry != null) {
+      if ("formatRegistryName".equals(name)) {
+        formatRegistry[0] = value;
+      } else if ("formatRegistryKey".equals(name)) {
+        formatRegistry[1] = value;
+      }
+    } else if (path.size() == 3 && CREATING_APPLICATION.equals(parent()) && creatingApplicationCount == 1) {
+      if ("creatingApplicationName".equals(name)) {
+        if (creatingApplicationName == null) {
+          creatingApplicationName = value;
+        }
+      } else if ("creatingApplicationVersion".equals(name)) {
+        creatingApplicationVersions.add(value);
+      } else if ("dateCreatedByApplication".equals(name)) {
+        datesCreatedByApplication.add(value);
+      }
+    } else if (path.size() == 3 && FORMAT_REGISTRY.equals(name) && formatRegistry != null) {
+      formatRegistries.add(formatRegistry);
+      formatRegistry = null;
+    }
+  }
+
+  private void endObjectCharacteristicsChild(String name, String value) {
+    if ("size".equals(name)) {
+      size = value;
+    } else if (FIXITY.equals(name) && fixity != null) {
+      fixities.add(fixity);
+      fixity = null;
+    }
+  }
+
+  private SolrInputDocument toSolrDocument() {
+    SolrInputDocument doc = new SolrInputDocument();
+    if (originalName != null) {
+      doc.setField(RodaConstants.FILE_ORIGINALNAME, originalName);
+    }
+
+    if (objectCharacteristicsCount > 0) {
+      doc.setField(RodaConstants.FILE_SIZE, parseSize());
+      if (!fixities.isEmpty()) {
+        List<String> hashes = new ArrayList<>();
+        for (String[] fixityValues : fixities) {
+          StringBuilder fixityPrint = new StringBuilder();
+          fixityPrint.append(fixityValues[1]);
+          fixityPrint.append(" (");
+          fixityPrint.append(fixityValues[0]);
+          if (StringUtils.isNotBlank(fixityValues[2])) {
+            fixityPrint.append(", ");
+            fixityPrint.append(fixityValues[2]);
+          }
+          fixityPrint.append(")");
+          hashes.add(fixityPrint.toString());
+        }
+        doc.addField(RodaConstants.FILE_HASH, hashes);
+      }
+
+      if (formatCount > 0) {
+        String formatDesignation = "";
+        if (StringUtils.isNotBlank(formatName)) {
+          doc.addField(RodaConstants.FILE_FILEFORMAT, formatName);
+          formatDesignation += formatName;
+        }
+        if (StringUtils.isNotBlank(formatVersion)) {
+          doc.addField(RodaConstants.FILE_FORMAT_VERSION, formatVersion);
+          formatDesignation += " " + formatVersion;
+        }
+        if (StringUtils.isNotBlank(formatDesignation)) {
+          doc.addField(RodaConstants.FILE_FORMAT_DESIGNATION, formatDesignation);
+        }
+
+        String pronom = getFormatRegistryKey(RodaConstants.PRESERVATION_REGISTRY_PRONOM);
+        if (pronom != null) {
+          doc.addField(RodaConstants.FILE_PRONOM, pronom);
+        }
+        String mimetype = getFormatRegistryKey(RodaConstants.PRESERVATION_REGISTRY_MIME);
+        if (mimetype != null) {
+          doc.addField(RodaConstants.FILE_FORMAT_MIMETYPE, mimetype);
+        }
+      }
+
+      if (creatingApplicationCount > 0) {
+        if (creatingApplicationName != null) {
+          doc.addField(RodaConstants.FILE_CREATING_APPLICATION_NAME, creatingApplicationName);
+        }
+        doc.addField(RodaConstants.FILE_CREATING_APPLICATION_VERSION, creatingApplicationVersions);
+        doc.addField(RodaConstants.FILE_DATE_CREATED_BY_APPLICATION, datesCreatedByApplication);
+      }
+    }
+
+    return doc;
+  }
+
+  private Long parseSize() {
+    if (StringUtils.isBlank(size)) {
+      return null;
+    }
+    try {
+      return Long.valueOf(size.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private String getFormatRegistryKey(String registryName) {
+    for (String[] registry : formatRegistries) {
+      if (registryName.equalsIgnoreCase(registry[0])) {
+        return registry[1];
+      }
+    }
+    return null;
+  }
+}
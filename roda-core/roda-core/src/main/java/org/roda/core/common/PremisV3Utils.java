@@ -20,7 +20,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
@@ -114,6 +113,9 @@ public final class PremisV3Utils {
 
   private static final ObjectFactory FACTORY = new ObjectFactory();
 
+  private static volatile Schema premisV3Schema = null;
+  private static volatile Schema premisV2Schema = null;
+
   /** Private empty constructor */
   private PremisV3Utils() {
     // do nothing
@@ -137,12 +139,9 @@ public final class PremisV3Utils {
 
   public static boolean isPremisV2(Binary binary) throws IOException, SAXException {
     boolean premisV2 = true;
-    try (InputStream inputStream = binary.getContent().createInputStream();
-      InputStream schemaStream = RodaCoreFactory.getConfigurationFileAsStream("schemas/premis-v2-0.xsd")) {
+    try (InputStream inputStream = binary.getContent().createInputStream()) {
       Source xmlFile = new StreamSource(inputStream);
-      SchemaFactory schemaFactory = SchemaFactory.newInstance(W3C_XML_SCHEMA_NS_URI);
-      Schema schema = schemaFactory.newSchema(new StreamSource(schemaStream));
-      Validator validator = schema.newValidator();
+      Validator validator = getPremisV2Schema().newValidator();
       RodaErrorHandler errorHandler = new RodaErrorHandler();
       validator.setErrorHandler(errorHandler);
       try {
@@ -579,10 +578,9 @@ public final class PremisV3Utils {
   }
 
   public static Representation binaryToRepresentation(InputStream binaryInputStream) throws GenericException {
-    JAXBContext jaxbContext;
     try {
-      jaxbContext = JAXBContext.newInstance(gov.loc.premis.v3.Representation.class);
-      Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+      Unmarshaller jaxbUnmarshaller = MetadataUtils.getJAXBContext(gov.loc.premis.v3.Representation.class)
+        .createUnmarshaller();
       Object unmarshal = jaxbUnmarshaller.unmarshal(binaryInputStream);
       return ((gov.loc.premis.v3.Representation) ((JAXBElement<?>) unmarshal).getValue());
     } catch (JAXBException e) {
@@ -591,10 +589,9 @@ public final class PremisV3Utils {
   }
 
   public static AgentComplexType binaryToAgent(InputStream binaryInputStream) throws IOException, GenericException {
-    JAXBContext jaxbContext;
     try {
-      jaxbContext = JAXBContext.newInstance(gov.loc.premis.v3.AgentComplexType.class);
-      Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+      Unmarshaller jaxbUnmarshaller = MetadataUtils.getJAXBContext(gov.loc.premis.v3.AgentComplexType.class)
+        .createUnmarshaller();
       Object unmarshal = jaxbUnmarshaller.unmarshal(binaryInputStream);
       return ((gov.loc.premis.v3.AgentComplexType) ((JAXBElement<?>) unmarshal).getValue());
     } catch (JAXBException e) {
@@ -602,84 +599,17 @@ public final class PremisV3Utils {
     }
   }
 
+  /**
+   * @return the file PREMIS information to index. Only the needed fields are
+   *         read, without unmarshalling the whole PREMIS file.
+   */
   public static SolrInputDocument getSolrDocument(Binary premisBinary) throws GenericException {
-    SolrInputDocument doc = new SolrInputDocument();
-
     try (InputStream inputStream = premisBinary.getContent().createInputStream()) {
-      gov.loc.premis.v3.File premisFile = binaryToFile(inputStream);
-      if (premisFile.getOriginalName() != null) {
-        doc.setField(RodaConstants.FILE_ORIGINALNAME, premisFile.getOriginalName().getValue());
-        // TODO extension
-      }
-
-      if (premisFile.getObjectCharacteristics() != null && !premisFile.getObjectCharacteristics().isEmpty()) {
-        ObjectCharacteristicsComplexType objectCharacteristics = premisFile.getObjectCharacteristics().get(0);
-        doc.setField(RodaConstants.FILE_SIZE, objectCharacteristics.getSize());
-        if (objectCharacteristics.getFixity() != null && !objectCharacteristics.getFixity().isEmpty()) {
-          List<String> hashes = new ArrayList<>();
-          for (FixityComplexType fct : objectCharacteristics.getFixity()) {
-            StringBuilder fixityPrint = new StringBuilder();
-            fixityPrint.append(fct.getMessageDigest());
-            fixityPrint.append(" (");
-            fixityPrint.append(fct.getMessageDigestAlgorithm().getValue());
-            if (StringUtils.isNotBlank(fct.getMessageDigestOriginator().getValue())) {
-              fixityPrint.append(", "); //
-              fixityPrint.append(fct.getMessageDigestOriginator().getValue());
-            }
-            fixityPrint.append(")");
-            hashes.add(fixityPrint.toString());
-          }
-          doc.addField(RodaConstants.FILE_HASH, hashes);
-        }
-        if (objectCharacteristics.getFormat() != null && !objectCharacteristics.getFormat().isEmpty()) {
-          FormatComplexType fct = objectCharacteristics.getFormat().get(0);
-          if (fct.getFormatDesignation() != null && !fct.getFormatDesignation().isEmpty()) {
-            String format = fct.getFormatDesignation().get(0).getFormatName().getValue();
-            String formatVersion = fct.getFormatDesignation().get(0).getFormatVersion();
-            String formatDesignation = "";
-
-            if (StringUtils.isNotBlank(format)) {
-              doc.addField(RodaConstants.FILE_FILEFORMAT, format);
-              formatDesignation += format;
-            }
-            if (StringUtils.isNotBlank(formatVersion)) {
-              doc.addField(RodaConstants.FILE_FORMAT_VERSION, formatVersion);
-              formatDesignation += " " + formatVersion;
-            }
-            if (StringUtils.isNotBlank(formatDesignation)) {
-              doc.addField(RodaConstants.FILE_FORMAT_DESIGNATION, formatDesignation);
-            }
-          }
-
-          FormatRegistryComplexType pronomRegistry = getFormatRegistry(premisFile,
-            RodaConstants.PRESERVATION_REGISTRY_PRONOM);
-          if (pronomRegistry.getFormatRegistryKey() != null) {
-            doc.addField(RodaConstants.FILE_PRONOM, pronomRegistry.getFormatRegistryKey().getValue());
-          }
-          FormatRegistryComplexType mimeRegistry = getFormatRegistry(premisFile,
-            RodaConstants.PRESERVATION_REGISTRY_MIME);
-          if (mimeRegistry.getFormatRegistryKey() != null) {
-            doc.addField(RodaConstants.FILE_FORMAT_MIMETYPE, mimeRegistry.getFormatRegistryKey().getValue());
-          }
-          // TODO extension
-        }
-        if (objectCharacteristics.getCreatingApplication() != null
-          && !objectCharacteristics.getCreatingApplication().isEmpty()) {
-          CreatingApplicationComplexType cact = objectCharacteristics.getCreatingApplication().get(0);
-          if (cact.getCreatingApplicationName() != null && !cact.getCreatingApplicationName().isEmpty()) {
-            doc.addField(RodaConstants.FILE_CREATING_APPLICATION_NAME,
-              cact.getCreatingApplicationName().get(0).getValue());
-          }
-          doc.addField(RodaConstants.FILE_CREATING_APPLICATION_VERSION, cact.getCreatingApplicationVersion());
-          doc.addField(RodaConstants.FILE_DATE_CREATED_BY_APPLICATION, cact.getDateCreatedByApplication());
-        }
-      }
-
+      return PremisV3FileExtractor.getSolrDocument(inputStream);
     } catch (IOException e) {
       LOGGER.error("Error updating Solr document", e);
+      return new SolrInputDocument();
     }
-
-    return doc;
   }
 
   public static PreservationMetadata createPremisAgentBinary(Plugin<?> plugin, ModelService model, boolean notify)
@@ -1039,123 +969,84 @@ public final class PremisV3Utils {
 
   private static Representation binaryToRepresentation(InputStream binaryInputStream, boolean validate)
     throws GenericException, ValidationException {
-    JAXBContext jaxbContext;
-    ValidationEventCollector validationCollector = new ValidationEventCollector();
-
-    try {
-      jaxbContext = JAXBContext.newInstance(gov.loc.premis.v3.Representation.class);
-      Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-
-      if (validate) {
-        SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        StreamSource source = new StreamSource(
-          PremisV3Utils.class.getClassLoader().getResourceAsStream("premis/v3/premis.xsd"));
-        Schema schema = sf.newSchema(source);
-        jaxbUnmarshaller.setSchema(schema);
-        jaxbUnmarshaller.setEventHandler(validationCollector);
-      }
-
-      SAXSource xmlSource = XMLUtils.getSafeSAXSource(new InputSource(new InputStreamReader(binaryInputStream)));
-      Object unmarshal = jaxbUnmarshaller.unmarshal(xmlSource);
-      return ((Representation) ((JAXBElement<?>) unmarshal).getValue());
-    } catch (SAXException | JAXBException | ParserConfigurationException e) {
-      if (validate && validationCollector.hasEvents()) {
-        throw new ValidationException(MetadataUtils.xmlValidationErrorsToValidationReport(validationCollector));
-      } else {
-        throw new GenericException("Failed to load representation: " + e.getMessage(), e);
-      }
-    }
+    return unmarshal(binaryInputStream, Representation.class, validate, "Failed to load representation: ");
   }
 
   private static AgentComplexType binaryToAgent(InputStream binaryInputStream, boolean validate)
-    throws IOException, GenericException, ValidationException {
-    JAXBContext jaxbContext;
-    ValidationEventCollector validationCollector = new ValidationEventCollector();
-
-    try {
-      jaxbContext = JAXBContext.newInstance(gov.loc.premis.v3.AgentComplexType.class);
-      Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-
-      if (validate) {
-        SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        StreamSource source = new StreamSource(
-          PremisV3Utils.class.getClassLoader().getResourceAsStream("premis/v3/premis.xsd"));
-        Schema schema = sf.newSchema(source);
-        jaxbUnmarshaller.setSchema(schema);
-        jaxbUnmarshaller.setEventHandler(validationCollector);
-      }
-
-      SAXSource xmlSource = XMLUtils.getSafeSAXSource(new InputSource(new InputStreamReader(binaryInputStream)));
-      Object unmarshal = jaxbUnmarshaller.unmarshal(xmlSource);
-      return ((AgentComplexType) ((JAXBElement<?>) unmarshal).getValue());
-    } catch (JAXBException | SAXException | ParserConfigurationException e) {
-      if (validate && validationCollector.hasEvents()) {
-        throw new ValidationException(MetadataUtils.xmlValidationErrorsToValidationReport(validationCollector));
-      } else {
-        throw new GenericException("Failed to load Agent: " + e.getMessage(), e);
-      }
-    }
+    throws GenericException, ValidationException {
+    return unmarshal(binaryInputStream, AgentComplexType.class, validate, "Failed to load Agent: ");
   }
 
   private static gov.loc.premis.v3.File binaryToFile(InputStream binaryInputStream, boolean validate)
     throws GenericException, ValidationException {
-    JAXBContext jaxbContext;
+    return unmarshal(binaryInputStream, gov.loc.premis.v3.File.class, validate, "Failed to load representation: ");
+  }
+
+  private static EventComplexType binaryToEvent(InputStream binaryInputStream, boolean validate)
+    throws GenericException, ValidationException {
+    return unmarshal(binaryInputStream, EventComplexType.class, validate, "Failed to load Event: ");
+  }
+
+  private static <T> T unmarshal(InputStream binaryInputStream, Class<T> premisClass, boolean validate,
+    String errorMessage) throws GenericException, ValidationException {
     ValidationEventCollector validationCollector = new ValidationEventCollector();
 
     try {
-      jaxbContext = JAXBContext.newInstance(gov.loc.premis.v3.File.class);
-      Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+      Unmarshaller jaxbUnmarshaller = MetadataUtils.getJAXBContext(premisClass).createUnmarshaller();
 
       if (validate) {
-        SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        StreamSource source = new StreamSource(
-          PremisV3Utils.class.getClassLoader().getResourceAsStream("premis/v3/premis.xsd"));
-        Schema schema = sf.newSchema(source);
-        jaxbUnmarshaller.setSchema(schema);
+        jaxbUnmarshaller.setSchema(getPremisV3Schema());
         jaxbUnmarshaller.setEventHandler(validationCollector);
       }
 
       SAXSource xmlSource = XMLUtils.getSafeSAXSource(new InputSource(new InputStreamReader(binaryInputStream)));
       Object unmarshal = jaxbUnmarshaller.unmarshal(xmlSource);
-      return ((gov.loc.premis.v3.File) ((JAXBElement<?>) unmarshal).getValue());
-
+      return premisClass.cast(((JAXBElement<?>) unmarshal).getValue());
     } catch (SAXException | JAXBException | ParserConfigurationException e) {
       if (validate && validationCollector.hasEvents()) {
         throw new ValidationException(MetadataUtils.xmlValidationErrorsToValidationReport(validationCollector));
       } else {
-        throw new GenericException("Failed to load representation: " + e.getMessage(), e);
+        throw new GenericException(errorMessage + e.getMessage(), e);
       }
     }
   }
 
-  private static EventComplexType binaryToEvent(InputStream binaryInputStream, boolean validate)
-    throws GenericException, ValidationException {
-    JAXBContext jaxbContext;
-    ValidationEventCollector validationCollector = new ValidationEventCollector();
-
-    try {
-      jaxbContext = JAXBContext.newInstance(gov.loc.premis.v3.EventComplexType.class);
-      Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-
-      if (validate) {
-        SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        StreamSource source = new StreamSource(
-          PremisV3Utils.class.getClassLoader().getResourceAsStream("premis/v3/premis.xsd"));
-        Schema schema = sf.newSchema(source);
-        jaxbUnmarshaller.setSchema(schema);
-        jaxbUnmarshaller.setEventHandler(validationCollector);
+  /**
+   * @return the compiled PREMIS v3 schema (schemas are thread-safe, so it is
+   *         compiled once and shared).
+   */
+  private static Schema getPremisV3Schema() throws SAXException {
+    Schema schema = premisV3Schema;
+    if (schema == null) {
+      synchronized (PremisV3Utils.class) {
+        schema = premisV3Schema;
+        if (schema == null) {
+          SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+          StreamSource source = new StreamSource(
+            PremisV3Utils.class.getClassLoader().getResourceAsStream("premis/v3/premis.xsd"));
+          schema = sf.newSchema(source);
+          premisV3Schema = schema;
+        }
       }
+    }
+    return schema;
+  }
 
-      SAXSource xmlSource = XMLUtils.getSafeSAXSource(new InputSource(new InputStreamReader(binaryInputStream)));
-      Object unmarshal = jaxbUnmarshaller.unmarshal(xmlSource);
-      return ((EventComplexType) ((JAXBElement<?>) unmarshal).getValue());
-    } catch (JAXBException | SAXException | ParserConfigurationException e) {
-      if (validate && validationCollector.hasEvents()) {
-        throw new ValidationException(MetadataUtils.xmlValidationErrorsToValidationReport(validationCollector));
-      } else {
-        throw new GenericException("Failed to load Event: " + e.getMessage(), e);
+  private static Schema getPremisV2Schema() throws SAXException, IOException {
+    Schema schema = premisV2Schema;
+    if (schema == null) {
+      synchronized (PremisV3Utils.class) {
+        schema = premisV2Schema;
+        if (schema == null) {
+          try (InputStream schemaStream = RodaCoreFactory.getConfigurationFileAsStream("schemas/premis-v2-0.xsd")) {
+            SchemaFactory schemaFactory = SchemaFactory.newInstance(W3C_XML_SCHEMA_NS_URI);
+            schema = schemaFactory.newSchema(new StreamSource(schemaStream));
+          }
+          premisV2Schema = schema;
+        }
       }
     }
+    return schema;
   }
 
   public static gov.loc.premis.v3.File binaryToFile(InputStream binaryInputStream) throws GenericException {
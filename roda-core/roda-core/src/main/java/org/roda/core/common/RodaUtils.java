@@ -26,8 +26,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.transform.OutputKeys;
@@ -53,10 +58,13 @@ import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.XMLReaderFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 
+import net.sf.saxon.s9api.Destination;
+import net.sf.saxon.s9api.NullDestination;
 import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.QName;
 import net.sf.saxon.s9api.SaxonApiException;
@@ -92,6 +100,10 @@ public class RodaUtils {
       }
     });
 
+  /** Loaded transformers of each metadata stylesheet, to be reused */
+  private static final ConcurrentMap<Triple<String, String, String>, TransformerPool> TRANSFORMER_POOLS =
+    new ConcurrentHashMap<>();
+
   /** Private empty constructor */
   private RodaUtils() {
     // do nothing
@@ -204,6 +216,21 @@ public class RodaUtils {
 
   public static Reader applyMetadataStylesheet(Binary binary, String basePath, String metadataType,
     String metadataVersion, Map<String, String> parameters) throws GenericException {
+    CharArrayWriter transformerResult = new CharArrayWriter();
+    applyMetadataStylesheet(binary, basePath, metadataType, metadataVersion, parameters,
+      PROCESSOR.newSerializer(transformerResult));
+    return new CharArrayReader(transformerResult.toCharArray());
+  }
+
+  /**
+   * Applies the metadata stylesheet sending the result to the destination
+   * (e.g. a {@link net.sf.saxon.s9api.SAXDestination}), without serializing
+   * it. Transformers are pooled per stylesheet and the transformation time is
+   * recorded per stylesheet in the metrics.
+   */
+  public static void applyMetadataStylesheet(Binary binary, String basePath, String metadataType,
+    String metadataVersion, Map<String, String> parameters, Destination destination) throws GenericException {
+    Triple<String, String, String> key = Triple.of(basePath, metadataType, metadataVersion);
     try (
       Reader descMetadataReader = new InputStreamReader(new BOMInputStream(binary.getContent().createInputStream()))) {
 
@@ -212,13 +239,14 @@ public class RodaUtils {
       InputSource source = new InputSource(descMetadataReader);
       Source text = new SAXSource(xmlReader, source);
 
-      XsltExecutable xsltExecutable = CACHE.get(Triple.of(basePath, metadataType, metadataVersion));
-
-      XsltTransformer transformer = xsltExecutable.load();
-      CharArrayWriter transformerResult = new CharArrayWriter();
+      XsltExecutable xsltExecutable = CACHE.get(key);
+      TransformerPool pool = TRANSFORMER_POOLS.compute(key,
+        (k, current) -> current != null && current.executable == xsltExecutable ? current
+          : new TransformerPool(xsltExecutable));
+      XsltTransformer transformer = pool.borrow();
 
       transformer.setSource(text);
-      transformer.setDestination(PROCESSOR.newSerializer(transformerResult));
+      transformer.setDestination(destination);
 
       for (Entry<String, String> parameter : parameters.entrySet()) {
         QName qName = new QName(parameter.getKey());
@@ -226,9 +254,10 @@ public class RodaUtils {
         transformer.setParameter(qName, xdmValue);
       }
 
+      long start = System.nanoTime();
       transformer.transform();
-
-      return new CharArrayReader(transformerResult.toCharArray());
+      updateStylesheetTimer(key, System.nanoTime() - start);
+      pool.release(transformer);
 
     } catch (IOException | SAXException | ExecutionException | SaxonApiException e) {
       throw new GenericException("Could not process descriptive metadata binary " + binary.getStoragePath()
@@ -236,6 +265,14 @@ public class RodaUtils {
     }
   }
 
+  private static void updateStylesheetTimer(Triple<String, String, String> key, long durationInNanos) {
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    if (metrics != null) {
+      metrics.timer(MetricRegistry.name(RodaUtils.class.getSimpleName(), "metadataStylesheet", key.getLeft(),
+        key.getMiddle(), key.getRight())).update(durationInNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
   public static Reader applyEventStylesheet(Binary binary, boolean onlyDetails, Map<String, String> translations,
     String path) throws GenericException {
     try (
@@ -324,4 +361,41 @@ public class RodaUtils {
       throw new GenericException(e);
     }
   }
+
+  /**
+   * Idle transformers of a stylesheet executable. A transformer can be reused
+   * (but not concurrently), so it is returned to the pool after a successful
+   * transformation.
+   */
+  private static class TransformerPool {
+    private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors();
+
+    private final XsltExecutable executable;
+    private final Queue<XsltTransformer> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger(0);
+
+    TransformerPool(XsltExecutable executable) {
+      this.executable = executable;
+    }
+
+    XsltTransformer borrow() {
+      XsltTransformer transformer = idle.poll();
+      if (transformer == null) {
+        return executable.load();
+      }
+      idleCount.decrementAndGet();
+      return transformer;
+    }
+
+    void release(XsltTransformer transformer) {
+      transformer.clearParameters();
+      // do not keep the last result alive while idle
+      transformer.setDestination(new NullDestination());
+      if (idleCount.incrementAndGet() <= MAX_IDLE) {
+        idle.offer(transformer);
+      } else {
+        idleCount.decrementAndGet();
+      }
+    }
+  }
 }
@@ -7,6 +7,7 @@
  */
 package org.roda.core.common;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -18,6 +19,9 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.http.Header;
@@ -30,8 +34,10 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
 import org.roda.core.RodaCoreFactory;
+import org.roda.core.common.synchronization.BundleManifestCreator;
+import org.roda.core.common.synchronization.SyncBundleDigests;
+import org.roda.core.common.tools.ParallelZipWriter;
 import org.roda.core.data.common.RodaConstants;
-import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthenticationDeniedException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -47,11 +53,14 @@ import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.ri.RepresentationInformation;
 import org.roda.core.data.v2.risks.IndexedRisk;
 import org.roda.core.data.v2.synchronization.SynchronizingStatus;
+import org.roda.core.data.v2.synchronization.bundle.v2.PackageState;
 import org.roda.core.data.v2.synchronization.central.DistributedInstance;
 import org.roda.core.data.v2.synchronization.local.LocalInstance;
 import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.StorageService;
+import org.roda.core.storage.fs.FSPathContentPayload;
 import org.roda.core.storage.fs.FSUtils;
 import org.roda.core.util.ZipUtility;
 import org.slf4j.Logger;
@@ -69,68 +78,128 @@ public class SyncUtils {
   /**
    * Central Bundle methods
    */
-  public static boolean createCentralSyncBundle(Path workingDir, String instanceIdentifier)
-    throws AuthorizationDeniedException, RequestNotValidException, AlreadyExistsException, GenericException {
-    boolean jobsPackage = createCentralJobsPackage(workingDir, instanceIdentifier);
-    boolean riskPackage = createCentralRiskPackage(workingDir);
-    boolean riPackage = createCentralRepresentationInformationPackage(workingDir);
 
-    return jobsPackage || riskPackage || riPackage;
+  /**
+   * Creates the bundle of a distributed instance, with the jobs created for it
+   * and the risks and representation information that changed since the last
+   * bundle it acknowledged. Binaries are streamed from storage into the bundle.
+   *
+   * @return the bundle path, or {@code null} if there is nothing to send.
+   */
+  public static Path createCentralSyncBundle(Path workingDir, String instanceIdentifier, String bundleName)
+    throws AuthorizationDeniedException, RequestNotValidException, NotFoundException, GenericException, IOException {
+    boolean delta = RodaCoreFactory.getRodaConfiguration()
+      .getBoolean(RodaConstants.CORE_SYNCHRONIZATION_CENTRAL_DELTA_ENABLED, true);
+    SyncBundleDigests acknowledged = delta ? SyncBundleDigests.retrieveAcknowledged(instanceIdentifier)
+      : new SyncBundleDigests(instanceIdentifier);
+    SyncBundleDigests current = new SyncBundleDigests(instanceIdentifier);
+
+    List<StoragePath> binaries = new ArrayList<>();
+    List<PackageState> packageStates = new ArrayList<>();
+    addCentralJobsPackage(instanceIdentifier, binaries, packageStates);
+    addCentralRiskPackage(acknowledged, current, binaries, packageStates);
+    addCentralRepresentationInformationPackage(acknowledged, current, binaries, packageStates);
+
+    // removed entities are sent in the validation lists of the manifest
+    if (binaries.isEmpty() && !acknowledged.hasRemovals(current)) {
+      return null;
+    }
+
+    new BundleManifestCreator(RodaConstants.DistributedModeType.CENTRAL, workingDir).create(packageStates);
+    Path outcomePath = getSyncOutcomeBundlePath(bundleName);
+    StorageService storage = RodaCoreFactory.getStorageService();
+    try (ParallelZipWriter zip = new ParallelZipWriter(Files.newOutputStream(outcomePath))) {
+      for (StoragePath binaryPath : binaries) {
+        zip.addEntry(RodaConstants.CORE_STORAGE_FOLDER + "/" + binaryPath,
+          storage.getBinary(binaryPath).getContent());
+      }
+      addDirectoryToZip(zip, workingDir);
+    }
+
+    if (delta) {
+      current.writePending(bundleName);
+    }
+    return outcomePath;
+  }
+
+  /**
+   * Marks a bundle sent to a distributed instance as imported, so that the
+   * next bundles only include what changed since.
+   */
+  public static void acknowledgeCentralSyncBundle(String bundleName) {
+    SyncBundleDigests.acknowledge(bundleName);
   }
 
-  private static boolean createCentralJobsPackage(Path workingDir, String instanceIdentifier)
-    throws RequestNotValidException, GenericException, AuthorizationDeniedException, AlreadyExistsException {
+  private static void addCentralJobsPackage(String instanceIdentifier, List<StoragePath> binaries,
+    List<PackageState> packageStates)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException, NotFoundException {
     final Filter filter = new Filter();
     filter.add(new SimpleFilterParameter(RodaConstants.INDEX_INSTANCE_ID, instanceIdentifier));
     filter.add(new SimpleFilterParameter(RodaConstants.JOB_STATE, "CREATED"));
     final IterableIndexResult<Job> jobs = RodaCoreFactory.getIndexService().findAll(Job.class, filter, true,
       new ArrayList<>());
 
-    final Path destinationPath = workingDir.resolve(RodaConstants.CORE_STORAGE_FOLDER)
-      .resolve(RodaConstants.STORAGE_CONTAINER_JOB);
-    return createCentralPackage(ModelUtils.getJobContainerPath(), jobs, RodaConstants.JOB_FILE_EXTENSION,
-      destinationPath);
+    // jobs are always sent until the instance creates them
+    addCentralPackage(ModelUtils.getJobContainerPath(), jobs, RodaConstants.JOB_FILE_EXTENSION, null, null, binaries,
+      packageStates);
   }
 
-  private static boolean createCentralRiskPackage(Path workingDir)
-    throws RequestNotValidException, GenericException, AuthorizationDeniedException, AlreadyExistsException {
+  private static void addCentralRiskPackage(SyncBundleDigests acknowledged, SyncBundleDigests current,
+    List<StoragePath> binaries, List<PackageState> packageStates)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException, NotFoundException {
     final Filter filter = new Filter();
     final IterableIndexResult<IndexedRisk> risks = RodaCoreFactory.getIndexService().findAll(IndexedRisk.class, filter,
       Collections.singletonList(RodaConstants.INDEX_UUID));
 
-    final Path destinationPath = workingDir.resolve(RodaConstants.CORE_STORAGE_FOLDER)
-      .resolve(RodaConstants.STORAGE_CONTAINER_RISK);
-
-    return createCentralPackage(ModelUtils.getRiskContainerPath(), risks, RodaConstants.RISK_FILE_EXTENSION,
-      destinationPath);
+    addCentralPackage(ModelUtils.getRiskContainerPath(), risks, RodaConstants.RISK_FILE_EXTENSION, acknowledged,
+      current, binaries, packageStates);
   }
 
-  private static boolean createCentralRepresentationInformationPackage(Path workingDir)
-    throws RequestNotValidException, GenericException, AuthorizationDeniedException, AlreadyExistsException {
+  private static void addCentralRepresentationInformationPackage(SyncBundleDigests acknowledged,
+    SyncBundleDigests current, List<StoragePath> binaries, List<PackageState> packageStates)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException, NotFoundException {
     final Filter filter = new Filter();
     final IterableIndexResult<RepresentationInformation> representationInformation = RodaCoreFactory.getIndexService()
       .findAll(RepresentationInformation.class, filter, Collections.singletonList(RodaConstants.INDEX_UUID));
 
-    final Path destinationPath = workingDir.resolve(RodaConstants.CORE_STORAGE_FOLDER)
-      .resolve(RodaConstants.STORAGE_CONTAINER_REPRESENTATION_INFORMATION);
-
-    return createCentralPackage(ModelUtils.getRepresentationInformationContainerPath(), representationInformation,
-      RodaConstants.REPRESENTATION_INFORMATION_FILE_EXTENSION, destinationPath);
+    addCentralPackage(ModelUtils.getRepresentationInformationContainerPath(), representationInformation,
+      RodaConstants.REPRESENTATION_INFORMATION_FILE_EXTENSION, acknowledged, current, binaries, packageStates);
   }
 
-  private static boolean createCentralPackage(StoragePath containerPath,
-    IterableIndexResult<? extends IsIndexed> indexedObject, String fileExtension, Path destinationPath)
-    throws AlreadyExistsException, GenericException, AuthorizationDeniedException {
-    if (indexedObject.getTotalCount() > 0) {
-      final StorageService storage = RodaCoreFactory.getStorageService();
-
-      for (IsIndexed object : indexedObject) {
-        final String filename = object.getId() + fileExtension;
-        storage.copy(storage, containerPath, destinationPath.resolve(filename), filename);
+  /**
+   * Adds the binaries of the objects to the bundle, only the ones that changed
+   * since acknowledged if {@code acknowledged} is not null.
+   */
+  private static void addCentralPackage(StoragePath containerPath,
+    IterableIndexResult<? extends IsIndexed> indexedObjects, String fileExtension, SyncBundleDigests acknowledged,
+    SyncBundleDigests current, List<StoragePath> binaries, List<PackageState> packageStates)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException, NotFoundException {
+    final StorageService storage = RodaCoreFactory.getStorageService();
+    int count = 0;
+
+    try (IterableIndexResult<? extends IsIndexed> objects = indexedObjects) {
+      for (IsIndexed object : objects) {
+        StoragePath binaryPath = DefaultStoragePath.parse(containerPath, object.getId() + fileExtension);
+        if (acknowledged != null) {
+          String digest = SyncBundleDigests.digest(storage.getBinary(binaryPath));
+          current.put(binaryPath.toString(), digest);
+          if (!acknowledged.hasChanged(binaryPath.toString(), digest)) {
+            continue;
+          }
+        }
+        binaries.add(binaryPath);
+        count++;
       }
-      return true;
+    } catch (IOException e) {
+      throw new GenericException("Error listing objects of " + containerPath, e);
+    }
+
+    if (count > 0) {
+      PackageState packageState = new PackageState();
+      packageState.setClassName(ModelUtils.giveRespectiveModelClassFromContainerName(containerPath.getContainerName()));
+      packageState.setCount(count);
+      packageStates.add(packageState);
     }
-    return false;
   }
 
   /**
@@ -186,10 +255,23 @@ public class SyncUtils {
     if (FSUtils.exists(outcomePath)) {
       FSUtils.deletePath(outcomePath);
     }
-    ZipUtility.createZIPFile(Files.createFile(outcomePath).toFile(), workingDir.toFile());
+    try (ParallelZipWriter zip = new ParallelZipWriter(Files.newOutputStream(outcomePath))) {
+      addDirectoryToZip(zip, workingDir);
+    }
     return outcomePath;
   }
 
+  private static void addDirectoryToZip(ParallelZipWriter zip, Path directory) throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(directory)) {
+      files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      String name = directory.relativize(file).toString().replace(File.separatorChar, '/');
+      zip.addEntry(name, new FSPathContentPayload(file));
+    }
+  }
+
   public static void extract(Path workingDir, Path incomingPath) throws IOException {
     LOGGER.debug("Extracting files to " + workingDir);
     ZipUtility.extractFilesFromZIP(incomingPath.toFile(), workingDir.toFile(), true);
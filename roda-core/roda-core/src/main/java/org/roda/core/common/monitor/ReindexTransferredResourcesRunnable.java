@@ -8,36 +8,59 @@
 package org.roda.core.common.monitor;
 
 import java.io.IOException;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.io.FilenameUtils;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.exceptions.ReturnWithExceptions;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.filter.NotSimpleFilterParameter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.index.IndexService;
 import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.util.IdUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Updates the index of the transferred resources folder (or one of its
+ * sub-folders).
+ *
+ * <p>
+ * Folders are traversed in parallel (one fork/join task per folder) and
+ * resources are sent to the index in bulk requests. The modification time and
+ * size of each resource are kept in a snapshot file next to the transferred
+ * resources folder, so that following scans only send to the index the
+ * resources that were added or changed and remove the ones that no longer
+ * exist.
+ * </p>
+ */
 public class ReindexTransferredResourcesRunnable implements Runnable {
   private static final Logger LOGGER = LoggerFactory.getLogger(ReindexTransferredResourcesRunnable.class);
 
+  private static final String SNAPSHOT_SUFFIX = "-snapshot";
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+  private static final Object SNAPSHOT_LOCK = new Object();
+
   private Path basePath;
   private Optional<String> folderRelativePath;
   private IndexService index;
@@ -56,7 +79,6 @@ public class ReindexTransferredResourcesRunnable implements Runnable {
     RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(folderRelativePath, true);
 
     try {
-      EnumSet<FileVisitOption> opts = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
       Path path;
       if (folderRelativePath.isPresent()) {
         Path resolvedBasePath = basePath.resolve(Paths.get(FilenameUtils.normalize(folderRelativePath.get())));
@@ -75,84 +97,239 @@ public class ReindexTransferredResourcesRunnable implements Runnable {
       }
 
       LOGGER.info("Start indexing transferred resources {}", path);
-      Files.walkFileTree(path, opts, Integer.MAX_VALUE, new FileVisitor<Path>() {
+      synchronized (SNAPSHOT_LOCK) {
+        scan(path, lastScanDate);
+      }
+      LOGGER.info("End indexing Transferred Resources. Time elapsed: {} seconds",
+        (System.currentTimeMillis() - start) / 1000);
+      RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(folderRelativePath, false);
+    } catch (IOException | GenericException | RequestNotValidException | RuntimeException
+      | AuthorizationDeniedException e) {
+      LOGGER.error("Error reindexing Transferred Resources", e);
+    }
+  }
+
+  /**
+   * Scans the folder, sending to the index the resources that are new or that
+   * changed since the last scan (all of them if there is no previous scan
+   * information), and removes from the index the ones that no longer exist.
+   */
+  private void scan(Path path, Date lastScanDate)
+    throws IOException, GenericException, RequestNotValidException, AuthorizationDeniedException {
+    Configuration configuration = RodaCoreFactory.getRodaConfiguration();
+    Path snapshotPath = basePath.resolveSibling(basePath.getFileName() + SNAPSHOT_SUFFIX);
+    String scopeRelativePath = basePath.relativize(path).toString();
 
-        ArrayDeque<BasicFileAttributes> actualDirectoryAttributesStack = new ArrayDeque<>();
-        ArrayDeque<Long> fileSizeStack = new ArrayDeque<>();
+    // an empty index (e.g. after being recreated) needs a full scan
+    boolean incrementalEnabled = configuration.getBoolean(RodaConstants.CORE_TRANSFERRED_RESOURCES_SCAN_INCREMENTAL,
+      true);
+    TransferredResourcesSnapshot previous = null;
+    if (incrementalEnabled && index.count(TransferredResource.class, Filter.ALL) > 0) {
+      previous = TransferredResourcesSnapshot.load(snapshotPath);
+    }
+    boolean incremental = previous != null;
+    TransferredResourcesSnapshot current = new TransferredResourcesSnapshot();
+
+    int threads = configuration.getInt(RodaConstants.CORE_TRANSFERRED_RESOURCES_SCAN_THREADS, 0);
+    int batchSize = configuration.getInt(RodaConstants.CORE_TRANSFERRED_RESOURCES_SCAN_BATCH_SIZE,
+      DEFAULT_BATCH_SIZE);
+    ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    ResourceSubmitter submitter = new ResourceSubmitter(batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE, current);
+    try {
+      BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+      pool.invoke(new ScanTask(path, attrs, Collections.emptyList(), previous, current, submitter, lastScanDate));
+    } finally {
+      pool.shutdown();
+    }
+    submitter.flush();
+    index.commit(TransferredResource.class);
+    submitter.forgetFailed();
 
-        @Override
-        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-          actualDirectoryAttributesStack.push(attrs);
-          fileSizeStack.push(0L);
-          return FileVisitResult.CONTINUE;
+    if (incremental) {
+      List<String> removed = new ArrayList<>();
+      for (String relativePath : previous.getRelativePaths()) {
+        if (TransferredResourcesSnapshot.isUnder(relativePath, scopeRelativePath)
+          && !current.getRelativePaths().contains(relativePath)) {
+          removed.add(IdUtils.getTransferredResourceUUID(relativePath));
+        }
+      }
+      for (int i = 0; i < removed.size(); i += submitter.batchSize) {
+        index.delete(TransferredResource.class, removed.subList(i, Math.min(i + submitter.batchSize, removed.size())));
+      }
+      previous.replaceUnder(scopeRelativePath, current);
+      current = previous;
+      LOGGER.info("Transferred resources scan sent {} changed resources to index and removed {}",
+        submitter.submitted.get(), removed.size());
+    } else {
+      Filter filter;
+      if (!folderRelativePath.isPresent()) {
+        filter = new Filter(new NotSimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_LAST_SCAN_DATE,
+          SolrUtils.formatDateWithMillis(lastScanDate)));
+      } else {
+        filter = new Filter(
+          new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, folderRelativePath.get()),
+          new NotSimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_LAST_SCAN_DATE,
+            SolrUtils.formatDateWithMillis(lastScanDate)));
+        // the snapshot must always cover the whole folder
+        TransferredResourcesSnapshot stored = TransferredResourcesSnapshot.load(snapshotPath);
+        if (stored != null) {
+          stored.replaceUnder(scopeRelativePath, current);
         }
+        current = stored;
+      }
+      index.delete(TransferredResource.class, filter);
+    }
+
+    index.commit(TransferredResource.class);
+    if (incrementalEnabled && current != null) {
+      current.save(snapshotPath);
+    }
+  }
+
+  private class ScanTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
 
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+    private final Path dir;
+    private final BasicFileAttributes dirAttrs;
+    private final List<Object> ancestorKeys;
+    private final TransferredResourcesSnapshot previous;
+    private final TransferredResourcesSnapshot current;
+    private final ResourceSubmitter submitter;
+    private final Date lastScanDate;
+
+    ScanTask(Path dir, BasicFileAttributes dirAttrs, List<Object> ancestorKeys, TransferredResourcesSnapshot previous,
+      TransferredResourcesSnapshot current, ResourceSubmitter submitter, Date lastScanDate) {
+      this.dir = dir;
+      this.dirAttrs = dirAttrs;
+      this.ancestorKeys = ancestorKeys;
+      this.previous = previous;
+      this.current = current;
+      this.submitter = submitter;
+      this.lastScanDate = lastScanDate;
+    }
+
+    @Override
+    protected Long compute() {
+      List<Object> childAncestorKeys = new ArrayList<>(ancestorKeys);
+      childAncestorKeys.add(dirAttrs.fileKey());
+
+      long size = 0;
+      List<ScanTask> subTasks = new ArrayList<>();
+      try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+        for (Path child : children) {
+          BasicFileAttributes attrs;
           try {
-            long size = Files.size(file);
-            long actualSize = fileSizeStack.pop();
-            fileSizeStack.push(actualSize + size);
-            TransferredResource resource = TransferredResourcesScanner.createTransferredResource(file, attrs, size,
-              basePath, lastScanDate);
-            index.create(TransferredResource.class, resource);
-          } catch (NoSuchFileException | AuthorizationDeniedException e) {
+            attrs = Files.readAttributes(child, BasicFileAttributes.class);
+          } catch (IOException e) {
             // can be a broken symlink (do nothing)
-            // can be unauthorized action (do nothing)
+            continue;
           }
 
-          return FileVisitResult.CONTINUE;
+          if (!attrs.isDirectory()) {
+            size += attrs.size();
+            visit(child, attrs, attrs.size());
+          } else if (attrs.fileKey() == null || !childAncestorKeys.contains(attrs.fileKey())) {
+            subTasks.add(new ScanTask(child, attrs, childAncestorKeys, previous, current, submitter, lastScanDate));
+          }
         }
+      } catch (IOException | DirectoryIteratorException e) {
+        LOGGER.warn("Could not list transferred resources folder {}", dir, e);
+      }
 
-        @Override
-        public FileVisitResult visitFileFailed(Path file, IOException exc) {
-          return FileVisitResult.CONTINUE;
-        }
+      for (ScanTask subTask : invokeAll(subTasks)) {
+        size += subTask.join();
+      }
 
-        @Override
-        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-          if (!dir.equals(basePath)) {
-            BasicFileAttributes actualDirectoryAttributes = actualDirectoryAttributesStack.pop();
-            long fileSize = fileSizeStack.pop();
-            TransferredResource resource = TransferredResourcesScanner.createTransferredResource(dir,
-              actualDirectoryAttributes, fileSize, basePath, lastScanDate);
-
-            if (!fileSizeStack.isEmpty()) {
-              long actualSize = fileSizeStack.pop();
-              fileSizeStack.push(actualSize + fileSize);
-            }
-
-            try {
-              index.create(TransferredResource.class, resource);
-            } catch (AuthorizationDeniedException e) {
-              // do nothing & carry on
-            }
-          }
+      if (!dir.equals(basePath)) {
+        visit(dir, dirAttrs, size);
+      }
+      return size;
+    }
+
+    private void visit(Path path, BasicFileAttributes attrs, long size) {
+      String relativePath = basePath.relativize(path).toString();
+      long lastModified = attrs.lastModifiedTime().toMillis();
+      current.put(relativePath, lastModified, size);
+      if (previous == null || !previous.isUnchanged(relativePath, lastModified, size)) {
+        submitter.add(TransferredResourcesScanner.createTransferredResource(path, attrs, size, basePath, lastScanDate));
+      }
+    }
+  }
 
-          return FileVisitResult.CONTINUE;
+  /**
+   * Sends resources to the index in bulk and keeps track of the ones that
+   * failed, so that they are not recorded as indexed in the snapshot.
+   */
+  private class ResourceSubmitter {
+    private final int batchSize;
+    private final TransferredResourcesSnapshot current;
+    private final AtomicLong submitted = new AtomicLong(0);
+    private final List<TransferredResource> pending = new ArrayList<>();
+    private final List<SentBatch> sent = Collections.synchronizedList(new ArrayList<>());
+
+    ResourceSubmitter(int batchSize, TransferredResourcesSnapshot current) {
+      this.batchSize = batchSize;
+      this.current = current;
+    }
+
+    void add(TransferredResource resource) {
+      List<TransferredResource> batch = null;
+      synchronized (pending) {
+        pending.add(resource);
+        if (pending.size() >= batchSize) {
+          batch = new ArrayList<>(pending);
+          pending.clear();
         }
-      });
+      }
+      if (batch != null) {
+        send(batch);
+      }
+    }
 
-      index.commit(TransferredResource.class);
+    void flush() {
+      List<TransferredResource> batch;
+      synchronized (pending) {
+        batch = new ArrayList<>(pending);
+        pending.clear();
+      }
+      if (!batch.isEmpty()) {
+        send(batch);
+      }
+    }
 
-      Filter filter;
-      if (!folderRelativePath.isPresent()) {
-        filter = new Filter(new NotSimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_LAST_SCAN_DATE,
-          SolrUtils.formatDateWithMillis(lastScanDate)));
-      } else {
-        filter = new Filter(
-          new SimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_ANCESTORS, folderRelativePath.get()),
-          new NotSimpleFilterParameter(RodaConstants.TRANSFERRED_RESOURCE_LAST_SCAN_DATE,
-            SolrUtils.formatDateWithMillis(lastScanDate)));
+    /**
+     * Removes from the snapshot the resources that could not be indexed, so
+     * they are sent again on the next scan. Must be called after the index
+     * commit.
+     */
+    void forgetFailed() {
+      for (SentBatch batch : sent) {
+        if (!batch.ret.isEmpty()) {
+          batch.resources.forEach(resource -> current.remove(resource.getRelativePath()));
+        }
+      }
+      sent.clear();
+    }
+
+    private void send(List<TransferredResource> batch) {
+      try {
+        ReturnWithExceptions<Void, IndexService> ret = index.createAll(TransferredResource.class, batch);
+        submitted.addAndGet(batch.size());
+        sent.add(new SentBatch(ret, batch));
+      } catch (AuthorizationDeniedException e) {
+        // can be unauthorized action (do nothing)
+        batch.forEach(resource -> current.remove(resource.getRelativePath()));
       }
+    }
+  }
 
-      index.delete(TransferredResource.class, filter);
-      index.commit(TransferredResource.class);
-      LOGGER.info("End indexing Transferred Resources. Time elapsed: {} seconds",
-        (System.currentTimeMillis() - start) / 1000);
-      RodaCoreFactory.setTransferredResourcesScannerUpdateStatus(folderRelativePath, false);
-    } catch (IOException | GenericException | RuntimeException | AuthorizationDeniedException e) {
-      LOGGER.error("Error reindexing Transferred Resources", e);
+  private static class SentBatch {
+    private final ReturnWithExceptions<Void, IndexService> ret;
+    private final List<TransferredResource> resources;
+
+    SentBatch(ReturnWithExceptions<Void, IndexService> ret, List<TransferredResource> resources) {
+      this.ret = ret;
+      this.resources = resources;
     }
   }
-}
\ No newline at end of file
+}
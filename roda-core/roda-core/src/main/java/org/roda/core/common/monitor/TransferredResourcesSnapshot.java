@@ -0,0 +1,105 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.monitor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Last modification time and size of each file and folder of the transferred
+ * resources folder (keyed by path relative to it), as seen by the last scan.
+ * It is used to only send to the index the resources that changed since then.
+ */
+class TransferredResourcesSnapshot {
+  private static final int FORMAT_VERSION = 1;
+
+  private final Map<String, long[]> entries = new ConcurrentHashMap<>();
+
+  /**
+   * @return the snapshot stored in the file or {@code null} if there is no
+   *         (readable) snapshot.
+   */
+  static TransferredResourcesSnapshot load(Path file) {
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+
+    TransferredResourcesSnapshot snapshot = new TransferredResourcesSnapshot();
+    try (DataInputStream in = new DataInputStream(
+      new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        String relativePath = in.readUTF();
+        snapshot.put(relativePath, in.readLong(), in.readLong());
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    return snapshot;
+  }
+
+  void save(Path file) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+      new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(entries.size());
+      for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue()[0]);
+        out.writeLong(entry.getValue()[1]);
+      }
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  void put(String relativePath, long lastModified, long size) {
+    entries.put(relativePath, new long[] {lastModified, size});
+  }
+
+  void remove(String relativePath) {
+    entries.remove(relativePath);
+  }
+
+  boolean isUnchanged(String relativePath, long lastModified, long size) {
+    long[] entry = entries.get(relativePath);
+    return entry != null && entry[0] == lastModified && entry[1] == size;
+  }
+
+  Set<String> getRelativePaths() {
+    return entries.keySet();
+  }
+
+  /**
+   * Replaces the entries under the given relative path (all entries if empty)
+   * by the ones of the other snapshot.
+   */
+  void replaceUnder(String relativePath, TransferredResourcesSnapshot other) {
+    entries.keySet().removeIf(path -> isUnder(path, relativePath));
+    entries.putAll(other.entries);
+  }
+
+  static boolean isUnder(String path, String relativePath) {
+    return relativePath.isEmpty() || path.equals(relativePath) || path.startsWith(relativePath + File.separator);
+  }
+}
@@ -87,12 +87,19 @@ public class BundleManifestCreator {
   public void create() throws GenericException, NotFoundException, IOException {
     FileStorageService tmpStorage = new FileStorageService(workingDir.resolve(RodaConstants.CORE_STORAGE_FOLDER), false,
       null, false);
+    create(getPackageList(tmpStorage));
+  }
 
+  /**
+   * Creates the manifest of a bundle whose packages are not in the working
+   * directory.
+   */
+  public void create(List<PackageState> packageStates) throws GenericException, IOException {
     BundleManifest bundleManifest = new BundleManifest();
     bundleManifest.setId(IdUtils.createUUID());
     bundleManifest.setFromDate(fromDate);
     bundleManifest.setToDate(toDate);
-    bundleManifest.setPackageStateList(getPackageList(tmpStorage));
+    bundleManifest.setPackageStateList(packageStates);
     bundleManifest.setAttachmentStateList(getAttachmentStateList());
     bundleManifest.setValidationEntityList(getValidationEntityList());
     Path manifestPath = workingDir.resolve(MANIFEST_FILE);
@@ -78,6 +78,12 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@author João Gomes <jgomes@keep.pt>}.
@@ -90,6 +96,11 @@ public class ImportUtils {
     // do nothing
   }
 
+  /**
+   * Imports the entities of the bundle storage, each container after the
+   * previous one (e.g. job reports need their jobs), and the entities of a
+   * container in parallel.
+   */
   public static int importStorage(final ModelService model, final IndexService index, final StorageService storage,
     final Path workingDir, final boolean importJobs) throws GenericException, NotFoundException,
     AuthorizationDeniedException, AlreadyExistsException, RequestNotValidException {
@@ -97,30 +108,74 @@ public class ImportUtils {
       null, false);
 
     int total = 0;
-
-    for (Container container : tmpStorage.listContainers()) {
-      // Let local instance handle job creation
-      if (!RodaConstants.STORAGE_CONTAINER_JOB.equals(container.getStoragePath().getName()) || importJobs) {
-        for (Resource resource : tmpStorage.listResourcesUnderContainer(container.getStoragePath(), false)) {
-          StoragePath storagePath = resource.getStoragePath();
-          if (RodaConstants.STORAGE_CONTAINER_PRESERVATION.equals(container.getStoragePath().getName())
-            || RodaConstants.STORAGE_CONTAINER_JOB_REPORT.equals(container.getStoragePath().getName())) {
-            CloseableIterable<Resource> resources = tmpStorage.listResourcesUnderDirectory(resource.getStoragePath(),
-              true);
-            for (Resource pmResource : resources) {
-              StoragePath pmStoragePath = pmResource.getStoragePath();
-              importResource(model, index, storage, tmpStorage, pmResource, pmStoragePath);
-            }
-          } else {
-            importResource(model, index, storage, tmpStorage, resource, storagePath);
+    int threads = RodaCoreFactory.getRodaConfiguration().getInt(RodaConstants.CORE_SYNCHRONIZATION_IMPORT_THREADS,
+      Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ImportThreadFactory());
+    try {
+      for (Container container : tmpStorage.listContainers()) {
+        // Let local instance handle job creation
+        if (!RodaConstants.STORAGE_CONTAINER_JOB.equals(container.getStoragePath().getName()) || importJobs) {
+          List<Future<Void>> imports = new ArrayList<>();
+          for (Resource resource : tmpStorage.listResourcesUnderContainer(container.getStoragePath(), false)) {
+            imports.add(executor.submit(() -> {
+              importEntity(model, index, storage, tmpStorage, container, resource);
+              return null;
+            }));
+            total++;
           }
-          total++;
+          waitForImports(imports);
         }
       }
+    } finally {
+      executor.shutdownNow();
     }
     return total;
   }
 
+  private static void importEntity(ModelService model, IndexService index, StorageService storage,
+    FileStorageService tmpStorage, Container container, Resource resource) throws NotFoundException,
+    GenericException, AuthorizationDeniedException, AlreadyExistsException, RequestNotValidException {
+    StoragePath storagePath = resource.getStoragePath();
+    if (RodaConstants.STORAGE_CONTAINER_PRESERVATION.equals(container.getStoragePath().getName())
+      || RodaConstants.STORAGE_CONTAINER_JOB_REPORT.equals(container.getStoragePath().getName())) {
+      CloseableIterable<Resource> resources = tmpStorage.listResourcesUnderDirectory(resource.getStoragePath(), true);
+      for (Resource pmResource : resources) {
+        StoragePath pmStoragePath = pmResource.getStoragePath();
+        importResource(model, index, storage, tmpStorage, pmResource, pmStoragePath);
+      }
+    } else {
+      importResource(model, index, storage, tmpStorage, resource, storagePath);
+    }
+  }
+
+  private static void waitForImports(List<Future<Void>> imports) throws GenericException, NotFoundException,
+    AuthorizationDeniedException, AlreadyExistsException, RequestNotValidException {
+    try {
+      for (Future<Void> entityImport : imports) {
+        entityImport.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while importing bundle", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof GenericException) {
+        throw (GenericException) cause;
+      } else if (cause instanceof NotFoundException) {
+        throw (NotFoundException) cause;
+      } else if (cause instanceof AuthorizationDeniedException) {
+        throw (AuthorizationDeniedException) cause;
+      } else if (cause instanceof AlreadyExistsException) {
+        throw (AlreadyExistsException) cause;
+      } else if (cause instanceof RequestNotValidException) {
+        throw (RequestNotValidException) cause;
+      }
+      throw new GenericException("Error importing bundle", cause);
+    } finally {
+      imports.forEach(entityImport -> entityImport.cancel(true));
+    }
+  }
+
   private static void importResource(ModelService model, IndexService index, StorageService storage,
     FileStorageService tmpStorage, Resource resource, StoragePath storagePath) throws NotFoundException,
     GenericException, AuthorizationDeniedException, AlreadyExistsException, RequestNotValidException {
@@ -130,6 +185,10 @@ public class ImportUtils {
       storage.deleteResource(storagePath);
     }
     storage.copy(tmpStorage, storagePath, storagePath);
+    if (RodaConstants.STORAGE_CONTAINER_AIP.equals(storagePath.getContainerName())) {
+      // the AIP was replaced in storage, the cached one is outdated
+      model.invalidateCachedAIP(ModelUtils.extractAipId(storagePath).orElse(storagePath.getName()));
+    }
     reindexResource(model, index, resource);
   }
 
@@ -489,4 +548,15 @@ public class ImportUtils {
         ModelUtils.giveRespectiveModelClass(packageState.getClassName()).getName(), packageState.getCount());
     });
   }
+
+  private static class ImportThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "Bundle import " + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
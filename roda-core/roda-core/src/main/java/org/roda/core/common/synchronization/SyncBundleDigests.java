@@ -0,0 +1,162 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.synchronization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.storage.Binary;
+import org.roda.core.util.FileUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Digests of the binaries sent to a distributed instance in a synchronization
+ * bundle, by storage path.
+ *
+ * <p>
+ * The digests of a bundle are kept as pending until the instance acknowledges
+ * it (by removing it from the outcome folder after importing it), and only
+ * the ones of the last bundle created for an instance are kept. The next bundle
+ * for that instance only includes the binaries whose digest differs from the
+ * acknowledged ones.
+ * </p>
+ */
+public class SyncBundleDigests {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SyncBundleDigests.class);
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final String PENDING_SUFFIX = ".digests.json";
+
+  private String instanceId;
+  private Map<String, String> digests = new HashMap<>();
+
+  public SyncBundleDigests() {
+    // used by JSON deserialization
+  }
+
+  public SyncBundleDigests(String instanceId) {
+    this.instanceId = instanceId;
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  public void setInstanceId(String instanceId) {
+    this.instanceId = instanceId;
+  }
+
+  public Map<String, String> getDigests() {
+    return digests;
+  }
+
+  public void setDigests(Map<String, String> digests) {
+    this.digests = digests;
+  }
+
+  /**
+   * @return true if the binary was not sent yet or its digest changed since.
+   */
+  public boolean hasChanged(String storagePath, String digest) {
+    return !digest.equals(digests.get(storagePath));
+  }
+
+  public void put(String storagePath, String digest) {
+    digests.put(storagePath, digest);
+  }
+
+  /**
+   * @return true if some binary sent before is not in the given digests, i.e.
+   *         it was removed since.
+   */
+  public boolean hasRemovals(SyncBundleDigests current) {
+    return !current.digests.keySet().containsAll(digests.keySet());
+  }
+
+  public static String digest(Binary binary) throws GenericException {
+    try (InputStream inputStream = binary.getContent().createInputStream()) {
+      return FileUtility.checksum(inputStream, DIGEST_ALGORITHM);
+    } catch (IOException | NoSuchAlgorithmException e) {
+      throw new GenericException("Error calculating digest of " + binary.getStoragePath(), e);
+    }
+  }
+
+  /**
+   * @return the digests acknowledged by the instance, empty if it never
+   *         acknowledged a bundle.
+   */
+  public static SyncBundleDigests retrieveAcknowledged(String instanceId) throws GenericException {
+    Path path = getAcknowledgedPath(instanceId);
+    if (Files.exists(path)) {
+      return JsonUtils.readObjectFromFile(path, SyncBundleDigests.class);
+    }
+    return new SyncBundleDigests(instanceId);
+  }
+
+  /**
+   * Keeps the digests of the binaries in the bundle until it is acknowledged,
+   * replacing the ones of a previous bundle of the same instance that was not
+   * acknowledged.
+   */
+  public void writePending(String bundleName) throws GenericException {
+    Path pendingPath = getPendingPath(bundleName);
+    deletePending(instanceId, pendingPath);
+    JsonUtils.writeObjectToFile(this, pendingPath);
+  }
+
+  private static void deletePending(String instanceId, Path except) throws GenericException {
+    try (DirectoryStream<Path> pendingPaths = Files.newDirectoryStream(except.getParent(), "*" + PENDING_SUFFIX)) {
+      for (Path pendingPath : pendingPaths) {
+        if (!pendingPath.equals(except)
+          && instanceId.equals(JsonUtils.readObjectFromFile(pendingPath, SyncBundleDigests.class).getInstanceId())) {
+          Files.delete(pendingPath);
+        }
+      }
+    } catch (IOException e) {
+      throw new GenericException("Error deleting pending digests of instance " + instanceId, e);
+    }
+  }
+
+  /**
+   * Makes the pending digests of the bundle the acknowledged ones of its
+   * instance. Does nothing if the bundle has no pending digests.
+   */
+  public static void acknowledge(String bundleName) {
+    Path pendingPath = getPendingPath(bundleName);
+    if (Files.exists(pendingPath)) {
+      try {
+        SyncBundleDigests pending = JsonUtils.readObjectFromFile(pendingPath, SyncBundleDigests.class);
+        Files.move(pendingPath, getAcknowledgedPath(pending.getInstanceId()), StandardCopyOption.REPLACE_EXISTING);
+      } catch (GenericException | IOException e) {
+        LOGGER.error("Error acknowledging digests of bundle {}", bundleName, e);
+      }
+    }
+  }
+
+  private static Path getAcknowledgedPath(String instanceId) {
+    return RodaCoreFactory.getSynchronizationDirectoryPath()
+      .resolve(RodaConstants.SYNCHRONIZATION_DIGESTS_FILE + "_" + instanceId + ".json");
+  }
+
+  private static Path getPendingPath(String bundleName) {
+    return RodaCoreFactory.getSynchronizationDirectoryPath().resolve(RodaConstants.CORE_SYNCHRONIZATION_OUTCOME_FOLDER)
+      .resolve(bundleName + PENDING_SUFFIX);
+  }
+}
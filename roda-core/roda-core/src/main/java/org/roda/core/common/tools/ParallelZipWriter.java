@@ -0,0 +1,531 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.FilenameUtils;
+import org.roda.core.storage.ContentPayload;
+
+/**
+ * Writes a ZIP file to an output stream, compressing the entries in parallel.
+ *
+ * <p>
+ * Entries are compressed (or, for already compressed formats, checksummed) by
+ * a shared pool of workers while the previous entries are being written, and
+ * are written in the order they were added. Already compressed formats (e.g.
+ * JPEG, MP4, PDF, ZIP) are stored uncompressed. Compressed entries are kept in
+ * memory until written, as long as they are smaller than
+ * {@link #MAX_IN_MEMORY_ENTRY_SIZE} and all the compressed entries of the
+ * writer fit in {@link #DEFAULT_IN_MEMORY_BUDGET}; otherwise they are kept in a
+ * temporary file. ZIP64 records are used when sizes, offsets or the number of
+ * entries need them.
+ * </p>
+ */
+public class ParallelZipWriter implements Closeable {
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final int MAX_IN_MEMORY_ENTRY_SIZE = 8 * 1024 * 1024;
+  private static final int DEFAULT_IN_MEMORY_BUDGET = 32 * 1024 * 1024;
+  private static final int THREADS = Runtime.getRuntime().availableProcessors();
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, new ZipThreadFactory());
+  private static final ThreadLocal<byte[]> READ_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+  private static final ThreadLocal<byte[]> DEFLATE_BUFFER = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+  private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal
+    .withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+  private static final Set<String> STORED_EXTENSIONS = Set.of("zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar",
+    "jpg", "jpeg", "jp2", "png", "gif", "webp", "mp3", "mp4", "m4a", "m4v", "mov", "avi", "mkv", "webm", "ogg", "ogv",
+    "flac", "pdf", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub");
+
+  private static final int METHOD_STORED = 0;
+  private static final int METHOD_DEFLATED = 8;
+  private static final int FLAG_UTF8 = 0x0800;
+  private static final int VERSION = 20;
+  private static final int VERSION_ZIP64 = 45;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final int DIRECTORY_ATTRIBUTE = 0x10;
+
+  private final OutputStream out;
+  // bytes of compressed entries that can still be kept in memory
+  private final Semaphore inMemoryBudget;
+  private final ByteBuffer header = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+  private final Deque<Future<PreparedEntry>> pending = new ArrayDeque<>();
+  private final List<PreparedEntry> entries = new ArrayList<>();
+  private final long dosTime = toDosTime(LocalDateTime.now());
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private long offset = 0;
+  private boolean finished = false;
+  private boolean failed = false;
+
+  public ParallelZipWriter(OutputStream out) {
+    this(out, DEFAULT_IN_MEMORY_BUDGET);
+  }
+
+  ParallelZipWriter(OutputStream out, int inMemoryBudget) {
+    this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    this.inMemoryBudget = new Semaphore(inMemoryBudget);
+  }
+
+  /**
+   * Adds a directory entry, the name should end with '/'.
+   */
+  public void addDirectory(String name) throws IOException {
+    PreparedEntry entry = new PreparedEntry(name, METHOD_STORED);
+    entry.directory = true;
+    add(CompletableFuture.completedFuture(entry));
+  }
+
+  /**
+   * Adds a file entry, which is compressed in the background unless its
+   * extension denotes an already compressed format.
+   */
+  public void addEntry(String name, ContentPayload payload) throws IOException {
+    String extension = FilenameUtils.getExtension(name).toLowerCase(Locale.ROOT);
+    if (STORED_EXTENSIONS.contains(extension)) {
+      add(EXECUTOR.submit(() -> prepareStored(name, payload)));
+    } else {
+      add(EXECUTOR.submit(() -> prepareDeflated(name, payload, inMemoryBudget)));
+    }
+  }
+
+  private void add(Future<PreparedEntry> entry) throws IOException {
+    pending.add(entry);
+    while (pending.size() > 2 * THREADS || (!pending.isEmpty() && pending.peek().isDone())) {
+      write(pending.poll());
+    }
+  }
+
+  /**
+   * Writes the pending entries and the central directory. The underlying output
+   * stream is flushed but not closed.
+   */
+  public void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    while (!pending.isEmpty()) {
+      write(pending.poll());
+    }
+    try {
+      writeCentralDirectory();
+      out.flush();
+    } catch (IOException e) {
+      failed = true;
+      throw e;
+    }
+    finished = true;
+  }
+
+  /**
+   * Finishes the ZIP, if no error occurred while writing it, and closes the
+   * underlying output stream.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (!failed) {
+        finish();
+      }
+    } finally {
+      discardPending();
+      out.close();
+    }
+  }
+
+  private void discardPending() {
+    for (Future<PreparedEntry> future : pending) {
+      if (!future.cancel(true) && !future.isCancelled()) {
+        try {
+          future.get().discard();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          // entry failed, nothing to discard
+        }
+      }
+    }
+    pending.clear();
+  }
+
+  private void write(Future<PreparedEntry> future) throws IOException {
+    PreparedEntry entry;
+    try {
+      entry = future.get();
+    } catch (InterruptedException e) {
+      failed = true;
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing ZIP entry");
+    } catch (ExecutionException e) {
+      failed = true;
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Error compressing ZIP entry", e.getCause());
+    }
+
+    try {
+      entry.localHeaderOffset = offset;
+      writeLocalHeader(entry);
+      entry.writeData(this);
+      entries.add(entry);
+    } catch (IOException e) {
+      failed = true;
+      throw e;
+    } finally {
+      entry.discard();
+    }
+  }
+
+  private static PreparedEntry prepareStored(String name, ContentPayload payload) throws IOException {
+    PreparedEntry entry = new PreparedEntry(name, METHOD_STORED);
+    entry.payload = payload;
+    CRC32 crc = new CRC32();
+    byte[] buffer = READ_BUFFER.get();
+    try (InputStream in = payload.createInputStream()) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        crc.update(buffer, 0, read);
+        entry.size += read;
+      }
+    }
+    entry.crc = crc.getValue();
+    entry.compressedSize = entry.size;
+    checkInterrupted(entry);
+    return entry;
+  }
+
+  private static PreparedEntry prepareDeflated(String name, ContentPayload payload, Semaphore inMemoryBudget)
+    throws IOException {
+    PreparedEntry entry = new PreparedEntry(name, METHOD_DEFLATED);
+    CRC32 crc = new CRC32();
+    Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    SpillOutputStream spill = new SpillOutputStream(inMemoryBudget);
+    entry.spill = spill;
+    byte[] buffer = READ_BUFFER.get();
+    byte[] deflated = DEFLATE_BUFFER.get();
+    try (InputStream in = payload.createInputStream()) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        crc.update(buffer, 0, read);
+        deflater.setInput(buffer, 0, read);
+        while (!deflater.needsInput()) {
+          spill.write(deflated, 0, deflater.deflate(deflated));
+        }
+        entry.size += read;
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        spill.write(deflated, 0, deflater.deflate(deflated));
+      }
+      spill.close();
+    } catch (IOException e) {
+      entry.discard();
+      throw e;
+    }
+    entry.crc = crc.getValue();
+    entry.compressedSize = spill.size;
+    checkInterrupted(entry);
+    return entry;
+  }
+
+  private static void checkInterrupted(PreparedEntry entry) throws InterruptedIOException {
+    if (Thread.currentThread().isInterrupted()) {
+      entry.discard();
+      throw new InterruptedIOException("ZIP entry compression was cancelled");
+    }
+  }
+
+  private void writeLocalHeader(PreparedEntry entry) throws IOException {
+    boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+    header.clear();
+    header.putInt(0x04034b50);
+    header.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION));
+    header.putShort((short) FLAG_UTF8);
+    header.putShort((short) entry.method);
+    header.putInt((int) dosTime);
+    header.putInt((int) entry.crc);
+    header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.compressedSize));
+    header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.size));
+    header.putShort((short) entry.name.length);
+    header.putShort((short) (zip64 ? 20 : 0));
+    writeHeader();
+    writeBytes(entry.name, 0, entry.name.length);
+    if (zip64) {
+      header.clear();
+      header.putShort((short) ZIP64_EXTRA_ID);
+      header.putShort((short) 16);
+      header.putLong(entry.size);
+      header.putLong(entry.compressedSize);
+      writeHeader();
+    }
+  }
+
+  private void writeCentralDirectory() throws IOException {
+    long centralDirectoryOffset = offset;
+    for (PreparedEntry entry : entries) {
+      boolean zip64Size = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+      boolean zip64Offset = entry.localHeaderOffset >= ZIP64_MAGIC;
+      int extraLength = (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0);
+      int version = zip64Size || zip64Offset ? VERSION_ZIP64 : VERSION;
+
+      header.clear();
+      header.putInt(0x02014b50);
+      header.putShort((short) version);
+      header.putShort((short) version);
+      header.putShort((short) FLAG_UTF8);
+      header.putShort((short) entry.method);
+      header.putInt((int) dosTime);
+      header.putInt((int) entry.crc);
+      header.putInt((int) (zip64Size ? ZIP64_MAGIC : entry.compressedSize));
+      header.putInt((int) (zip64Size ? ZIP64_MAGIC : entry.size));
+      header.putShort((short) entry.name.length);
+      header.putShort((short) (extraLength > 0 ? extraLength + 4 : 0));
+      header.putShort((short) 0);
+      header.putShort((short) 0);
+      header.putShort((short) 0);
+      header.putInt(entry.directory ? DIRECTORY_ATTRIBUTE : 0);
+      header.putInt((int) (zip64Offset ? ZIP64_MAGIC : entry.localHeaderOffset));
+      writeHeader();
+      writeBytes(entry.name, 0, entry.name.length);
+      if (extraLength > 0) {
+        header.clear();
+        header.putShort((short) ZIP64_EXTRA_ID);
+        header.putShort((short) extraLength);
+        if (zip64Size) {
+          header.putLong(entry.size);
+          header.putLong(entry.compressedSize);
+        }
+        if (zip64Offset) {
+          header.putLong(entry.localHeaderOffset);
+        }
+        writeHeader();
+      }
+    }
+    long centralDirectorySize = offset - centralDirectoryOffset;
+    int count = entries.size();
+
+    boolean zip64 = count >= ZIP64_MAGIC_COUNT || centralDirectoryOffset >= ZIP64_MAGIC
+      || centralDirectorySize >= ZIP64_MAGIC;
+    if (zip64) {
+      long zip64EndOffset = offset;
+      header.clear();
+      header.putInt(0x06064b50);
+      header.putLong(44);
+      header.putShort((short) VERSION_ZIP64);
+      header.putShort((short) VERSION_ZIP64);
+      header.putInt(0);
+      header.putInt(0);
+      header.putLong(count);
+      header.putLong(count);
+      header.putLong(centralDirectorySize);
+      header.putLong(centralDirectoryOffset);
+      header.putInt(0x07064b50);
+      header.putInt(0);
+      header.putLong(zip64EndOffset);
+      header.putInt(1);
+      writeHeader();
+    }
+
+    header.clear();
+    header.putInt(0x06054b50);
+    header.putShort((short) 0);
+    header.putShort((short) 0);
+    header.putShort((short) (zip64 ? ZIP64_MAGIC_COUNT : count));
+    header.putShort((short) (zip64 ? ZIP64_MAGIC_COUNT : count));
+    header.putInt((int) (zip64 ? ZIP64_MAGIC : centralDirectorySize));
+    header.putInt((int) (zip64 ? ZIP64_MAGIC : centralDirectoryOffset));
+    header.putShort((short) 0);
+    writeHeader();
+  }
+
+  private void writeHeader() throws IOException {
+    writeBytes(header.array(), 0, header.position());
+  }
+
+  private void writeBytes(byte[] bytes, int off, int len) throws IOException {
+    out.write(bytes, off, len);
+    offset += len;
+  }
+
+  private void writeStream(InputStream in, long size) throws IOException {
+    long written = 0;
+    int read;
+    while (written < size && (read = in.read(buffer, 0, (int) Math.min(buffer.length, size - written))) != -1) {
+      writeBytes(buffer, 0, read);
+      written += read;
+    }
+    if (written != size) {
+      throw new IOException("Content changed while being added to ZIP");
+    }
+  }
+
+  private static long toDosTime(LocalDateTime time) {
+    return ((long) (time.getYear() - 1980) << 25) | ((long) time.getMonthValue() << 21)
+      | ((long) time.getDayOfMonth() << 16) | ((long) time.getHour() << 11) | ((long) time.getMinute() << 5)
+      | (time.getSecond() >> 1);
+  }
+
+  private static class PreparedEntry {
+    private final byte[] name;
+    private final int method;
+    private boolean directory = false;
+    private long crc = 0;
+    private long size = 0;
+    private long compressedSize = 0;
+    private long localHeaderOffset = 0;
+    private ContentPayload payload = null;
+    private SpillOutputStream spill = null;
+
+    PreparedEntry(String name, int method) {
+      this.name = name.getBytes(StandardCharsets.UTF_8);
+      this.method = method;
+    }
+
+    void writeData(ParallelZipWriter writer) throws IOException {
+      if (spill != null) {
+        spill.writeTo(writer);
+      } else if (payload != null) {
+        try (InputStream in = payload.createInputStream()) {
+          writer.writeStream(in, size);
+        }
+      }
+    }
+
+    void discard() {
+      payload = null;
+      if (spill != null) {
+        spill.discard();
+        spill = null;
+      }
+    }
+  }
+
+  /**
+   * Keeps the written bytes in memory until they exceed
+   * {@link ParallelZipWriter#MAX_IN_MEMORY_ENTRY_SIZE} or the in-memory budget
+   * of the writer, and in a temporary file after that. The budget is not waited
+   * for, as it may be held by entries that are only written after this one.
+   */
+  private static class SpillOutputStream extends OutputStream {
+    private final Semaphore budget;
+    private int reserved = 0;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private Path file = null;
+    private OutputStream fileStream = null;
+    private long size = 0;
+
+    SpillOutputStream(Semaphore budget) {
+      this.budget = budget;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (fileStream == null && (size + len > MAX_IN_MEMORY_ENTRY_SIZE || !budget.tryAcquire(len))) {
+        file = Files.createTempFile("roda-zip-", ".deflate");
+        fileStream = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+        memory.writeTo(fileStream);
+        memory = null;
+        release();
+      } else if (fileStream == null) {
+        reserved += len;
+      }
+      if (fileStream != null) {
+        fileStream.write(b, off, len);
+      } else {
+        memory.write(b, off, len);
+      }
+      size += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (fileStream != null) {
+        fileStream.close();
+      }
+    }
+
+    void writeTo(ParallelZipWriter writer) throws IOException {
+      if (file != null) {
+        try (InputStream in = Files.newInputStream(file)) {
+          writer.writeStream(in, size);
+        }
+      } else {
+        memory.writeTo(writer.out);
+        writer.offset += size;
+      }
+    }
+
+    private void release() {
+      budget.release(reserved);
+      reserved = 0;
+    }
+
+    void discard() {
+      memory = null;
+      release();
+      if (file != null) {
+        try {
+          if (fileStream != null) {
+            fileStream.close();
+          }
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          // best effort, it is a temporary file
+        }
+        file = null;
+      }
+    }
+  }
+
+  private static class ZipThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "ZIP compressor " + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -8,13 +8,8 @@
 package org.roda.core.common.tools;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
-
-import org.apache.commons.io.IOUtils;
 
 /**
  * Tools to handle Zips
@@ -29,40 +24,18 @@ public class ZipTools {
   }
 
   /**
-   * Zip a list of files into an output stream
+   * Zip a list of files into an output stream, which is closed at the end
    *
    * @param files
    * @param out
    * @throws IOException
+   * @see ParallelZipWriter
    */
   public static void zip(List<ZipEntryInfo> files, OutputStream out) throws IOException {
-    ZipOutputStream zos = new ZipOutputStream(out);
-
-    for (ZipEntryInfo file : files) {
-      ZipEntry entry = new ZipEntry(file.getName());
-      zos.putNextEntry(entry);
-      InputStream inputStream = file.getPayload().createInputStream();
-      sendToZip(inputStream, zos);
-      IOUtils.closeQuietly(inputStream);
-      zos.closeEntry();
-    }
-
-    IOUtils.closeQuietly(zos);
-    IOUtils.closeQuietly(out);
-  }
-
-  private static void sendToZip(InputStream in, ZipOutputStream zos) throws IOException {
-    byte[] buffer = new byte[4096];
-    int retval;
-
-    do {
-      retval = in.read(buffer, 0, 4096);
-      if (retval != -1) {
-        zos.write(buffer, 0, retval);
+    try (ParallelZipWriter zip = new ParallelZipWriter(out)) {
+      for (ZipEntryInfo file : files) {
+        zip.addEntry(file.getName(), file.getPayload());
       }
-    } while (retval != -1);
-
-    in.close();
-
+    }
   }
 }
@@ -41,6 +41,7 @@ import org.roda.core.data.v2.IsModelObject;
 import org.roda.core.data.v2.common.OptionalWithCause;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
@@ -107,6 +108,9 @@ import org.xml.sax.SAXException;
 public class IndexModelObserver implements ModelObserver {
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexModelObserver.class);
 
+  private static final int ANCESTORS_UPDATE_BATCH_SIZE = 1000;
+  private static final int ANCESTORS_UPDATE_QUERY_SIZE = 100;
+
   private final SolrClient index;
   private final ModelService model;
 
@@ -727,37 +731,41 @@ public class IndexModelObserver implements ModelObserver {
       SolrUtils.update(index, IndexedAIP.class, aip.getId(), updatedFields, (ModelObserver) this).addTo(ret);
 
       if (ret.isEmpty()) {
-        updateRepresentationAndFileAncestors(aip, topAncestors).addTo(ret);
+        AncestorsUpdate update = new AncestorsUpdate();
+        if (!aip.getRepresentations().isEmpty()) {
+          update.addAIPContent(aip.getId(), topAncestors, ret);
+        }
 
+        // the ancestors of each descendant are its ancestors up to the moved
+        // AIP (which did not change) followed by the new top ancestors, so
+        // they can be computed from the index without reading the storage
         LOGGER.debug("Finding descendants of moved aip {}", aip.getId());
         Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()),
           new SimpleFilterParameter(RodaConstants.AIP_GHOST, Boolean.FALSE.toString()));
-        List<String> aipFields = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_PARENT_ID,
+        List<String> aipFields = Arrays.asList(RodaConstants.INDEX_UUID, RodaConstants.AIP_ANCESTORS,
           RodaConstants.AIP_HAS_REPRESENTATIONS);
 
-        List<IndexedAIP> items = new ArrayList<>();
-        try (IterableIndexResult<IndexedAIP> childrenResults = new IterableIndexResult<>(index, IndexedAIP.class,
-          filter, null, false, aipFields)) {
-          childrenResults.forEach(items::add);
-        }
+        long count = 0;
+        try (IterableIndexResult<IndexedAIP> descendants = new IterableIndexResult<>(index, IndexedAIP.class, filter,
+          null, false, aipFields)) {
+          for (IndexedAIP descendant : descendants) {
+            List<String> oldAncestors = descendant.getAncestors();
+            List<String> ancestors = new ArrayList<>(
+              oldAncestors.subList(0, oldAncestors.indexOf(aip.getId()) + 1));
+            ancestors.addAll(topAncestors);
+
+            update.addAIP(descendant.getId(), ancestors, ret);
+            if (descendant.getHasRepresentations()) {
+              update.addAIPContent(descendant.getId(), ancestors, ret);
+            }
 
-        for (IndexedAIP item : items) {
-          try {
-            LOGGER.debug("Reindexing aip {} descendant {}", aip.getId(), item.getId());
-            List<String> ancestors = SolrUtils.getAncestors(item.getParentID(), model);
-            SolrUtils.update(index, IndexedAIP.class, aip.getId(),
-              Collections.singletonMap(RodaConstants.AIP_ANCESTORS, ancestors), (ModelObserver) this).addTo(ret);
-
-            // update representation and file ancestors information
-            if (item.getHasRepresentations()) {
-              AIP aipModel = model.retrieveAIP(item.getId());
-              updateRepresentationAndFileAncestors(aipModel, ancestors).addTo(ret);
+            if (++count % ANCESTORS_UPDATE_BATCH_SIZE == 0) {
+              LOGGER.info("Updated ancestors of {} descendants of moved aip {}", count, aip.getId());
             }
-          } catch (NotFoundException e) {
-            LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
-            ret.add(e);
           }
         }
+        update.flush(ret);
+        LOGGER.debug("Updated ancestors of {} descendants of moved aip {}", count, aip.getId());
       }
     } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | IOException e) {
       LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
@@ -767,33 +775,78 @@ public class IndexModelObserver implements ModelObserver {
     return ret;
   }
 
-  private ReturnWithExceptions<Void, ModelObserver> updateRepresentationAndFileAncestors(AIP aip,
-    List<String> ancestors) {
-    ReturnWithExceptions<Void, ModelObserver> ret = new ReturnWithExceptions<>(this);
+  /**
+   * Ancestors to set on AIPs and on the representations and files of AIPs,
+   * grouped by the new ancestors (i.e. by parent) and sent to the index in
+   * batches. The updates only set values computed from the new position of the
+   * moved AIP, so moving it again (to the same parent) resumes an interrupted
+   * update.
+   */
+  private class AncestorsUpdate {
+    private final Map<List<String>, List<String>> aips = new HashMap<>();
+    private final Map<List<String>, List<String>> aipsWithContent = new HashMap<>();
+    private int pending = 0;
+
+    void addAIP(String aipId, List<String> ancestors, ReturnWithExceptions<Void, ModelObserver> ret) {
+      aips.computeIfAbsent(ancestors, a -> new ArrayList<>()).add(aipId);
+      added(ret);
+    }
 
-    for (Representation representation : aip.getRepresentations()) {
-      SolrUtils.update(index, IndexedRepresentation.class, IdUtils.getRepresentationId(representation),
-        Collections.singletonMap(RodaConstants.REPRESENTATION_ANCESTORS, ancestors), (ModelObserver) this).addTo(ret);
+    void addAIPContent(String aipId, List<String> ancestors, ReturnWithExceptions<Void, ModelObserver> ret) {
+      aipsWithContent.computeIfAbsent(ancestors, a -> new ArrayList<>()).add(aipId);
+      added(ret);
+    }
 
-      if (ret.isEmpty()) {
-        try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
-          representation.getId(), true)) {
-          for (OptionalWithCause<File> oFile : allFiles) {
-            if (oFile.isPresent()) {
-              File file = oFile.get();
-              SolrUtils.update(index, IndexedFile.class, IdUtils.getFileId(file),
-                Collections.singletonMap(RodaConstants.FILE_ANCESTORS, ancestors), (ModelObserver) this).addTo(ret);
-            }
-          }
-        } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | IOException
-          | NotFoundException e) {
-          LOGGER.error("Error updating file ancestors", e);
-          ret.add(e);
+    private void added(ReturnWithExceptions<Void, ModelObserver> ret) {
+      if (++pending >= ANCESTORS_UPDATE_BATCH_SIZE) {
+        flush(ret);
+      }
+    }
+
+    void flush(ReturnWithExceptions<Void, ModelObserver> ret) {
+      for (Map.Entry<List<String>, List<String>> entry : aips.entrySet()) {
+        Map<String, Object> fields = Collections.singletonMap(RodaConstants.AIP_ANCESTORS, entry.getKey());
+        SolrUtils.updateAll(index, IndexedAIP.class, entry.getValue(), fields, (ModelObserver) IndexModelObserver.this)
+          .addTo(ret);
+      }
+
+      for (Map.Entry<List<String>, List<String>> entry : aipsWithContent.entrySet()) {
+        List<String> ancestors = entry.getKey();
+        List<String> aipIds = entry.getValue();
+        for (int i = 0; i < aipIds.size(); i += ANCESTORS_UPDATE_QUERY_SIZE) {
+          List<String> ids = aipIds.subList(i, Math.min(i + ANCESTORS_UPDATE_QUERY_SIZE, aipIds.size()));
+          updateAll(IndexedRepresentation.class, RodaConstants.REPRESENTATION_AIP_ID, ids,
+            RodaConstants.REPRESENTATION_ANCESTORS, ancestors, ret);
+          updateAll(IndexedFile.class, RodaConstants.FILE_AIP_ID, ids, RodaConstants.FILE_ANCESTORS, ancestors, ret);
         }
       }
+
+      aips.clear();
+      aipsWithContent.clear();
+      pending = 0;
     }
 
-    return ret;
+    private <T extends IsIndexed> void updateAll(Class<T> classToUpdate, String aipIdField, List<String> aipIds,
+      String ancestorsField, List<String> ancestors, ReturnWithExceptions<Void, ModelObserver> ret) {
+      Filter filter = new Filter(new OneOfManyFilterParameter(aipIdField, aipIds));
+      Map<String, Object> fields = Collections.singletonMap(ancestorsField, ancestors);
+      List<String> uuids = new ArrayList<>();
+      try (IterableIndexResult<T> result = new IterableIndexResult<>(index, classToUpdate, filter, null, false,
+        Collections.singletonList(RodaConstants.INDEX_UUID))) {
+        for (T item : result) {
+          uuids.add(item.getUUID());
+          if (uuids.size() >= ANCESTORS_UPDATE_BATCH_SIZE) {
+            SolrUtils.updateAll(index, classToUpdate, uuids, fields, (ModelObserver) IndexModelObserver.this)
+              .addTo(ret);
+            uuids = new ArrayList<>();
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.error("Error updating ancestors of {}", classToUpdate.getSimpleName(), e);
+        ret.add(e);
+      }
+      SolrUtils.updateAll(index, classToUpdate, uuids, fields, (ModelObserver) IndexModelObserver.this).addTo(ret);
+    }
   }
 
   @Override
@@ -9,21 +9,30 @@ package org.roda.core.index;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.io.IOUtils;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.ReturnWithExceptionsWrapper;
 import org.roda.core.common.iterables.CloseableIterable;
@@ -37,7 +46,6 @@ import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.exceptions.ReturnWithExceptions;
 import org.roda.core.data.utils.JsonUtils;
-import org.roda.core.data.utils.XMLUtils;
 import org.roda.core.data.v2.IsModelObject;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.common.OptionalWithCause;
@@ -56,6 +64,7 @@ import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedDIP;
 import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
+import org.roda.core.data.v2.ip.Permissions.PermissionType;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.data.v2.ip.TransferredResource;
@@ -75,10 +84,13 @@ import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.user.User;
 import org.roda.core.index.utils.IndexResultIterator;
 import org.roda.core.index.utils.IterableIndexResult;
+import org.roda.core.index.utils.SolrBatchIndexer;
+import org.roda.core.index.utils.SolrShadowCollections;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelObserver;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.model.utils.UserUtility;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.Resource;
@@ -93,10 +105,15 @@ public class IndexService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexService.class);
 
+  private static final int COUNT_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+  private static final ExecutorService COUNT_EXECUTOR = Executors.newFixedThreadPool(COUNT_THREADS,
+    new CountThreadFactory());
+
   private final SolrClient solrClient;
   private final ModelService model;
   private final IndexModelObserver observer;
   private final NodeType nodeType;
+  private final StorageReindexer storageReindexer;
 
   public IndexService(SolrClient index, ModelService model, MetricRegistry metricRegistry,
     Configuration rodaConfiguration, NodeType nodeType) {
@@ -109,6 +126,13 @@ public class IndexService {
     model.addModelObserver(observer);
 
     configIterableIndexResult(metricRegistry, rodaConfiguration);
+    configBatchIndexer(metricRegistry, rodaConfiguration);
+    configShadowCollections(rodaConfiguration);
+
+    storageReindexer = new StorageReindexer(this,
+      rodaConfiguration.getInt(RodaConstants.CORE_REINDEX_STORAGE_THREADS, StorageReindexer.DEFAULT_THREADS),
+      rodaConfiguration.getInt(RodaConstants.CORE_REINDEX_STORAGE_CHUNK_SIZE, StorageReindexer.DEFAULT_CHUNK_SIZE),
+      rodaConfiguration.getInt(RodaConstants.CORE_REINDEX_STORAGE_BATCH_SIZE, StorageReindexer.DEFAULT_BATCH_SIZE));
   }
 
   private void configIterableIndexResult(MetricRegistry metricRegistry, Configuration rodaConfiguration) {
@@ -124,12 +148,85 @@ public class IndexService {
       rodaConfiguration.getInt("core.index_result.sleep", IndexResultIterator.DEFAULT_SLEEP_BETWEEN_RETRIES));
   }
 
+  private void configBatchIndexer(MetricRegistry metricRegistry, Configuration rodaConfiguration) {
+    if (rodaConfiguration.getBoolean(RodaConstants.SOLR_BATCH_ENABLED, false)
+      && RodaCoreFactory.checkIfWriteIsAllowed(nodeType)) {
+      int batchSize = rodaConfiguration.getInt(RodaConstants.SOLR_BATCH_SIZE, SolrBatchIndexer.DEFAULT_BATCH_SIZE);
+      int flushInterval = rodaConfiguration.getInt(RodaConstants.SOLR_BATCH_FLUSH_INTERVAL_MS,
+        SolrBatchIndexer.DEFAULT_FLUSH_INTERVAL_MS);
+      int maxPendingBatches = rodaConfiguration.getInt(RodaConstants.SOLR_BATCH_MAX_PENDING_BATCHES,
+        SolrBatchIndexer.DEFAULT_MAX_PENDING_BATCHES);
+      SolrUtils.injectBatchIndexer(
+        new SolrBatchIndexer(getSolrClient(), metricRegistry, batchSize, flushInterval, maxPendingBatches));
+    }
+  }
+
+  private void configShadowCollections(Configuration rodaConfiguration) {
+    if (getSolrClient() instanceof CloudSolrClient && RodaCoreFactory.checkIfWriteIsAllowed(nodeType)) {
+      int batchSize = rodaConfiguration.getInt(RodaConstants.SOLR_BLUE_GREEN_BATCH_SIZE,
+        SolrShadowCollections.DEFAULT_BATCH_SIZE);
+      double minDocumentsRatio = rodaConfiguration.getDouble(RodaConstants.SOLR_BLUE_GREEN_MIN_DOCUMENTS_RATIO,
+        SolrShadowCollections.DEFAULT_MIN_DOCUMENTS_RATIO);
+      SolrUtils.injectShadowCollections(
+        new SolrShadowCollections((CloudSolrClient) getSolrClient(), batchSize, minDocumentsRatio));
+    }
+  }
+
+  /**
+   * Sends all documents waiting in the batch indexer to Solr and stops it.
+   */
+  public void shutdown() {
+    SolrBatchIndexer batchIndexer = SolrUtils.getBatchIndexer();
+    if (batchIndexer != null) {
+      batchIndexer.shutdown();
+      SolrUtils.injectBatchIndexer(null);
+    }
+  }
+
   public IndexedAIP getParent(IndexedAIP aip, User user, List<String> fieldsToReturn)
     throws NotFoundException, GenericException, AuthorizationDeniedException {
     return SolrUtils.retrieve(getSolrClient(), IndexedAIP.class, aip.getParentID(), user, fieldsToReturn);
   }
 
+  /**
+   * Retrieves the ancestors of the AIP, from its parent to the top level one.
+   * The ancestors already indexed with the AIP are retrieved all at once.
+   */
   public List<IndexedAIP> retrieveAncestors(IndexedAIP aip, User user, List<String> fieldsToReturn)
+    throws GenericException {
+    List<String> ancestorIds = aip.getAncestors();
+    if (ancestorIds == null || ancestorIds.isEmpty() || !ancestorIds.get(0).equals(aip.getParentID())) {
+      // ancestors not returned with the AIP (or not up to date)
+      return retrieveAncestorsByParent(aip, user, fieldsToReturn);
+    }
+
+    Map<String, IndexedAIP> retrieved = new HashMap<>();
+    for (IndexedAIP ancestor : SolrUtils.retrieve(getSolrClient(), IndexedAIP.class, ancestorIds, fieldsToReturn)) {
+      retrieved.put(ancestor.getId(), ancestor);
+    }
+
+    List<IndexedAIP> ancestors = new ArrayList<>();
+    for (String ancestorId : ancestorIds) {
+      IndexedAIP ancestor = retrieved.get(ancestorId);
+      if (ancestor != null) {
+        try {
+          UserUtility.checkObjectPermissions(user, ancestor, PermissionType.READ);
+        } catch (AuthorizationDeniedException e) {
+          ancestor = null;
+        }
+      }
+
+      ancestors.add(ancestor);
+      if (ancestor == null) {
+        LOGGER.warn("Ancestor not found: {}", ancestorId);
+        break;
+      }
+    }
+
+    return ancestors;
+  }
+
+  private List<IndexedAIP> retrieveAncestorsByParent(IndexedAIP aip, User user, List<String> fieldsToReturn)
     throws GenericException {
     List<IndexedAIP> ancestors = new ArrayList<>();
     IndexedAIP parent;
@@ -198,6 +295,22 @@ public class IndexService {
     return SolrUtils.count(getSolrClient(), returnClass, filter, user, justActive);
   }
 
+  /**
+   * Counts in a background thread, so that counts on several collections can be
+   * made at the same time. The future fails with a {@link CompletionException}
+   * caused by the exception thrown by {@link #count(Class, Filter, User, boolean)}.
+   */
+  public <T extends IsIndexed> CompletableFuture<Long> countAsync(Class<T> returnClass, Filter filter, User user,
+    boolean justActive) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return count(returnClass, filter, user, justActive);
+      } catch (GenericException | RequestNotValidException e) {
+        throw new CompletionException(e);
+      }
+    }, COUNT_EXECUTOR);
+  }
+
   public <T extends IsIndexed> T retrieve(Class<T> returnClass, String id, List<String> fieldsToReturn)
     throws NotFoundException, GenericException {
     return SolrUtils.retrieve(getSolrClient(), returnClass, id, fieldsToReturn);
@@ -478,6 +591,7 @@ public class IndexService {
 
     String dateString = SolrUtils.formatDate(until);
     String query = RodaConstants.LOG_DATETIME + ":[* TO " + dateString + "]";
+    SolrUtils.flushBatch(getSolrClient(), RodaConstants.INDEX_ACTION_LOG);
     getSolrClient().deleteByQuery(RodaConstants.INDEX_ACTION_LOG, query);
     getSolrClient().commit(RodaConstants.INDEX_ACTION_LOG);
   }
@@ -485,6 +599,18 @@ public class IndexService {
   public <T extends IsRODAObject> void reindexAll(StorageService storage, Class<T> objectClass)
     throws NotFoundException, GenericException, AuthorizationDeniedException, RequestNotValidException, IOException,
     IsStillUpdatingException {
+    reindexAll(storage, objectClass, resource -> true, new StorageReindexer.Listener() {
+    });
+  }
+
+  /**
+   * Reindexes all objects of the given class. Objects kept as files in a
+   * storage container are reindexed in parallel by the
+   * {@link StorageReindexer}, only from the files that pass the filter.
+   */
+  public <T extends IsRODAObject> void reindexAll(StorageService storage, Class<T> objectClass,
+    Predicate<Resource> filter, StorageReindexer.Listener listener) throws NotFoundException, GenericException,
+    AuthorizationDeniedException, RequestNotValidException, IOException, IsStillUpdatingException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
 
     if (AIP.class.equals(objectClass)) {
@@ -495,21 +621,7 @@ public class IndexService {
       StoragePath containerPath = ModelUtils.getContainerPath(objectClass);
       try (CloseableIterable<Resource> listResourcesUnderDirectory = storage.listResourcesUnderContainer(containerPath,
         false)) {
-        for (Resource resource : listResourcesUnderDirectory) {
-          if (!resource.isDirectory()) {
-            Binary binary = (Binary) resource;
-            InputStream inputStream = binary.getContent().createInputStream();
-            String objectString = IOUtils.toString(inputStream, RodaConstants.DEFAULT_ENCODING);
-            T object;
-            if (binary.getStoragePath().getName().endsWith(".xml")) {
-              object = XMLUtils.getObjectFromXML(objectString, objectClass);
-            } else {
-              object = JsonUtils.getObjectFromJson(objectString, objectClass);
-            }
-            IOUtils.closeQuietly(inputStream);
-            reindex(object);
-          }
-        }
+        storageReindexer.reindex(listResourcesUnderDirectory, objectClass, filter, listener);
       } catch (NoSuchFileException | NotFoundException e) {
         // do nothing
       }
@@ -523,6 +635,18 @@ public class IndexService {
       return ret;
     }
 
+    // the index writes of the object are batched, and their failures returned
+    // with it
+    SolrBatchIndexer.WriteGroup indexWrites = SolrUtils.startBatchGroup();
+    try {
+      ret = reindexObject(object);
+    } finally {
+      ret.add(indexWrites.end().getExceptions());
+    }
+    return ret;
+  }
+
+  private <T extends Serializable> ReturnWithExceptions<Void, ModelObserver> reindexObject(T object) {
     Class<T> objectClass = (Class<T>) object.getClass();
     if (AIP.class.equals(objectClass) || IndexedAIP.class.equals(objectClass)) {
       return reindexAIP(AIP.class.cast(object));
@@ -557,9 +681,40 @@ public class IndexService {
     }
   }
 
+  /**
+   * Starts rebuilding the given indexes into shadow collections, see
+   * {@link SolrShadowCollections}.
+   */
+  public void startBlueGreenReindex(List<String> indexNames) throws GenericException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+    getShadowCollections().start(indexNames);
+  }
+
+  /**
+   * Replaces the indexes by their rebuilt shadow collections, if they pass
+   * verification.
+   */
+  public void finishBlueGreenReindex() throws GenericException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+    getShadowCollections().finish();
+  }
+
+  public void abortBlueGreenReindex() throws GenericException {
+    getShadowCollections().abort();
+  }
+
+  private SolrShadowCollections getShadowCollections() throws GenericException {
+    SolrShadowCollections shadowCollections = SolrUtils.getShadowCollections();
+    if (shadowCollections == null) {
+      throw new GenericException("Blue/green reindex needs Solr Cloud and write access to the index");
+    }
+    return shadowCollections;
+  }
+
   public void clearIndex(String indexName) throws GenericException, AuthorizationDeniedException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
 
+    SolrUtils.flushBatch(getSolrClient(), indexName);
     try {
       getSolrClient().deleteByQuery(indexName, "*:*");
       getSolrClient().commit(indexName);
@@ -581,6 +736,7 @@ public class IndexService {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
 
     String indexName = RodaConstants.INDEX_PRESERVATION_EVENTS;
+    SolrUtils.flushBatch(getSolrClient(), indexName);
     try {
       getSolrClient().deleteByQuery(indexName,
         RodaConstants.PRESERVATION_EVENT_OBJECT_CLASS + ":" + PreservationMetadataEventClass.REPOSITORY.toString());
@@ -595,6 +751,7 @@ public class IndexService {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
 
     String indexName = RodaConstants.INDEX_PRESERVATION_EVENTS;
+    SolrUtils.flushBatch(getSolrClient(), indexName);
     try {
       getSolrClient().deleteByQuery(indexName, "*:* -" + RodaConstants.PRESERVATION_EVENT_OBJECT_CLASS + ":"
         + PreservationMetadataEventClass.REPOSITORY.toString());
@@ -608,6 +765,7 @@ public class IndexService {
   public void optimizeIndex(String indexName) throws GenericException, AuthorizationDeniedException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
 
+    SolrUtils.flushBatch(getSolrClient(), indexName);
     try {
       getSolrClient().optimize(indexName);
     } catch (SolrServerException | IOException e) {
@@ -694,6 +852,13 @@ public class IndexService {
     SolrUtils.create(getSolrClient(), classToCreate, instance, this);
   }
 
+  public <T extends IsIndexed, M extends IsModelObject> ReturnWithExceptions<Void, IndexService> createAll(
+    Class<T> classToCreate, List<M> instances) throws AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    return SolrUtils.createAll(getSolrClient(), classToCreate, instances, this);
+  }
+
   public SolrClient getSolrClient() {
     return solrClient;
   }
@@ -728,4 +893,14 @@ public class IndexService {
     };
   }
 
+  private static class CountThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "Index count " + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
@@ -0,0 +1,359 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.ReturnWithExceptions;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.utils.XMLUtils;
+import org.roda.core.data.v2.IsModelObject;
+import org.roda.core.data.v2.IsRODAObject;
+import org.roda.core.data.v2.index.IsIndexed;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.data.v2.notifications.Notification;
+import org.roda.core.data.v2.ri.RepresentationInformation;
+import org.roda.core.data.v2.risks.RiskIncidence;
+import org.roda.core.index.schema.SolrCollectionRegistry;
+import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reindexes the objects kept as files in a storage container, in parallel.
+ *
+ * <p>
+ * The container listing is split in chunks of binaries, which are parsed
+ * (streaming from the binary) and indexed by a pool of workers. The number of
+ * chunks waiting for or being processed by the workers is bounded, so the
+ * listing waits for them when they fall behind. Objects indexed by a single
+ * Solr document are sent in bulk requests; the others are indexed one by one,
+ * as by {@link IndexService#reindex(Serializable)}.
+ * </p>
+ *
+ * <p>
+ * Action log files are JSON lines files, every line being a log entry.
+ * </p>
+ */
+public class StorageReindexer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StorageReindexer.class);
+
+  public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+  public static final int DEFAULT_CHUNK_SIZE = 100;
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
+  private static final long PROGRESS_LOG_INTERVAL_MS = 30000;
+  private static final Set<Class<?>> BULK_CLASSES = new HashSet<>(
+    Arrays.asList(LogEntry.class, Notification.class, RepresentationInformation.class, RiskIncidence.class));
+
+  private final IndexService index;
+  private final int threads;
+  private final int chunkSize;
+  private final int batchSize;
+
+  /**
+   * Receives the progress of a reindex, from the worker threads.
+   */
+  public interface Listener {
+    /**
+     * Objects parsed from a binary (a binary that could not be parsed counts as
+     * one failed object).
+     */
+    default void objectsFound(int count) {
+      // do nothing
+    }
+
+    default void objectsProcessed(int succeeded, int failed) {
+      // do nothing
+    }
+
+    default void objectFailed(String id, String message) {
+      // do nothing
+    }
+
+    /**
+     * Files processed out of the ones listed so far, and the estimated time
+     * left once the listing is complete.
+     */
+    default void progress(long processedFiles, long listedFiles, Optional<Duration> estimatedTimeLeft) {
+      // do nothing
+    }
+  }
+
+  public StorageReindexer(IndexService index, int threads, int chunkSize, int batchSize) {
+    this.index = index;
+    this.threads = threads > 0 ? threads : DEFAULT_THREADS;
+    this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+  }
+
+  /**
+   * Reindexes the objects of the given class kept in the binaries of the
+   * listing that pass the filter, returning when all of them were processed.
+   */
+  public <T extends IsRODAObject> void reindex(CloseableIterable<Resource> resources, Class<T> objectClass,
+    Predicate<Resource> filter, Listener listener) throws GenericException {
+    Execution<T> execution = new Execution<>(objectClass, listener);
+    try {
+      List<Binary> chunk = new ArrayList<>(chunkSize);
+      for (Resource resource : resources) {
+        if (!resource.isDirectory() && filter.test(resource)) {
+          chunk.add((Binary) resource);
+          if (chunk.size() == chunkSize) {
+            execution.submit(chunk);
+            chunk = new ArrayList<>(chunkSize);
+          }
+        }
+      }
+      if (!chunk.isEmpty()) {
+        execution.submit(chunk);
+      }
+      execution.await();
+    } finally {
+      execution.shutdown();
+    }
+  }
+
+  private final class Execution<T extends IsRODAObject> {
+    private final Class<T> objectClass;
+    private final Listener listener;
+    private final ExecutorService workers;
+    // chunks submitted but not processed yet
+    private final Semaphore pendingChunks;
+    private final AtomicLong listed = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong lastProgressLog;
+    private final long start = System.currentTimeMillis();
+    private volatile boolean listingDone = false;
+
+    Execution(Class<T> objectClass, Listener listener) {
+      this.objectClass = objectClass;
+      this.listener = listener;
+      this.workers = Executors.newFixedThreadPool(threads, new ReindexThreadFactory(objectClass));
+      this.pendingChunks = new Semaphore(threads * 2);
+      this.lastProgressLog = new AtomicLong(start);
+    }
+
+    void submit(List<Binary> chunk) throws GenericException {
+      try {
+        pendingChunks.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new GenericException("Interrupted while reindexing " + objectClass.getSimpleName(), e);
+      }
+
+      listed.addAndGet(chunk.size());
+      workers.execute(() -> {
+        try {
+          process(chunk);
+        } catch (RuntimeException e) {
+          LOGGER.error("Error reindexing {}", objectClass.getSimpleName(), e);
+        } finally {
+          pendingChunks.release();
+          processed.addAndGet(chunk.size());
+          reportProgress();
+        }
+      });
+    }
+
+    void await() throws GenericException {
+      listingDone = true;
+      workers.shutdown();
+      try {
+        while (!workers.awaitTermination(PROGRESS_LOG_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+          reportProgress();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new GenericException("Interrupted while reindexing " + objectClass.getSimpleName(), e);
+      }
+      LOGGER.info("Reindexed {} {} files in {}", processed.get(), objectClass.getSimpleName(),
+        Duration.ofMillis(System.currentTimeMillis() - start));
+    }
+
+    void shutdown() {
+      workers.shutdownNow();
+    }
+
+    private void reportProgress() {
+      long now = System.currentTimeMillis();
+      long done = processed.get();
+      long total = listed.get();
+      // the estimate is only known once all files are listed
+      Optional<Duration> eta = listingDone && done > 0
+        ? Optional.of(Duration.ofMillis((now - start) * (total - done) / done))
+        : Optional.empty();
+      listener.progress(done, total, eta);
+
+      long last = lastProgressLog.get();
+      if (now - last >= PROGRESS_LOG_INTERVAL_MS && lastProgressLog.compareAndSet(last, now)) {
+        if (eta.isPresent()) {
+          LOGGER.info("Reindexed {} of {} {} files, estimated time left: {}", done, total,
+            objectClass.getSimpleName(), eta.get());
+        } else {
+          LOGGER.info("Reindexed {} of {} {} files listed so far", done, total, objectClass.getSimpleName());
+        }
+      }
+    }
+
+    private void process(List<Binary> chunk) {
+      List<T> objects = new ArrayList<>();
+      for (Binary binary : chunk) {
+        int before = objects.size();
+        try {
+          parse(binary, objects);
+          listener.objectsFound(objects.size() - before);
+        } catch (GenericException | IOException | RuntimeException e) {
+          LOGGER.error("Error parsing {}", binary.getStoragePath(), e);
+          listener.objectsFound(1);
+          listener.objectsProcessed(0, 1);
+          listener.objectFailed(binary.getStoragePath().toString(), "Could not parse: " + e.getMessage());
+        }
+      }
+
+      // objects whose outcome was already reported
+      int done = 0;
+      try {
+        if (BULK_CLASSES.contains(objectClass)) {
+          for (int i = 0; i < objects.size(); i += batchSize) {
+            int end = Math.min(i + batchSize, objects.size());
+            indexInBulk(objects.subList(i, end));
+            done = end;
+          }
+        } else {
+          for (T object : objects) {
+            indexObject(object);
+            done++;
+          }
+        }
+      } catch (RuntimeException e) {
+        LOGGER.error("Error reindexing {}", objectClass.getSimpleName(), e);
+        List<T> remaining = objects.subList(done, objects.size());
+        listener.objectsProcessed(0, remaining.size());
+        remaining.forEach(object -> listener.objectFailed(object.getId(), "Could not index: " + e.getMessage()));
+      }
+    }
+
+    private void parse(Binary binary, List<T> objects) throws GenericException, IOException {
+      String name = binary.getStoragePath().getName();
+      try (InputStream inputStream = binary.getContent().createInputStream()) {
+        if (LogEntry.class.equals(objectClass)) {
+          parseLogEntries(name, inputStream, objects);
+        } else if (name.endsWith(".xml")) {
+          objects.add(XMLUtils.getObjectFromXML(inputStream, objectClass));
+        } else {
+          objects.add(JsonUtils.getObjectFromJson(inputStream, objectClass));
+        }
+      }
+    }
+
+    private void parseLogEntries(String name, InputStream inputStream, List<T> objects) throws IOException {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        try {
+          LogEntry entry = JsonUtils.getObjectFromJson(line, LogEntry.class);
+          if (entry != null) {
+            // needed for backwards compatibility (as before uuid was equal to id)
+            if (entry.getUUID() == null) {
+              entry.setUUID(entry.getId());
+            }
+            objects.add(objectClass.cast(entry));
+          }
+        } catch (GenericException e) {
+          listener.objectsFound(1);
+          listener.objectsProcessed(0, 1);
+          listener.objectFailed(name + ":" + lineNumber,
+            "Error parsing JSON on file " + name + " on line " + lineNumber);
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void indexInBulk(List<T> batch) {
+      Class<IsIndexed> indexClass = SolrCollectionRegistry.giveRespectiveIndexClass(objectClass);
+      SolrClient solrClient = index.getSolrClient();
+      boolean indexed;
+      try {
+        ReturnWithExceptions<Void, StorageReindexer> ret = SolrUtils.createAll(solrClient, indexClass,
+          (List<IsModelObject>) (List<?>) batch, StorageReindexer.this);
+        indexed = ret.isEmpty();
+      } catch (RuntimeException e) {
+        LOGGER.error("Error indexing {} {} in bulk", batch.size(), objectClass.getSimpleName(), e);
+        indexed = false;
+      }
+
+      if (indexed) {
+        listener.objectsProcessed(batch.size(), 0);
+      } else {
+        // re-sent one by one, to know which ones failed
+        batch.forEach(this::indexObject);
+      }
+    }
+
+    private void indexObject(T object) {
+      List<Exception> exceptions;
+      try {
+        exceptions = index.reindex(object).getExceptions();
+      } catch (RuntimeException e) {
+        LOGGER.error("Error reindexing {} {}", objectClass.getSimpleName(), object.getId(), e);
+        exceptions = Collections.singletonList(e);
+      }
+      if (exceptions.isEmpty()) {
+        listener.objectsProcessed(1, 0);
+      } else {
+        listener.objectsProcessed(0, 1);
+        listener.objectFailed(object.getId(), exceptions.get(0).getMessage());
+      }
+    }
+  }
+
+  private static class ReindexThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    ReindexThreadFactory(Class<?> objectClass) {
+      this.prefix = "Reindex " + objectClass.getSimpleName() + " ";
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, prefix + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
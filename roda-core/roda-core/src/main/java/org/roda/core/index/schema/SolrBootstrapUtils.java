@@ -69,12 +69,12 @@ public class SolrBootstrapUtils {
   }
 
   private static <T extends IsIndexed, M extends IsModelObject> void bootstrapCollection(SolrClient client,
-    SolrCollection<T, M> collection) throws GenericException {
+    SolrCollection<T, M> collection, String collectionName) throws GenericException {
 
     // check if fields already exist, only create if they do not
-    Map<String, Field> fields = getFields(client, collection.getIndexName());
-    Map<String, DynamicField> dynamicFields = getDynamicFields(client, collection.getIndexName());
-    Set<CopyField> copyFields = getCopyFields(client, collection.getIndexName());
+    Map<String, Field> fields = getFields(client, collectionName);
+    Map<String, DynamicField> dynamicFields = getDynamicFields(client, collectionName);
+    Set<CopyField> copyFields = getCopyFields(client, collectionName);
 
     SchemaBuilder b = new SchemaBuilder();
     collection.getFields().forEach(f -> {
@@ -85,7 +85,7 @@ public class SolrBootstrapUtils {
         // to default values, should only compare attributes that are not
         // Optional.empty()
         LOGGER.warn("Field {} of collection {} should be updated. Existing: {}. Required: {}", f.getName(),
-          collection.getIndexName(), fields.get(f.getName()), f);
+          collectionName, fields.get(f.getName()), f);
       }
     });
 
@@ -100,23 +100,39 @@ public class SolrBootstrapUtils {
         b.addDynamicField(df);
       } else if (!dynamicFields.get(df.getName()).isEquivalentTo(df)) {
         LOGGER.warn("Dynamic field {} of collection {} should be updated. Existing: {}. Required: {}", df.getName(),
-          collection.getIndexName(), dynamicFields.get(df.getName()), df);
+          collectionName, dynamicFields.get(df.getName()), df);
       }
     });
 
     // XXX find fields that could be removed/pruned?
 
     if (!b.isEmpty()) {
-      b.build(client, collection.getIndexName());
+      b.build(client, collectionName);
     } else {
-      LOGGER.info("Collection {} is up to date", collection.getIndexName());
+      LOGGER.info("Collection {} is up to date", collectionName);
     }
   }
 
+  /**
+   * Bootstraps the schema of the given collection (e.g. a shadow collection
+   * being rebuilt) with the fields of the registered collection with the given
+   * index name.
+   */
+  public static void bootstrapCollection(SolrClient client, String indexName, String collectionName)
+    throws GenericException {
+    for (SolrCollection<? extends IsIndexed, ? extends IsModelObject> collection : SolrCollectionRegistry.registry()) {
+      if (collection.getIndexName().equals(indexName)) {
+        bootstrapCollection(client, collection, collectionName);
+        return;
+      }
+    }
+    throw new GenericException("Could not find Solr collection " + indexName + " in registry");
+  }
+
   public static void bootstrapSchemas(SolrClient client) throws GenericException {
     LOGGER.info("Bootstrapping schemas");
     for (SolrCollection<? extends IsIndexed, ? extends IsModelObject> collection : SolrCollectionRegistry.registry()) {
-      bootstrapCollection(client, collection);
+      bootstrapCollection(client, collection, collection.getIndexName());
     }
 
     LOGGER.info("Finishing bootstrapping schemas");
@@ -205,7 +205,7 @@ public class FileCollection extends AbstractSolrCollection<IndexedFile, File> {
       try {
         SolrInputDocument premisSolrDoc = PremisV3Utils.getSolrDocument(premisFile);
         doc.putAll(premisSolrDoc);
-        sizeInBytes = SolrUtils.objectToLong(premisSolrDoc.get(RodaConstants.FILE_SIZE).getValue(), 0L);
+        sizeInBytes = SolrUtils.objectToLong(premisSolrDoc.getFieldValue(RodaConstants.FILE_SIZE), 0L);
       } catch (GenericException e) {
         LOGGER.warn("Could not index file PREMIS information", e);
       }
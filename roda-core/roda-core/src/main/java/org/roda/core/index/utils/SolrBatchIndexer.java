@@ -0,0 +1,371 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.data.exceptions.ReturnWithExceptions;
+import org.roda.core.data.exceptions.SolrRetryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer.Context;
+
+import dev.failsafe.Failsafe;
+import dev.failsafe.Fallback;
+
+/**
+ * Asynchronous, bounded batching stage between the model observers and Solr.
+ *
+ * <p>
+ * Documents are grouped per collection and sent to Solr in a single add request
+ * when a collection buffer reaches the configured size or when the flush timer
+ * fires. Full batches are handed to a single writer thread through a bounded
+ * queue, so producers block (backpressure) when Solr cannot keep up, and the
+ * order in which documents were submitted is kept.
+ * </p>
+ *
+ * <p>
+ * When a batch fails (after the configured retry policy), its documents are
+ * re-sent one by one so that the failure is reported only in the
+ * {@link ReturnWithExceptions} of the documents that actually failed.
+ * </p>
+ *
+ * <p>
+ * Documents are batched across the writes of a {@link WriteGroup} (e.g. all the
+ * documents indexed on a model notification) and across the threads writing
+ * concurrently. When a group ends, the documents added in it are flushed and
+ * their failures are returned by {@link WriteGroup#end()}. A write outside of
+ * a group is flushed before it returns, so that its failures are always in
+ * the {@link ReturnWithExceptions} given to {@link #add}.
+ * </p>
+ */
+public class SolrBatchIndexer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SolrBatchIndexer.class);
+
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  public static final int DEFAULT_FLUSH_INTERVAL_MS = 1000;
+  public static final int DEFAULT_MAX_PENDING_BATCHES = 10;
+
+  private static final ThreadLocal<WriteGroup> CURRENT_GROUP = new ThreadLocal<>();
+
+  private final SolrClient index;
+  private final int batchSize;
+  private final Map<String, List<PendingDocument>> buffers = new ConcurrentHashMap<>();
+  // documents added and not yet written, by collection
+  private final Map<String, AtomicInteger> unwritten = new ConcurrentHashMap<>();
+  private final BlockingQueue<Batch> pendingBatches;
+  private final Thread writer;
+  private final Timer flushTimer;
+  private volatile boolean running = true;
+
+  private final Meter documentsMeter;
+  private final Counter failedDocuments;
+  private final Histogram batchSizeHisto;
+  private final com.codahale.metrics.Timer flushTimerMetric;
+
+  public SolrBatchIndexer(SolrClient index, MetricRegistry metricRegistry, int batchSize, int flushIntervalMs,
+    int maxPendingBatches) {
+    this.index = index;
+    this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    this.pendingBatches = new ArrayBlockingQueue<>(
+      maxPendingBatches > 0 ? maxPendingBatches : DEFAULT_MAX_PENDING_BATCHES);
+
+    String name = SolrBatchIndexer.class.getSimpleName();
+    this.documentsMeter = metricRegistry.meter(MetricRegistry.name(name, "documents"));
+    this.failedDocuments = metricRegistry.counter(MetricRegistry.name(name, "failedDocuments"));
+    this.batchSizeHisto = metricRegistry.histogram(MetricRegistry.name(name, "batchSize"));
+    this.flushTimerMetric = metricRegistry.timer(MetricRegistry.name(name, "flush"));
+    metricRegistry.gauge(MetricRegistry.name(name, "pendingBatches"), () -> (Gauge<Integer>) pendingBatches::size);
+
+    this.writer = new Thread(this::writeLoop, "Solr batch indexer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+
+    long interval = flushIntervalMs > 0 ? flushIntervalMs : DEFAULT_FLUSH_INTERVAL_MS;
+    this.flushTimer = new Timer("Solr batch indexer flush timer", true);
+    this.flushTimer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        enqueueAll();
+      }
+    }, interval, interval);
+  }
+
+  /**
+   * Starts a group with the writes of the current thread, until
+   * {@link WriteGroup#end()}. Groups may be nested, writes belong to the
+   * innermost one.
+   */
+  public static WriteGroup startGroup() {
+    WriteGroup group = new WriteGroup(CURRENT_GROUP.get());
+    CURRENT_GROUP.set(group);
+    return group;
+  }
+
+  public SolrClient getSolrClient() {
+    return index;
+  }
+
+  /**
+   * Adds a document to the collection buffer. Failures that happen when the
+   * batch is sent are added to {@code ret} or, inside a group, returned when
+   * the group ends.
+   */
+  public <S> void add(String collection, SolrInputDocument document, ReturnWithExceptions<Void, S> ret) {
+    add(collection, Collections.singletonList(document), ret);
+  }
+
+  public <S> void add(String collection, List<SolrInputDocument> documents, ReturnWithExceptions<Void, S> ret) {
+    WriteGroup group = CURRENT_GROUP.get();
+    ReturnWithExceptions<Void, ?> failures = group != null ? group.register(this, collection) : ret;
+
+    unwritten.computeIfAbsent(collection, c -> new AtomicInteger()).addAndGet(documents.size());
+    List<PendingDocument> buffer = buffers.computeIfAbsent(collection, c -> new ArrayList<>());
+    synchronized (buffer) {
+      for (SolrInputDocument document : documents) {
+        buffer.add(new PendingDocument(document, failures));
+        if (buffer.size() >= batchSize) {
+          enqueue(collection, buffer);
+        }
+      }
+    }
+
+    if (group == null) {
+      flush(collection);
+    }
+  }
+
+  /**
+   * Sends everything buffered for the given collections to Solr and waits until
+   * it has been written. Must be called before operations that depend on the
+   * order of writes (commit, delete, clear, real-time get).
+   */
+  public void flush(String... collections) {
+    flush(Arrays.asList(collections));
+  }
+
+  public void flush(Collection<String> collections) {
+    boolean pending = false;
+    for (String collection : collections) {
+      List<PendingDocument> buffer = buffers.get(collection);
+      if (buffer != null) {
+        synchronized (buffer) {
+          enqueue(collection, buffer);
+        }
+      }
+      AtomicInteger count = unwritten.get(collection);
+      pending = pending || (count != null && count.get() > 0);
+    }
+    if (pending) {
+      awaitWriter();
+    }
+  }
+
+  public void flushAll() {
+    flush(new ArrayList<>(buffers.keySet()));
+  }
+
+  public void shutdown() {
+    flushTimer.cancel();
+    flushAll();
+    running = false;
+    writer.interrupt();
+  }
+
+  private void enqueueAll() {
+    for (Map.Entry<String, List<PendingDocument>> entry : buffers.entrySet()) {
+      synchronized (entry.getValue()) {
+        enqueue(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Must be called while holding the buffer lock, so that batches of the same
+   * collection enter the queue in submission order.
+   */
+  private void enqueue(String collection, List<PendingDocument> buffer) {
+    if (!buffer.isEmpty()) {
+      Batch batch = new Batch(collection, new ArrayList<>(buffer), null);
+      buffer.clear();
+      put(batch);
+    }
+  }
+
+  private void awaitWriter() {
+    if (Thread.currentThread() == writer) {
+      return;
+    }
+    CountDownLatch latch = new CountDownLatch(1);
+    put(new Batch(null, null, latch));
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void put(Batch batch) {
+    if (!running) {
+      write(batch);
+      return;
+    }
+    try {
+      pendingBatches.put(batch);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // do not lose the documents, write them in the caller thread
+      write(batch);
+    }
+  }
+
+  private void writeLoop() {
+    while (running || !pendingBatches.isEmpty()) {
+      try {
+        write(pendingBatches.take());
+      } catch (InterruptedException e) {
+        // shutting down, drain what is left
+        Batch batch;
+        while ((batch = pendingBatches.poll()) != null) {
+          write(batch);
+        }
+      } catch (RuntimeException e) {
+        LOGGER.error("Unexpected error writing batch to index", e);
+      }
+    }
+  }
+
+  private void write(Batch batch) {
+    if (batch.barrier != null) {
+      batch.barrier.countDown();
+      return;
+    }
+
+    try {
+      send(batch);
+    } finally {
+      unwritten.get(batch.collection).addAndGet(-batch.documents.size());
+    }
+  }
+
+  private void send(Batch batch) {
+    List<SolrInputDocument> documents = new ArrayList<>(batch.documents.size());
+    batch.documents.forEach(d -> documents.add(d.document));
+    batchSizeHisto.update(documents.size());
+
+    boolean[] failed = {false};
+    Fallback<Object> fallback = Fallback.of(e -> failed[0] = true);
+    try (Context ctx = flushTimerMetric.time()) {
+      Failsafe.with(fallback, RetryPolicyBuilder.getInstance().getRetryPolicy()).onFailure(e -> {
+        LOGGER.error("Error adding batch of {} documents to index {}", documents.size(), batch.collection,
+          e.getException());
+      }).run(() -> index.add(batch.collection, documents));
+    }
+
+    if (failed[0]) {
+      // isolate the documents that made the batch fail
+      for (PendingDocument pending : batch.documents) {
+        SolrUtils.createDirectly(index, batch.collection, pending.document, null).getExceptions().forEach(e -> {
+          failedDocuments.inc();
+          pending.addException(e);
+        });
+      }
+    }
+
+    documentsMeter.mark(documents.size());
+  }
+
+  /**
+   * The writes of a thread whose failures are only needed at the end, so that
+   * their documents can be sent to Solr in batches.
+   */
+  public static final class WriteGroup {
+    private final WriteGroup parent;
+    private final ReturnWithExceptions<Void, Object> failures = new ReturnWithExceptions<>();
+    private final Set<String> collections = new LinkedHashSet<>();
+    private SolrBatchIndexer indexer = null;
+
+    private WriteGroup(WriteGroup parent) {
+      this.parent = parent;
+    }
+
+    private ReturnWithExceptions<Void, Object> register(SolrBatchIndexer batchIndexer, String collection) {
+      indexer = batchIndexer;
+      collections.add(collection);
+      return failures;
+    }
+
+    /**
+     * Ends the group, waiting until its documents have been written.
+     *
+     * @return the failures of the documents added in the group.
+     */
+    public ReturnWithExceptions<Void, Object> end() {
+      if (parent != null) {
+        CURRENT_GROUP.set(parent);
+      } else {
+        CURRENT_GROUP.remove();
+      }
+
+      if (indexer != null) {
+        indexer.flush(collections);
+      }
+      return failures;
+    }
+  }
+
+  private static class PendingDocument {
+    private final SolrInputDocument document;
+    private final ReturnWithExceptions<Void, ?> ret;
+
+    PendingDocument(SolrInputDocument document, ReturnWithExceptions<Void, ?> ret) {
+      this.document = document;
+      this.ret = ret;
+    }
+
+    void addException(Exception e) {
+      synchronized (ret) {
+        ret.add(e instanceof SolrRetryException ? e : new SolrRetryException(e));
+      }
+    }
+  }
+
+  private static class Batch {
+    private final String collection;
+    private final List<PendingDocument> documents;
+    private final CountDownLatch barrier;
+
+    Batch(String collection, List<PendingDocument> documents, CountDownLatch barrier) {
+      this.collection = collection;
+      this.documents = documents;
+      this.barrier = barrier;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Builds a {@link SolrInputDocument} from the SAX events of a Solr XML
+ * document ({@code <doc><field name="...">...</field></doc>}), as produced by
+ * the crosswalks, so that the crosswalk result does not need to be serialized
+ * and parsed again.
+ *
+ * <p>
+ * Fields support the same {@code name}, {@code null} and {@code update}
+ * attributes as {@link SolrXMLLoader}, but nested documents are not supported.
+ * If there is more than one document, the last one is kept.
+ * </p>
+ */
+public class SolrDocumentContentHandler extends DefaultHandler {
+  private static final String DOC = "doc";
+  private static final String FIELD = "field";
+
+  private SolrInputDocument document = null;
+
+  private SolrInputDocument currentDocument = null;
+  private Map<String, Map<String, Object>> updateMap = null;
+  private String fieldName = null;
+  private boolean fieldIsNull = false;
+  private String fieldUpdate = null;
+  private final StringBuilder text = new StringBuilder();
+
+  /**
+   * @return the document or {@code null} if there was no document.
+   */
+  public SolrInputDocument getDocument() {
+    return document;
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+    String name = localName.isEmpty() ? qName : localName;
+    if (DOC.equals(name)) {
+      if (currentDocument != null) {
+        throw new SAXException("Nested XML element <doc> is not supported");
+      }
+      currentDocument = new SolrInputDocument();
+      updateMap = null;
+    } else if (currentDocument != null) {
+      if (!FIELD.equals(name) || fieldName != null) {
+        throw new SAXException("XML element <doc> has invalid XML child element: " + name);
+      }
+      fieldName = attributes.getValue("name");
+      fieldIsNull = Boolean.parseBoolean(attributes.getValue("null"));
+      fieldUpdate = attributes.getValue("update");
+      text.setLength(0);
+      if (fieldName == null) {
+        throw new SAXException("XML element <field> without name");
+      }
+    }
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int length) {
+    if (fieldName != null) {
+      text.append(ch, start, length);
+    }
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) {
+    String name = localName.isEmpty() ? qName : localName;
+    if (FIELD.equals(name) && fieldName != null) {
+      Object value = fieldIsNull ? null : text.toString();
+      if (fieldUpdate != null) {
+        addUpdate(value);
+      } else {
+        currentDocument.addField(fieldName, value);
+      }
+      fieldName = null;
+    } else if (DOC.equals(name) && currentDocument != null) {
+      if (updateMap != null) {
+        updateMap.forEach(currentDocument::addField);
+      }
+      document = currentDocument;
+      currentDocument = null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void addUpdate(Object value) {
+    if (updateMap == null) {
+      updateMap = new HashMap<>();
+    }
+    Map<String, Object> extendedValues = updateMap.computeIfAbsent(fieldName, n -> new HashMap<>(1));
+    Object previous = extendedValues.get(fieldUpdate);
+    if (previous == null) {
+      extendedValues.put(fieldUpdate, value);
+    } else if (previous instanceof List) {
+      ((List<Object>) previous).add(value);
+    } else {
+      List<Object> values = new ArrayList<>();
+      values.add(previous);
+      values.add(value);
+      extendedValues.put(fieldUpdate, values);
+    }
+  }
+}
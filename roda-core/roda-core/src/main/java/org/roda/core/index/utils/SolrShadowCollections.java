@@ -0,0 +1,496 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.response.CollectionAdminResponse;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.cloud.DocCollection;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.index.schema.SolrBootstrapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Blue/green rebuild of Solr collections.
+ *
+ * <p>
+ * For each collection being rebuilt, a shadow collection is created with the
+ * same configuration. Documents written by rebuild threads (see
+ * {@link #startRebuildWrites()}) go only to the shadow collection, in large
+ * batches and without commits. All other writes keep going to the live
+ * collection and are recorded, so that they are replayed into the shadow
+ * collection once the rebuild is over. When the shadow collections are
+ * verified, the collection name becomes an alias to its shadow collection and
+ * the previous collection is deleted.
+ * </p>
+ *
+ * <p>
+ * The first time a collection is rebuilt it is a physical collection, which
+ * is deleted right before the alias with its name is created, so it is
+ * unavailable for a moment. After that, swaps only change the alias.
+ * </p>
+ */
+public class SolrShadowCollections {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SolrShadowCollections.class);
+
+  public static final int DEFAULT_BATCH_SIZE = 2000;
+  public static final double DEFAULT_MIN_DOCUMENTS_RATIO = 0.9;
+
+  private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+  private static final ThreadLocal<Boolean> REBUILD_WRITES = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+  private final CloudSolrClient client;
+  private final int batchSize;
+  private final double minDocumentsRatio;
+  private final Map<String, Shadow> shadows = new ConcurrentHashMap<>();
+  private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+  public SolrShadowCollections(CloudSolrClient client, int batchSize, double minDocumentsRatio) {
+    this.client = client;
+    this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    this.minDocumentsRatio = minDocumentsRatio;
+  }
+
+  /**
+   * Marks the writes of the current thread as rebuild writes, which only go to
+   * the shadow collections, until {@link #endRebuildWrites()}.
+   */
+  public static void startRebuildWrites() {
+    REBUILD_WRITES.set(Boolean.TRUE);
+  }
+
+  public static void endRebuildWrites() {
+    REBUILD_WRITES.remove();
+  }
+
+  public boolean isRunning() {
+    return !shadows.isEmpty();
+  }
+
+  /**
+   * Creates a shadow collection for each of the given collections.
+   */
+  public synchronized void start(List<String> collections) throws GenericException {
+    if (isRunning()) {
+      throw new GenericException("A blue/green reindex is already running");
+    }
+
+    Map<String, String> aliases = listAliases();
+    String suffix = LocalDateTime.now().format(SUFFIX_FORMAT);
+    // shadow collection names, by collection
+    Map<String, String> created = new HashMap<>();
+    try {
+      for (String collection : collections) {
+        String current = aliases.getOrDefault(collection, collection);
+        deleteLeftoverShadows(collection, current);
+        String shadowName = collection + "_" + suffix;
+        createShadowCollection(collection, current, shadowName);
+        created.put(collection, shadowName);
+      }
+    } catch (GenericException e) {
+      created.values().forEach(this::deleteCollectionQuietly);
+      throw e;
+    }
+    created.forEach(
+      (collection, shadowName) -> register(collection, aliases.getOrDefault(collection, collection), shadowName));
+  }
+
+  /**
+   * Starts sending the writes of a collection to an existing shadow collection.
+   */
+  void register(String collection, String currentName, String shadowName) {
+    shadows.put(collection, new Shadow(collection, currentName, shadowName));
+  }
+
+  /**
+   * Replays the changes made during the rebuild into the shadow collections,
+   * verifies them and swaps the aliases. On failure, the shadow collections are
+   * kept until {@link #abort()}.
+   */
+  public synchronized void finish() throws GenericException {
+    if (!isRunning()) {
+      throw new GenericException("No blue/green reindex is running");
+    }
+
+    // most of the changes are replayed without blocking live writes
+    for (Shadow shadow : shadows.values()) {
+      shadow.flush();
+      shadow.replay();
+      shadow.commit();
+    }
+    verify();
+
+    List<String> previousCollections = new ArrayList<>();
+    swapLock.writeLock().lock();
+    try {
+      for (Shadow shadow : shadows.values()) {
+        if (shadow.replay()) {
+          shadow.commit();
+        }
+      }
+      // nothing is swapped if the last changes could not be replayed
+      for (Shadow shadow : shadows.values()) {
+        verifyWrites(shadow);
+      }
+      for (Shadow shadow : shadows.values()) {
+        swap(shadow);
+        // on the first swap, the live collection is deleted to give its name to
+        // the alias
+        if (!shadow.currentName.equals(shadow.collection)) {
+          previousCollections.add(shadow.currentName);
+        }
+      }
+      shadows.clear();
+    } finally {
+      swapLock.writeLock().unlock();
+    }
+
+    previousCollections.forEach(this::deleteCollectionQuietly);
+  }
+
+  /**
+   * Stops recording changes and deletes the shadow collections, leaving the
+   * live collections untouched.
+   */
+  public synchronized void abort() {
+    List<Shadow> aborted;
+    swapLock.writeLock().lock();
+    try {
+      aborted = new ArrayList<>(shadows.values());
+      shadows.clear();
+    } finally {
+      swapLock.writeLock().unlock();
+    }
+    aborted.forEach(shadow -> deleteCollectionQuietly(shadow.shadowName));
+  }
+
+  /**
+   * @return true if the documents were written to the shadow collection only
+   *         (i.e. by a rebuild thread), false if they must also be written to
+   *         the live collection.
+   */
+  public boolean add(String collection, Collection<SolrInputDocument> documents) {
+    Shadow shadow = shadows.get(collection);
+    if (shadow == null) {
+      return false;
+    }
+
+    if (Boolean.TRUE.equals(REBUILD_WRITES.get())) {
+      shadow.buffer(documents);
+      return true;
+    }
+
+    record(shadow, documents);
+    return false;
+  }
+
+  public boolean delete(String collection, List<String> ids) {
+    Shadow shadow = shadows.get(collection);
+    if (shadow == null) {
+      return false;
+    }
+
+    if (Boolean.TRUE.equals(REBUILD_WRITES.get())) {
+      shadow.flush();
+      ids.forEach(id -> shadow.apply(new Change(Change.Type.DELETE, null, id)));
+      return true;
+    }
+
+    swapLock.readLock().lock();
+    try {
+      ids.forEach(id -> shadow.record("id:" + id, new Change(Change.Type.DELETE, null, id)));
+    } finally {
+      swapLock.readLock().unlock();
+    }
+    return false;
+  }
+
+  public boolean deleteByQuery(String collection, String query) {
+    Shadow shadow = shadows.get(collection);
+    if (shadow == null) {
+      return false;
+    }
+
+    if (Boolean.TRUE.equals(REBUILD_WRITES.get())) {
+      shadow.flush();
+      shadow.apply(new Change(Change.Type.DELETE_BY_QUERY, null, query));
+      return true;
+    }
+
+    swapLock.readLock().lock();
+    try {
+      shadow.record("query:" + query, new Change(Change.Type.DELETE_BY_QUERY, null, query));
+    } finally {
+      swapLock.readLock().unlock();
+    }
+    return false;
+  }
+
+  private void record(Shadow shadow, Collection<SolrInputDocument> documents) {
+    swapLock.readLock().lock();
+    try {
+      for (SolrInputDocument document : documents) {
+        // an atomic update is applied on top of the previous changes, while an
+        // add replaces them
+        if (isAtomicUpdate(document)) {
+          shadow.record("update:" + shadow.sequence.incrementAndGet(), new Change(Change.Type.ADD, document, null));
+        } else {
+          shadow.record("id:" + document.getFieldValue(RodaConstants.INDEX_UUID),
+            new Change(Change.Type.ADD, document, null));
+        }
+      }
+    } finally {
+      swapLock.readLock().unlock();
+    }
+  }
+
+  private static boolean isAtomicUpdate(SolrInputDocument document) {
+    return document.values().stream().anyMatch(field -> field.getValue() instanceof Map);
+  }
+
+  private void verify() throws GenericException {
+    for (Shadow shadow : shadows.values()) {
+      verifyWrites(shadow);
+
+      long live = count(shadow.collection);
+      long rebuilt = count(shadow.shadowName);
+      LOGGER.info("Collection {} has {} documents, rebuilt collection {} has {}", shadow.collection, live,
+        shadow.shadowName, rebuilt);
+      if (rebuilt < live * minDocumentsRatio) {
+        throw new GenericException("Rebuilt collection " + shadow.shadowName + " has " + rebuilt
+          + " documents, less than expected from the " + live + " of " + shadow.collection);
+      }
+    }
+  }
+
+  private void verifyWrites(Shadow shadow) throws GenericException {
+    if (shadow.failures.get() > 0) {
+      throw new GenericException(
+        "Could not write " + shadow.failures.get() + " documents to shadow collection " + shadow.shadowName);
+    }
+  }
+
+  private void swap(Shadow shadow) throws GenericException {
+    try {
+      if (shadow.collection.equals(shadow.currentName)) {
+        // an alias cannot have the name of an existing collection
+        LOGGER.info("Replacing collection {} by an alias", shadow.collection);
+        process(CollectionAdminRequest.deleteCollection(shadow.collection));
+      }
+      process(CollectionAdminRequest.createAlias(shadow.collection, shadow.shadowName));
+      LOGGER.info("Collection {} now points to {}", shadow.collection, shadow.shadowName);
+    } catch (SolrServerException | SolrException | IOException e) {
+      throw new GenericException("Error swapping collection " + shadow.collection + " to " + shadow.shadowName, e);
+    }
+  }
+
+  private void createShadowCollection(String collection, String current, String shadowName)
+    throws GenericException {
+    LOGGER.info("Creating shadow collection {} of {}", shadowName, collection);
+    DocCollection currentState = client.getClusterState().getCollectionOrNull(current);
+    int numShards = currentState != null ? currentState.getSlices().size() : 1;
+    int numReplicas = currentState != null && currentState.getReplicationFactor() != null
+      ? currentState.getReplicationFactor()
+      : 1;
+
+    try {
+      // collections are created with a configuration of their own name
+      process(CollectionAdminRequest.createCollection(shadowName, collection, numShards, numReplicas));
+    } catch (SolrServerException | SolrException | IOException e) {
+      throw new GenericException("Error creating shadow collection " + shadowName, e);
+    }
+    SolrBootstrapUtils.bootstrapCollection(client, collection, shadowName);
+  }
+
+  /**
+   * Deletes shadow collections left by a rebuild that did not finish.
+   */
+  private void deleteLeftoverShadows(String collection, String current) throws GenericException {
+    Pattern shadowPattern = Pattern.compile(Pattern.quote(collection) + "_\\d{14}");
+    try {
+      CollectionAdminRequest.listCollections(client).stream()
+        .filter(name -> !name.equals(current) && shadowPattern.matcher(name).matches())
+        .forEach(this::deleteCollectionQuietly);
+    } catch (SolrServerException | SolrException | IOException e) {
+      throw new GenericException("Error listing collections", e);
+    }
+  }
+
+  private Map<String, String> listAliases() throws GenericException {
+    try {
+      Map<String, String> aliases = process(new CollectionAdminRequest.ListAliases()).getAliases();
+      return aliases != null ? aliases : Collections.emptyMap();
+    } catch (SolrServerException | SolrException | IOException e) {
+      throw new GenericException("Error listing collection aliases", e);
+    }
+  }
+
+  private long count(String collection) throws GenericException {
+    try {
+      return client.query(collection, new SolrQuery("*:*").setRows(0)).getResults().getNumFound();
+    } catch (SolrServerException | SolrException | IOException e) {
+      throw new GenericException("Error counting documents of collection " + collection, e);
+    }
+  }
+
+  private void deleteCollectionQuietly(String collection) {
+    try {
+      process(CollectionAdminRequest.deleteCollection(collection));
+      LOGGER.info("Deleted collection {}", collection);
+    } catch (SolrServerException | SolrException | IOException e) {
+      LOGGER.error("Error deleting collection {}", collection, e);
+    }
+  }
+
+  private CollectionAdminResponse process(CollectionAdminRequest<?> request)
+    throws SolrServerException, IOException {
+    CollectionAdminResponse response = (CollectionAdminResponse) request.process(client);
+    if (!response.isSuccess()) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, response.getErrorMessages().toString());
+    }
+    return response;
+  }
+
+  private static class Change {
+    enum Type {
+      ADD, DELETE, DELETE_BY_QUERY
+    }
+
+    private final Type type;
+    private final SolrInputDocument document;
+    private final String value;
+
+    Change(Type type, SolrInputDocument document, String value) {
+      this.type = type;
+      this.document = document;
+      this.value = value;
+    }
+  }
+
+  private final class Shadow {
+    private final String collection;
+    private final String currentName;
+    private final String shadowName;
+    private final List<SolrInputDocument> documents = new ArrayList<>();
+    // changes made to the live collection during the rebuild, in order
+    private final Map<String, Change> changes = new LinkedHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    Shadow(String collection, String currentName, String shadowName) {
+      this.collection = collection;
+      this.currentName = currentName;
+      this.shadowName = shadowName;
+    }
+
+    void buffer(Collection<SolrInputDocument> added) {
+      List<SolrInputDocument> toSend = null;
+      synchronized (documents) {
+        documents.addAll(added);
+        if (documents.size() >= batchSize) {
+          toSend = new ArrayList<>(documents);
+          documents.clear();
+        }
+      }
+      send(toSend);
+    }
+
+    void flush() {
+      List<SolrInputDocument> toSend;
+      synchronized (documents) {
+        toSend = new ArrayList<>(documents);
+        documents.clear();
+      }
+      send(toSend);
+    }
+
+    private void send(List<SolrInputDocument> toSend) {
+      if (toSend != null && !toSend.isEmpty()) {
+        try {
+          client.add(shadowName, toSend);
+        } catch (SolrServerException | SolrException | IOException e) {
+          LOGGER.error("Error adding {} documents to shadow collection {}", toSend.size(), shadowName, e);
+          failures.addAndGet(toSend.size());
+        }
+      }
+    }
+
+    void record(String key, Change change) {
+      synchronized (changes) {
+        // re-inserted so that the change keeps its place in the order
+        changes.remove(key);
+        changes.put(key, change);
+      }
+    }
+
+    /**
+     * @return true if there were changes to replay
+     */
+    boolean replay() {
+      List<Change> toReplay;
+      synchronized (changes) {
+        toReplay = new ArrayList<>(changes.values());
+        changes.clear();
+      }
+      if (!toReplay.isEmpty()) {
+        LOGGER.info("Replaying {} changes into shadow collection {}", toReplay.size(), shadowName);
+        toReplay.forEach(this::apply);
+      }
+      return !toReplay.isEmpty();
+    }
+
+    void apply(Change change) {
+      try {
+        switch (change.type) {
+          case ADD:
+            client.add(shadowName, change.document);
+            break;
+          case DELETE:
+            client.deleteById(shadowName, change.value);
+            break;
+          case DELETE_BY_QUERY:
+            client.deleteByQuery(shadowName, change.value);
+            break;
+        }
+      } catch (SolrServerException | SolrException | IOException e) {
+        LOGGER.error("Error writing to shadow collection {}", shadowName, e);
+        failures.incrementAndGet();
+      }
+    }
+
+    void commit() throws GenericException {
+      try {
+        client.commit(shadowName);
+      } catch (SolrServerException | SolrException | IOException e) {
+        throw new GenericException("Error committing shadow collection " + shadowName, e);
+      }
+    }
+  }
+}
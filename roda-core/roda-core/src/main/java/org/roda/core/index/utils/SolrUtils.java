@@ -9,7 +9,6 @@ package org.roda.core.index.utils;
 
 import dev.failsafe.Failsafe;
 import java.io.IOException;
-import java.io.Reader;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -35,11 +34,6 @@ import java.util.TimeZone;
 import java.util.function.Consumer;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.stream.FactoryConfigurationError;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamConstants;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 import javax.xml.xpath.XPathExpressionException;
 
 import org.apache.commons.lang3.StringUtils;
@@ -135,6 +129,7 @@ import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
 import dev.failsafe.Fallback;
+import net.sf.saxon.s9api.SAXDestination;
 
 /**
  * Utilities class related to Apache Solr
@@ -152,6 +147,9 @@ public class SolrUtils {
 
   private static Map<String, List<String>> liteFieldsForEachClass = new HashMap<>();
 
+  private static SolrBatchIndexer batchIndexer = null;
+  private static SolrShadowCollections shadowCollections = null;
+
   public static final String COMMON = "common";
   public static final String CONF = "conf";
   public static final String SCHEMA = "managed-schema.xml";
@@ -160,6 +158,69 @@ public class SolrUtils {
     // do nothing
   }
 
+  public static void injectBatchIndexer(SolrBatchIndexer indexer) {
+    batchIndexer = indexer;
+  }
+
+  public static SolrBatchIndexer getBatchIndexer() {
+    return batchIndexer;
+  }
+
+  /**
+   * @return true if writes to the given client go through the batch indexer.
+   */
+  private static boolean isBatched(SolrClient index) {
+    return batchIndexer != null && batchIndexer.getSolrClient() == index;
+  }
+
+  /**
+   * Starts a group with the writes of the current thread, whose documents are
+   * sent to the index in batches (if batch indexing is enabled). The failures
+   * of those writes are returned when the group ends.
+   */
+  public static SolrBatchIndexer.WriteGroup startBatchGroup() {
+    return SolrBatchIndexer.startGroup();
+  }
+
+  public static void injectShadowCollections(SolrShadowCollections shadows) {
+    shadowCollections = shadows;
+  }
+
+  public static SolrShadowCollections getShadowCollections() {
+    return shadowCollections;
+  }
+
+  /**
+   * Hands the documents to the shadow collection of the given collection, if it
+   * is being rebuilt.
+   *
+   * @return true if the documents were written to the shadow collection only
+   *         and must not be written to the live collection.
+   */
+  private static boolean addToShadow(String collection, List<SolrInputDocument> documents) {
+    return shadowCollections != null && shadowCollections.add(collection, documents);
+  }
+
+  /**
+   * Sends to Solr the documents that are waiting in the batch indexer for the
+   * given collections (if batch indexing is enabled).
+   */
+  public static void flushBatch(SolrClient index, String... collections) {
+    if (batchIndexer != null && batchIndexer.getSolrClient() == index) {
+      batchIndexer.flush(collections);
+    }
+  }
+
+  public static void flushBatch(SolrClient index, Class<? extends IsIndexed> resultClass) {
+    if (batchIndexer != null) {
+      try {
+        flushBatch(index, SolrCollectionRegistry.getIndexName(resultClass));
+      } catch (NotSupportedException e) {
+        LOGGER.error("Error flushing batched documents", e);
+      }
+    }
+  }
+
   /*
    * Search & Retrieval
    * ____________________________________________________________________________________________________________________
@@ -191,7 +252,10 @@ public class SolrUtils {
 
     T ret;
     try {
-      SolrDocument doc = index.getById(SolrCollectionRegistry.getIndexName(classToRetrieve), id);
+      String indexName = SolrCollectionRegistry.getIndexName(classToRetrieve);
+      // real-time get must see the documents still waiting to be written
+      flushBatch(index, indexName);
+      SolrDocument doc = index.getById(indexName, id);
       if (doc != null) {
         ret = SolrCollectionRegistry.fromSolrDocument(classToRetrieve, doc, fieldsToReturn);
       } else {
@@ -207,10 +271,12 @@ public class SolrUtils {
     List<String> fieldsToReturn) throws GenericException {
     List<T> ret = new ArrayList<>();
     try {
+      String indexName = SolrCollectionRegistry.getIndexName(classToRetrieve);
+      flushBatch(index, indexName);
       int block = RodaConstants.DEFAULT_PAGINATION_VALUE;
       for (int i = 0; i < id.size(); i += block) {
         List<String> subList = id.subList(i, (i + block <= id.size() ? i + block : id.size()));
-        SolrDocumentList docs = index.getById(SolrCollectionRegistry.getIndexName(classToRetrieve), subList);
+        SolrDocumentList docs = index.getById(indexName, subList);
         for (SolrDocument doc : docs) {
           ret.add(SolrCollectionRegistry.fromSolrDocument(classToRetrieve, doc, fieldsToReturn));
         }
@@ -717,36 +783,15 @@ public class SolrUtils {
 
   public static SolrInputDocument getDescriptiveMetadataFields(Binary binary, String metadataType,
     String metadataVersion) throws GenericException {
-    SolrInputDocument doc;
-
     Map<String, String> parameters = new HashMap<>();
     parameters.put("prefix", RodaConstants.INDEX_OTHER_DESCRIPTIVE_DATA_PREFIX);
 
-    try (Reader transformationResult = RodaUtils.applyMetadataStylesheet(binary, RodaConstants.CORE_CROSSWALKS_INGEST,
-      metadataType, metadataVersion, parameters)) {
-
-      SolrXMLLoader loader = new SolrXMLLoader();
-      XMLStreamReader parser = XMLInputFactory.newInstance().createXMLStreamReader(transformationResult);
-
-      boolean parsing = true;
-      doc = null;
-      while (parsing) {
-        int event = parser.next();
-
-        if (event == XMLStreamConstants.END_DOCUMENT) {
-          parser.close();
-          parsing = false;
-        } else if (event == XMLStreamConstants.START_ELEMENT) {
-          String currTag = parser.getLocalName();
-          if ("doc".equals(currTag)) {
-            doc = loader.readDoc(parser);
-          }
-        }
-      }
-
-    } catch (XMLStreamException | FactoryConfigurationError | IOException e) {
-      throw new GenericException("Could not process descriptive metadata binary " + binary.getStoragePath(), e);
-    }
+    // the crosswalk result is sent directly to the document builder, instead of
+    // being serialized and parsed again
+    SolrDocumentContentHandler handler = new SolrDocumentContentHandler();
+    RodaUtils.applyMetadataStylesheet(binary, RodaConstants.CORE_CROSSWALKS_INGEST, metadataType, metadataVersion,
+      parameters, new SAXDestination(handler));
+    SolrInputDocument doc = handler.getDocument();
 
     return doc == null ? new SolrInputDocument() : validateDescriptiveMetadataFields(doc);
   }
@@ -1166,6 +1211,8 @@ public class SolrUtils {
 
     Fallback<Object> fallback = Fallback.of(e -> {});
 
+    flushBatch(index, collections);
+
     for (String collection : collections) {
       Failsafe.with(fallback, RetryPolicyBuilder.getInstance().getRetryPolicy()).onFailure(e -> {
         LOGGER.error("Error committing into collection: {}", collection, e.getException());
@@ -1193,6 +1240,21 @@ public class SolrUtils {
 
   public static <T extends IsIndexed, S extends Object> ReturnWithExceptions<Void, S> create(SolrClient index,
     String classToCreate, SolrInputDocument instance, S source) {
+    if (instance != null && addToShadow(classToCreate, Collections.singletonList(instance))) {
+      return new ReturnWithExceptions<>(source);
+    }
+
+    if (instance != null && isBatched(index)) {
+      ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>(source);
+      batchIndexer.add(classToCreate, instance, ret);
+      return ret;
+    }
+
+    return createDirectly(index, classToCreate, instance, source);
+  }
+
+  static <S extends Object> ReturnWithExceptions<Void, S> createDirectly(SolrClient index, String classToCreate,
+    SolrInputDocument instance, S source) {
     ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>(source);
 
     Fallback<Object> fallback = Fallback.of(e -> {
@@ -1219,7 +1281,12 @@ public class SolrUtils {
     if (object != null) {
       try {
         SolrInputDocument solrDocument = SolrCollectionRegistry.toSolrDocument(indexClass, object, utils);
-        if (solrDocument != null) {
+        if (solrDocument != null
+          && addToShadow(SolrCollectionRegistry.getIndexName(indexClass), Collections.singletonList(solrDocument))) {
+          return ret;
+        } else if (solrDocument != null && isBatched(index)) {
+          batchIndexer.add(SolrCollectionRegistry.getIndexName(indexClass), solrDocument, ret);
+        } else if (solrDocument != null) {
           Failsafe.with(fallback, RetryPolicyBuilder.getInstance().getRetryPolicy()).onFailure(e -> {
             LOGGER.error("Error adding document to index", e.getException());
           }).run(() -> {
@@ -1253,7 +1320,7 @@ public class SolrUtils {
       Optional<SolrInputDocument> solrDocument = Optional
         .of(SolrCollectionRegistry.toSolrDocument(classToCreate, instance));
       if (solrDocument.isPresent()) {
-        create(index, SolrCollectionRegistry.getIndexName(classToCreate), solrDocument.get(), source).addTo(ret);
+        ret = create(index, SolrCollectionRegistry.getIndexName(classToCreate), solrDocument.get(), source);
         if (commit) {
           commit(index, classToCreate);
         }
@@ -1267,6 +1334,47 @@ public class SolrUtils {
     return ret;
   }
 
+  /**
+   * Adds several model objects to the index in a single request (or to the
+   * batch indexer, if enabled).
+   */
+  public static <T extends IsIndexed, M extends IsModelObject, S> ReturnWithExceptions<Void, S> createAll(
+    SolrClient index, Class<T> classToCreate, List<M> instances, S source) {
+    ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>(source);
+    String indexName = SolrCollectionRegistry.getIndexName(classToCreate);
+    List<SolrInputDocument> documents = new ArrayList<>();
+    for (M instance : instances) {
+      try {
+        SolrInputDocument solrDocument = SolrCollectionRegistry.toSolrDocument(classToCreate, instance);
+        if (solrDocument != null) {
+          documents.add(solrDocument);
+        }
+      } catch (NotSupportedException | GenericException | RequestNotValidException | NotFoundException
+        | AuthorizationDeniedException e) {
+        LOGGER.error("Error adding document to index", e);
+        ret.add(e);
+      }
+    }
+
+    if (documents.isEmpty() || addToShadow(indexName, documents)) {
+      return ret;
+    }
+
+    if (isBatched(index)) {
+      batchIndexer.add(indexName, documents, ret);
+    } else {
+      Fallback<Object> fallback = Fallback.of(e -> {
+        ret.add(new SolrRetryException(e.getLastException()));
+      });
+
+      Failsafe.with(fallback, RetryPolicyBuilder.getInstance().getRetryPolicy()).onFailure(e -> {
+        LOGGER.error("Error adding documents to index", e.getException());
+      }).run(() -> index.add(indexName, documents));
+    }
+
+    return ret;
+  }
+
   public static <T extends IsIndexed, S extends Object> ReturnWithExceptions<Void, S> update(SolrClient index,
     Class<T> classToCreate, String uuid, Map<String, Object> fields, S source) {
     ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>();
@@ -1274,7 +1382,7 @@ public class SolrUtils {
     doc.addField(RodaConstants.INDEX_UUID, uuid);
     fields.entrySet().forEach(e -> doc.addField(e.getKey(), set(e.getValue())));
     try {
-      create(index, SolrCollectionRegistry.getIndexName(classToCreate), doc, source).addTo(ret);
+      ret = create(index, SolrCollectionRegistry.getIndexName(classToCreate), doc, source);
     } catch (NotSupportedException e) {
       LOGGER.error("Error adding document to index", e);
       ret.add(e);
@@ -1282,6 +1390,45 @@ public class SolrUtils {
     return ret;
   }
 
+  /**
+   * Sets the same field values on all the given documents (atomic update),
+   * sending them to the index in a single request (or to the batch indexer).
+   */
+  public static <T extends IsIndexed, S> ReturnWithExceptions<Void, S> updateAll(SolrClient index,
+    Class<T> classToUpdate, List<String> uuids, Map<String, Object> fields, S source) {
+    ReturnWithExceptions<Void, S> ret = new ReturnWithExceptions<>(source);
+    if (uuids.isEmpty()) {
+      return ret;
+    }
+
+    String indexName = SolrCollectionRegistry.getIndexName(classToUpdate);
+    List<SolrInputDocument> documents = new ArrayList<>(uuids.size());
+    for (String uuid : uuids) {
+      SolrInputDocument doc = new SolrInputDocument();
+      doc.addField(RodaConstants.INDEX_UUID, uuid);
+      fields.entrySet().forEach(e -> doc.addField(e.getKey(), set(e.getValue())));
+      documents.add(doc);
+    }
+
+    if (addToShadow(indexName, documents)) {
+      return ret;
+    }
+
+    if (isBatched(index)) {
+      batchIndexer.add(indexName, documents, ret);
+    } else {
+      Fallback<Object> fallback = Fallback.of(e -> {
+        ret.add(new SolrRetryException(e.getLastException()));
+      });
+
+      Failsafe.with(fallback, RetryPolicyBuilder.getInstance().getRetryPolicy()).onFailure(e -> {
+        LOGGER.error("Error updating documents in index", e.getException());
+      }).run(() -> index.add(indexName, documents));
+    }
+
+    return ret;
+  }
+
   private static Map<String, Object> set(Object value) {
     Map<String, Object> fieldModifier = new HashMap<>(1);
     // 20160511 this workaround fixes solr wrong behaviour with partial update
@@ -1348,6 +1495,7 @@ public class SolrUtils {
     ModelService model, SolrClient index)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException,
     ParserConfigurationException, SAXException, IOException, XPathExpressionException, SolrServerException {
+    flushBatch(index, RodaConstants.INDEX_FILE);
     SolrDocument solrDocument = index.getById(RodaConstants.INDEX_FILE,
       IdUtils.getFileId(otherMetadataBinary.getAipId(), otherMetadataBinary.getRepresentationId(),
         otherMetadataBinary.getFileDirectoryPath(), otherMetadataBinary.getFileId()));
@@ -1571,10 +1719,15 @@ public class SolrUtils {
       ret.add(new SolrRetryException(e.getLastException()));
     });
 
+    flushBatch(index, classToDelete);
+
     Failsafe.with(fallback, RetryPolicyBuilder.getInstance().getRetryPolicy()).onFailure(e -> {
       LOGGER.error("Error deleting document from index");
     }).run(() -> {
-      index.deleteById(SolrCollectionRegistry.getIndexName(classToDelete), ids);
+      String indexName = SolrCollectionRegistry.getIndexName(classToDelete);
+      if (shadowCollections == null || !shadowCollections.delete(indexName, ids)) {
+        index.deleteById(indexName, ids);
+      }
       if (commit) {
         commit(index, classToDelete);
       }
@@ -1596,10 +1749,16 @@ public class SolrUtils {
       ret.add(new SolrRetryException(e.getLastException()));
     });
 
+    flushBatch(index, classToDelete);
+
     Failsafe.with(fallback, RetryPolicyBuilder.getInstance().getRetryPolicy()).onFailure(e -> {
       LOGGER.error("Error deleting documents from index");
     }).run(() -> {
-      index.deleteByQuery(SolrCollectionRegistry.getIndexName(classToDelete), parseFilter(filter));
+      String indexName = SolrCollectionRegistry.getIndexName(classToDelete);
+      String query = parseFilter(filter);
+      if (shadowCollections == null || !shadowCollections.deleteByQuery(indexName, query)) {
+        index.deleteByQuery(indexName, query);
+      }
       if (commit) {
         commit(index, classToDelete);
       }
@@ -1610,8 +1769,12 @@ public class SolrUtils {
 
   public static <T extends IsIndexed> void deleteByQuery(SolrClient index, String classToDelete, Filter filter)
     throws GenericException, RequestNotValidException {
+    flushBatch(index, classToDelete);
     try {
-      index.deleteByQuery(classToDelete, parseFilter(filter));
+      String query = parseFilter(filter);
+      if (shadowCollections == null || !shadowCollections.deleteByQuery(classToDelete, query)) {
+        index.deleteByQuery(classToDelete, query);
+      }
     } catch (SolrServerException | SolrException | IOException e) {
       throw new GenericException("Could not delete items", e);
     }
@@ -0,0 +1,110 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Bounded cache of the AIP metadata ({@code aip.json}) read from storage.
+ *
+ * <p>
+ * The cache keeps the metadata as read from storage (not the parsed
+ * {@code AIP}, which callers are free to change) and is bounded by the total
+ * size of the cached metadata. Entries must be invalidated after the metadata
+ * is changed in storage. Loads and invalidations of the same AIP are
+ * serialized, so that a load that started before a change is never cached
+ * after the invalidation.
+ * </p>
+ *
+ * <p>
+ * The cache statistics are reported in the metric registry ({@code hits},
+ * {@code misses}, {@code hitRate} and {@code size} gauges).
+ * </p>
+ */
+public class AIPCache {
+  public static final long DEFAULT_MAX_SIZE_IN_MB = 64;
+  public static final int DEFAULT_EXPIRE_AFTER_WRITE_IN_MINUTES = 10;
+
+  private static final int LOCK_STRIPES = 64;
+
+  private final Cache<String, String> cache;
+  private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+
+  /**
+   * Loads the AIP metadata from storage.
+   */
+  @FunctionalInterface
+  public interface AIPMetadataLoader {
+    String load(String aipId)
+      throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException;
+  }
+
+  public AIPCache(MetricRegistry metricRegistry, long maxSizeInMB, int expireAfterWriteInMinutes) {
+    long maxWeight = (maxSizeInMB > 0 ? maxSizeInMB : DEFAULT_MAX_SIZE_IN_MB) * 1024 * 1024;
+    this.cache = CacheBuilder.newBuilder().maximumWeight(maxWeight)
+      .weigher((String aipId, String json) -> 2 * (aipId.length() + json.length()))
+      .expireAfterWrite(
+        expireAfterWriteInMinutes > 0 ? expireAfterWriteInMinutes : DEFAULT_EXPIRE_AFTER_WRITE_IN_MINUTES,
+        TimeUnit.MINUTES)
+      .recordStats().build();
+
+    String name = AIPCache.class.getSimpleName();
+    metricRegistry.gauge(MetricRegistry.name(name, "hits"), () -> (Gauge<Long>) () -> cache.stats().hitCount());
+    metricRegistry.gauge(MetricRegistry.name(name, "misses"), () -> (Gauge<Long>) () -> cache.stats().missCount());
+    metricRegistry.gauge(MetricRegistry.name(name, "hitRate"), () -> (Gauge<Double>) () -> cache.stats().hitRate());
+    metricRegistry.gauge(MetricRegistry.name(name, "size"), () -> (Gauge<Long>) cache::size);
+  }
+
+  /**
+   * @return the cached AIP metadata, loading (and caching) it if needed.
+   */
+  public String get(String aipId, AIPMetadataLoader loader)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    String json = cache.getIfPresent(aipId);
+    if (json == null) {
+      Lock lock = locks.get(aipId);
+      lock.lock();
+      try {
+        json = cache.asMap().get(aipId);
+        if (json == null) {
+          json = loader.load(aipId);
+          cache.put(aipId, json);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return json;
+  }
+
+  public void invalidate(String aipId) {
+    Lock lock = locks.get(aipId);
+    lock.lock();
+    try {
+      cache.invalidate(aipId);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write session of the current thread, opened with
+ * {@link ModelService#openWriteSession()}.
+ *
+ * <p>
+ * While the session is open, file and other metadata changes do not update
+ * the representation and AIP "updated on/by" information in the AIP metadata
+ * right away. The changes are accumulated and applied when the (outermost)
+ * session is closed, so the AIP metadata is written (and the AIP reindexed)
+ * once per AIP instead of once per file.
+ * </p>
+ *
+ * <pre>
+ * try (AIPWriteSession session = model.openWriteSession()) {
+ *   for (...) {
+ *     model.createFile(...);
+ *   }
+ * }
+ * </pre>
+ */
+public class AIPWriteSession implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AIPWriteSession.class);
+
+  private final ModelService model;
+  private final Map<String, Map<String, RepresentationUpdate>> updates = new LinkedHashMap<>();
+  private int depth = 0;
+
+  AIPWriteSession(ModelService model) {
+    this.model = model;
+  }
+
+  void open() {
+    depth++;
+  }
+
+  void addRepresentationUpdate(String aipId, String representationId, String updatedBy, boolean notify) {
+    Map<String, RepresentationUpdate> aipUpdates = updates.computeIfAbsent(aipId, id -> new LinkedHashMap<>());
+    RepresentationUpdate previous = aipUpdates.get(representationId);
+    aipUpdates.put(representationId,
+      new RepresentationUpdate(updatedBy, notify || (previous != null && previous.isNotify())));
+  }
+
+  /**
+   * Applies the accumulated changes if this is the outermost session.
+   */
+  @Override
+  public void close() throws GenericException {
+    depth--;
+    if (depth > 0) {
+      return;
+    }
+
+    model.closeWriteSession();
+    GenericException exception = null;
+    for (Map.Entry<String, Map<String, RepresentationUpdate>> entry : updates.entrySet()) {
+      try {
+        model.applyRepresentationUpdates(entry.getKey(), entry.getValue());
+      } catch (NotFoundException e) {
+        LOGGER.debug("AIP {} was removed during write session", entry.getKey(), e);
+      } catch (RequestNotValidException | GenericException | AuthorizationDeniedException e) {
+        LOGGER.error("Error updating AIP {} at the end of write session", entry.getKey(), e);
+        if (exception == null) {
+          exception = new GenericException("Error updating AIP " + entry.getKey() + " at the end of write session", e);
+        }
+      }
+    }
+    updates.clear();
+
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  static class RepresentationUpdate {
+    private final String updatedBy;
+    private final boolean notify;
+
+    RepresentationUpdate(String updatedBy, boolean notify) {
+      this.updatedBy = updatedBy;
+      this.notify = notify;
+    }
+
+    String getUpdatedBy() {
+      return updatedBy;
+    }
+
+    boolean isNotify() {
+      return notify;
+    }
+  }
+}
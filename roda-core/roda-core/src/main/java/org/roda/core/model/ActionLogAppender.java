@@ -0,0 +1,260 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer.Context;
+
+/**
+ * Asynchronous writer of action log entries.
+ *
+ * <p>
+ * Entries are queued and written, in order, by a single thread that keeps the
+ * daily log file open. Each batch of entries taken from the queue is written
+ * and synced to disk at once, and only then sent to the index. Line numbers
+ * (and therefore ids) are given by the writer thread, in the order entries
+ * were queued. When the queue is full, callers wait for the writer to catch
+ * up. Pending entries are written on {@link #shutdown()}.
+ * </p>
+ */
+public class ActionLogAppender {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ActionLogAppender.class);
+
+  public static final int DEFAULT_QUEUE_SIZE = 10000;
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
+  private static final long POLL_INTERVAL_MS = 200;
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+
+  private final String instanceId;
+  private final LogFileRotation rotation;
+  private final LogEntryIndexer indexer;
+  private final BlockingQueue<PendingLogEntry> queue;
+  private final int batchSize;
+  private final Thread writerThread;
+  private volatile boolean running = true;
+
+  private final Meter entriesMeter;
+  private final com.codahale.metrics.Timer batchTimer;
+
+  // only used by the writer thread
+  private Path currentLogDirectory = null;
+  private Path currentLogFile = null;
+  private FileChannel channel = null;
+  private OutputStream out = null;
+  private long lineNumber = 1;
+
+  /**
+   * Called before a new log file is created, so that older log files are moved
+   * away.
+   */
+  @FunctionalInterface
+  public interface LogFileRotation {
+    void rotate(Path logDirectory, Path newLogFile) throws RODAException;
+  }
+
+  /**
+   * Indexes a log entry already written to the log file.
+   */
+  @FunctionalInterface
+  public interface LogEntryIndexer {
+    void index(LogEntry entry) throws RODAException;
+  }
+
+  public ActionLogAppender(String instanceId, LogFileRotation rotation, LogEntryIndexer indexer,
+    MetricRegistry metricRegistry, int queueSize, int batchSize) {
+    this.instanceId = instanceId;
+    this.rotation = rotation;
+    this.indexer = indexer;
+    this.queue = new ArrayBlockingQueue<>(queueSize > 0 ? queueSize : DEFAULT_QUEUE_SIZE);
+    this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+
+    String name = ActionLogAppender.class.getSimpleName();
+    this.entriesMeter = metricRegistry.meter(MetricRegistry.name(name, "entries"));
+    this.batchTimer = metricRegistry.timer(MetricRegistry.name(name, "batch"));
+    metricRegistry.gauge(MetricRegistry.name(name, "pending"), () -> (Gauge<Integer>) queue::size);
+
+    this.writerThread = new Thread(this::run, "Action log writer");
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  /**
+   * Queues the entry to be written to the log file of the given directory
+   * (and, if {@code notify}, indexed), waiting if the queue is full.
+   */
+  public void append(LogEntry logEntry, Path logDirectory, boolean notify) throws GenericException {
+    if (!running) {
+      throw new GenericException("Action log appender has been shut down");
+    }
+
+    try {
+      queue.put(new PendingLogEntry(logEntry, logDirectory, notify));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while adding log entry", e);
+    }
+  }
+
+  /**
+   * Stops accepting entries and waits for the pending ones to be written.
+   */
+  public void shutdown() {
+    running = false;
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted while waiting for pending log entries to be written");
+    }
+  }
+
+  private void run() {
+    List<PendingLogEntry> batch = new ArrayList<>(batchSize);
+    try {
+      while (running || !queue.isEmpty()) {
+        PendingLogEntry first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, batchSize - 1);
+          write(batch);
+          batch.clear();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Action log writer interrupted, {} log entries were not written", queue.size());
+    } finally {
+      closeLogFile();
+    }
+  }
+
+  private void write(List<PendingLogEntry> batch) {
+    List<LogEntry> toIndex = new ArrayList<>();
+    try (Context ctx = batchTimer.time()) {
+      for (PendingLogEntry pending : batch) {
+        try {
+          String id = openLogFile(pending.logDirectory);
+          LogEntry logEntry = pending.logEntry;
+          logEntry.setId(id + "-" + lineNumber);
+          logEntry.setInstanceId(instanceId);
+          logEntry.setLineNumber(lineNumber);
+          out.write((JsonUtils.getJsonFromObject(logEntry) + "\n").getBytes(StandardCharsets.UTF_8));
+          lineNumber++;
+          if (pending.notify) {
+            toIndex.add(logEntry);
+          }
+        } catch (IOException | RODAException | RuntimeException e) {
+          LOGGER.error("Error writing log entry {}", pending.logEntry.getUUID(), e);
+          closeLogFile();
+        }
+      }
+
+      // one sync to disk for the whole batch
+      if (out != null) {
+        try {
+          out.flush();
+          channel.force(false);
+        } catch (IOException e) {
+          LOGGER.error("Error syncing log file {}", currentLogFile, e);
+          closeLogFile();
+        }
+      }
+    }
+    entriesMeter.mark(batch.size());
+
+    for (LogEntry logEntry : toIndex) {
+      try {
+        indexer.index(logEntry);
+      } catch (RODAException | RuntimeException e) {
+        LOGGER.error("Error indexing log entry {}", logEntry.getUUID(), e);
+      }
+    }
+  }
+
+  /**
+   * Opens (creating if needed) the current log file of the directory.
+   *
+   * @return the log file id
+   */
+  private String openLogFile(Path logDirectory) throws IOException, RODAException {
+    String id = LocalDate.now().format(DATE_FORMAT) + "-" + instanceId;
+    Path logFile = logDirectory.resolve(id + ".log");
+
+    if (out == null || !logDirectory.equals(currentLogDirectory) || !logFile.equals(currentLogFile)) {
+      closeLogFile();
+      if (FSUtils.exists(logFile)) {
+        lineNumber = JsonUtils.calculateNumberOfLines(logFile) + 1;
+      } else {
+        lineNumber = 1;
+        rotation.rotate(logDirectory, logFile);
+      }
+
+      channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+      out = new BufferedOutputStream(Channels.newOutputStream(channel));
+      currentLogDirectory = logDirectory;
+      currentLogFile = logFile;
+    }
+    return id;
+  }
+
+  private void closeLogFile() {
+    if (out != null) {
+      try {
+        out.flush();
+        channel.force(false);
+        out.close();
+      } catch (IOException e) {
+        LOGGER.error("Error closing log file {}", currentLogFile, e);
+      }
+    }
+    out = null;
+    channel = null;
+    currentLogFile = null;
+    currentLogDirectory = null;
+  }
+
+  private static class PendingLogEntry {
+    private final LogEntry logEntry;
+    private final Path logDirectory;
+    private final boolean notify;
+
+    PendingLogEntry(LogEntry logEntry, Path logDirectory, boolean notify) {
+      this.logEntry = logEntry;
+      this.logDirectory = logDirectory;
+      this.notify = notify;
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.roda.core.data.v2.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer.Context;
+
+/**
+ * Write-behind buffer of job reports.
+ *
+ * <p>
+ * Job reports are updated many times while a job runs (once per step of each
+ * object). The buffer keeps, per job, only the last serialized version of each
+ * report and writes them (storage and index) when the job buffer reaches the
+ * configured size, when the flush timer fires or when a flush is explicitly
+ * requested (e.g. at the end of each block of objects processed by a worker).
+ * Pending reports are served from the buffer, so readers always see the last
+ * version of a report.
+ * </p>
+ */
+public class JobReportBuffer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JobReportBuffer.class);
+
+  public static final int DEFAULT_MAX_SIZE = 100;
+  public static final int DEFAULT_FLUSH_INTERVAL_MS = 2000;
+
+  private final Map<String, JobBuffer> jobs = new ConcurrentHashMap<>();
+  private final JobReportWriter writer;
+  private final int maxSize;
+  private final Timer flushTimer;
+  private final AtomicInteger pending = new AtomicInteger(0);
+
+  private final Meter updatesMeter;
+  private final Meter writesMeter;
+  private final com.codahale.metrics.Timer flushTimerMetric;
+
+  /**
+   * Writes a pending job report to storage and index.
+   */
+  @FunctionalInterface
+  public interface JobReportWriter {
+    void write(String jobId, String jobReportId, String jobReportAsJson, Job cachedJob);
+  }
+
+  public JobReportBuffer(JobReportWriter writer, MetricRegistry metricRegistry, int maxSize, int flushIntervalMs) {
+    this.writer = writer;
+    this.maxSize = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+
+    String name = JobReportBuffer.class.getSimpleName();
+    this.updatesMeter = metricRegistry.meter(MetricRegistry.name(name, "updates"));
+    this.writesMeter = metricRegistry.meter(MetricRegistry.name(name, "writes"));
+    this.flushTimerMetric = metricRegistry.timer(MetricRegistry.name(name, "flush"));
+    metricRegistry.gauge(MetricRegistry.name(name, "pending"), () -> (Gauge<Integer>) pending::get);
+
+    long interval = flushIntervalMs > 0 ? flushIntervalMs : DEFAULT_FLUSH_INTERVAL_MS;
+    this.flushTimer = new Timer("Job report buffer flush timer", true);
+    this.flushTimer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        flushAll();
+      }
+    }, interval, interval);
+  }
+
+  /**
+   * Keeps the serialized job report until the next flush, replacing any pending
+   * version of the same report.
+   */
+  public void put(String jobId, String jobReportId, String jobReportAsJson, Job cachedJob) {
+    PendingJobReport report = new PendingJobReport(jobReportAsJson, cachedJob);
+    JobBuffer buffer = jobs.compute(jobId, (id, b) -> {
+      JobBuffer ret = b != null ? b : new JobBuffer();
+      if (ret.reports.put(jobReportId, report) == null) {
+        pending.incrementAndGet();
+      }
+      return ret;
+    });
+    updatesMeter.mark();
+
+    if (buffer.reports.size() >= maxSize) {
+      flush(jobId);
+    }
+  }
+
+  /**
+   * @return the pending (not yet written) version of the job report or
+   *         {@code null} if there is none.
+   */
+  public String get(String jobId, String jobReportId) {
+    JobBuffer buffer = jobs.get(jobId);
+    if (buffer != null) {
+      PendingJobReport report = buffer.reports.get(jobReportId);
+      if (report != null) {
+        return report.json;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Discards the pending version of the job report, waiting for a flush of the
+   * job that may be writing it. Older versions may already have been written,
+   * so the report must still be deleted from storage.
+   *
+   * @return true if there was a pending version.
+   */
+  public boolean remove(String jobId, String jobReportId) {
+    JobBuffer buffer = jobs.get(jobId);
+    if (buffer != null) {
+      synchronized (buffer) {
+        if (buffer.reports.remove(jobReportId) != null) {
+          pending.decrementAndGet();
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes all the pending reports of a job.
+   */
+  public void flush(String jobId) {
+    JobBuffer buffer = jobs.get(jobId);
+    if (buffer == null) {
+      return;
+    }
+
+    synchronized (buffer) {
+      try (Context ctx = flushTimerMetric.time()) {
+        for (String jobReportId : new ArrayList<>(buffer.reports.keySet())) {
+          PendingJobReport report = buffer.reports.get(jobReportId);
+          if (report != null) {
+            try {
+              writer.write(jobId, jobReportId, report.json, report.cachedJob);
+              writesMeter.mark();
+            } catch (RuntimeException e) {
+              LOGGER.error("Error writing job report {} of job {}", jobReportId, jobId, e);
+            }
+            // a newer version put meanwhile stays for the next flush
+            if (buffer.reports.remove(jobReportId, report)) {
+              pending.decrementAndGet();
+            }
+          }
+        }
+      }
+    }
+
+    jobs.computeIfPresent(jobId, (id, b) -> b.reports.isEmpty() ? null : b);
+  }
+
+  public void flushAll() {
+    for (String jobId : new ArrayList<>(jobs.keySet())) {
+      flush(jobId);
+    }
+  }
+
+  /**
+   * Stops the flush timer and writes all the pending reports.
+   */
+  public void shutdown() {
+    flushTimer.cancel();
+    flushAll();
+  }
+
+  private static class JobBuffer {
+    private final Map<String, PendingJobReport> reports = new ConcurrentHashMap<>();
+  }
+
+  private static class PendingJobReport {
+    private final String json;
+    private final Job cachedJob;
+
+    PendingJobReport(String json, Job cachedJob) {
+      this.json = json;
+      this.cachedJob = cachedJob;
+    }
+  }
+}
@@ -31,6 +31,8 @@ import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.index.utils.SolrBatchIndexer;
+import org.roda.core.index.utils.SolrUtils;
 import org.slf4j.Logger;
 
 public abstract class ModelObservable {
@@ -53,12 +55,22 @@ public abstract class ModelObservable {
 
   private ReturnWithExceptionsWrapper notifyObserversSafely(Function<ModelObserver, ReturnWithExceptions<?, ?>> func) {
     ReturnWithExceptionsWrapper wrapper = new ReturnWithExceptionsWrapper();
-    for (ModelObserver observer : observers) {
-      try {
-        wrapper.addToList(func.apply(observer));
-      } catch (Exception e) {
-        logger.error("Error invoking method in observer {}", observer.getClass().getSimpleName(), e);
-        // do nothing, just want to sandbox observer method invocation
+    // the index writes of the notification are batched, and their failures
+    // known when all observers were notified
+    SolrBatchIndexer.WriteGroup indexWrites = SolrUtils.startBatchGroup();
+    try {
+      for (ModelObserver observer : observers) {
+        try {
+          wrapper.addToList(func.apply(observer));
+        } catch (Exception e) {
+          logger.error("Error invoking method in observer {}", observer.getClass().getSimpleName(), e);
+          // do nothing, just want to sandbox observer method invocation
+        }
+      }
+    } finally {
+      ReturnWithExceptions<Void, Object> indexFailures = indexWrites.end();
+      if (!indexFailures.isEmpty()) {
+        wrapper.addToList(indexFailures);
       }
     }
     return wrapper;
@@ -31,8 +31,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.apache.commons.configuration.Configuration;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -142,6 +146,7 @@ import org.roda.core.storage.Directory;
 import org.roda.core.storage.EmptyClosableIterable;
 import org.roda.core.storage.Entity;
 import org.roda.core.storage.ExternalFileManifestContentPayload;
+import org.roda.core.storage.JsonObjectContentPayload;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.StringContentPayload;
@@ -154,6 +159,10 @@ import org.roda.core.util.RESTClientUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Class that "relates" Model & Storage
  *
@@ -166,6 +175,7 @@ public class ModelService extends ModelObservable {
 
   private static final DateTimeFormatter LOG_NAME_DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
   private static final boolean FAIL_IF_NO_DESCRIPTIVE_METADATA_SCHEMA = false;
+  private static final int DESCRIPTIVE_METADATA_VERSIONS_CACHE_MAX_AIPS = 10000;
   private final StorageService storage;
   private final EventsManager eventsManager;
   private final NodeType nodeType;
@@ -174,6 +184,14 @@ public class ModelService extends ModelObservable {
 
   private long entryLogLineNumber = -1;
 
+  private ActionLogAppender actionLogAppender = null;
+  private JobReportBuffer jobReportBuffer = null;
+  private AIPCache aipCache = null;
+  // whether descriptive metadata have older versions, by AIP id and storage path
+  private Cache<String, Map<String, Boolean>> descriptiveMetadataVersionsCache = null;
+  private UserAuthenticationCache userAuthenticationCache = null;
+  private final ThreadLocal<AIPWriteSession> writeSession = new ThreadLocal<>();
+
   public ModelService(StorageService storage, EventsManager eventsManager, NodeType nodeType, String instanceId) {
     super(LOGGER);
     this.storage = storage;
@@ -187,6 +205,101 @@ public class ModelService extends ModelObservable {
     }
   }
 
+  /**
+   * Enables the job report write-behind buffer if configured to do so.
+   */
+  public void configJobReportBuffer(MetricRegistry metricRegistry, Configuration rodaConfiguration) {
+    if (rodaConfiguration.getBoolean(RodaConstants.CORE_JOB_REPORTS_BUFFER_ENABLED, false)
+      && RodaCoreFactory.checkIfWriteIsAllowed(nodeType)) {
+      int maxSize = rodaConfiguration.getInt(RodaConstants.CORE_JOB_REPORTS_BUFFER_SIZE,
+        JobReportBuffer.DEFAULT_MAX_SIZE);
+      int flushInterval = rodaConfiguration.getInt(RodaConstants.CORE_JOB_REPORTS_BUFFER_FLUSH_INTERVAL_MS,
+        JobReportBuffer.DEFAULT_FLUSH_INTERVAL_MS);
+      jobReportBuffer = new JobReportBuffer(this::writeJobReport, metricRegistry, maxSize, flushInterval);
+    }
+  }
+
+  /**
+   * Enables the asynchronous action log appender if configured to do so.
+   */
+  public void configActionLogAppender(MetricRegistry metricRegistry, Configuration rodaConfiguration) {
+    if (rodaConfiguration.getBoolean(RodaConstants.CORE_ACTION_LOGS_ASYNC_ENABLED, false)) {
+      int queueSize = rodaConfiguration.getInt(RodaConstants.CORE_ACTION_LOGS_ASYNC_QUEUE_SIZE,
+        ActionLogAppender.DEFAULT_QUEUE_SIZE);
+      int batchSize = rodaConfiguration.getInt(RodaConstants.CORE_ACTION_LOGS_ASYNC_BATCH_SIZE,
+        ActionLogAppender.DEFAULT_BATCH_SIZE);
+      actionLogAppender = new ActionLogAppender(instanceId, this::rotateLogFile,
+        logEntry -> notifyLogEntryCreated(logEntry).failOnError(), metricRegistry, queueSize, batchSize);
+    }
+  }
+
+  /**
+   * Enables the AIP metadata cache (and the cache of which descriptive metadata
+   * have older versions) if configured to do so. Only instances that write to
+   * storage use it, as they are the ones that know when AIPs change.
+   */
+  public void configAIPCache(MetricRegistry metricRegistry, Configuration rodaConfiguration) {
+    if (rodaConfiguration.getBoolean(RodaConstants.CORE_MODEL_AIP_CACHE_ENABLED, true)
+      && RodaCoreFactory.checkIfWriteIsAllowed(nodeType)) {
+      long maxSize = rodaConfiguration.getLong(RodaConstants.CORE_MODEL_AIP_CACHE_MAX_SIZE_IN_MB,
+        AIPCache.DEFAULT_MAX_SIZE_IN_MB);
+      int expireAfterWrite = rodaConfiguration.getInt(RodaConstants.CORE_MODEL_AIP_CACHE_EXPIRE_AFTER_WRITE,
+        AIPCache.DEFAULT_EXPIRE_AFTER_WRITE_IN_MINUTES);
+      aipCache = new AIPCache(metricRegistry, maxSize, expireAfterWrite);
+      descriptiveMetadataVersionsCache = CacheBuilder.newBuilder()
+        .maximumSize(DESCRIPTIVE_METADATA_VERSIONS_CACHE_MAX_AIPS)
+        .expireAfterWrite(expireAfterWrite > 0 ? expireAfterWrite : AIPCache.DEFAULT_EXPIRE_AFTER_WRITE_IN_MINUTES,
+          TimeUnit.MINUTES)
+        .build();
+    }
+  }
+
+  /**
+   * Enables the cache of authenticated users if configured to do so.
+   */
+  public void configUserAuthenticationCache(MetricRegistry metricRegistry, Configuration rodaConfiguration) {
+    if (rodaConfiguration.getBoolean(RodaConstants.CORE_API_AUTH_CACHE_ENABLED, true)) {
+      int maxEntries = rodaConfiguration.getInt(RodaConstants.CORE_API_AUTH_CACHE_MAX_ENTRIES,
+        UserAuthenticationCache.DEFAULT_MAX_ENTRIES);
+      int expireAfterWrite = rodaConfiguration.getInt(RodaConstants.CORE_API_AUTH_CACHE_EXPIRE_AFTER_WRITE,
+        UserAuthenticationCache.DEFAULT_EXPIRE_AFTER_WRITE_IN_SECONDS);
+      userAuthenticationCache = new UserAuthenticationCache(metricRegistry, maxEntries, expireAfterWrite);
+    }
+  }
+
+  /**
+   * Must be called when the AIP (its metadata or descriptive metadata) is
+   * changed in storage without using this service.
+   */
+  public void invalidateCachedAIP(String aipId) {
+    if (aipCache != null) {
+      aipCache.invalidate(aipId);
+    }
+    if (descriptiveMetadataVersionsCache != null) {
+      descriptiveMetadataVersionsCache.invalidate(aipId);
+    }
+  }
+
+  public void shutdown() {
+    if (aipCache != null) {
+      aipCache.invalidateAll();
+    }
+    if (descriptiveMetadataVersionsCache != null) {
+      descriptiveMetadataVersionsCache.invalidateAll();
+    }
+    if (userAuthenticationCache != null) {
+      userAuthenticationCache.invalidateAll();
+    }
+    if (jobReportBuffer != null) {
+      jobReportBuffer.shutdown();
+      jobReportBuffer = null;
+    }
+    if (actionLogAppender != null) {
+      actionLogAppender.shutdown();
+      actionLogAppender = null;
+    }
+  }
+
   private void ensureAllContainersExist() {
     try {
       createContainerIfNotExists(RodaConstants.STORAGE_CONTAINER_AIP);
@@ -251,11 +364,11 @@ public class ModelService extends ModelObservable {
 
   private void createAIPMetadata(AIP aip, StoragePath storagePath) throws RequestNotValidException, GenericException,
     AlreadyExistsException, AuthorizationDeniedException, NotFoundException {
-    String json = JsonUtils.getJsonFromObject(aip);
     DefaultStoragePath metadataStoragePath = DefaultStoragePath.parse(storagePath,
       RodaConstants.STORAGE_AIP_METADATA_FILENAME);
     boolean asReference = false;
-    storage.createBinary(metadataStoragePath, new StringContentPayload(json), asReference);
+    storage.createBinary(metadataStoragePath, new JsonObjectContentPayload(aip), asReference);
+    invalidateCachedAIP(aip.getId());
   }
 
   private AIP updateAIPMetadata(AIP aip, String updatedBy)
@@ -269,12 +382,13 @@ public class ModelService extends ModelObservable {
     if (updatedBy != null) {
       aip.setUpdatedBy(updatedBy);
     }
-    String json = JsonUtils.getJsonFromObject(aip);
     DefaultStoragePath metadataStoragePath = DefaultStoragePath.parse(storagePath,
       RodaConstants.STORAGE_AIP_METADATA_FILENAME);
     boolean asReference = false;
     boolean createIfNotExists = true;
-    storage.updateBinaryContent(metadataStoragePath, new StringContentPayload(json), asReference, createIfNotExists);
+    storage.updateBinaryContent(metadataStoragePath, new JsonObjectContentPayload(aip), asReference,
+      createIfNotExists);
+    invalidateCachedAIP(aip.getId());
     return aip;
   }
 
@@ -287,6 +401,11 @@ public class ModelService extends ModelObservable {
 
   public AIP retrieveAIP(String aipId)
     throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
+    if (aipCache != null) {
+      String json = aipCache.get(aipId, id -> ResourceParseUtils.getAIPMetadataAsJson(getStorage(), id,
+        ModelUtils.getAIPStoragePath(id)));
+      return ResourceParseUtils.parseAIPMetadata(aipId, json);
+    }
     return ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
   }
 
@@ -322,6 +441,7 @@ public class ModelService extends ModelObservable {
 
     if (validationReport.isValid()) {
       storage.copy(sourceStorage, sourcePath, ModelUtils.getAIPStoragePath(aipId));
+      invalidateCachedAIP(aipId);
       Directory newDirectory = storage.getDirectory(ModelUtils.getAIPStoragePath(aipId));
 
       aip = ResourceParseUtils.getAIPMetadata(getStorage(), newDirectory.getStoragePath());
@@ -495,6 +615,7 @@ public class ModelService extends ModelObservable {
       storage.deleteResource(aipPath);
 
       storage.copy(sourceStorage, sourcePath, aipPath);
+      invalidateCachedAIP(aipId);
       Directory directoryUpdated = storage.getDirectory(aipPath);
 
       aip = ResourceParseUtils.getAIPMetadata(getStorage(), directoryUpdated.getStoragePath());
@@ -575,6 +696,7 @@ public class ModelService extends ModelObservable {
 
     StoragePath aipPath = ModelUtils.getAIPStoragePath(aipId);
     storage.deleteResource(aipPath);
+    invalidateCachedAIP(aipId);
     notifyAipDeleted(aipId).failOnError();
   }
 
@@ -722,6 +844,7 @@ public class ModelService extends ModelObservable {
 
     // Create version snapshot
     storage.createBinaryVersion(binaryPath, properties);
+    setCachedDescriptiveMetadataVersions(aipId, binaryPath, true);
 
     // Update
     storage.updateBinaryContent(binaryPath, descriptiveMetadataPayload, asReference, createIfNotExists);
@@ -771,6 +894,7 @@ public class ModelService extends ModelObservable {
       descriptiveMetadataId);
 
     storage.deleteResource(binaryPath);
+    setCachedDescriptiveMetadataVersions(aipId, binaryPath, null);
 
     // update AIP metadata
     AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
@@ -815,6 +939,72 @@ public class ModelService extends ModelObservable {
     return storage.listBinaryVersions(binaryPath);
   }
 
+  /**
+   * @return true if the descriptive metadata has older versions in storage.
+   */
+  public boolean hasDescriptiveMetadataVersions(String aipId, String representationId, String descriptiveMetadataId)
+    throws RequestNotValidException, GenericException {
+    StoragePath binaryPath = ModelUtils.getDescriptiveMetadataStoragePath(aipId, representationId,
+      descriptiveMetadataId);
+    if (descriptiveMetadataVersionsCache == null) {
+      return hasBinaryVersions(binaryPath);
+    }
+
+    Map<String, Boolean> aipVersions;
+    try {
+      aipVersions = descriptiveMetadataVersionsCache.get(aipId, ConcurrentHashMap::new);
+    } catch (ExecutionException e) {
+      throw new GenericException("Error listing versions of " + binaryPath, e.getCause());
+    }
+
+    String key = binaryPath.asString("/", null, null, false);
+    Boolean hasVersions = aipVersions.get(key);
+    if (hasVersions == null) {
+      hasVersions = hasBinaryVersions(binaryPath);
+      aipVersions.put(key, hasVersions);
+    }
+    return hasVersions;
+  }
+
+  private boolean hasBinaryVersions(StoragePath binaryPath) throws GenericException {
+    try (CloseableIterable<BinaryVersion> versions = storage.listBinaryVersions(binaryPath)) {
+      return !CloseableIterables.isEmpty(versions);
+    } catch (NotFoundException e) {
+      return false;
+    } catch (RequestNotValidException | AuthorizationDeniedException | IOException e) {
+      throw new GenericException("Error listing versions of " + binaryPath, e);
+    }
+  }
+
+  /**
+   * Updates the cached version presence of the descriptive metadata, or removes
+   * it if {@code hasVersions} is null.
+   */
+  private void setCachedDescriptiveMetadataVersions(String aipId, StoragePath binaryPath, Boolean hasVersions) {
+    Map<String, Boolean> aipVersions = descriptiveMetadataVersionsCache != null
+      ? descriptiveMetadataVersionsCache.getIfPresent(aipId)
+      : null;
+    if (aipVersions != null) {
+      String key = binaryPath.asString("/", null, null, false);
+      if (hasVersions != null) {
+        aipVersions.put(key, hasVersions);
+      } else {
+        aipVersions.remove(key);
+      }
+    }
+  }
+
+  public void deleteDescriptiveMetadataVersion(String aipId, String representationId, String descriptiveMetadataId,
+    String versionId)
+    throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
+    RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
+
+    StoragePath binaryPath = ModelUtils.getDescriptiveMetadataStoragePath(aipId, representationId,
+      descriptiveMetadataId);
+    storage.deleteBinaryVersion(binaryPath, versionId);
+    setCachedDescriptiveMetadataVersions(aipId, binaryPath, null);
+  }
+
   public BinaryVersion revertDescriptiveMetadataVersion(String aipId, String representationId,
     String descriptiveMetadataId, String versionId, Map<String, String> properties)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
@@ -824,6 +1014,7 @@ public class ModelService extends ModelObservable {
       descriptiveMetadataId);
 
     BinaryVersion currentVersion = storage.createBinaryVersion(binaryPath, properties);
+    setCachedDescriptiveMetadataVersions(aipId, binaryPath, true);
     storage.revertBinaryVersion(binaryPath, versionId);
 
     notifyDescriptiveMetadataUpdated(retrieveDescriptiveMetadata(aipId, descriptiveMetadataId)).failOnError();
@@ -1091,29 +1282,64 @@ public class ModelService extends ModelObservable {
     }
   }
 
+  /**
+   * Opens a write session in the current thread (or joins the one already
+   * open). Until it is closed, representation and AIP "updated on/by" changes
+   * caused by file and metadata changes are accumulated and written to the AIP
+   * metadata only once.
+   */
+  public AIPWriteSession openWriteSession() {
+    AIPWriteSession session = writeSession.get();
+    if (session == null) {
+      session = new AIPWriteSession(this);
+      writeSession.set(session);
+    }
+    session.open();
+    return session;
+  }
+
+  void closeWriteSession() {
+    writeSession.remove();
+  }
+
   private void changeRepresentationUpdateOn(String aipId, String representationId, String updatedBy, boolean notify)
     throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
 
+    AIPWriteSession session = writeSession.get();
+    if (session != null) {
+      session.addRepresentationUpdate(aipId, representationId, updatedBy, notify);
+    } else {
+      applyRepresentationUpdates(aipId, Collections.singletonMap(representationId,
+        new AIPWriteSession.RepresentationUpdate(updatedBy, notify)));
+    }
+  }
+
+  void applyRepresentationUpdates(String aipId, Map<String, AIPWriteSession.RepresentationUpdate> updates)
+    throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
     AIP aip = retrieveAIP(aipId);
-    Iterator<Representation> it = aip.getRepresentations().iterator();
-    Optional<Representation> representation = Optional.empty();
+    List<Representation> updatedRepresentations = new ArrayList<>();
+    String updatedBy = null;
+    boolean notify = false;
 
-    while (it.hasNext()) {
-      Representation next = it.next();
-      if (next.getId().equals(representationId)) {
-        representation = Optional.of(next);
-        break;
+    for (Representation representation : aip.getRepresentations()) {
+      AIPWriteSession.RepresentationUpdate update = updates.get(representation.getId());
+      if (update != null) {
+        representation.setUpdatedOn(new Date());
+        representation.setUpdatedBy(update.getUpdatedBy());
+        updatedRepresentations.add(representation);
+        updatedBy = update.getUpdatedBy();
+        notify = notify || update.isNotify();
       }
     }
 
-    if (representation.isPresent()) {
-      representation.get().setUpdatedOn(new Date());
-      representation.get().setUpdatedBy(updatedBy);
+    if (!updatedRepresentations.isEmpty()) {
       AIP updatedAIP = updateAIPMetadata(aip, updatedBy);
 
       if (notify) {
-        notifyRepresentationUpdatedOnChanged(representation.get()).failOnError();
+        for (Representation representation : updatedRepresentations) {
+          notifyRepresentationUpdatedOnChanged(representation).failOnError();
+        }
         notifyAipUpdatedOnChanged(updatedAIP).failOnError();
       }
     }
@@ -2069,6 +2295,13 @@ public class ModelService extends ModelObservable {
     throws GenericException, RequestNotValidException, AuthorizationDeniedException, NotFoundException {
     boolean writeIsAllowed = RodaCoreFactory.checkIfWriteIsAllowed(nodeType);
 
+    if (actionLogAppender != null) {
+      boolean slaveWriteInSolr = RodaCoreFactory.getProperty(RodaConstants.CORE_ACTION_LOGS_REPLICA_WRITE_IN_SOLR,
+        false);
+      actionLogAppender.append(logEntry, logDirectory, notify && (writeIsAllowed || slaveWriteInSolr));
+      return;
+    }
+
     SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
     synchronized (logFileLock) {
       String date = sdf.format(new Date());
@@ -2122,6 +2355,15 @@ public class ModelService extends ModelObservable {
     addLogEntry(logEntry, logDirectory, true);
   }
 
+  private void rotateLogFile(Path logDirectory, Path newLogFile)
+    throws RequestNotValidException, AuthorizationDeniedException, NotFoundException {
+    if (RodaCoreFactory.checkIfWriteIsAllowed(nodeType)) {
+      findOldLogsAndMoveThemToStorage(logDirectory, newLogFile);
+    } else {
+      findOldLogsAndSendThemToMaster(logDirectory, newLogFile);
+    }
+  }
+
   public synchronized void findOldLogsAndSendThemToMaster(Path logDirectory, Path currentLogFile) {
 
     String username = RodaCoreFactory.getProperty(RodaConstants.CORE_ACTION_LOGS_PRIMARY_USER, "");
@@ -2177,9 +2419,36 @@ public class ModelService extends ModelObservable {
 
   public User retrieveAuthenticatedUser(String name, String password)
     throws GenericException, AuthenticationDeniedException {
+    if (userAuthenticationCache != null) {
+      return userAuthenticationCache.getAuthenticatedUser(name, password,
+        UserUtility.getLdapUtility()::getAuthenticatedUser, UserUtility.getLdapUtility()::getUser);
+    }
     return UserUtility.getLdapUtility().getAuthenticatedUser(name, password);
   }
 
+  /**
+   * Retrieves a user whose identity was already verified by other means (e.g.
+   * a token), using the cache of authenticated users if enabled.
+   */
+  public User retrieveTokenAuthenticatedUser(String name) throws GenericException {
+    if (userAuthenticationCache != null) {
+      return userAuthenticationCache.getUser(name, UserUtility.getLdapUtility()::getUser);
+    }
+    return UserUtility.getLdapUtility().getUser(name);
+  }
+
+  private void invalidateCachedUser(String name) {
+    if (userAuthenticationCache != null) {
+      userAuthenticationCache.invalidate(name);
+    }
+  }
+
+  private void invalidateCachedUsers() {
+    if (userAuthenticationCache != null) {
+      userAuthenticationCache.invalidateAll();
+    }
+  }
+
   public User retrieveUserByEmail(String email) throws GenericException {
     return UserUtility.getLdapUtility().getUserWithEmail(email);
   }
@@ -2251,9 +2520,11 @@ public class ModelService extends ModelObservable {
     try {
       if (password != null) {
         UserUtility.getLdapUtility().setUserPassword(user.getId(), password);
+        invalidateCachedUser(user.getId());
       }
 
       User updatedUser = UserUtility.getLdapUtility().modifyUser(user);
+      invalidateCachedUser(user.getId());
       if (notify && writeIsAllowed) {
         notifyUserUpdated(updatedUser).failOnError();
       }
@@ -2283,6 +2554,7 @@ public class ModelService extends ModelObservable {
       if (user.isActive() != activate) {
         user.setActive(activate);
         User updatedUser = UserUtility.getLdapUtility().modifyUser(user);
+        invalidateCachedUser(id);
         if (notify && writeIsAllowed) {
           notifyUserUpdated(updatedUser).failOnError();
         }
@@ -2312,6 +2584,7 @@ public class ModelService extends ModelObservable {
 
     try {
       User updatedUser = UserUtility.getLdapUtility().modifySelfUser(user, password);
+      invalidateCachedUser(user.getId());
       if (notify && writeIsAllowed) {
         notifyUserUpdated(updatedUser).failOnError();
       }
@@ -2338,6 +2611,7 @@ public class ModelService extends ModelObservable {
 
     try {
       UserUtility.getLdapUtility().removeUser(id);
+      invalidateCachedUser(id);
       if (notify && writeIsAllowed) {
         notifyUserDeleted(id).failOnError();
       }
@@ -2402,6 +2676,7 @@ public class ModelService extends ModelObservable {
 
     try {
       Group updatedGroup = UserUtility.getLdapUtility().modifyGroup(group);
+      invalidateCachedUsers();
       if (notify && writeIsAllowed) {
         notifyGroupUpdated(updatedGroup).failOnError();
       }
@@ -2432,6 +2707,7 @@ public class ModelService extends ModelObservable {
 
     try {
       UserUtility.getLdapUtility().removeGroup(id);
+      invalidateCachedUsers();
       if (notify && writeIsAllowed) {
         notifyGroupDeleted(id).failOnError();
       }
@@ -2453,6 +2729,7 @@ public class ModelService extends ModelObservable {
     User user = null;
     if (useModel) {
       user = UserUtility.getLdapUtility().confirmUserEmail(username, email, emailConfirmationToken);
+      invalidateCachedUser(username);
     }
 
     if (user != null && notify) {
@@ -2486,6 +2763,7 @@ public class ModelService extends ModelObservable {
     User user = null;
     if (useModel) {
       user = UserUtility.getLdapUtility().resetUserPassword(username, password, resetPasswordToken);
+      invalidateCachedUser(username);
     }
 
     if (user != null && notify) {
@@ -2524,9 +2802,12 @@ public class ModelService extends ModelObservable {
       job.setInstanceId(RODAInstanceUtils.getLocalInstanceIdentifier());
     }
     // create or update job in storage
-    String jobAsJson = JsonUtils.getJsonFromObject(job);
     StoragePath jobPath = ModelUtils.getJobStoragePath(job.getId());
-    storage.updateBinaryContent(jobPath, new StringContentPayload(jobAsJson), false, true);
+    if (job.isInFinalState()) {
+      // job reports must be written before the job is seen as finished
+      flushJobReports(job.getId());
+    }
+    storage.updateBinaryContent(jobPath, new JsonObjectContentPayload(job), false, true);
     // index it
     notifyJobCreatedOrUpdated(job, false).failOnError();
   }
@@ -2561,6 +2842,13 @@ public class ModelService extends ModelObservable {
 
   public Report retrieveJobReport(String jobId, String jobReportId)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    if (jobReportBuffer != null) {
+      String pendingJobReport = jobReportBuffer.get(jobId, jobReportId);
+      if (pendingJobReport != null) {
+        return JsonUtils.getObjectFromJson(pendingJobReport, Report.class);
+      }
+    }
+
     StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobId, jobReportId);
     Binary binary = storage.getBinary(jobReportPath);
     Report ret;
@@ -2594,29 +2882,79 @@ public class ModelService extends ModelObservable {
       if (!newId.equals(jobReport.getId())) {
         String oldId = jobReport.getId();
         jobReport.setId(newId);
-        storage.deleteResource(ModelUtils.getJobReportStoragePath(jobReport.getJobId(), oldId));
+        if (jobReportBuffer != null) {
+          jobReportBuffer.remove(jobReport.getJobId(), oldId);
+        }
+        try {
+          storage.deleteResource(ModelUtils.getJobReportStoragePath(jobReport.getJobId(), oldId));
+        } catch (NotFoundException e) {
+          // never written to storage
+        }
         notifyJobReportDeleted(oldId);
       }
 
       String jobReportAsJson = JsonUtils.getJsonFromObject(jobReport);
-      StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobReport.getJobId(), jobReport.getId());
+      if (jobReportBuffer != null) {
+        // written later, in batch, by the buffer
+        jobReportBuffer.put(jobReport.getJobId(), jobReport.getId(), jobReportAsJson, cachedJob);
+      } else {
+        StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobReport.getJobId(), jobReport.getId());
+        storage.updateBinaryContent(jobReportPath, new StringContentPayload(jobReportAsJson), false, true);
+
+        // index it
+        notifyJobReportCreatedOrUpdated(jobReport, cachedJob).failOnError();
+      }
+    } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException e) {
+      LOGGER.error("Error creating/updating job report in storage", e);
+    }
+  }
+
+  /**
+   * Writes a job report kept by the job report buffer to storage and index.
+   */
+  private void writeJobReport(String jobId, String jobReportId, String jobReportAsJson, Job cachedJob) {
+    try {
+      StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobId, jobReportId);
       storage.updateBinaryContent(jobReportPath, new StringContentPayload(jobReportAsJson), false, true);
 
       // index it
+      Report jobReport = JsonUtils.getObjectFromJson(jobReportAsJson, Report.class);
       notifyJobReportCreatedOrUpdated(jobReport, cachedJob).failOnError();
     } catch (GenericException | RequestNotValidException | AuthorizationDeniedException | NotFoundException e) {
       LOGGER.error("Error creating/updating job report in storage", e);
     }
   }
 
+  /**
+   * Writes the job reports of the job that are still kept in the job report
+   * buffer (if enabled), so they are in storage and index.
+   */
+  public void flushJobReports(String jobId) {
+    if (jobReportBuffer != null && jobId != null) {
+      jobReportBuffer.flush(jobId);
+    }
+  }
+
   public void deleteJobReport(String jobId, String jobReportId)
     throws NotFoundException, GenericException, AuthorizationDeniedException, RequestNotValidException {
     RodaCoreFactory.checkIfWriteIsAllowedAndIfFalseThrowException(nodeType);
 
+    // a pending version may exist even if an older one was already written
+    boolean pendingRemoved = jobReportBuffer != null && jobReportBuffer.remove(jobId, jobReportId);
+
     StoragePath jobReportPath = ModelUtils.getJobReportStoragePath(jobId, jobReportId);
 
     // remove it from storage
-    storage.deleteResource(jobReportPath);
+    try {
+      storage.deleteResource(jobReportPath);
+    } catch (NotFoundException e) {
+      if (!pendingRemoved) {
+        throw e;
+      }
+      // never written, only remove it from index if it was already there
+      notifyJobReportDeleted(jobReportId);
+      return;
+    }
 
     // remove it from index
     notifyJobReportDeleted(jobReportId).failOnError();
@@ -2663,6 +3001,7 @@ public class ModelService extends ModelObservable {
 
     job.setInstanceId(RODAInstanceUtils.getLocalInstanceIdentifier());
     createOrUpdateJob(job);
+    flushJobReports(job.getId());
 
     try (CloseableIterable<Resource> listResourcesUnderDirectory = storage
       .listResourcesUnderDirectory(ModelUtils.getJobReportsStoragePath(job.getId()), true)) {
@@ -3020,10 +3359,9 @@ public class ModelService extends ModelObservable {
 
   private void createDIPMetadata(DIP dip, StoragePath storagePath) throws RequestNotValidException, GenericException,
     AlreadyExistsException, AuthorizationDeniedException, NotFoundException {
-    String json = JsonUtils.getJsonFromObject(dip);
     DefaultStoragePath metadataStoragePath = DefaultStoragePath.parse(storagePath,
       RodaConstants.STORAGE_DIP_METADATA_FILENAME);
-    storage.createBinary(metadataStoragePath, new StringContentPayload(json), false);
+    storage.createBinary(metadataStoragePath, new JsonObjectContentPayload(dip), false);
   }
 
   public void updateDIPInstanceId(DIP dip)
@@ -3043,12 +3381,12 @@ public class ModelService extends ModelObservable {
 
   private void updateDIPMetadata(DIP dip, StoragePath storagePath)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
-    String json = JsonUtils.getJsonFromObject(dip);
     DefaultStoragePath metadataStoragePath = DefaultStoragePath.parse(storagePath,
       RodaConstants.STORAGE_DIP_METADATA_FILENAME);
     boolean asReference = false;
     boolean createIfNotExists = true;
-    storage.updateBinaryContent(metadataStoragePath, new StringContentPayload(json), asReference, createIfNotExists);
+    storage.updateBinaryContent(metadataStoragePath, new JsonObjectContentPayload(dip), asReference,
+      createIfNotExists);
   }
 
   public DIP createDIP(DIP dip, boolean notify) throws GenericException, AuthorizationDeniedException {
@@ -3463,7 +3801,6 @@ public class ModelService extends ModelObservable {
 
   public CloseableIterable<OptionalWithCause<LogEntry>> listLogEntries(int daysToIndex) {
     CloseableIterable<OptionalWithCause<LogEntry>> inStorage = null;
-    CloseableIterable<OptionalWithCause<LogEntry>> notStorage = null;
 
     try {
       final CloseableIterable<Resource> actionLogs = getStorage()
@@ -3479,6 +3816,15 @@ public class ModelService extends ModelObservable {
       LOGGER.error("Error getting action log from storage", e);
     }
 
+    CloseableIterable<OptionalWithCause<LogEntry>> notStorage = listLogEntriesNotInStorage(daysToIndex);
+    return CloseableIterables.concat(inStorage, notStorage);
+  }
+
+  /**
+   * Lists the log entries of the log files not yet moved to storage.
+   */
+  public CloseableIterable<OptionalWithCause<LogEntry>> listLogEntriesNotInStorage(int daysToIndex) {
+    CloseableIterable<OptionalWithCause<LogEntry>> notStorage = null;
     try {
       if (daysToIndex > 0) {
         notStorage = new LogEntryFileSystemIterable(RodaCoreFactory.getLogPath(),
@@ -3489,11 +3835,18 @@ public class ModelService extends ModelObservable {
     } catch (IOException e) {
       LOGGER.error("Error getting action log from storage", e);
     }
-
-    return CloseableIterables.concat(inStorage, notStorage);
+    return notStorage;
   }
 
-  private boolean isToIndex(String fileName, int daysToIndex) {
+  /**
+   * @return true if the log file has entries of the last days to index (or if
+   *         all days are to be indexed).
+   */
+  public boolean isToIndex(String fileName, int daysToIndex) {
+    if (daysToIndex <= 0) {
+      return true;
+    }
+
     boolean isToIndex = false;
     String dateFromFileName = fileName.replaceFirst("([0-9]{4}-[0-9]{2}-[0-9]{2}).*", "$1");
 
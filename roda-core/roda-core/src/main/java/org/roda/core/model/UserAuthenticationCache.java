@@ -0,0 +1,153 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.roda.core.data.exceptions.AuthenticationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.v2.user.User;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+/**
+ * Short lived cache of authenticated users, so that API requests without a
+ * session do not need to go to LDAP every time.
+ *
+ * <p>
+ * Two caches are kept: verified credentials (a salted hash of username and
+ * password, never the password itself, mapped to the username) and users by
+ * username. Failed authentications are not cached. The entries of a user must
+ * be invalidated when the user is changed or deleted (e.g. when the password or
+ * roles change) and all entries when groups change. A load that started
+ * before an invalidation is not cached.
+ * </p>
+ *
+ * <p>
+ * The cache statistics are reported in the metric registry ({@code hits},
+ * {@code misses}, {@code hitRate} and {@code size} gauges for
+ * {@code credentials} and {@code users}).
+ * </p>
+ */
+public class UserAuthenticationCache {
+  public static final int DEFAULT_MAX_ENTRIES = 10000;
+  public static final int DEFAULT_EXPIRE_AFTER_WRITE_IN_SECONDS = 60;
+
+  private static final int SALT_LENGTH = 32;
+
+  private final Cache<String, String> credentials;
+  private final Cache<String, User> users;
+  private final byte[] salt = new byte[SALT_LENGTH];
+  private final AtomicLong invalidations = new AtomicLong(0);
+
+  /**
+   * Verifies the credentials of a user.
+   */
+  @FunctionalInterface
+  public interface AuthenticatedUserLoader {
+    User load(String username, String password) throws GenericException, AuthenticationDeniedException;
+  }
+
+  /**
+   * Loads a user whose identity was already verified.
+   */
+  @FunctionalInterface
+  public interface UserLoader {
+    User load(String username) throws GenericException;
+  }
+
+  public UserAuthenticationCache(MetricRegistry metricRegistry, int maxEntries, int expireAfterWriteInSeconds) {
+    int size = maxEntries > 0 ? maxEntries : DEFAULT_MAX_ENTRIES;
+    int expireAfterWrite = expireAfterWriteInSeconds > 0 ? expireAfterWriteInSeconds
+      : DEFAULT_EXPIRE_AFTER_WRITE_IN_SECONDS;
+    this.credentials = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+      .recordStats().build();
+    this.users = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+      .recordStats().build();
+    new SecureRandom().nextBytes(salt);
+
+    String name = UserAuthenticationCache.class.getSimpleName();
+    registerMetrics(metricRegistry, MetricRegistry.name(name, "credentials"), credentials);
+    registerMetrics(metricRegistry, MetricRegistry.name(name, "users"), users);
+  }
+
+  private static void registerMetrics(MetricRegistry metricRegistry, String name, Cache<String, ?> cache) {
+    metricRegistry.gauge(MetricRegistry.name(name, "hits"), () -> (Gauge<Long>) () -> cache.stats().hitCount());
+    metricRegistry.gauge(MetricRegistry.name(name, "misses"), () -> (Gauge<Long>) () -> cache.stats().missCount());
+    metricRegistry.gauge(MetricRegistry.name(name, "hitRate"), () -> (Gauge<Double>) () -> cache.stats().hitRate());
+    metricRegistry.gauge(MetricRegistry.name(name, "size"), () -> (Gauge<Long>) cache::size);
+  }
+
+  /**
+   * @return a copy of the user with the given credentials, verifying them (and
+   *         caching the result) if needed.
+   */
+  public User getAuthenticatedUser(String username, String password, AuthenticatedUserLoader authenticatedUserLoader,
+    UserLoader userLoader) throws GenericException, AuthenticationDeniedException {
+    String key = credentialsKey(username, password);
+    if (username.equals(credentials.getIfPresent(key))) {
+      return getUser(username, userLoader);
+    }
+
+    long invalidationsBeforeLoad = invalidations.get();
+    User user = authenticatedUserLoader.load(username, password);
+    if (user != null) {
+      put(key, username, user, invalidationsBeforeLoad);
+    }
+    return user;
+  }
+
+  /**
+   * @return a copy of the user, loading (and caching) it if needed.
+   */
+  public User getUser(String username, UserLoader userLoader) throws GenericException {
+    User user = users.getIfPresent(username);
+    if (user == null) {
+      long invalidationsBeforeLoad = invalidations.get();
+      user = userLoader.load(username);
+      if (user != null) {
+        put(null, username, user, invalidationsBeforeLoad);
+      }
+      return user;
+    }
+    return new User(user);
+  }
+
+  private synchronized void put(String key, String username, User user, long invalidationsBeforeLoad) {
+    if (invalidations.get() == invalidationsBeforeLoad) {
+      if (key != null) {
+        credentials.put(key, username);
+      }
+      users.put(username, new User(user));
+    }
+  }
+
+  public synchronized void invalidate(String username) {
+    invalidations.incrementAndGet();
+    users.invalidate(username);
+    credentials.asMap().values().removeIf(username::equals);
+  }
+
+  public synchronized void invalidateAll() {
+    invalidations.incrementAndGet();
+    users.invalidateAll();
+    credentials.invalidateAll();
+  }
+
+  private String credentialsKey(String username, String password) {
+    return Hashing.sha256().newHasher().putBytes(salt).putString(username, StandardCharsets.UTF_8).putByte((byte) 0)
+      .putString(password, StandardCharsets.UTF_8).hash().toString();
+  }
+}
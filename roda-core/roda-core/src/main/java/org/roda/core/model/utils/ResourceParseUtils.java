@@ -405,21 +405,31 @@ public class ResourceParseUtils {
 
   public static AIP getAIPMetadata(StorageService storage, String aipId, StoragePath storagePath)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    return parseAIPMetadata(aipId, getAIPMetadataAsJson(storage, aipId, storagePath));
+  }
 
+  public static String getAIPMetadataAsJson(StorageService storage, String aipId, StoragePath storagePath)
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
     DefaultStoragePath metadataStoragePath = DefaultStoragePath.parse(storagePath,
       RodaConstants.STORAGE_AIP_METADATA_FILENAME);
     Binary binary = storage.getBinary(metadataStoragePath);
 
-    String json;
-    AIP aip = null;
     try (InputStream inputStream = binary.getContent().createInputStream()) {
-      json = IOUtils.toString(inputStream, Charset.forName(RodaConstants.DEFAULT_ENCODING));
+      return IOUtils.toString(inputStream, Charset.forName(RodaConstants.DEFAULT_ENCODING));
+    } catch (IOException e) {
+      throw new GenericException("Could not read AIP metadata of " + aipId + " at " + metadataStoragePath, e);
+    }
+  }
+
+  public static AIP parseAIPMetadata(String aipId, String json) throws GenericException {
+    AIP aip;
+    try {
       aip = JsonUtils.getObjectFromJson(json, AIP.class);
 
       // Setting information that does not come in JSON
       aip.setId(aipId);
-    } catch (IOException | GenericException e) {
-      throw new GenericException("Could not parse AIP metadata of " + aipId + " at " + metadataStoragePath, e);
+    } catch (GenericException e) {
+      throw new GenericException("Could not parse AIP metadata of " + aipId, e);
     }
 
     return aip;
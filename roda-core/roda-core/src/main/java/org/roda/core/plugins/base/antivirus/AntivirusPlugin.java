@@ -54,7 +54,7 @@ public class AntivirusPlugin extends AbstractPlugin<AIP> {
   @Override
   public void init() throws PluginException {
     antiVirusClassName = RodaCoreFactory.getRodaConfiguration().getString(
-      "core.plugins.internal.virus_check.antiVirusClassname", "org.roda.core.plugins.internal.antivirus.ClamAntiVirus");
+      "core.plugins.internal.virus_check.antiVirusClassname", ClamAntiVirus.class.getName());
 
     try {
       LOGGER.debug("Loading antivirus class {}", antiVirusClassName);
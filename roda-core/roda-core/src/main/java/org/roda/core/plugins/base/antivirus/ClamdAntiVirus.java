@@ -0,0 +1,196 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.base.antivirus;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.lang3.StringUtils;
+import org.roda.core.RodaCoreFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Anti-virus that uses a running ClamAV daemon (clamd), so that the virus
+ * database is not loaded for every scan.
+ *
+ * <p>
+ * By default the files of the package are streamed to clamd in parallel
+ * ({@code INSTREAM}), which works even if clamd cannot read RODA's storage.
+ * When it can, {@code core.plugins.internal.virus_check.clamd.stream = false}
+ * asks clamd to scan the package directory itself ({@code MULTISCAN}).
+ * </p>
+ */
+public class ClamdAntiVirus implements AntiVirus {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClamdAntiVirus.class);
+
+  public static final String DEFAULT_HOST = "localhost";
+  public static final int DEFAULT_PORT = 3310;
+  public static final int DEFAULT_CONNECT_TIMEOUT_IN_MILLIS = 5000;
+  public static final int DEFAULT_READ_TIMEOUT_IN_MILLIS = 60000;
+
+  private static final String CONFIG_PREFIX = "core.plugins.internal.virus_check.clamd.";
+  private static final String OK = "OK";
+
+  private static ClamdClient sharedClient = null;
+  private static ExecutorService sharedExecutor = null;
+
+  private final ClamdClient client;
+  private final ExecutorService executor;
+  private final boolean stream;
+
+  public ClamdAntiVirus() {
+    this(getSharedClient(), getSharedExecutor(),
+      RodaCoreFactory.getRodaConfiguration().getBoolean(CONFIG_PREFIX + "stream", true));
+  }
+
+  public ClamdAntiVirus(ClamdClient client, ExecutorService executor, boolean stream) {
+    this.client = client;
+    this.executor = executor;
+    this.stream = stream;
+  }
+
+  private static int getThreads() {
+    return RodaCoreFactory.getRodaConfiguration().getInt(CONFIG_PREFIX + "threads",
+      Runtime.getRuntime().availableProcessors());
+  }
+
+  private static synchronized ClamdClient getSharedClient() {
+    if (sharedClient == null) {
+      Configuration configuration = RodaCoreFactory.getRodaConfiguration();
+      String socket = configuration.getString(CONFIG_PREFIX + "socket", null);
+      SocketAddress address = StringUtils.isNotBlank(socket) ? UnixDomainSocketAddress.of(socket)
+        : new InetSocketAddress(configuration.getString(CONFIG_PREFIX + "host", DEFAULT_HOST),
+          configuration.getInt(CONFIG_PREFIX + "port", DEFAULT_PORT));
+      sharedClient = new ClamdClient(address, configuration.getInt(CONFIG_PREFIX + "max_connections", getThreads()),
+        configuration.getInt(CONFIG_PREFIX + "connect_timeout_ms", DEFAULT_CONNECT_TIMEOUT_IN_MILLIS),
+        configuration.getInt(CONFIG_PREFIX + "read_timeout_ms", DEFAULT_READ_TIMEOUT_IN_MILLIS));
+    }
+    return sharedClient;
+  }
+
+  private static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      sharedExecutor = Executors.newFixedThreadPool(Math.max(1, getThreads()), new ScannerThreadFactory());
+    }
+    return sharedExecutor;
+  }
+
+  /**
+   * Performs a virus check on the specified path.
+   *
+   * @param path
+   *          a path to scan.
+   *
+   * @return the results of the virus check as a {@link VirusCheckResult}.
+   *
+   * @throws RuntimeException
+   *           if clamd could not be reached or did not answer in time.
+   * @see AntiVirus
+   */
+  @Override
+  public VirusCheckResult checkForVirus(Path path) throws RuntimeException {
+    LOGGER.debug("Executing virus scan in {} using clamd", path);
+    try {
+      return stream ? streamScan(path) : multiScan(path);
+    } catch (IOException e) {
+      throw new RuntimeException("Error scanning " + path + " with clamd: " + e.getMessage(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while scanning " + path + " with clamd", e);
+    }
+  }
+
+  private VirusCheckResult multiScan(Path path) throws IOException, InterruptedException {
+    List<String> replies = client.multiScan(path);
+    boolean clean = !replies.isEmpty() && replies.stream().allMatch(reply -> reply.endsWith(" " + OK));
+    return new VirusCheckResult(clean, String.join("\n", replies));
+  }
+
+  private VirusCheckResult streamScan(Path path) throws IOException, InterruptedException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(path)) {
+      files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+
+    List<Future<String>> scans = new ArrayList<>(files.size());
+    try {
+      for (Path file : files) {
+        scans.add(executor.submit(() -> client.scanStream(file)));
+      }
+
+      StringBuilder report = new StringBuilder();
+      int infected = 0;
+      int errors = 0;
+      for (int i = 0; i < files.size(); i++) {
+        String reply = scans.get(i).get();
+        if (!OK.equals(reply)) {
+          if (reply.endsWith("FOUND")) {
+            infected++;
+          } else {
+            errors++;
+          }
+          report.append(path.relativize(files.get(i))).append(": ").append(reply).append("\n");
+        }
+      }
+
+      report.append("----------- SCAN SUMMARY -----------\n");
+      report.append("Scanned files: ").append(files.size()).append("\n");
+      report.append("Infected files: ").append(infected).append("\n");
+      if (errors > 0) {
+        report.append("Total errors: ").append(errors).append("\n");
+      }
+      return new VirusCheckResult(infected == 0 && errors == 0, report.toString());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause.getMessage(), cause);
+    } finally {
+      scans.forEach(scan -> scan.cancel(true));
+    }
+  }
+
+  @Override
+  public String getVersion() {
+    try {
+      String version = client.version();
+      return version != null ? version : "1.0";
+    } catch (IOException e) {
+      LOGGER.debug("Error getting clamd version", e);
+      return "1.0";
+    }
+  }
+
+  private static class ScannerThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "clamd scanner " + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
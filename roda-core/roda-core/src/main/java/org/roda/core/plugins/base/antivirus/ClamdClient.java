@@ -0,0 +1,300 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.base.antivirus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client of the ClamAV daemon (clamd), over a UNIX or TCP socket.
+ *
+ * <p>
+ * Files are streamed with {@code INSTREAM} over pooled connections, each one
+ * in an {@code IDSESSION} so that it can be used for many files. Connections
+ * closed by clamd while idle are replaced transparently. Every blocking
+ * operation (connect, sending a chunk, waiting for the answer) is aborted if it
+ * takes longer than the configured timeouts.
+ * </p>
+ */
+public class ClamdClient implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClamdClient.class);
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final String STREAM_REPLY_PREFIX = "stream: ";
+
+  private static final ScheduledThreadPoolExecutor TIMEOUTS = new ScheduledThreadPoolExecutor(1, r -> {
+    Thread thread = new Thread(r, "clamd timeouts");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    // a timeout is scheduled for every chunk sent
+    TIMEOUTS.setRemoveOnCancelPolicy(true);
+  }
+
+  private final SocketAddress address;
+  private final long connectTimeoutInMillis;
+  private final long readTimeoutInMillis;
+  private final Semaphore connections;
+  private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+  private volatile boolean closed = false;
+
+  /**
+   * @param address
+   *          a {@link InetSocketAddress} or a {@link UnixDomainSocketAddress}.
+   * @param maxConnections
+   *          the maximum number of connections open at the same time, other
+   *          scans wait for a free one.
+   */
+  public ClamdClient(SocketAddress address, int maxConnections, long connectTimeoutInMillis,
+    long readTimeoutInMillis) {
+    this.address = address;
+    this.connections = new Semaphore(Math.max(1, maxConnections), true);
+    this.connectTimeoutInMillis = connectTimeoutInMillis;
+    this.readTimeoutInMillis = readTimeoutInMillis;
+  }
+
+  /**
+   * @return the clamd version, e.g. {@code ClamAV 1.0.1/26800/Mon Jan 1
+   *         08:00:00 2024}.
+   */
+  public String version() throws IOException {
+    try (Connection connection = new Connection(false)) {
+      connection.write(command("VERSION"));
+      return connection.readReply();
+    }
+  }
+
+  /**
+   * Sends the content of a file to clamd.
+   *
+   * @return the clamd answer, {@code OK}, {@code <signature> FOUND} or
+   *         {@code <message> ERROR}.
+   */
+  public String scanStream(Path file) throws IOException, InterruptedException {
+    connections.acquire();
+    try {
+      Connection connection = idle.poll();
+      if (connection != null) {
+        try {
+          return scanStream(connection, file);
+        } catch (IOException e) {
+          // clamd closes idle sessions, try again with a new connection
+          LOGGER.debug("Pooled clamd connection failed, opening a new one: {}", e.getMessage());
+        }
+      }
+      return scanStream(new Connection(true), file);
+    } finally {
+      connections.release();
+    }
+  }
+
+  private String scanStream(Connection connection, Path file) throws IOException {
+    boolean reusable = false;
+    try (InputStream in = Files.newInputStream(file)) {
+      String reply = connection.instream(in);
+      reusable = !reply.endsWith("ERROR");
+      return reply;
+    } finally {
+      if (reusable && !closed) {
+        idle.offer(connection);
+      } else {
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * Asks clamd to scan a path it can read, using its own threads.
+   *
+   * @return one answer per infected or unreadable file, or a single
+   *         {@code <path>: OK} answer.
+   */
+  public List<String> multiScan(Path path) throws IOException, InterruptedException {
+    connections.acquire();
+    try (Connection connection = new Connection(false)) {
+      connection.write(command("MULTISCAN " + path.toAbsolutePath()));
+      List<String> replies = new ArrayList<>();
+      String reply;
+      while ((reply = connection.readReply()) != null) {
+        replies.add(reply);
+      }
+      return replies;
+    } finally {
+      connections.release();
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    Connection connection;
+    while ((connection = idle.poll()) != null) {
+      connection.close();
+    }
+  }
+
+  private static ByteBuffer command(String command) {
+    return ByteBuffer.wrap(("z" + command + "\0").getBytes(StandardCharsets.UTF_8));
+  }
+
+  private interface BlockingOperation<T> {
+    T run() throws IOException;
+  }
+
+  private final class Connection implements Closeable {
+    private final SocketChannel channel;
+    private final boolean session;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(1024).flip();
+
+    Connection(boolean session) throws IOException {
+      this.session = session;
+      this.channel = address instanceof UnixDomainSocketAddress ? SocketChannel.open(StandardProtocolFamily.UNIX)
+        : SocketChannel.open();
+      try {
+        withTimeout(connectTimeoutInMillis, () -> channel.connect(address));
+        if (session) {
+          write(command("IDSESSION"));
+        }
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    String instream(InputStream in) throws IOException {
+      write(command("INSTREAM"));
+      byte[] chunk = new byte[CHUNK_SIZE];
+      ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+      int read;
+      do {
+        // a chunk of length 0 ends the stream
+        read = IOUtils.read(in, chunk);
+        length.clear().putInt(read).flip();
+        try {
+          write(length);
+          write(ByteBuffer.wrap(chunk, 0, read));
+        } catch (IOException e) {
+          // clamd stops reading when the stream is too large, but still answers
+          String reply = readReplyQuietly();
+          if (reply == null) {
+            throw e;
+          }
+          return stripStreamPrefix(reply);
+        }
+      } while (read > 0);
+
+      String reply = readReply();
+      if (reply == null) {
+        throw new IOException("Connection closed by clamd");
+      }
+      return stripStreamPrefix(reply);
+    }
+
+    void write(ByteBuffer buffer) throws IOException {
+      withTimeout(readTimeoutInMillis, () -> {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        return null;
+      });
+    }
+
+    /**
+     * @return the next answer, without the session id, or {@code null} if clamd
+     *         closed the connection.
+     */
+    String readReply() throws IOException {
+      String reply = withTimeout(readTimeoutInMillis, () -> {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (true) {
+          if (!readBuffer.hasRemaining()) {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            readBuffer.flip();
+            if (read < 0) {
+              return out.size() > 0 ? out.toString(StandardCharsets.UTF_8) : null;
+            }
+          }
+          while (readBuffer.hasRemaining()) {
+            byte b = readBuffer.get();
+            if (b == 0) {
+              return out.toString(StandardCharsets.UTF_8);
+            }
+            out.write(b);
+          }
+        }
+      });
+
+      if (reply != null && session) {
+        int idEnd = reply.indexOf(": ");
+        if (idEnd > 0) {
+          reply = reply.substring(idEnd + 2);
+        }
+      }
+      return reply;
+    }
+
+    private String readReplyQuietly() {
+      try {
+        return readReply();
+      } catch (IOException e) {
+        return null;
+      }
+    }
+
+    private String stripStreamPrefix(String reply) {
+      return reply.startsWith(STREAM_REPLY_PREFIX) ? reply.substring(STREAM_REPLY_PREFIX.length()) : reply;
+    }
+
+    private <T> T withTimeout(long timeoutInMillis, BlockingOperation<T> operation) throws IOException {
+      ScheduledFuture<?> timeout = TIMEOUTS.schedule(this::close, timeoutInMillis, TimeUnit.MILLISECONDS);
+      try {
+        return operation.run();
+      } catch (AsynchronousCloseException e) {
+        if (timeout.isDone()) {
+          throw new SocketTimeoutException("No answer from clamd at " + address + " in " + timeoutInMillis + " ms");
+        }
+        throw e;
+      } finally {
+        timeout.cancel(false);
+      }
+    }
+
+    @Override
+    public void close() {
+      IOUtils.closeQuietly(channel);
+    }
+  }
+}
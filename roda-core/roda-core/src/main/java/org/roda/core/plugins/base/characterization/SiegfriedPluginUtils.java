@@ -42,10 +42,8 @@ import org.roda.core.storage.DirectResourceAccess;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.StringContentPayload;
 import org.roda.core.storage.fs.FSUtils;
-import org.roda.core.util.Base64;
 import org.roda.core.util.CommandException;
 import org.roda.core.util.CommandUtility;
-import org.roda.core.util.HTTPUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +52,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 public class SiegfriedPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(SiegfriedPluginUtils.class);
 
+  private static final String MODE_SERVER = "server";
+  private static final String MODE_MANAGED = "managed";
+
   private SiegfriedPluginUtils() {
     // do nothing
   }
@@ -66,21 +67,30 @@ public class SiegfriedPluginUtils {
     return command;
   }
 
-  private static String getSiegfriedServerEndpoint(Path sourceDirectory) {
-    String siegfriedServer = RodaCoreFactory.getRodaConfiguration().getString("core.tools.siegfried.server",
-      "http://localhost:5138");
+  private static String getMode() {
+    return RodaCoreFactory.getRodaConfiguration().getString("core.tools.siegfried.mode", MODE_SERVER);
+  }
+
+  private static boolean isServerMode(String siegfriedMode) {
+    return MODE_SERVER.equalsIgnoreCase(siegfriedMode) || MODE_MANAGED.equalsIgnoreCase(siegfriedMode);
+  }
 
-    return String.format("%s/identify/%s?base64=true&format=json", siegfriedServer,
-      new String(Base64.encode(sourceDirectory.toString().getBytes())));
+  private static String runSiegfriedServer(String siegfriedMode, Path path) throws GenericException {
+    if (MODE_MANAGED.equalsIgnoreCase(siegfriedMode)) {
+      return SiegfriedServer.getInstance().identify(path);
+    } else {
+      String siegfriedServer = RodaCoreFactory.getRodaConfiguration().getString("core.tools.siegfried.server",
+        "http://localhost:5138");
+      return SiegfriedServer.identify(siegfriedServer, path);
+    }
   }
 
   public static String runSiegfriedOnPath(Path sourceDirectory) throws PluginException {
     try {
-      String siegfriedMode = RodaCoreFactory.getRodaConfiguration().getString("core.tools.siegfried.mode", "server");
-      if ("server".equalsIgnoreCase(siegfriedMode)) {
-        LOGGER.debug("Running Siegfried on server mode");
-        String endpoint = getSiegfriedServerEndpoint(sourceDirectory);
-        return HTTPUtility.doGet(endpoint);
+      String siegfriedMode = getMode();
+      if (isServerMode(siegfriedMode)) {
+        LOGGER.debug("Running Siegfried on {} mode", siegfriedMode);
+        return runSiegfriedServer(siegfriedMode, sourceDirectory);
       } else {
         LOGGER.debug("Running Siegfried on standalone mode");
         List<String> command = getBatchCommand(sourceDirectory);
@@ -94,12 +104,11 @@ public class SiegfriedPluginUtils {
   public static String getVersion() {
     String version = null;
 
-    String siegfriedMode = RodaCoreFactory.getRodaConfiguration().getString("core.tools.siegfried.mode", "server");
-    if ("server".equalsIgnoreCase(siegfriedMode)) {
-      LOGGER.debug("Running Siegfried on server mode");
-      String endpoint = getSiegfriedServerEndpoint(Paths.get("/dev/null"));
+    String siegfriedMode = getMode();
+    if (isServerMode(siegfriedMode)) {
+      LOGGER.debug("Running Siegfried on {} mode", siegfriedMode);
       try {
-        String json = HTTPUtility.doGet(endpoint);
+        String json = runSiegfriedServer(siegfriedMode, Paths.get("/dev/null"));
         JsonNode jn = JsonUtils.parseJson(json);
         StringBuilder result = new StringBuilder();
         result.append(jn.get("siegfried").asText());
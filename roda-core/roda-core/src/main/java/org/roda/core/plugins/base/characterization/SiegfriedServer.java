@@ -0,0 +1,252 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.base.characterization;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.util.Base64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Siegfried server ({@code sf -serve}) started and kept alive by RODA, so that
+ * identifying formats does not start a new process (and load the signature
+ * file again) for each representation or file.
+ *
+ * <p>
+ * The server only listens on localhost. Before each request the process is
+ * checked and, if it exited, started again; if a request cannot reach the
+ * server the process is restarted and the request retried once. Requests to
+ * Siegfried servers (managed or not) share one HTTP client, so connections are
+ * kept alive and reused.
+ * </p>
+ */
+public class SiegfriedServer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SiegfriedServer.class);
+
+  public static final int DEFAULT_STARTUP_TIMEOUT_IN_SECONDS = 30;
+
+  private static final String HOST = "localhost";
+  private static final long STARTUP_CHECK_INTERVAL_IN_MILLIS = 200;
+  private static final long STOP_TIMEOUT_IN_SECONDS = 10;
+  private static final Path HEALTH_CHECK_PATH = Paths.get("/dev/null");
+
+  private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+    .connectTimeout(Duration.ofSeconds(10)).build();
+
+  // servers whose process is running, stopped when the JVM exits
+  private static final Set<SiegfriedServer> RUNNING = ConcurrentHashMap.newKeySet();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(
+      new Thread(() -> new ArrayList<>(RUNNING).forEach(SiegfriedServer::stop), "Siegfried server shutdown"));
+  }
+
+  private static SiegfriedServer instance = null;
+
+  private final List<String> command;
+  private final String url;
+  private final int startupTimeoutInSeconds;
+  private Process process = null;
+
+  public SiegfriedServer(String binary, int port, int startupTimeoutInSeconds) throws GenericException {
+    int serverPort = port > 0 ? port : getFreePort();
+    this.command = Arrays.asList(binary, "-serve", HOST + ":" + serverPort);
+    this.url = "http://" + HOST + ":" + serverPort;
+    this.startupTimeoutInSeconds = startupTimeoutInSeconds > 0 ? startupTimeoutInSeconds
+      : DEFAULT_STARTUP_TIMEOUT_IN_SECONDS;
+  }
+
+  /**
+   * @return the server managed by RODA, configured with
+   *         {@code core.tools.siegfried.binary},
+   *         {@code core.tools.siegfried.managed.port} (a free port if not set)
+   *         and {@code core.tools.siegfried.managed.startup_timeout_seconds}.
+   */
+  public static synchronized SiegfriedServer getInstance() throws GenericException {
+    if (instance == null) {
+      instance = new SiegfriedServer(
+        RodaCoreFactory.getRodaConfiguration().getString("core.tools.siegfried.binary", "sf"),
+        RodaCoreFactory.getRodaConfiguration().getInt("core.tools.siegfried.managed.port", 0),
+        RodaCoreFactory.getRodaConfiguration().getInt("core.tools.siegfried.managed.startup_timeout_seconds",
+          DEFAULT_STARTUP_TIMEOUT_IN_SECONDS));
+    }
+    return instance;
+  }
+
+  public static synchronized void shutdownInstance() {
+    if (instance != null) {
+      instance.stop();
+      instance = null;
+    }
+  }
+
+  /**
+   * Identifies a file or, recursively, all files in a directory using the
+   * Siegfried server at the given URL.
+   *
+   * @return the Siegfried JSON output.
+   */
+  public static String identify(String serverUrl, Path path) throws GenericException {
+    try {
+      return get(getEndpoint(serverUrl, path));
+    } catch (IOException e) {
+      throw new GenericException("Error connecting to Siegfried server " + serverUrl + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Identifies a file or, recursively, all files in a directory, starting the
+   * server if needed.
+   *
+   * @return the Siegfried JSON output.
+   */
+  public String identify(Path path) throws GenericException {
+    Process running = ensureStarted();
+    String endpoint = getEndpoint(url, path);
+    try {
+      return get(endpoint);
+    } catch (IOException e) {
+      LOGGER.warn("Siegfried server is not answering, restarting it: {}", e.getMessage());
+      restart(running);
+      try {
+        return get(endpoint);
+      } catch (IOException e2) {
+        throw new GenericException("Error connecting to Siegfried server " + url + ": " + e2.getMessage(), e2);
+      }
+    }
+  }
+
+  private synchronized Process ensureStarted() throws GenericException {
+    if (process == null || !process.isAlive()) {
+      if (process != null) {
+        LOGGER.warn("Siegfried server exited with code {}, starting it again", process.exitValue());
+      }
+      start();
+    }
+    return process;
+  }
+
+  private synchronized void restart(Process failed) throws GenericException {
+    // other requests may have already restarted it
+    if (process == failed) {
+      stop();
+      start();
+    }
+  }
+
+  private void start() throws GenericException {
+    LOGGER.info("Starting Siegfried server: {}", command);
+    try {
+      process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .start();
+    } catch (IOException e) {
+      process = null;
+      throw new GenericException("Could not start Siegfried server: " + e.getMessage(), e);
+    }
+    RUNNING.add(this);
+
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(startupTimeoutInSeconds);
+    while (!isHealthy()) {
+      if (!process.isAlive()) {
+        int exitValue = process.exitValue();
+        process = null;
+        RUNNING.remove(this);
+        throw new GenericException("Siegfried server exited while starting, with code " + exitValue);
+      }
+      if (System.currentTimeMillis() > deadline) {
+        stop();
+        throw new GenericException("Siegfried server did not start in " + startupTimeoutInSeconds + " seconds");
+      }
+      try {
+        Thread.sleep(STARTUP_CHECK_INTERVAL_IN_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        stop();
+        throw new GenericException("Interrupted while starting Siegfried server", e);
+      }
+    }
+    LOGGER.info("Siegfried server listening on {}", url);
+  }
+
+  private boolean isHealthy() {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(getEndpoint(url, HEALTH_CHECK_PATH)))
+      .timeout(Duration.ofSeconds(10)).GET().build();
+    try {
+      HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.discarding());
+      return true;
+    } catch (IOException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  public synchronized void stop() {
+    if (process != null) {
+      process.destroy();
+      try {
+        if (!process.waitFor(STOP_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        process.destroyForcibly();
+      }
+      process = null;
+    }
+    RUNNING.remove(this);
+  }
+
+  private static String getEndpoint(String serverUrl, Path path) {
+    return String.format("%s/identify/%s?base64=true&format=json", serverUrl,
+      new String(Base64.encode(path.toString().getBytes())));
+  }
+
+  private static String get(String endpoint) throws IOException, GenericException {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint)).GET().build();
+    try {
+      HttpResponse<String> response = HTTP_CLIENT.send(request,
+        HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+      if (response.statusCode() != 200) {
+        throw new GenericException(
+          "Siegfried server answered with status " + response.statusCode() + ": " + response.body());
+      }
+      return response.body();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while waiting for Siegfried server", e);
+    }
+  }
+
+  private static int getFreePort() throws GenericException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    } catch (IOException e) {
+      throw new GenericException("Could not find a free port for Siegfried server", e);
+    }
+  }
+}
@@ -54,6 +54,7 @@ import org.roda.core.data.v2.validation.ValidationException;
 import org.roda.core.data.v2.validation.ValidationIssue;
 import org.roda.core.data.v2.validation.ValidationReport;
 import org.roda.core.index.IndexService;
+import org.roda.core.model.AIPWriteSession;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.AbstractAIPComponentsPlugin;
@@ -255,8 +256,9 @@ public abstract class AbstractConvertPlugin<T extends IsRODAObject> extends Abst
             reportItem.setOutcomeObjectClass(DIP.class.getName());
           }
 
-          try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
-            representation.getId(), true)) {
+          try (AIPWriteSession writeSession = model.openWriteSession();
+            CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
+              representation.getId(), true)) {
             LOGGER.debug("Processing representation {}", representation);
 
             for (OptionalWithCause<File> oFile : allFiles) {
@@ -470,8 +472,9 @@ public abstract class AbstractConvertPlugin<T extends IsRODAObject> extends Abst
       ValidationReport validationReport = new ValidationReport();
       boolean hasNonPdfFiles = false;
 
-      try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(representation.getAipId(),
-        representation.getId(), true)) {
+      try (AIPWriteSession writeSession = model.openWriteSession();
+        CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(representation.getAipId(),
+          representation.getId(), true)) {
         LOGGER.debug("Processing representation {}", representation);
 
         for (OptionalWithCause<File> oFile : allFiles) {
@@ -77,6 +77,7 @@ public class DisposalConfirmationPluginUtils {
       .resolve(RodaConstants.CORE_AIP_FOLDER).resolve(aipStoragePath.getName());
 
     RsyncUtils.executeRsync(disposalBinPath, aipPath, rsyncOptions);
+    RodaCoreFactory.getModelService().invalidateCachedAIP(aipId);
   }
 
   public static DisposalConfirmation getDisposalConfirmation(String confirmationId, String title, long storageSize,
@@ -13,7 +13,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AlreadyExistsException;
@@ -26,7 +26,6 @@ import org.roda.core.data.v2.LiteOptionalWithCause;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPDisposalScheduleAssociationType;
 import org.roda.core.data.v2.ip.disposal.DisposalRule;
-import org.roda.core.data.v2.ip.disposal.DisposalRules;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.PluginParameter;
 import org.roda.core.data.v2.jobs.PluginState;
@@ -53,6 +52,9 @@ public class ApplyDisposalRulesPlugin extends AbstractPlugin<AIP> {
 
   private boolean overrideManualAssociations = false;
 
+  // rules of the running jobs, loaded once per job
+  private static final Map<String, DisposalRulesEvaluator> evaluators = new ConcurrentHashMap<>();
+
   private static final Map<String, PluginParameter> pluginParameters = new HashMap<>();
 
   static {
@@ -134,7 +136,15 @@ public class ApplyDisposalRulesPlugin extends AbstractPlugin<AIP> {
   @Override
   public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
     throws PluginException {
-    // do nothing
+    String jobId = PluginHelper.getJobId(this);
+    if (jobId != null) {
+      try {
+        evaluators.put(jobId, new DisposalRulesEvaluator(model.listDisposalRules()));
+      } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | IOException e) {
+        // each block will try to obtain them
+        LOGGER.warn("Failed to obtain disposal rules: {}", e.getMessage(), e);
+      }
+    }
     return null;
   }
 
@@ -153,13 +163,12 @@ public class ApplyDisposalRulesPlugin extends AbstractPlugin<AIP> {
   private void processAIP(List<AIP> aips, IndexService index, ModelService model, Report report, Job cachedJob,
     JobPluginInfo jobPluginInfo) {
     try {
-      DisposalRules disposalRules = model.listDisposalRules();
-      Collections.sort(disposalRules.getObjects());
+      DisposalRulesEvaluator evaluator = getEvaluator(model);
 
-      if (disposalRules.getObjects().isEmpty()) {
+      if (evaluator.isEmpty()) {
         processEmptyDisposalRules(aips, model, report, cachedJob, jobPluginInfo);
       } else {
-        processDisposalRules(aips, disposalRules, index, model, report, cachedJob, jobPluginInfo);
+        processDisposalRules(aips, evaluator, index, model, report, cachedJob, jobPluginInfo);
       }
 
     } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | IOException e) {
@@ -175,6 +184,16 @@ public class ApplyDisposalRulesPlugin extends AbstractPlugin<AIP> {
     }
   }
 
+  private DisposalRulesEvaluator getEvaluator(ModelService model)
+    throws RequestNotValidException, GenericException, AuthorizationDeniedException, IOException {
+    String jobId = PluginHelper.getJobId(this);
+    DisposalRulesEvaluator evaluator = jobId != null ? evaluators.get(jobId) : null;
+    if (evaluator == null) {
+      evaluator = new DisposalRulesEvaluator(model.listDisposalRules());
+    }
+    return evaluator;
+  }
+
   private void processEmptyDisposalRules(List<AIP> aips, ModelService model, Report report, Job cachedJob,
     JobPluginInfo jobPluginInfo) {
     for (AIP aip : aips) {
@@ -188,60 +207,73 @@ public class ApplyDisposalRulesPlugin extends AbstractPlugin<AIP> {
     }
   }
 
-  private void processDisposalRules(List<AIP> aips, DisposalRules disposalRules, IndexService index, ModelService model,
-    Report report, Job cachedJob, JobPluginInfo jobPluginInfo) {
+  private boolean isManuallyAssociated(AIP aip) {
+    return AIPDisposalScheduleAssociationType.MANUAL.equals(aip.getDisposalScheduleAssociationType())
+      && !overrideManualAssociations;
+  }
+
+  private void processDisposalRules(List<AIP> aips, DisposalRulesEvaluator evaluator, IndexService index,
+    ModelService model, Report report, Job cachedJob, JobPluginInfo jobPluginInfo) {
+    // all the rules are matched against the whole block at once
+    Map<String, DisposalRule> rulesUsed = Collections.emptyMap();
+    String matchError = null;
+    try {
+      rulesUsed = evaluator.evaluate(aips.stream().filter(aip -> !isManuallyAssociated(aip)).toList(), index);
+    } catch (GenericException e) {
+      LOGGER.error("Failed to match disposal rules to AIPs", e);
+      matchError = e.getMessage();
+    }
+
     for (AIP aip : aips) {
       LOGGER.debug("Processing AIP: {}", aip.getId());
 
       Report reportItem = PluginHelper.initPluginReportItem(this, aip.getId(), AIP.class);
       PluginHelper.updatePartialJobReport(this, model, reportItem, false, cachedJob);
       PluginState state = PluginState.SUCCESS;
-      Optional<DisposalRule> disposalRuleUsed;
       String outcomeDetailsText = "";
 
-      try {
-        // Check if manual associated schedules are to be overridden
-        if (AIPDisposalScheduleAssociationType.MANUAL.equals(aip.getDisposalScheduleAssociationType())
-          && !overrideManualAssociations) {
-          state = PluginState.SKIPPED;
-          outcomeDetailsText = "Skipping associating disposal schedule to AIP '" + aip.getId()
-            + "' because the disposal schedule was manually associated";
-          reportItem.setPluginState(state).setPluginDetails(outcomeDetailsText);
-          jobPluginInfo.incrementObjectsProcessedWithSkipped();
-        } else {
-          disposalRuleUsed = ApplyDisposalRulesPluginUtils.applyRule(aip, disposalRules, index);
-
-          if (disposalRuleUsed.isPresent()) {
-            // Schedule was applied
-            try {
+      // Check if manual associated schedules are to be overridden
+      if (isManuallyAssociated(aip)) {
+        state = PluginState.SKIPPED;
+        outcomeDetailsText = "Skipping associating disposal schedule to AIP '" + aip.getId()
+          + "' because the disposal schedule was manually associated";
+        reportItem.setPluginState(state).setPluginDetails(outcomeDetailsText);
+        jobPluginInfo.incrementObjectsProcessedWithSkipped();
+      } else if (matchError != null) {
+        jobPluginInfo.incrementObjectsProcessedWithFailure();
+        state = PluginState.FAILURE;
+        reportItem.setPluginState(state)
+          .setPluginDetails("Error matching disposal rules to AIP '" + aip.getId() + "': " + matchError);
+      } else {
+        DisposalRule disposalRuleUsed = rulesUsed.get(aip.getId());
+
+        if (disposalRuleUsed != null) {
+          // Schedule was applied
+          try {
+            // AIPs whose schedule does not change are not rewritten
+            if (!ApplyDisposalRulesPluginUtils.isRuleApplied(aip, disposalRuleUsed)) {
+              ApplyDisposalRulesPluginUtils.applyRule(aip, disposalRuleUsed);
               model.updateAIP(aip, cachedJob.getUsername());
-              outcomeDetailsText = "Disposal schedule '" + disposalRuleUsed.get().getDisposalScheduleName()
-                + "' was successfully associated to AIP '" + aip.getId() + "' via disposal rule '"
-                + disposalRuleUsed.get().getTitle() + "'";
-              reportItem.setPluginState(state).setPluginDetails(outcomeDetailsText);
-              jobPluginInfo.incrementObjectsProcessedWithSuccess();
-            } catch (GenericException | NotFoundException | RequestNotValidException | AuthorizationDeniedException e) {
-              LOGGER.error("Failed to associate disposal schedule to AIP {}: {}", aip.getId(), e.getMessage(), e);
-              state = PluginState.FAILURE;
-              reportItem.setPluginState(state).setPluginDetails(
-                "Failed to associate disposal schedule to AIP '" + aip.getId() + "': '" + e.getMessage() + "'");
-              jobPluginInfo.incrementObjectsProcessedWithFailure();
             }
-          } else {
-            state = PluginState.SKIPPED;
-            outcomeDetailsText = "The AIP '" + aip.getId()
-              + "' did not match any disposal rule therefore the disposal schedule association was skipped";
+            outcomeDetailsText = "Disposal schedule '" + disposalRuleUsed.getDisposalScheduleName()
+              + "' was successfully associated to AIP '" + aip.getId() + "' via disposal rule '"
+              + disposalRuleUsed.getTitle() + "'";
             reportItem.setPluginState(state).setPluginDetails(outcomeDetailsText);
-            jobPluginInfo.incrementObjectsProcessedWithSkipped();
+            jobPluginInfo.incrementObjectsProcessedWithSuccess();
+          } catch (GenericException | NotFoundException | RequestNotValidException | AuthorizationDeniedException e) {
+            LOGGER.error("Failed to associate disposal schedule to AIP {}: {}", aip.getId(), e.getMessage(), e);
+            state = PluginState.FAILURE;
+            reportItem.setPluginState(state).setPluginDetails(
+              "Failed to associate disposal schedule to AIP '" + aip.getId() + "': '" + e.getMessage() + "'");
+            jobPluginInfo.incrementObjectsProcessedWithFailure();
           }
-
+        } else {
+          state = PluginState.SKIPPED;
+          outcomeDetailsText = "The AIP '" + aip.getId()
+            + "' did not match any disposal rule therefore the disposal schedule association was skipped";
+          reportItem.setPluginState(state).setPluginDetails(outcomeDetailsText);
+          jobPluginInfo.incrementObjectsProcessedWithSkipped();
         }
-      } catch (GenericException | NotFoundException e) {
-        LOGGER.error("Failed to obtain index version of AIP '{}'", aip.getId(), e);
-        jobPluginInfo.incrementObjectsProcessedWithFailure();
-        state = PluginState.FAILURE;
-        reportItem.setPluginState(state)
-          .setPluginDetails("Error matching disposal rules to AIP '" + aip.getId() + "': " + e.getMessage());
       }
 
       report.addReport(reportItem);
@@ -259,7 +291,10 @@ public class ApplyDisposalRulesPlugin extends AbstractPlugin<AIP> {
 
   @Override
   public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
-    // do nothing
+    String jobId = PluginHelper.getJobId(this);
+    if (jobId != null) {
+      evaluators.remove(jobId);
+    }
     return new Report();
   }
 
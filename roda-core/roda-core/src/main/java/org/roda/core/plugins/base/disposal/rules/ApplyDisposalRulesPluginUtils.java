@@ -7,21 +7,11 @@
  */
 package org.roda.core.plugins.base.disposal.rules;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.Optional;
-
-import org.roda.core.data.exceptions.GenericException;
-import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPDisposalScheduleAssociationType;
-import org.roda.core.data.v2.ip.IndexedAIP;
-import org.roda.core.data.v2.ip.disposal.ConditionType;
 import org.roda.core.data.v2.ip.disposal.DisposalRule;
-import org.roda.core.data.v2.ip.disposal.DisposalRules;
 import org.roda.core.data.v2.ip.disposal.aipMetadata.DisposalAIPMetadata;
 import org.roda.core.data.v2.ip.disposal.aipMetadata.DisposalScheduleAIPMetadata;
-import org.roda.core.index.IndexService;
 
 /**
  * @author Miguel Guimarães <mguimaraes@keep.pt>
@@ -31,55 +21,18 @@ public class ApplyDisposalRulesPluginUtils {
   private ApplyDisposalRulesPluginUtils() {
   }
 
-  public static Optional<DisposalRule> applyRule(AIP aip, DisposalRules disposalRules, IndexService index)
-    throws NotFoundException, GenericException {
-
-    for (DisposalRule rule : disposalRules.getObjects()) {
-      Optional<DisposalRule> used = Optional.empty();
-      if (ConditionType.IS_CHILD_OF.equals(rule.getType())) {
-        used = conditionTypeChildOf(aip, rule);
-      } else if (ConditionType.METADATA_FIELD.equals(rule.getType())) {
-        used = conditionTypeMetadataValue(aip, rule, index);
-      }
-
-      if (used.isPresent()) {
-        return used;
-      }
-    }
-
-    return Optional.empty();
-  }
-
-  private static Optional<DisposalRule> conditionTypeChildOf(AIP aip, DisposalRule rule) {
-    if (aip.getParentId() != null && aip.getParentId().equals(rule.getConditionKey())) {
-      DisposalAIPMetadata disposal = getDisposalAipMetadata(aip, rule);
-      aip.setDisposal(disposal);
-      return Optional.of(rule);
-    }
-
-    return Optional.empty();
-  }
-
-  private static Optional<DisposalRule> conditionTypeMetadataValue(AIP aip, DisposalRule rule, IndexService index)
-    throws NotFoundException, GenericException {
-
-    IndexedAIP indexedAIP = index.retrieve(IndexedAIP.class, aip.getId(),
-      Collections.singletonList(rule.getConditionKey()));
-
-    Map<String, Object> fields = indexedAIP.getFields();
-    Object o = fields.get(rule.getConditionKey());
-    String metadataValue = (String) o;
-
-    if (metadataValue != null && metadataValue.equals(rule.getConditionValue())) {
-      DisposalAIPMetadata disposal = getDisposalAipMetadata(aip, rule);
-      aip.setDisposal(disposal);
-      return Optional.of(rule);
-    }
-
-    return Optional.empty();
+  /**
+   * @return true if the AIP already has the disposal schedule of the rule,
+   *         associated via rules.
+   */
+  public static boolean isRuleApplied(AIP aip, DisposalRule rule) {
+    DisposalAIPMetadata disposal = aip.getDisposal();
+    return disposal != null && disposal.getSchedule() != null
+      && AIPDisposalScheduleAssociationType.RULES.equals(disposal.getSchedule().getAssociationType())
+      && rule.getDisposalScheduleId() != null && rule.getDisposalScheduleId().equals(disposal.getSchedule().getId());
   }
 
-  private static DisposalAIPMetadata getDisposalAipMetadata(AIP aip, DisposalRule rule) {
+  public static void applyRule(AIP aip, DisposalRule rule) {
     DisposalAIPMetadata disposal = aip.getDisposal();
     if (disposal == null) {
       disposal = new DisposalAIPMetadata();
@@ -90,6 +43,6 @@ public class ApplyDisposalRulesPluginUtils {
     disposal.getSchedule().setId(rule.getDisposalScheduleId());
     disposal.getSchedule().setAssociationType(AIPDisposalScheduleAssociationType.RULES);
 
-    return disposal;
+    aip.setDisposal(disposal);
   }
 }
@@ -0,0 +1,118 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.base.disposal.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.disposal.ConditionType;
+import org.roda.core.data.v2.ip.disposal.DisposalRule;
+import org.roda.core.data.v2.ip.disposal.DisposalRules;
+import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.SolrUtils;
+
+/**
+ * Finds the first disposal rule (in order) matching each AIP of a set.
+ *
+ * <p>
+ * Rules are evaluated one at a time over the AIPs not matched by a previous
+ * rule: child of rules are checked against the AIP parent, metadata field rules
+ * against the field values of the AIPs of the set, fetched from the index in a
+ * single real-time get.
+ * </p>
+ */
+public class DisposalRulesEvaluator {
+  private final List<DisposalRule> rules;
+
+  public DisposalRulesEvaluator(DisposalRules disposalRules) {
+    this.rules = new ArrayList<>(disposalRules.getObjects());
+    Collections.sort(this.rules);
+  }
+
+  public boolean isEmpty() {
+    return rules.isEmpty();
+  }
+
+  /**
+   * @return the rule to use for each AIP, by AIP id. AIPs not matching any rule
+   *         are left out.
+   */
+  public Map<String, DisposalRule> evaluate(List<AIP> aips, IndexService index) throws GenericException {
+    Map<String, DisposalRule> matches = new HashMap<>();
+    Map<String, AIP> remaining = new LinkedHashMap<>();
+    aips.forEach(aip -> remaining.put(aip.getId(), aip));
+
+    for (DisposalRule rule : rules) {
+      if (remaining.isEmpty()) {
+        break;
+      }
+
+      Set<String> matched;
+      if (ConditionType.IS_CHILD_OF.equals(rule.getType())) {
+        matched = matchChildOf(remaining.values(), rule);
+      } else if (ConditionType.METADATA_FIELD.equals(rule.getType())) {
+        matched = matchMetadataValue(remaining.keySet(), rule, index);
+      } else {
+        matched = Collections.emptySet();
+      }
+
+      for (String aipId : matched) {
+        matches.put(aipId, rule);
+        remaining.remove(aipId);
+      }
+    }
+
+    return matches;
+  }
+
+  private static Set<String> matchChildOf(Collection<AIP> aips, DisposalRule rule) {
+    Set<String> matched = new HashSet<>();
+    for (AIP aip : aips) {
+      if (aip.getParentId() != null && aip.getParentId().equals(rule.getConditionKey())) {
+        matched.add(aip.getId());
+      }
+    }
+    return matched;
+  }
+
+  private static Set<String> matchMetadataValue(Set<String> aipIds, DisposalRule rule, IndexService index)
+    throws GenericException {
+    Set<String> matched = new HashSet<>();
+    String field = rule.getConditionKey();
+    String value = rule.getConditionValue();
+    if (field == null || value == null) {
+      return matched;
+    }
+
+    // AIPs being ingested were just indexed, so they are only visible to a
+    // real-time get (not to a search, which needs a commit)
+    SolrClient client = index.getSolrClient();
+    SolrUtils.flushBatch(client, IndexedAIP.class);
+    for (IndexedAIP indexedAIP : SolrUtils.retrieve(client, IndexedAIP.class, new ArrayList<>(aipIds),
+      Arrays.asList(RodaConstants.INDEX_UUID, field))) {
+      Object fieldValue = indexedAIP.getFields().get(field);
+      if (fieldValue instanceof Collection ? ((Collection<?>) fieldValue).contains(value) : value.equals(fieldValue)) {
+        matched.add(indexedAIP.getId());
+      }
+    }
+    return matched;
+  }
+}
@@ -20,6 +20,7 @@ import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
 import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Representation;
+import org.roda.core.model.AIPWriteSession;
 import org.roda.core.model.ModelService;
 import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.StringContentPayload;
@@ -67,10 +68,12 @@ public class BagitToAIPPluginUtils {
       Representation rep = model.createRepresentation(aip.getId(), irep.getRepresentationID(), original,
         representationType, notify, createdBy);
 
-      for (IPFile bagFile : irep.getData()) {
-        ContentPayload payload = new FSPathContentPayload(bagFile.getPath());
-        model.createFile(aip.getId(), rep.getId(), bagFile.getRelativeFolders(), bagFile.getFileName(), payload,
-          createdBy, notify);
+      try (AIPWriteSession writeSession = model.openWriteSession()) {
+        for (IPFile bagFile : irep.getData()) {
+          ContentPayload payload = new FSPathContentPayload(bagFile.getPath());
+          model.createFile(aip.getId(), rep.getId(), bagFile.getRelativeFolders(), bagFile.getFileName(), payload,
+            createdBy, notify);
+        }
       }
     }
 
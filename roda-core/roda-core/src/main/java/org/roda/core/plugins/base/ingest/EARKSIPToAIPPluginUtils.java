@@ -30,6 +30,7 @@ import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.metadata.PreservationMetadata.PreservationMetadataType;
 import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.data.v2.validation.ValidationException;
+import org.roda.core.model.AIPWriteSession;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.PluginHelper;
@@ -245,6 +246,15 @@ public class EARKSIPToAIPPluginUtils {
   }
 
   private static void processIPRepresentationInformation(ModelService model, IPRepresentation sr, String aipId,
+    boolean notify, boolean update, String username, Report reportItem) throws RequestNotValidException,
+    GenericException, AlreadyExistsException, AuthorizationDeniedException, NotFoundException, ValidationException {
+    // representation and AIP update information is written once, at the end
+    try (AIPWriteSession writeSession = model.openWriteSession()) {
+      processIPRepresentationContent(model, sr, aipId, notify, update, username, reportItem);
+    }
+  }
+
+  private static void processIPRepresentationContent(ModelService model, IPRepresentation sr, String aipId,
     boolean notify, boolean update, String username, Report reportItem) throws RequestNotValidException,
     GenericException, AlreadyExistsException, AuthorizationDeniedException, NotFoundException, ValidationException {
     String representationType = getType(sr);
@@ -35,6 +35,7 @@ import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.PluginState;
 import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.index.IndexService;
+import org.roda.core.model.AIPWriteSession;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.PluginException;
@@ -135,13 +136,16 @@ public class TransferredResourceToAIPPlugin extends SIPToAIPPlugin {
       model.createRepresentation(aip.getId(), representationId, true, representationType, false, job.getUsername());
 
       // create files
-      if (transferredResource.isFile()) {
-        String fileId = transferredResource.getName();
-        List<String> directoryPath = new ArrayList<>();
-        ContentPayload payload = new FSPathContentPayload(transferredResourcePath);
-        model.createFile(aip.getId(), representationId, directoryPath, fileId, payload, job.getUsername(), false);
-      } else {
-        processTransferredResourceDirectory(model, transferredResourcePath, aip, representationId, job.getUsername());
+      try (AIPWriteSession writeSession = model.openWriteSession()) {
+        if (transferredResource.isFile()) {
+          String fileId = transferredResource.getName();
+          List<String> directoryPath = new ArrayList<>();
+          ContentPayload payload = new FSPathContentPayload(transferredResourcePath);
+          model.createFile(aip.getId(), representationId, directoryPath, fileId, payload, job.getUsername(), false);
+        } else {
+          processTransferredResourceDirectory(model, transferredResourcePath, aip, representationId,
+            job.getUsername());
+        }
       }
 
       createUnpackingEventSuccess(model, index, transferredResource, aip, UNPACK_DESCRIPTION, job);
@@ -11,11 +11,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.RodaCoreFactory;
@@ -51,6 +55,7 @@ import org.roda.core.plugins.orchestrate.JobPluginInfo;
 import org.roda.core.plugins.PluginHelper;
 import org.roda.core.plugins.base.ingest.v2.steps.IngestStep;
 import org.roda.core.plugins.base.ingest.v2.steps.IngestStepBundle;
+import org.roda.core.plugins.base.ingest.v2.steps.IngestStepsPipeline;
 import org.roda.core.plugins.base.ingest.v2.steps.IngestStepsUtils;
 import org.roda.core.plugins.base.notifications.JobNotification;
 import org.roda.core.storage.StorageService;
@@ -171,11 +176,22 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
 
       List<IngestStep> steps = getIngestSteps();
 
-      for (IngestStep step : steps) {
-        IngestStepBundle bundle = new IngestStepBundle(this, index, model, storage, jobPluginInfo,
-          getPluginParameter(step.getParameterName()), getParameterValues(), resources, aips, cachedJob,
-          sipInformation);
-        step.execute(bundle);
+      List<IngestStepBundle> pipelineBundles = RodaCoreFactory.getRodaConfiguration()
+        .getBoolean(RodaConstants.CORE_INGEST_PIPELINE_ENABLED, false)
+          ? getPipelineBundles(index, model, storage, jobPluginInfo, resources, aips, cachedJob, sipInformation)
+          : Collections.emptyList();
+
+      if (pipelineBundles.size() > 1) {
+        new IngestStepsPipeline(this, steps, this::getPluginParameter).execute(jobPluginInfo, pipelineBundles);
+        aips.clear();
+        pipelineBundles.forEach(bundle -> aips.addAll(bundle.getAips()));
+      } else {
+        for (IngestStep step : steps) {
+          IngestStepBundle bundle = new IngestStepBundle(this, index, model, storage, jobPluginInfo,
+            getPluginParameter(step.getParameterName()), getParameterValues(), resources, aips, cachedJob,
+            sipInformation);
+          step.execute(bundle);
+        }
       }
 
       createIngestEndedEvent(model, index, jobPluginInfo, cachedJob);
@@ -244,6 +260,43 @@ public abstract class DefaultIngestPlugin extends AbstractPlugin<TransferredReso
     return report;
   }
 
+  /**
+   * @return one bundle per transferred resource, with its AIPs and its own copy
+   *         of the parameter values, to go through the ingest steps pipeline.
+   */
+  private List<IngestStepBundle> getPipelineBundles(IndexService index, ModelService model, StorageService storage,
+    IngestJobPluginInfo jobPluginInfo, List<TransferredResource> resources, List<AIP> aips, Job cachedJob,
+    SIPInformation sipInformation) {
+    Map<String, AIP> aipsById = new LinkedHashMap<>();
+    aips.forEach(aip -> aipsById.put(aip.getId(), aip));
+
+    List<IngestStepBundle> bundles = new ArrayList<>();
+    for (TransferredResource resource : resources) {
+      List<AIP> resourceAips = new ArrayList<>();
+      for (String aipId : jobPluginInfo.getAipIds(resource.getUUID())) {
+        // an AIP is processed only once, with the first resource that has it
+        AIP aip = aipsById.remove(aipId);
+        if (aip != null) {
+          resourceAips.add(aip);
+        }
+      }
+
+      if (!resourceAips.isEmpty()) {
+        IngestStepBundle bundle = new IngestStepBundle(this, index, model, storage, jobPluginInfo, null,
+          new HashMap<>(getParameterValues()), Collections.singletonList(resource), resourceAips, cachedJob,
+          sipInformation);
+        bundle.setScopeAipIds(resourceAips.stream().map(AIP::getId).collect(Collectors.toSet()));
+        bundles.add(bundle);
+      }
+    }
+
+    if (!aipsById.isEmpty()) {
+      // AIPs not related with any of the resources, keep the sequential ingest
+      return Collections.emptyList();
+    }
+    return bundles;
+  }
+
   private List<AIP> getAIPsFromReports(ModelService model, IndexService index, IngestJobPluginInfo jobPluginInfo) {
     processReports(model, index, jobPluginInfo);
 
@@ -30,19 +30,21 @@ public class AutoAcceptIngestStep extends IngestStep {
   }
 
   @Override
-  public void execute(IngestStepBundle bundle) throws JobException {
-    if (PluginHelper.verifyIfStepShouldBePerformed(bundle.getIngestPlugin(), bundle.getPluginParameter(),
-      !this.usesCorePlugin() ? this.getPluginName() : null)) {
-      IngestStepsUtils.executePlugin(bundle, this);
-      PluginHelper.updateJobInformationAsync(bundle.getIngestPlugin(),
-        bundle.getJobPluginInfo().incrementStepsCompletedByOne());
-
-      if (RodaCoreFactory.getRodaConfiguration()
-        .getBoolean(RodaConstants.CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT, false)) {
+  public void process(IngestStepBundle bundle) throws JobException {
+    IngestStepsUtils.executePlugin(bundle, this);
+
+    if (RodaCoreFactory.getRodaConfiguration()
+      .getBoolean(RodaConstants.CORE_TRANSFERRED_RESOURCES_INGEST_MOVE_WHEN_AUTOACCEPT, false)) {
+      synchronized (bundle.getJobPluginInfo()) {
         PluginHelper.moveSIPs(bundle.getIngestPlugin(), bundle.getModel(), bundle.getIndex(), bundle.getResources(),
           bundle.getJobPluginInfo());
       }
-    } else {
+    }
+  }
+
+  @Override
+  public void skip(IngestStepBundle bundle) throws JobException {
+    synchronized (bundle.getJobPluginInfo()) {
       IngestStepsUtils.updateAIPsToBeAppraised(bundle, bundle.getCachedJob());
     }
   }
@@ -11,6 +11,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.roda.core.data.exceptions.JobException;
+import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.PluginHelper;
 
 public class IngestStep {
@@ -71,11 +73,33 @@ public class IngestStep {
   }
 
   public void execute(IngestStepBundle bundle) throws JobException {
-    if (PluginHelper.verifyIfStepShouldBePerformed(bundle.getIngestPlugin(), bundle.getPluginParameter(),
-      !this.usesCorePlugin() ? this.getPluginName() : null)) {
-      IngestStepsUtils.executePlugin(bundle, this);
+    if (isToBePerformed(bundle.getIngestPlugin(), bundle.getPluginParameter())) {
+      process(bundle);
       PluginHelper.updateJobInformationAsync(bundle.getIngestPlugin(),
         bundle.getJobPluginInfo().incrementStepsCompletedByOne());
+    } else {
+      skip(bundle);
     }
   }
+
+  public boolean isToBePerformed(Plugin<?> ingestPlugin, PluginParameter pluginParameter) {
+    return PluginHelper.verifyIfStepShouldBePerformed(ingestPlugin, pluginParameter,
+      !this.usesCorePlugin() ? this.getPluginName() : null);
+  }
+
+  /**
+   * Executes the step over the AIPs of the bundle, without updating the steps
+   * completed.
+   */
+  public void process(IngestStepBundle bundle) throws JobException {
+    IngestStepsUtils.executePlugin(bundle, this);
+  }
+
+  /**
+   * Called, instead of {@link #process(IngestStepBundle)}, when the step is
+   * not to be performed.
+   */
+  public void skip(IngestStepBundle bundle) throws JobException {
+    // do nothing
+  }
 }
@@ -9,6 +9,7 @@ package org.roda.core.plugins.base.ingest.v2.steps;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.SIPInformation;
@@ -33,6 +34,7 @@ public class IngestStepBundle {
   private List<AIP> aips;
   private Job cachedJob;
   private SIPInformation sipInformation;
+  private Set<String> scopeAipIds = null;
 
   public IngestStepBundle(Plugin<?> ingestPlugin, IndexService index, ModelService model, StorageService storage,
     IngestJobPluginInfo jobPluginInfo, PluginParameter pluginParameter, Map<String, String> parameterValues,
@@ -137,4 +139,16 @@ public class IngestStepBundle {
   public void setSipInformation(SIPInformation sipInformation) {
     this.sipInformation = sipInformation;
   }
+
+  /**
+   * @return the AIPs whose transferred resources this bundle deals with, or
+   *         {@code null} for all the ones in the job plugin info.
+   */
+  public Set<String> getScopeAipIds() {
+    return scopeAipIds;
+  }
+
+  public void setScopeAipIds(Set<String> scopeAipIds) {
+    this.scopeAipIds = scopeAipIds;
+  }
 }
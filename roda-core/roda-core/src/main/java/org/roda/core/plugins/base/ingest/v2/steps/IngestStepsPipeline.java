@@ -0,0 +1,219 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.base.ingest.v2.steps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.JobException;
+import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginHelper;
+import org.roda.core.plugins.orchestrate.IngestJobPluginInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes ingest steps as a pipeline: each bundle (usually the AIPs of one
+ * SIP) moves through the steps on its own, so that a bundle can be in one step
+ * while others are in the next ones.
+ *
+ * <p>
+ * The steps of all pipelines (i.e. of all ingest jobs running) are executed by
+ * a single bounded pool of workers, which takes bundles in later steps first,
+ * so that bundles already being ingested finish before new ones are started.
+ * </p>
+ *
+ * <p>
+ * Reports are merged as in a sequential execution
+ * ({@link IngestStepsUtils#mergeReports(IngestJobPluginInfo, org.roda.core.data.v2.jobs.Report)}),
+ * and a step is counted as completed once all bundles went through it.
+ * </p>
+ */
+public class IngestStepsPipeline {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IngestStepsPipeline.class);
+
+  private static Executor sharedExecutor = null;
+
+  private final Plugin<?> ingestPlugin;
+  private final List<IngestStep> steps;
+  private final Function<String, PluginParameter> stepParameters;
+  private final Executor executor;
+
+  /**
+   * @param stepParameters
+   *          the plugin parameter that enables each step, given its
+   *          {@link IngestStep#getParameterName()}.
+   */
+  public IngestStepsPipeline(Plugin<?> ingestPlugin, List<IngestStep> steps,
+    Function<String, PluginParameter> stepParameters) {
+    this(ingestPlugin, steps, stepParameters, getSharedExecutor());
+  }
+
+  public IngestStepsPipeline(Plugin<?> ingestPlugin, List<IngestStep> steps,
+    Function<String, PluginParameter> stepParameters, Executor executor) {
+    this.ingestPlugin = ingestPlugin;
+    this.steps = steps;
+    this.stepParameters = stepParameters;
+    this.executor = executor;
+  }
+
+  private static synchronized Executor getSharedExecutor() {
+    if (sharedExecutor == null) {
+      int threads = RodaCoreFactory.getRodaConfiguration().getInt(RodaConstants.CORE_INGEST_PIPELINE_THREADS,
+        Runtime.getRuntime().availableProcessors());
+      sharedExecutor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0L, TimeUnit.MILLISECONDS,
+        new PriorityBlockingQueue<>(), new PipelineThreadFactory());
+    }
+    return sharedExecutor;
+  }
+
+  /**
+   * Executes all steps over all bundles, returning when all bundles went
+   * through all steps or a step failed unexpectedly.
+   */
+  public void execute(IngestJobPluginInfo jobPluginInfo, List<IngestStepBundle> bundles) throws JobException {
+    if (bundles.isEmpty()) {
+      return;
+    }
+
+    Execution execution = new Execution(jobPluginInfo, bundles.size());
+    for (IngestStepBundle bundle : bundles) {
+      execution.submit(0, bundle);
+    }
+    execution.await();
+  }
+
+  private final class Execution {
+    private final IngestJobPluginInfo jobPluginInfo;
+    private final List<PluginParameter> parameters = new ArrayList<>();
+    private final List<Boolean> performed = new ArrayList<>();
+    private final List<AtomicInteger> remaining = new ArrayList<>();
+    private final CountDownLatch done;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    Execution(IngestJobPluginInfo jobPluginInfo, int bundles) {
+      this.jobPluginInfo = jobPluginInfo;
+      this.done = new CountDownLatch(bundles);
+      for (IngestStep step : steps) {
+        PluginParameter parameter = stepParameters.apply(step.getParameterName());
+        parameters.add(parameter);
+        performed.add(step.isToBePerformed(ingestPlugin, parameter));
+        remaining.add(new AtomicInteger(bundles));
+      }
+    }
+
+    void submit(int stepIndex, IngestStepBundle bundle) {
+      if (stepIndex == steps.size() || failure.get() != null) {
+        done.countDown();
+        return;
+      }
+
+      executor.execute(new StepTask(stepIndex, () -> {
+        // bundles waiting when a step failed are not processed
+        if (failure.get() != null) {
+          done.countDown();
+          return;
+        }
+
+        try {
+          process(stepIndex, bundle);
+          submit(stepIndex + 1, bundle);
+        } catch (JobException | RuntimeException e) {
+          LOGGER.error("Error executing ingest step {}", steps.get(stepIndex).getPluginName(), e);
+          failure.compareAndSet(null, e);
+          done.countDown();
+        }
+      }));
+    }
+
+    private void process(int stepIndex, IngestStepBundle bundle) throws JobException {
+      IngestStep step = steps.get(stepIndex);
+      bundle.setPluginParameter(parameters.get(stepIndex));
+      if (performed.get(stepIndex)) {
+        step.process(bundle);
+        if (remaining.get(stepIndex).decrementAndGet() == 0) {
+          synchronized (jobPluginInfo) {
+            PluginHelper.updateJobInformationAsync(ingestPlugin, jobPluginInfo.incrementStepsCompletedByOne());
+          }
+        }
+      } else {
+        step.skip(bundle);
+      }
+    }
+
+    void await() throws JobException {
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        // stops the bundles still waiting
+        failure.compareAndSet(null, e);
+        throw new JobException("Interrupted while executing ingest steps", e);
+      }
+
+      Exception e = failure.get();
+      if (e instanceof JobException) {
+        throw (JobException) e;
+      } else if (e instanceof RuntimeException) {
+        throw (RuntimeException) e;
+      }
+    }
+  }
+
+  /**
+   * A bundle waiting for a step, ordered so that later steps come first and
+   * bundles of the same step in submission order.
+   */
+  private static final class StepTask implements Runnable, Comparable<StepTask> {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final int stepIndex;
+    private final long sequence = SEQUENCE.incrementAndGet();
+    private final Runnable task;
+
+    StepTask(int stepIndex, Runnable task) {
+      this.stepIndex = stepIndex;
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      task.run();
+    }
+
+    @Override
+    public int compareTo(StepTask other) {
+      int compare = Integer.compare(other.stepIndex, stepIndex);
+      return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  private static class PipelineThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "Ingest pipeline " + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
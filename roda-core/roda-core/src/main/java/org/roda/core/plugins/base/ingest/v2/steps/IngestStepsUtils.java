@@ -8,6 +8,7 @@
 package org.roda.core.plugins.base.ingest.v2.steps;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -43,9 +44,12 @@ public class IngestStepsUtils {
   public static void executePlugin(IngestStepBundle bundle, IngestStep step) {
     if (!step.needsAips() || !bundle.getAips().isEmpty()) {
       Report pluginReport = IngestStepsUtils.executeStep(bundle, step);
-      mergeReports(bundle.getJobPluginInfo(), pluginReport);
-      if (step.needsAips()) {
-        recalculateAIPsList(bundle, step);
+      // job plugin info is shared by the SIPs of a pipelined ingest
+      synchronized (bundle.getJobPluginInfo()) {
+        mergeReports(bundle.getJobPluginInfo(), pluginReport);
+        if (step.needsAips()) {
+          recalculateAIPsList(bundle, step);
+        }
       }
     }
   }
@@ -59,8 +63,10 @@ public class IngestStepsUtils {
     }
 
     // set outcome_object_id > source_object_id relation
-    mergedParams.put(RodaConstants.PLUGIN_PARAMS_OUTCOMEOBJECTID_TO_SOURCEOBJECTID_MAP,
-      JsonUtils.getJsonFromObject(bundle.getJobPluginInfo().getAipIdToTransferredResourceIds()));
+    synchronized (bundle.getJobPluginInfo()) {
+      mergedParams.put(RodaConstants.PLUGIN_PARAMS_OUTCOMEOBJECTID_TO_SOURCEOBJECTID_MAP,
+        JsonUtils.getJsonFromObject(bundle.getJobPluginInfo().getAipIdToTransferredResourceIds()));
+    }
 
     try {
       plugin.setParameterValues(mergedParams);
@@ -105,7 +111,8 @@ public class IngestStepsUtils {
 
   /**
    * Recalculates (if failures must be noticed) and updates AIP objects (by
-   * obtaining them from model)
+   * obtaining them from model). Only the transferred resources with AIPs in
+   * the bundle scope, if any, are considered.
    */
   public static void recalculateAIPsList(IngestStepBundle bundle, IngestStep step) {
     bundle.getAips().clear();
@@ -121,6 +128,11 @@ public class IngestStepsUtils {
       transferredResourceAips = new HashSet<>();
       oneTransferredResourceAipFailed = false;
 
+      if (bundle.getScopeAipIds() != null
+        && Collections.disjoint(jobPluginInfo.getAipIds(transferredResourceId), bundle.getScopeAipIds())) {
+        continue;
+      }
+
       if (jobPluginInfo.getAipIds(transferredResourceId) != null) {
         for (String aipId : jobPluginInfo.getAipIds(transferredResourceId)) {
           Report aipReport = transferredResourcejobPluginInfoEntry.getValue().get(aipId);
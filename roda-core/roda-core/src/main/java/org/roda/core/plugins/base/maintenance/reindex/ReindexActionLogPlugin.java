@@ -7,17 +7,24 @@
  */
 package org.roda.core.plugins.base.maintenance.reindex;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.common.iterables.CloseableIterable;
 
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.InvalidParameterException;
+import org.roda.core.data.exceptions.JobException;
 import org.roda.core.data.exceptions.LogEntryJsonParseException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.v2.LiteOptionalWithCause;
@@ -31,6 +38,7 @@ import org.roda.core.data.v2.jobs.PluginType;
 import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.data.v2.log.LogEntry;
 import org.roda.core.index.IndexService;
+import org.roda.core.index.StorageReindexer;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.AbstractPlugin;
 import org.roda.core.plugins.Plugin;
@@ -134,16 +142,40 @@ public class ReindexActionLogPlugin extends AbstractPlugin<Void> {
       @Override
       public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
         JobPluginInfo jobPluginInfo, Plugin<Void> plugin) {
-        reindexActionLogs(index, model, report, cachedJob, jobPluginInfo);
+        reindexActionLogs(index, model, storage, report, cachedJob, jobPluginInfo);
       }
     }, index, model, storage);
   }
 
-  private void reindexActionLogs(IndexService index, ModelService model, Report report, Job job,
-    JobPluginInfo jobPluginInfo) {
+  private void reindexActionLogs(IndexService index, ModelService model, StorageService storage, Report report,
+    Job job, JobPluginInfo jobPluginInfo) {
     report.setPluginState(PluginState.SUCCESS);
 
-    for (OptionalWithCause<LogEntry> logEntry : model.listLogEntries(dontReindexOlderThanXDays)) {
+    // log files already moved to storage are parsed and indexed in parallel
+    try {
+      index.reindexAll(storage, LogEntry.class,
+        resource -> model.isToIndex(resource.getStoragePath().getName(), dontReindexOlderThanXDays),
+        new JobReindexListener(model, report, job, jobPluginInfo));
+    } catch (RODAException | IOException e) {
+      LOGGER.error("Error reindexing action logs from storage", e);
+      report.setPluginState(PluginState.FAILURE)
+        .setPluginDetails("Error reindexing action logs from storage: " + e.getMessage());
+    }
+
+    CloseableIterable<OptionalWithCause<LogEntry>> logEntries = model
+      .listLogEntriesNotInStorage(dontReindexOlderThanXDays);
+    if (logEntries != null) {
+      try {
+        reindexLogEntries(index, model, logEntries, report, job, jobPluginInfo);
+      } finally {
+        IOUtils.closeQuietly(logEntries);
+      }
+    }
+  }
+
+  private void reindexLogEntries(IndexService index, ModelService model,
+    Iterable<OptionalWithCause<LogEntry>> logEntries, Report report, Job job, JobPluginInfo jobPluginInfo) {
+    for (OptionalWithCause<LogEntry> logEntry : logEntries) {
       jobPluginInfo.incrementObjectsCount();
 
       if (logEntry.isPresent()) {
@@ -199,6 +231,62 @@ public class ReindexActionLogPlugin extends AbstractPlugin<Void> {
     }
   }
 
+  /**
+   * Updates the job with the progress of the parallel reindex, which is
+   * reported from the reindex worker threads.
+   */
+  private class JobReindexListener implements StorageReindexer.Listener {
+    private final ModelService model;
+    private final Report report;
+    private final Job job;
+    private final JobPluginInfo jobPluginInfo;
+
+    JobReindexListener(ModelService model, Report report, Job job, JobPluginInfo jobPluginInfo) {
+      this.model = model;
+      this.report = report;
+      this.job = job;
+      this.jobPluginInfo = jobPluginInfo;
+    }
+
+    @Override
+    public void objectsFound(int count) {
+      synchronized (jobPluginInfo) {
+        jobPluginInfo.incrementObjectsCount(count);
+      }
+    }
+
+    @Override
+    public void objectsProcessed(int succeeded, int failed) {
+      synchronized (jobPluginInfo) {
+        jobPluginInfo.incrementObjectsProcessedWithSuccess(succeeded);
+        jobPluginInfo.incrementObjectsProcessedWithFailure(failed);
+      }
+    }
+
+    @Override
+    public void objectFailed(String id, String message) {
+      Report reportItem = PluginHelper.initPluginReportItem(ReindexActionLogPlugin.this, IdUtils.createUUID(id),
+        LogEntry.class);
+      reportItem.setPluginState(PluginState.FAILURE)
+        .setPluginDetails("Error when indexing action log " + id + ": " + message);
+      synchronized (report) {
+        report.addReport(reportItem);
+      }
+      PluginHelper.updatePartialJobReport(ReindexActionLogPlugin.this, model, reportItem, false, job);
+    }
+
+    @Override
+    public void progress(long processedFiles, long listedFiles, Optional<Duration> estimatedTimeLeft) {
+      synchronized (jobPluginInfo) {
+        try {
+          PluginHelper.updateJobInformationAsync(ReindexActionLogPlugin.this, jobPluginInfo);
+        } catch (JobException e) {
+          LOGGER.debug("Error updating job information", e);
+        }
+      }
+    }
+  }
+
   @Override
   public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
     throws PluginException {
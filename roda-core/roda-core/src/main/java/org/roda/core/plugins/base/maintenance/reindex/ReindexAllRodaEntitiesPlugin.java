@@ -7,16 +7,27 @@
  */
 package org.roda.core.plugins.base.maintenance.reindex;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.InvalidParameterException;
 import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.NotSupportedException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.v2.IsRODAObject;
+import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.LiteOptionalWithCause;
 import org.roda.core.data.v2.Void;
 import org.roda.core.data.v2.index.select.SelectedItemsAll;
@@ -24,12 +35,15 @@ import org.roda.core.data.v2.index.select.SelectedItemsNone;
 import org.roda.core.data.v2.ip.TransferredResource;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationAgent;
 import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.PluginParameter;
+import org.roda.core.data.v2.jobs.PluginParameter.PluginParameterType;
 import org.roda.core.data.v2.jobs.PluginState;
 import org.roda.core.data.v2.jobs.PluginType;
 import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.data.v2.log.LogEntry;
 import org.roda.core.data.v2.user.RODAMember;
 import org.roda.core.index.IndexService;
+import org.roda.core.index.schema.SolrCollectionRegistry;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.AbstractPlugin;
 import org.roda.core.plugins.Plugin;
@@ -44,6 +58,19 @@ import org.slf4j.LoggerFactory;
 
 public class ReindexAllRodaEntitiesPlugin extends AbstractPlugin<Void> {
   private static final Logger LOGGER = LoggerFactory.getLogger(ReindexAllRodaEntitiesPlugin.class);
+  private static final int DEFAULT_BLUE_GREEN_TIMEOUT_MINUTES = 1440;
+  private static final long JOB_POLL_INTERVAL_MILLIS = 5000;
+  private boolean blueGreen = false;
+
+  private static Map<String, PluginParameter> pluginParameters = new HashMap<>();
+
+  static {
+    pluginParameters.put(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN,
+      new PluginParameter(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN, "Blue/green reindex", PluginParameterType.BOOLEAN,
+        "false", false, false,
+        "Rebuild indexes into new collections that replace the current ones only when complete, so that the current "
+          + "indexes remain searchable meanwhile (requires Solr Cloud)."));
+  }
 
   @Override
   public void init() throws PluginException {
@@ -72,6 +99,21 @@ public class ReindexAllRodaEntitiesPlugin extends AbstractPlugin<Void> {
     return "1.0";
   }
 
+  @Override
+  public List<PluginParameter> getParameters() {
+    ArrayList<PluginParameter> parameters = new ArrayList<>();
+    parameters.add(pluginParameters.get(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN));
+    return parameters;
+  }
+
+  @Override
+  public void setParameterValues(Map<String, String> parameters) throws InvalidParameterException {
+    super.setParameterValues(parameters);
+    if (parameters != null && parameters.containsKey(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN)) {
+      blueGreen = Boolean.parseBoolean(parameters.get(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN));
+    }
+  }
+
   @Override
   public Report execute(IndexService index, ModelService model, StorageService storage,
     List<LiteOptionalWithCause> list) throws PluginException {
@@ -80,7 +122,11 @@ public class ReindexAllRodaEntitiesPlugin extends AbstractPlugin<Void> {
       @Override
       public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
         JobPluginInfo jobPluginInfo, Plugin<Void> plugin) {
-        reindexAll(model, report, jobPluginInfo, cachedJob, classes);
+        if (blueGreen) {
+          reindexAllBlueGreen(index, model, report, jobPluginInfo, cachedJob, classes);
+        } else {
+          reindexAll(model, report, jobPluginInfo, cachedJob, classes);
+        }
       }
     }, index, model, storage, classes.size());
   }
@@ -89,7 +135,7 @@ public class ReindexAllRodaEntitiesPlugin extends AbstractPlugin<Void> {
     List<Class<? extends IsRODAObject>> classes) {
 
     for (Class<? extends IsRODAObject> reindexClass : classes) {
-      Report reportItem = reindexRODAObject(model, reindexClass, jobPluginInfo);
+      Report reportItem = reindexRODAObject(model, reindexClass, jobPluginInfo, false);
       if (reportItem != null) {
         pluginReport.addReport(reportItem);
         PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
@@ -99,8 +145,140 @@ public class ReindexAllRodaEntitiesPlugin extends AbstractPlugin<Void> {
     pluginReport.setPluginState(PluginState.SUCCESS);
   }
 
+  /**
+   * Reindexes the entities with source objects into shadow collections, which
+   * replace the current collections if all reindex jobs succeed. The other
+   * entities are reindexed in place.
+   */
+  private void reindexAllBlueGreen(IndexService index, ModelService model, Report pluginReport,
+    JobPluginInfo jobPluginInfo, Job job, List<Class<? extends IsRODAObject>> classes) {
+    try {
+      index.startBlueGreenReindex(getShadowIndexNames(classes));
+    } catch (GenericException | NotSupportedException | AuthorizationDeniedException e) {
+      LOGGER.error("Error creating shadow collections", e);
+      pluginReport.setPluginState(PluginState.FAILURE)
+        .setPluginDetails("Could not create the new indexes: " + e.getMessage());
+      return;
+    }
+
+    // jobs reindexing into shadow collections run in parallel and are checked
+    // when all of them have ended, by job id
+    Map<String, Report> shadowJobs = new LinkedHashMap<>();
+    boolean rebuilt = true;
+    for (Class<? extends IsRODAObject> reindexClass : classes) {
+      Report reportItem = reindexRODAObject(model, reindexClass, jobPluginInfo, hasSourceObjects(reindexClass));
+      if (reportItem != null) {
+        if (PluginState.RUNNING.equals(reportItem.getPluginState())) {
+          shadowJobs.put(reportItem.getOutcomeObjectId(), reportItem);
+        } else {
+          pluginReport.addReport(reportItem);
+          PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+          rebuilt = rebuilt && PluginState.SUCCESS.equals(reportItem.getPluginState());
+        }
+      }
+    }
+    rebuilt = waitForShadowJobs(model, pluginReport, jobPluginInfo, job, shadowJobs) && rebuilt;
+
+    try {
+      if (rebuilt) {
+        index.finishBlueGreenReindex();
+        pluginReport.setPluginState(PluginState.SUCCESS);
+      } else {
+        index.abortBlueGreenReindex();
+        pluginReport.setPluginState(PluginState.FAILURE)
+          .setPluginDetails("Some indexes were not rebuilt, the current indexes were kept");
+      }
+    } catch (GenericException | AuthorizationDeniedException e) {
+      LOGGER.error("Error replacing indexes by the rebuilt ones", e);
+      abortBlueGreenReindex(index);
+      pluginReport.setPluginState(PluginState.FAILURE)
+        .setPluginDetails("The current indexes were kept: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Waits for the jobs reindexing into shadow collections to end, as those can
+   * only be swapped or deleted when no job writes to them anymore. Jobs still
+   * running after the blue/green timeout are stopped.
+   *
+   * @return true if all the jobs completed without failures.
+   */
+  private boolean waitForShadowJobs(ModelService model, Report pluginReport, JobPluginInfo jobPluginInfo, Job job,
+    Map<String, Report> shadowJobs) {
+    long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(RodaCoreFactory.getRodaConfiguration()
+      .getInt(RodaConstants.SOLR_BLUE_GREEN_TIMEOUT_MINUTES, DEFAULT_BLUE_GREEN_TIMEOUT_MINUTES));
+    boolean rebuilt = true;
+    boolean interrupted = false;
+
+    for (Map.Entry<String, Report> shadowJob : shadowJobs.entrySet()) {
+      String jobId = shadowJob.getKey();
+      Report reportItem = shadowJob.getValue();
+      Job reindexJob = null;
+      boolean stopped = false;
+
+      while (reindexJob == null || !reindexJob.isInFinalState()) {
+        try {
+          reindexJob = model.retrieveJob(jobId);
+          if (!reindexJob.isInFinalState() && !stopped && (interrupted || System.currentTimeMillis() > deadline)) {
+            LOGGER.warn("Stopping job {} that did not end in time to replace the indexes", jobId);
+            RodaCoreFactory.getPluginOrchestrator().stopJobAsync(reindexJob);
+            stopped = true;
+          }
+        } catch (RODAException e) {
+          LOGGER.error("Error retrieving job {}", jobId, e);
+        }
+
+        if (reindexJob == null || !reindexJob.isInFinalState()) {
+          try {
+            Thread.sleep(JOB_POLL_INTERVAL_MILLIS);
+          } catch (InterruptedException e) {
+            // stop the jobs, but still wait for them to end
+            interrupted = true;
+          }
+        }
+      }
+
+      if (isCompletedWithoutFailures(reindexJob)) {
+        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+        reportItem.setPluginState(PluginState.SUCCESS).setPluginDetails(reindexJob.getName() + " ran successfully");
+      } else {
+        jobPluginInfo.incrementObjectsProcessedWithFailure();
+        reportItem.setPluginState(PluginState.FAILURE)
+          .setPluginDetails(reindexJob.getName() + " did not run successfully");
+        rebuilt = false;
+      }
+      pluginReport.addReport(reportItem);
+      PluginHelper.updatePartialJobReport(this, model, reportItem, true, job);
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    return rebuilt;
+  }
+
+  private List<String> getShadowIndexNames(List<Class<? extends IsRODAObject>> classes)
+    throws NotSupportedException {
+    Set<String> indexNames = new LinkedHashSet<>();
+    for (Class<? extends IsRODAObject> reindexClass : classes) {
+      if (hasSourceObjects(reindexClass)) {
+        Class<IsIndexed> indexClass = SolrCollectionRegistry.giveRespectiveIndexClass(reindexClass);
+        indexNames.addAll(SolrCollectionRegistry.getCommitIndexNames(indexClass));
+      }
+    }
+    return new ArrayList<>(indexNames);
+  }
+
+  private void abortBlueGreenReindex(IndexService index) {
+    try {
+      index.abortBlueGreenReindex();
+    } catch (GenericException e) {
+      LOGGER.error("Error deleting shadow collections", e);
+    }
+  }
+
   private Report reindexRODAObject(ModelService model, Class<? extends IsRODAObject> reindexClass,
-    JobPluginInfo jobPluginInfo) {
+    JobPluginInfo jobPluginInfo, boolean inShadow) {
     LOGGER.debug("Creating job to reindexing all {}", reindexClass.getSimpleName());
     Report report = null;
 
@@ -111,10 +289,15 @@ public class ReindexAllRodaEntitiesPlugin extends AbstractPlugin<Void> {
 
       try {
         String username = PluginHelper.getJobUsername(this, model);
-        Job job = initReindexJob(reindexClass, jobId, jobName, username);
+        Job job = initReindexJob(reindexClass, jobId, jobName, username, inShadow);
         PluginHelper.createAndExecuteJob(job);
-        jobPluginInfo.incrementObjectsProcessedWithSuccess();
-        report.setPluginState(PluginState.SUCCESS).setPluginDetails(jobName + " ran successfully");
+        if (inShadow) {
+          // checked when it ends
+          report.setPluginState(PluginState.RUNNING);
+        } else {
+          jobPluginInfo.incrementObjectsProcessedWithSuccess();
+          report.setPluginState(PluginState.SUCCESS).setPluginDetails(jobName + " ran successfully");
+        }
       } catch (RODAException e) {
         LOGGER.error("Error creating job to reindex all {}", reindexClass.getSimpleName(), e);
         jobPluginInfo.incrementObjectsProcessedWithFailure();
@@ -127,30 +310,47 @@ public class ReindexAllRodaEntitiesPlugin extends AbstractPlugin<Void> {
     return report;
   }
 
+  /**
+   * Shadow collections are only verified by their number of documents, so
+   * reindex jobs into them must have no failures.
+   */
+  private static boolean isCompletedWithoutFailures(Job executedJob) {
+    return Job.JOB_STATE.COMPLETED.equals(executedJob.getState())
+      && executedJob.getJobStats().getSourceObjectsProcessedWithFailure() == 0;
+  }
+
   private <T extends IsRODAObject> Job initReindexJob(Class<T> reindexClass, String jobId, String jobName,
-    String username) throws NotFoundException {
+    String username, boolean inShadow) throws NotFoundException {
     Job job = new Job();
     job.setId(jobId);
     job.setName(jobName);
 
     Map<String, String> pluginParameters = new HashMap<>();
-    pluginParameters.put(RodaConstants.PLUGIN_PARAMS_CLEAR_INDEXES, "true");
+    if (inShadow) {
+      pluginParameters.put(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN, "true");
+    } else {
+      pluginParameters.put(RodaConstants.PLUGIN_PARAMS_CLEAR_INDEXES, "true");
+    }
     job.setPluginParameters(pluginParameters);
     job.setPluginType(PluginType.MISC);
     job.setUsername(username);
 
     job.setPlugin(PluginHelper.getReindexPluginName(reindexClass));
 
-    if (TransferredResource.class.equals(reindexClass) || LogEntry.class.equals(reindexClass)
-      || RODAMember.class.equals(reindexClass) || IndexedPreservationAgent.class.equals(reindexClass)) {
-      job.setSourceObjects(SelectedItemsNone.create());
-    } else {
+    if (hasSourceObjects(reindexClass)) {
       job.setSourceObjects(SelectedItemsAll.create(reindexClass));
+    } else {
+      job.setSourceObjects(SelectedItemsNone.create());
     }
 
     return job;
   }
 
+  private static boolean hasSourceObjects(Class<? extends IsRODAObject> reindexClass) {
+    return !(TransferredResource.class.equals(reindexClass) || LogEntry.class.equals(reindexClass)
+      || RODAMember.class.equals(reindexClass) || IndexedPreservationAgent.class.equals(reindexClass));
+  }
+
   @Override
   public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
     throws PluginException {
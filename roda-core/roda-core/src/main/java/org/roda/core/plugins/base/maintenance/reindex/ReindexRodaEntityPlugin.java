@@ -39,6 +39,7 @@ import org.roda.core.data.v2.jobs.PluginType;
 import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.index.IndexService;
 import org.roda.core.index.schema.SolrCollectionRegistry;
+import org.roda.core.index.utils.SolrShadowCollections;
 import org.roda.core.model.ModelObserver;
 import org.roda.core.model.ModelService;
 import org.roda.core.plugins.AbstractPlugin;
@@ -55,6 +56,7 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
   private static final Logger LOGGER = LoggerFactory.getLogger(ReindexRodaEntityPlugin.class);
   private boolean clearIndexes = false;
   private boolean optimizeIndexes = false;
+  private boolean blueGreen = false;
 
   private static Map<String, PluginParameter> pluginParameters = new HashMap<>();
 
@@ -66,6 +68,11 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
     pluginParameters.put(RodaConstants.PLUGIN_PARAMS_OPTIMIZE_INDEXES,
       new PluginParameter(RodaConstants.PLUGIN_PARAMS_OPTIMIZE_INDEXES, "Optimize indexes", PluginParameterType.BOOLEAN,
         "true", false, false, "Optimize indexes after reindexing them."));
+
+    pluginParameters.put(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN,
+      new PluginParameter(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN, "Blue/green reindex", PluginParameterType.BOOLEAN,
+        "false", false, false,
+        "Reindex into the shadow collections of a blue/green reindex, instead of the live indexes."));
   }
 
   @Override
@@ -108,6 +115,10 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
     if (parameters != null && parameters.containsKey(RodaConstants.PLUGIN_PARAMS_OPTIMIZE_INDEXES)) {
       optimizeIndexes = Boolean.parseBoolean(parameters.get(RodaConstants.PLUGIN_PARAMS_OPTIMIZE_INDEXES));
     }
+
+    if (parameters != null && parameters.containsKey(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN)) {
+      blueGreen = Boolean.parseBoolean(parameters.get(RodaConstants.PLUGIN_PARAMS_BLUE_GREEN));
+    }
   }
 
   @Override
@@ -138,6 +149,18 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
     }
 
     // executing reindex
+    if (blueGreen) {
+      SolrShadowCollections.startRebuildWrites();
+    }
+    try {
+      reindexObjects(index, model, pluginReport, jobPluginInfo, job, list);
+    } finally {
+      SolrShadowCollections.endRebuildWrites();
+    }
+  }
+
+  private void reindexObjects(IndexService index, ModelService model, Report pluginReport,
+    JobPluginInfo jobPluginInfo, Job job, List<T> list) {
     for (T object : list) {
       if (LOGGER.isTraceEnabled()) {
         LOGGER.trace("Reindexing {} {}", object.getClass().getSimpleName(), object.getId());
@@ -172,7 +195,8 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
   @Override
   public Report beforeAllExecute(IndexService index, ModelService model, StorageService storage)
     throws PluginException {
-    if (clearIndexes) {
+    // shadow collections are created empty
+    if (clearIndexes && !blueGreen) {
       LOGGER.debug("Clearing indexes");
       try {
         Job job = PluginHelper.getJob(this, index);
@@ -199,7 +223,7 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
   @Override
   public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
     LOGGER.debug("Optimizing indexes");
-    if (optimizeIndexes) {
+    if (optimizeIndexes && !blueGreen) {
       try {
         Job job = PluginHelper.getJob(this, index);
         Class<? extends IsIndexed> selectedClass = (Class<? extends IsIndexed>) Class
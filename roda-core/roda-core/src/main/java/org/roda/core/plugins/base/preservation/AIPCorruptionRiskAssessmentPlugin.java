@@ -8,7 +8,6 @@
 package org.roda.core.plugins.base.preservation;
 
 import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -16,8 +15,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.lang3.StringUtils;
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.PremisV3Utils;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.common.RodaConstants;
@@ -65,15 +67,17 @@ import org.roda.core.plugins.PluginHelper;
 import org.roda.core.plugins.RODAObjectProcessingLogic;
 import org.roda.core.plugins.orchestrate.JobPluginInfo;
 import org.roda.core.storage.Binary;
+import org.roda.core.storage.FixityEngine;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fs.FSUtils;
-import org.roda.core.util.FileUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
   private static final Logger LOGGER = LoggerFactory.getLogger(AIPCorruptionRiskAssessmentPlugin.class);
 
+  private static final int MAX_PENDING_FIXITY_CHECKS = 1000;
+
   private static List<String> risks;
 
   static {
@@ -130,9 +134,11 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
     boolean aipSkipped = false;
     List<LinkingIdentifier> sources = new ArrayList<>();
     ValidationReport validationReport = new ValidationReport();
+    FixityEngine fixityEngine = RodaCoreFactory.getFixityEngine();
     if (aip.getRepresentations() != null && !aip.getRepresentations().isEmpty()) {
       for (Representation r : aip.getRepresentations()) {
         LOGGER.debug("Checking fixity for files in representation {} of AIP {}", r.getId(), aip.getId());
+        List<FileFixityCheck> checks = new ArrayList<>();
 
         try (CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(), r.getId(), true)) {
           for (OptionalWithCause<File> oFile : allFiles) {
@@ -143,10 +149,18 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
                 if (FSUtils.isManifestOfExternalFiles(file.getId())) {
                   StorageService tmpStorageService = ModelUtils.resolveTemporaryResourceShallow(job.getId(), storage,
                     ModelUtils.getAIPStoragePath(aip.getId()));
+                  List<FileFixityCheck> shallowChecks = new ArrayList<>();
                   for (OptionalWithCause<File> fileShallow : model.listExternalFilesUnder(file)) {
-                    processFilesShallow(index, model, tmpStorageService, validationReport, sources, aipFailed, aip,
-                      fileShallow.get());
+                    FileFixityCheck check = submitFixityCheck(index, model, tmpStorageService, fixityEngine,
+                      validationReport, sources, aip, fileShallow.get());
+                    if (check == null) {
+                      aipFailed = true;
+                    } else {
+                      shallowChecks.add(check);
+                    }
                   }
+                  // temporary resources must be read before being removed
+                  aipFailed |= !verifyFixityChecks(model, index, validationReport, shallowChecks);
                   try {
                     if (!job.getPluginType().equals(PluginType.INGEST)) {
                       ModelUtils.removeTemporaryResourceShallow(job.getId(), ModelUtils.getAIPStoragePath(aip.getId()));
@@ -155,78 +169,23 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
                     LOGGER.error("Error on removing temporary AIP " + aip.getId(), e);
                   }
                 } else {
-                  StoragePath storagePath = ModelUtils.getFileStoragePath(file);
-                  Binary currentFileBinary = storage.getBinary(storagePath);
-                  List<Fixity> fixities = null;
-
-                  try {
-                    Binary premisFile = model.retrievePreservationFile(file);
-                    fixities = PremisV3Utils.extractFixities(premisFile);
-                  } catch (NotFoundException e) {
-                    ValidationIssue issue = new ValidationIssue(
-                      "File " + file.getId() + " of representation " + file.getRepresentationId() + " of AIP "
-                        + file.getAipId() + " was found but the PREMIS file does not exist");
-                    validationReport.addIssue(issue);
-                  }
-
-                  sources.add(PluginHelper.getLinkingIdentifier(aip.getId(), file.getRepresentationId(), file.getPath(),
-                    file.getId(), RodaConstants.PRESERVATION_LINKING_OBJECT_SOURCE));
-
-                  if (fixities != null) {
-                    boolean passedFixity = true;
-
-                    // get all necessary hash algorithms
-                    Set<String> algorithms = new HashSet<>();
-                    for (Fixity f : fixities) {
-                      algorithms.add(f.getMessageDigestAlgorithm());
-                    }
-
-                    // calculate hashes
-                    try {
-                      Map<String, String> checksums = FileUtility
-                        .checksums(currentFileBinary.getContent().createInputStream(), algorithms);
-
-                      for (Fixity f : fixities) {
-                        String checksum = checksums.get(f.getMessageDigestAlgorithm());
-
-                        if (!f.getMessageDigest().trim().equalsIgnoreCase(checksum.trim())) {
-                          passedFixity = false;
-
-                          String fileEntry = file.getRepresentationId()
-                            + (file.getPath().isEmpty() ? "" : '/' + String.join("/", file.getPath())) + '/'
-                            + file.getId();
-                          ValidationIssue issue = new ValidationIssue(
-                            fileEntry + " (Checksums: [" + f.getMessageDigest().trim() + ", " + checksum.trim() + "])");
-                          validationReport.addIssue(issue);
-
-                          break;
-                        }
-                      }
-                    } catch (NoSuchAlgorithmException | IOException e) {
-                      passedFixity = false;
-                      ValidationIssue issue = new ValidationIssue("Could not check fixity: " + e.getMessage());
-                      validationReport.addIssue(issue);
-                      LOGGER.debug("Could not check fixity", e);
-                    }
-
-                    if (passedFixity) {
-                      updateIncidence(model, index, file.getAipId(), file.getRepresentationId(), file.getPath(),
-                        file.getId(), risks.get(0));
-                    } else {
-                      aipFailed = true;
-                      createIncidence(model, index, file.getAipId(), file.getRepresentationId(), file.getPath(),
-                        file.getId(), risks.get(0));
-                    }
-                  } else {
+                  FileFixityCheck check = submitFixityCheck(index, model, storage, fixityEngine, validationReport,
+                    sources, aip, file);
+                  if (check == null) {
                     aipFailed = true;
-                    createIncidence(model, index, file.getAipId(), file.getRepresentationId(), file.getPath(),
-                      file.getId(), risks.get(0));
+                  } else {
+                    checks.add(check);
+                    if (checks.size() >= MAX_PENDING_FIXITY_CHECKS) {
+                      aipFailed |= !verifyFixityChecks(model, index, validationReport, checks);
+                    }
                   }
                 }
               }
             }
           }
 
+          aipFailed |= !verifyFixityChecks(model, index, validationReport, checks);
+
           CloseableIterable<OptionalWithCause<PreservationMetadata>> pmList = model
             .listPreservationMetadata(aip.getId(), r.getId());
 
@@ -251,6 +210,7 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
           }
         } catch (IOException | RODAException e) {
           LOGGER.error("Error processing representation {}", r.getId(), e);
+          checks.forEach(check -> check.checksums.cancel(true));
         }
       }
     } else {
@@ -285,8 +245,15 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
     }
   }
 
-  private void processFilesShallow(IndexService index, ModelService model, StorageService storage,
-    ValidationReport validationReport, List<LinkingIdentifier> sources, boolean aipFailed, AIP aip, File file)
+  /**
+   * Reads the fixity information of the file and submits the computation of its
+   * checksums to the fixity engine, so that several files are read in parallel.
+   *
+   * @return the pending check or {@code null} if the file has no fixity
+   *         information (an incidence is created right away).
+   */
+  private FileFixityCheck submitFixityCheck(IndexService index, ModelService model, StorageService storage,
+    FixityEngine fixityEngine, ValidationReport validationReport, List<LinkingIdentifier> sources, AIP aip, File file)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException,
     AlreadyExistsException {
     StoragePath storagePath = ModelUtils.getFileStoragePath(file);
@@ -305,21 +272,40 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
     sources.add(PluginHelper.getLinkingIdentifier(aip.getId(), file.getRepresentationId(), file.getPath(), file.getId(),
       RodaConstants.PRESERVATION_LINKING_OBJECT_SOURCE));
 
-    if (fixities != null) {
-      boolean passedFixity = true;
+    if (fixities == null) {
+      createIncidence(model, index, file.getAipId(), file.getRepresentationId(), file.getPath(), file.getId(),
+        risks.get(0));
+      return null;
+    }
 
-      // get all necessary hash algorithms
-      Set<String> algorithms = new HashSet<>();
-      for (Fixity f : fixities) {
-        algorithms.add(f.getMessageDigestAlgorithm());
-      }
+    // get all necessary hash algorithms
+    Set<String> algorithms = new HashSet<>();
+    for (Fixity f : fixities) {
+      algorithms.add(f.getMessageDigestAlgorithm());
+    }
+
+    return new FileFixityCheck(file, fixities, fixityEngine.submit(currentFileBinary.getContent(), algorithms));
+  }
+
+  /**
+   * Waits for the pending checks (in submission order), compares the computed
+   * checksums with the fixity information and updates the incidences. The list
+   * is emptied.
+   *
+   * @return {@code true} if all files passed the fixity check.
+   */
+  private boolean verifyFixityChecks(ModelService model, IndexService index, ValidationReport validationReport,
+    List<FileFixityCheck> checks) throws RequestNotValidException, GenericException, NotFoundException,
+    AuthorizationDeniedException, AlreadyExistsException {
+    boolean allPassed = true;
+    for (FileFixityCheck check : checks) {
+      File file = check.file;
+      boolean passedFixity = true;
 
-      // calculate hashes
       try {
-        Map<String, String> checksums = FileUtility.checksums(currentFileBinary.getContent().createInputStream(),
-          algorithms);
+        Map<String, String> checksums = check.checksums.get();
 
-        for (Fixity f : fixities) {
+        for (Fixity f : check.fixities) {
           String checksum = checksums.get(f.getMessageDigestAlgorithm());
 
           if (!f.getMessageDigest().trim().equalsIgnoreCase(checksum.trim())) {
@@ -334,26 +320,28 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
             break;
           }
         }
-      } catch (NoSuchAlgorithmException | IOException e) {
+      } catch (ExecutionException e) {
         passedFixity = false;
-        ValidationIssue issue = new ValidationIssue("Could not check fixity: " + e.getMessage());
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        ValidationIssue issue = new ValidationIssue("Could not check fixity: " + cause.getMessage());
         validationReport.addIssue(issue);
-        LOGGER.debug("Could not check fixity", e);
+        LOGGER.debug("Could not check fixity", cause);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new GenericException("Interrupted while checking fixity", e);
       }
 
       if (passedFixity) {
         updateIncidence(model, index, file.getAipId(), file.getRepresentationId(), file.getPath(), file.getId(),
           risks.get(0));
       } else {
-        aipFailed = true;
+        allPassed = false;
         createIncidence(model, index, file.getAipId(), file.getRepresentationId(), file.getPath(), file.getId(),
           risks.get(0));
       }
-    } else {
-      aipFailed = true;
-      createIncidence(model, index, file.getAipId(), file.getRepresentationId(), file.getPath(), file.getId(),
-        risks.get(0));
     }
+    checks.clear();
+    return allPassed;
   }
 
   private void createIncidence(ModelService model, IndexService index, String aipId, String representationId,
@@ -476,4 +464,16 @@ public class AIPCorruptionRiskAssessmentPlugin extends AbstractPlugin<AIP> {
   public List<Class<AIP>> getObjectClasses() {
     return Arrays.asList(AIP.class);
   }
+
+  private static class FileFixityCheck {
+    private final File file;
+    private final List<Fixity> fixities;
+    private final CompletableFuture<Map<String, String>> checksums;
+
+    FileFixityCheck(File file, List<Fixity> fixities, CompletableFuture<Map<String, String>> checksums) {
+      this.file = file;
+      this.fixities = fixities;
+      this.checksums = checksums;
+    }
+  }
 }
@@ -35,7 +35,6 @@ import org.roda.core.data.exceptions.JobInErrorException;
 import org.roda.core.data.exceptions.JobIsStoppingException;
 import org.roda.core.data.exceptions.LockingException;
 import org.roda.core.data.exceptions.NotFoundException;
-import org.roda.core.data.exceptions.NotLockableAtTheTimeException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.LiteOptionalWithCause;
@@ -93,6 +92,7 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
 
   private ActorSystem jobsSystem;
   private ActorRef jobsManager;
+  private ObjectLockManager lockManager;
 
   // Map<jobId, ActorRef>
   private Map<String, ActorRef> runningJobs;
@@ -118,6 +118,8 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
     jobsSystem.eventStream().subscribe(jobsSystem.actorOf(Props.create(DeadLetterActor.class)), AllDeadLetters.class);
 
     jobsManager = jobsSystem.actorOf(Props.create(AkkaJobsManager.class, maxNumberOfJobsInParallel, maxNumberOfLimitedJobsInParallel), "jobsManager");
+    lockManager = new ObjectLockManager(RodaCoreFactory.getMetrics(), JobsHelper.getNumberOfLockStripes(),
+      JobsHelper::getLockTimeout);
 
   }
 
@@ -128,6 +130,7 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
 
   @Override
   public void shutdown() {
+    lockManager.shutdown();
     LOGGER.info("Going to shutdown JOBS actor system");
     Future<Terminated> terminate = jobsSystem.terminate();
     terminate.onComplete(new OnComplete<Terminated>() {
@@ -601,36 +604,26 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
   @Override
   public void acquireObjectLock(List<String> lites, int timeoutInSeconds, boolean waitForLockIfLocked,
     String requestUuid) throws LockingException {
-    Timeout timeout = new Timeout(Duration.create(timeoutInSeconds, "seconds"));
-
     if (StringUtils.isBlank(requestUuid)) {
       throw new LockingException("One must provide valid (i.e. non blank) request uuid!");
     }
 
-    Object result = null;
-    Future<Object> future = Patterns.ask(jobsManager,
-      Messages.newJobsManagerAcquireLock(lites, waitForLockIfLocked, timeoutInSeconds, requestUuid), timeout);
     try {
-      result = Await.result(future, timeout.duration());
-    } catch (Exception e) {
+      lockManager.acquire(lites, timeoutInSeconds, waitForLockIfLocked, requestUuid);
+    } catch (AcquireLockTimeoutException e) {
       LOGGER.error("Unable to acquire locks for the objects being processed '{}'", lites, e);
-      throw new AcquireLockTimeoutException("Unable to acquire locks for the objects being processed '" + lites + "'");
-    }
-
-    if (result != null && result instanceof Messages.JobsManagerNotLockableAtTheTime) {
-      throw new NotLockableAtTheTimeException(
-        "Not lockable at the time due to requester not willing to await to obtain the lock!");
+      throw e;
     }
   }
 
   @Override
   public void releaseObjectLockAsync(List<String> lites, String requestUuid) {
-    jobsManager.tell(Messages.newJobsManagerReleaseLock(lites, requestUuid), ActorRef.noSender());
+    lockManager.release(lites, requestUuid);
   }
 
   @Override
   public void releaseAllObjectLocksAsync() {
-    jobsManager.tell(Messages.newJobsManagerReleaseAllLocks(), ActorRef.noSender());
+    lockManager.releaseAll();
   }
 
 }
@@ -78,6 +78,9 @@ public final class JobsHelper {
   private static final String MAX_LIMITED_JOBS_IN_PARALLEL_PROPERTY = "core.orchestrator.max_limited_jobs_in_parallel";
   private static final String NUMBER_OF_LIMITED_JOB_WORKERS_PROPERTY = "core.orchestrator.nr_of_limited_jobs_workers";
   private static final int DEFAULT_NUMBER_OF_LIMITED_JOBS_WORKERS = 1;
+  private static final String LOCK_TIMEOUT_PROPERTY = "core.orchestrator.lock_timeout";
+  private static final int DEFAULT_LOCK_TIMEOUT = 600;
+  private static final String LOCK_STRIPES_PROPERTY = "core.orchestrator.lock_stripes";
 
   private static final String LINE_SEPARATOR = System.lineSeparator();
 
@@ -141,6 +144,14 @@ public final class JobsHelper {
     RodaCoreFactory.getRodaConfiguration().setProperty("core.orchestrator.lock_request_timeout", timeout);
   }
 
+  public static int getLockTimeout() {
+    return RodaCoreFactory.getRodaConfiguration().getInt(LOCK_TIMEOUT_PROPERTY, DEFAULT_LOCK_TIMEOUT);
+  }
+
+  public static int getNumberOfLockStripes() {
+    return RodaCoreFactory.getRodaConfiguration().getInt(LOCK_STRIPES_PROPERTY, ObjectLockManager.DEFAULT_STRIPES);
+  }
+
   public static <T extends IsRODAObject> void updateJobState(Plugin<T> plugin, ModelService model, JOB_STATE state,
     Optional<String> stateDetails) {
     try {
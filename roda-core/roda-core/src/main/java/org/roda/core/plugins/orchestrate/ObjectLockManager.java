@@ -0,0 +1,422 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.orchestrate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+import org.roda.core.data.exceptions.AcquireLockTimeoutException;
+import org.roda.core.data.exceptions.LockingException;
+import org.roda.core.data.exceptions.NotLockableAtTheTimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Object (lite) lock table used by the plugin orchestrator.
+ *
+ * <p>
+ * The table is split in stripes, each one guarded by its own lock, so requests
+ * for unrelated objects do not contend with each other. A request locks all its
+ * objects or none: stripes are always taken in ascending order to avoid
+ * deadlocks. Requests that have to wait register themselves only in the wait
+ * queues of the objects that are blocking them and are woken up when one of
+ * those objects is released.
+ * </p>
+ *
+ * <p>
+ * Locks are reentrant per request UUID, and a lock that is not refreshed (by
+ * being acquired again or partially released) during
+ * {@code core.orchestrator.lock_timeout} seconds is released automatically.
+ * </p>
+ */
+public class ObjectLockManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ObjectLockManager.class);
+
+  public static final String LOCK_REQUESTS_WAITING_TO_ACQUIRE_LOCK = "lockRequestsWaitingToAcquireLock";
+  public static final int DEFAULT_STRIPES = 64;
+  private static final long EXPIRED_LOCKS_CHECK_INTERVAL_MS = 2000;
+
+  private final ReentrantLock[] stripeLocks;
+  private final List<Map<String, LockInfo>> stripes;
+  // <RequestUUID, Set<Lite>>
+  private final Map<String, Set<String>> requestUuidLites = new ConcurrentHashMap<>();
+  private final IntSupplier lockTimeoutInSeconds;
+  private final Timer expiredLocksTimer;
+
+  // metrics
+  private final Counter lockRequestsWaitingToAcquireLock;
+  private final Histogram lockRequestsWaitingToAcquireLockHisto;
+  private final Counter objectsWaitingToAcquireLock;
+  private final Histogram objectsWaitingToAcquireLockHisto;
+  private final Meter contendedLockRequests;
+  private final Meter lockRequestsTimedOut;
+  private final Meter expiredLocks;
+  private final com.codahale.metrics.Timer lockWaitTime;
+
+  /**
+   * @param lockTimeoutInSeconds
+   *          supplies the number of seconds after which a lock that was not
+   *          refreshed is released (read on each check, so it can be changed at
+   *          runtime).
+   */
+  public ObjectLockManager(MetricRegistry metrics, int numberOfStripes, IntSupplier lockTimeoutInSeconds) {
+    int size = numberOfStripes > 0 ? numberOfStripes : DEFAULT_STRIPES;
+    this.stripeLocks = new ReentrantLock[size];
+    this.stripes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      stripeLocks[i] = new ReentrantLock();
+      stripes.add(new HashMap<>());
+    }
+    this.lockTimeoutInSeconds = lockTimeoutInSeconds;
+
+    String className = ObjectLockManager.class.getSimpleName();
+    lockRequestsWaitingToAcquireLock = metrics
+      .counter(MetricRegistry.name(className, LOCK_REQUESTS_WAITING_TO_ACQUIRE_LOCK));
+    lockRequestsWaitingToAcquireLockHisto = metrics
+      .histogram(MetricRegistry.name(className, "lockRequestsWaitingToAcquireLockHisto"));
+    objectsWaitingToAcquireLock = metrics.counter(MetricRegistry.name(className, "objectsWaitingToAcquireLock"));
+    objectsWaitingToAcquireLockHisto = metrics
+      .histogram(MetricRegistry.name(className, "objectsWaitingToAcquireLockHisto"));
+    contendedLockRequests = metrics.meter(MetricRegistry.name(className, "contendedLockRequests"));
+    lockRequestsTimedOut = metrics.meter(MetricRegistry.name(className, "lockRequestsTimedOut"));
+    expiredLocks = metrics.meter(MetricRegistry.name(className, "expiredLocks"));
+    lockWaitTime = metrics.timer(MetricRegistry.name(className, "lockWaitTime"));
+    metrics.gauge(MetricRegistry.name(className, "objectsLocked"), () -> (Gauge<Integer>) this::countLockedObjects);
+
+    expiredLocksTimer = new Timer("Object locks expiration timer", true);
+    expiredLocksTimer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        releaseExpiredLocks();
+      }
+    }, EXPIRED_LOCKS_CHECK_INTERVAL_MS, EXPIRED_LOCKS_CHECK_INTERVAL_MS);
+  }
+
+  /**
+   * Locks all the objects for the request or none of them.
+   *
+   * @param waitForLockIfLocked
+   *          if {@code false} and some object is locked by another request,
+   *          fails right away with {@link NotLockableAtTheTimeException}.
+   * @throws AcquireLockTimeoutException
+   *           if the objects could not be locked within the timeout.
+   */
+  public void acquire(List<String> lites, int timeoutInSeconds, boolean waitForLockIfLocked, String requestUuid)
+    throws LockingException {
+    int[] stripeIndexes = getStripeIndexes(lites);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutInSeconds);
+    Waiter waiter = null;
+    com.codahale.metrics.Timer.Context waitContext = null;
+
+    try {
+      while (true) {
+        List<LockInfo> blocking;
+        lockStripes(stripeIndexes);
+        try {
+          blocking = getBlockingLocks(lites, requestUuid);
+          if (blocking.isEmpty()) {
+            lock(lites, requestUuid);
+            return;
+          } else if (!waitForLockIfLocked) {
+            throw new NotLockableAtTheTimeException(
+              "Not lockable at the time due to requester not willing to await to obtain the lock!");
+          }
+
+          if (waiter == null) {
+            waiter = new Waiter();
+            waitContext = lockWaitTime.time();
+            contendedLockRequests.mark();
+            updateWaiting(lites.size(), true);
+          }
+          for (LockInfo lockInfo : blocking) {
+            lockInfo.waiters.add(waiter);
+          }
+        } finally {
+          unlockStripes(stripeIndexes);
+        }
+
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || !waiter.await(remaining)) {
+          lockRequestsTimedOut.mark();
+          LOGGER.warn("Deleting lock request for objects '{}' due to expire ({} seconds)", lites, timeoutInSeconds);
+          throw new AcquireLockTimeoutException(
+            "Unable to acquire locks for the objects being processed '" + lites + "'");
+        }
+      }
+    } finally {
+      if (waiter != null) {
+        waitContext.stop();
+        updateWaiting(lites.size(), false);
+        removeWaiter(lites, stripeIndexes, waiter);
+      }
+    }
+  }
+
+  /**
+   * Releases the objects locked by the request (one level of reentrancy for
+   * each object). If no objects are given, releases everything locked by the
+   * request.
+   */
+  public void release(List<String> lites, String requestUuid) {
+    if (lites.isEmpty()) {
+      Set<String> locked = requestUuidLites.remove(requestUuid);
+      if (locked != null) {
+        for (String lite : new ArrayList<>(locked)) {
+          releaseLite(lite, requestUuid, true);
+        }
+      }
+    } else {
+      for (String lite : lites) {
+        releaseLite(lite, requestUuid, false);
+      }
+    }
+  }
+
+  public void releaseAll() {
+    for (int i = 0; i < stripes.size(); i++) {
+      stripeLocks[i].lock();
+      try {
+        Map<String, LockInfo> stripe = stripes.get(i);
+        stripe.values().forEach(LockInfo::wakeUpWaiters);
+        stripe.clear();
+      } finally {
+        stripeLocks[i].unlock();
+      }
+    }
+    requestUuidLites.clear();
+  }
+
+  public void shutdown() {
+    expiredLocksTimer.cancel();
+  }
+
+  private void releaseLite(String lite, String requestUuid, boolean fully) {
+    ReentrantLock stripeLock = stripeLocks[getStripeIndex(lite)];
+    stripeLock.lock();
+    try {
+      Map<String, LockInfo> stripe = stripes.get(getStripeIndex(lite));
+      LockInfo lockInfo = stripe.get(lite);
+      if (lockInfo == null) {
+        if (!fully) {
+          LOGGER.warn("Trying to remove lock from object '{}' whose lock does not exist!", lite);
+        }
+      } else if (!lockInfo.requestUuid.equals(requestUuid)) {
+        if (!fully) {
+          LOGGER.warn("Trying to remove lock from object '{}' whose lock wasn't created by this requester (uuid={})",
+            lite, requestUuid);
+        }
+      } else if (!fully && lockInfo.reentrantAmount > 0) {
+        lockInfo.decreaseReentrantAmount();
+      } else {
+        stripe.remove(lite);
+        lockInfo.wakeUpWaiters();
+        Set<String> locked = requestUuidLites.get(requestUuid);
+        if (locked != null) {
+          locked.remove(lite);
+        }
+      }
+    } finally {
+      stripeLock.unlock();
+    }
+  }
+
+  private void releaseExpiredLocks() {
+    long lockTimeout = lockTimeoutInSeconds.getAsInt();
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < stripes.size(); i++) {
+      stripeLocks[i].lock();
+      try {
+        stripes.get(i).entrySet().removeIf(entry -> {
+          LockInfo lockInfo = entry.getValue();
+          if (lockInfo.releaseLockDueToExpire(now, lockTimeout)) {
+            LOGGER.warn("Releasing lock for object '{}' due to lock timeout ({} seconds; no lock release was issued)",
+              entry.getKey(), lockTimeout);
+            expiredLocks.mark();
+            lockInfo.wakeUpWaiters();
+            Set<String> locked = requestUuidLites.get(lockInfo.requestUuid);
+            if (locked != null) {
+              locked.remove(entry.getKey());
+            }
+            return true;
+          }
+          return false;
+        });
+      } catch (RuntimeException e) {
+        LOGGER.error("Error releasing expired locks", e);
+      } finally {
+        stripeLocks[i].unlock();
+      }
+    }
+  }
+
+  /**
+   * Must be called while holding the locks of the stripes of all the lites.
+   */
+  private List<LockInfo> getBlockingLocks(List<String> lites, String requestUuid) {
+    List<LockInfo> blocking = new ArrayList<>();
+    for (String lite : lites) {
+      LockInfo lockInfo = stripes.get(getStripeIndex(lite)).get(lite);
+      if (lockInfo != null && !lockInfo.requestUuid.equals(requestUuid)) {
+        blocking.add(lockInfo);
+      }
+    }
+    return blocking;
+  }
+
+  /**
+   * Must be called while holding the locks of the stripes of all the lites.
+   */
+  private void lock(List<String> lites, String requestUuid) {
+    for (String lite : lites) {
+      Map<String, LockInfo> stripe = stripes.get(getStripeIndex(lite));
+      LockInfo lockInfo = stripe.get(lite);
+      // reentrant test
+      if (lockInfo != null) {
+        lockInfo.increaseReentrantAmount();
+      } else {
+        stripe.put(lite, new LockInfo(requestUuid));
+        requestUuidLites.computeIfAbsent(requestUuid, key -> ConcurrentHashMap.newKeySet()).add(lite);
+      }
+    }
+  }
+
+  private void removeWaiter(List<String> lites, int[] stripeIndexes, Waiter waiter) {
+    lockStripes(stripeIndexes);
+    try {
+      for (String lite : lites) {
+        LockInfo lockInfo = stripes.get(getStripeIndex(lite)).get(lite);
+        if (lockInfo != null) {
+          lockInfo.waiters.remove(waiter);
+        }
+      }
+    } finally {
+      unlockStripes(stripeIndexes);
+    }
+  }
+
+  private int getStripeIndex(String lite) {
+    return Math.floorMod(lite.hashCode(), stripeLocks.length);
+  }
+
+  private int[] getStripeIndexes(List<String> lites) {
+    Set<Integer> indexes = new TreeSet<>();
+    for (String lite : lites) {
+      indexes.add(getStripeIndex(lite));
+    }
+    return indexes.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private void lockStripes(int[] stripeIndexes) {
+    for (int index : stripeIndexes) {
+      stripeLocks[index].lock();
+    }
+  }
+
+  private void unlockStripes(int[] stripeIndexes) {
+    for (int i = stripeIndexes.length - 1; i >= 0; i--) {
+      stripeLocks[stripeIndexes[i]].unlock();
+    }
+  }
+
+  private int countLockedObjects() {
+    int count = 0;
+    for (int i = 0; i < stripes.size(); i++) {
+      stripeLocks[i].lock();
+      try {
+        count += stripes.get(i).size();
+      } finally {
+        stripeLocks[i].unlock();
+      }
+    }
+    return count;
+  }
+
+  private void updateWaiting(int objects, boolean increment) {
+    if (increment) {
+      lockRequestsWaitingToAcquireLock.inc();
+      objectsWaitingToAcquireLock.inc(objects);
+    } else {
+      lockRequestsWaitingToAcquireLock.dec();
+      objectsWaitingToAcquireLock.dec(objects);
+    }
+    lockRequestsWaitingToAcquireLockHisto.update(lockRequestsWaitingToAcquireLock.getCount());
+    objectsWaitingToAcquireLockHisto.update(objectsWaitingToAcquireLock.getCount());
+  }
+
+  private static class Waiter {
+    private final Semaphore signal = new Semaphore(0);
+
+    void wakeUp() {
+      signal.release();
+    }
+
+    boolean await(long timeoutInNanos) {
+      try {
+        return signal.tryAcquire(timeoutInNanos, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+  }
+
+  private static class LockInfo {
+    private final String requestUuid;
+    private long lockDate;
+    private int reentrantAmount;
+    // requests waiting for this lock to be released
+    private final Set<Waiter> waiters = new LinkedHashSet<>();
+
+    LockInfo(String requestUuid) {
+      this.requestUuid = requestUuid;
+      this.reentrantAmount = 0;
+      refreshLockDate();
+    }
+
+    void refreshLockDate() {
+      lockDate = System.currentTimeMillis();
+    }
+
+    void increaseReentrantAmount() {
+      reentrantAmount++;
+      refreshLockDate();
+    }
+
+    void decreaseReentrantAmount() {
+      reentrantAmount--;
+      refreshLockDate();
+    }
+
+    boolean releaseLockDueToExpire(long now, long lockTimeout) {
+      return now > lockDate + (lockTimeout * 1000);
+    }
+
+    void wakeUpWaiters() {
+      waiters.forEach(Waiter::wakeUp);
+      waiters.clear();
+    }
+  }
+}
@@ -65,6 +65,8 @@ public class AkkaBackgroundWorkerActor extends AkkaBaseActor {
     Plugin<IsRODAObject> messagePlugin = message.getPlugin();
     try {
       messagePlugin.execute(index, model, storage, objectsToBeProcessed);
+      // reports of the processed objects must be durable before the block is done
+      model.flushJobReports(PluginHelper.getJobId(messagePlugin));
       getSender().tell(Messages.newPluginExecuteIsDone(messagePlugin, false).withJobPriority(message.getJobPriority())
         .withParallelism(message.getParallelism()), getSelf());
     } catch (Throwable e) {
@@ -72,6 +74,7 @@ public class AkkaBackgroundWorkerActor extends AkkaBaseActor {
       // linking errors that only will happen during the execution (e.g.
       // java.lang.NoSuchMethodError)
       LOGGER.error("Error executing plugin.execute()", e);
+      model.flushJobReports(PluginHelper.getJobId(messagePlugin));
       getSender().tell(Messages.newPluginExecuteIsDone(messagePlugin, true, getErrorMessage(e))
         .withJobPriority(message.getJobPriority()).withParallelism(message.getParallelism()), getSelf());
     }
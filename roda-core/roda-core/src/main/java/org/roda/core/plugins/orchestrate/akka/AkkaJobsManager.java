@@ -8,11 +8,9 @@
 package org.roda.core.plugins.orchestrate.akka;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -21,9 +19,6 @@ import java.util.concurrent.TimeUnit;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.akka.AkkaBaseActor;
 import org.roda.core.common.akka.Messages;
-import org.roda.core.common.akka.Messages.JobsManagerAcquireLock;
-import org.roda.core.common.akka.Messages.JobsManagerReleaseAllLocks;
-import org.roda.core.common.akka.Messages.JobsManagerReleaseLock;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.JobStats;
 import org.roda.core.data.v2.jobs.PluginType;
@@ -43,11 +38,6 @@ import scala.concurrent.duration.Duration;
 public class AkkaJobsManager extends AkkaBaseActor {
   private static final Logger LOGGER = LoggerFactory.getLogger(AkkaJobsManager.class);
 
-  public static final String LOCK_REQUESTS_WAITING_TO_ACQUIRE_LOCK = "lockRequestsWaitingToAcquireLock";
-
-  private static final String LOCK_TIMEOUT = "core.orchestrator.lock_timeout";
-  private static final int DEFAULT_LOCK_TIMEOUT = 600;
-
   // state
   private final int maxNumberOfJobsInParallel;
   private final int maxNumberOfLimitedJobsInParallel;
@@ -60,11 +50,6 @@ public class AkkaJobsManager extends AkkaBaseActor {
   private final ActorRef jobsRouter;
 
   private final ActorRef limitedJobsRouter;
-  // <Lite, LockInfo>
-  private Map<String, LockInfo> objectsLocked;
-  // <RequestUUID, List<Lite>>
-  private Map<String, List<String>> requestUuidLites;
-  private List<JobsManagerAcquireLock> waitingToAcquireLockRequests;
 
   // metrics
   private Counter ticksWaitingToBeProcessed;
@@ -77,10 +62,6 @@ public class AkkaJobsManager extends AkkaBaseActor {
   private Histogram jobsWaitingToBeExecutedHisto;
   private Histogram limitedJobsWaitingToBeExecutedHisto;
   private Histogram jobsTimeInTheQueueInMilis;
-  private Counter lockRequestsWaitingToAcquireLock;
-  private Histogram lockRequestsWaitingToAcquireLockHisto;
-  private Counter objectsWaitingToAcquireLock;
-  private Histogram objectsWaitingToAcquireLockHisto;
   private Histogram messagesProcessingTimeInMilis;
   private Counter ingestJobsBeingExecuted;
   private Counter ingestJobsWaitingToBeExecuted;
@@ -103,9 +84,6 @@ public class AkkaJobsManager extends AkkaBaseActor {
     this.limitedJobsWaiting = new PriorityBlockingQueue<>(maxNumberOfLimitedJobsInParallel, new SortByPriority());
     this.jobsWaitingCreators = new HashMap<>();
     this.limitedJobsWaitingCreators = new HashMap<>();
-    this.objectsLocked = new HashMap<>();
-    this.requestUuidLites = new HashMap<>();
-    this.waitingToAcquireLockRequests = new ArrayList<>();
 
     Props jobsProps = new RoundRobinPool(maxNumberOfJobsInParallel - 2)
       .props(Props.create(AkkaJobActor.class, getSelf()));
@@ -122,8 +100,7 @@ public class AkkaJobsManager extends AkkaBaseActor {
 
     getContext().system().scheduler().schedule(Duration.create(0, TimeUnit.MILLISECONDS),
       Duration.create(2, TimeUnit.SECONDS), () -> {
-        if (jobsWaitingToBeExecuted.getCount() > 0 || !waitingToAcquireLockRequests.isEmpty()
-          || !objectsLocked.isEmpty() || limitedJobsWaitingToBeExecuted.getCount() > 0) {
+        if (jobsWaitingToBeExecuted.getCount() > 0 || limitedJobsWaitingToBeExecuted.getCount() > 0) {
           sendTick();
         }
       }, getContext().system().dispatcher());
@@ -141,12 +118,6 @@ public class AkkaJobsManager extends AkkaBaseActor {
         handleTick(true);
       } else if (msg instanceof Messages.JobsManagerJobEnded) {
         handleJobEnded((Messages.JobsManagerJobEnded) msg);
-      } else if (msg instanceof Messages.JobsManagerAcquireLock) {
-        handleAcquireLock(((Messages.JobsManagerAcquireLock) msg).setSender(getSender()));
-      } else if (msg instanceof Messages.JobsManagerReleaseLock) {
-        handleReleaseLock((Messages.JobsManagerReleaseLock) msg);
-      } else if (msg instanceof Messages.JobsManagerReleaseAllLocks) {
-        handleReleaseAllLocks((Messages.JobsManagerReleaseAllLocks) msg);
       } else {
         LOGGER.error("Received a message that don't know how to process ({})...", msg.getClass().getName());
         unhandled(msg);
@@ -327,12 +298,6 @@ public class AkkaJobsManager extends AkkaBaseActor {
         maxNumberOfLimitedJobsInParallel - limitedJobsBeingExecuted.getCount()));
     }
 
-    // lock requests waiting related
-    processWaitingToAcquireLockRequests();
-
-    // locks acquired timeout related
-    processAcquiredLocksTimeout();
-
     if (decrementTicksWaitingCounter) {
       ticksWaitingToBeProcessed.dec();
     }
@@ -428,127 +393,6 @@ public class AkkaJobsManager extends AkkaBaseActor {
     }
   }
 
-  private void processWaitingToAcquireLockRequests() {
-    for (Iterator<JobsManagerAcquireLock> iterator = waitingToAcquireLockRequests.iterator(); iterator.hasNext();) {
-      JobsManagerAcquireLock acquireLockRequest = iterator.next();
-
-      if (expireDateAlreadyExpired(acquireLockRequest)) {
-        LOGGER.warn("Deleting lock request for objects '{}' due to expire ({})", acquireLockRequest.getLites(),
-          acquireLockRequest.getExpireDate());
-        iterator.remove();
-        // FIXME 20180605 hsilva: send message?
-      } else {
-        if (areObjectsLockable(acquireLockRequest)) {
-          lock(acquireLockRequest, true);
-          iterator.remove();
-        }
-      }
-    }
-  }
-
-  private boolean expireDateAlreadyExpired(JobsManagerAcquireLock acquireLockRequest) {
-    return new Date().after(acquireLockRequest.getExpireDate());
-  }
-
-  private boolean areObjectsLockable(JobsManagerAcquireLock msg) {
-    boolean allLockable = true;
-
-    for (String lite : msg.getLites()) {
-      if (!objectsLocked.containsKey(lite)) {
-        continue;
-      }
-
-      LockInfo lockInfo = objectsLocked.get(lite);
-      if (!lockInfo.requestUuid.equals(msg.getRequestUuid())) {
-        allLockable = false;
-        break;
-      }
-    }
-    return allLockable;
-  }
-
-  private void lock(JobsManagerAcquireLock msg, boolean decreaseWaiting) {
-    for (String lite : msg.getLites()) {
-      // reentrant test
-      if (objectsLocked.get(lite) != null) {
-        objectsLocked.get(lite).increaseReentrantAmount();
-      } else {
-        String requestUuid = msg.getRequestUuid();
-        objectsLocked.put(lite, new LockInfo(requestUuid));
-        requestUuidLites.computeIfAbsent(requestUuid, key -> new ArrayList<>()).add(lite);
-      }
-    }
-    // 20180606 hsilva: not sending any list to the sender as it will most
-    // certainly end up in deadletters
-    msg.getSender().tell(Messages.newJobsManagerReplyToAcquireLock(Collections.emptyList()), getSelf());
-
-    if (decreaseWaiting) {
-      updateLockRequestsWaitingToAcquireLock(false);
-      updateObjectsWaitingToAcquireLock(msg.getLites().size(), false);
-    }
-  }
-
-  private void updateLockRequestsWaitingToAcquireLock(boolean increment) {
-    if (increment) {
-      lockRequestsWaitingToAcquireLock.inc();
-    } else {
-      lockRequestsWaitingToAcquireLock.dec();
-    }
-    lockRequestsWaitingToAcquireLockHisto.update(lockRequestsWaitingToAcquireLock.getCount());
-  }
-
-  private void updateObjectsWaitingToAcquireLock(long value, boolean increment) {
-    if (increment) {
-      objectsWaitingToAcquireLock.inc(value);
-    } else {
-      objectsWaitingToAcquireLock.dec(value);
-    }
-    objectsWaitingToAcquireLockHisto.update(objectsWaitingToAcquireLock.getCount());
-  }
-
-  private void unlock(JobsManagerReleaseLock msg) {
-    String requestUuid = msg.getRequestUuid();
-    if (msg.getLites().isEmpty()) {
-      for (String lite : requestUuidLites.getOrDefault(requestUuid, Collections.emptyList())) {
-        objectsLocked.remove(lite);
-      }
-      requestUuidLites.remove(requestUuid);
-    } else {
-      for (String lite : msg.getLites()) {
-        LockInfo lockInfo = objectsLocked.get(lite);
-        if (lockInfo == null) {
-          LOGGER.warn("Trying to remove lock from object '{}' whose lock does not exist!", lite);
-        } else if (!lockInfo.requestUuid.equals(requestUuid)) {
-          LOGGER.warn("Trying to remove lock from object '{}' whose lock wasn't created by this requester (uuid={})",
-            lite, requestUuid);
-        } else {
-          // lock exists & request uuid matches
-          if (lockInfo.reentrantAmount > 0) {
-            lockInfo.decreaseReentrantAmount();
-          } else {
-            objectsLocked.remove(lite);
-            requestUuidLites.get(requestUuid).remove(lite);
-          }
-        }
-      }
-    }
-    // 20180606 hsilva: not sending any list to the sender as it will most
-    // certainly end up in deadletters
-    getSender().tell(Messages.newJobsManagerReplyToReleaseLock(Collections.emptyList()), getSelf());
-  }
-
-  private void processAcquiredLocksTimeout() {
-    int lockTimeout = RodaCoreFactory.getRodaConfiguration().getInt(LOCK_TIMEOUT, DEFAULT_LOCK_TIMEOUT);
-    for (Iterator<Map.Entry<String, LockInfo>> it = objectsLocked.entrySet().iterator(); it.hasNext();) {
-      Map.Entry<String, LockInfo> lock = it.next();
-      if (lock.getValue().releaseLockDueToExpire(lockTimeout)) {
-        LOGGER.warn("Releasing lock for object '{}' due to lock timeout ({} seconds; no lock release was issued)",
-          lock.getKey(), lockTimeout);
-        it.remove();
-      }
-    }
-  }
-
   private void handleJobEnded(Messages.JobsManagerJobEnded jobEnded) {
     if (jobIsNotParallelizable(jobEnded.getPlugin())) {
       nonParallelizableJobIsRunning = false;
@@ -566,38 +410,6 @@ public class AkkaJobsManager extends AkkaBaseActor {
     }
   }
 
-  private void handleAcquireLock(JobsManagerAcquireLock msg) {
-    msg.logProcessingStarted();
-
-    boolean areLockable = areObjectsLockable(msg);
-    if (areLockable) {
-      lock(msg.setSender(getSender()), false);
-    } else if (msg.isWaitForLockIfLocked()) {
-      waitingToAcquireLockRequests.add(msg);
-      updateLockRequestsWaitingToAcquireLock(true);
-      updateObjectsWaitingToAcquireLock(msg.getLites().size(), true);
-    } else {
-      // 20180530 hsilva: message stating that lock was not possible
-      // (in order to avoid spending timeout to realize that)
-      getSender().tell(Messages.newJobsManagerNotLockableAtTheTime(
-        "Unable to acquire lock & configured to not wait for lock if already locked"), getSelf());
-    }
-
-    msg.logProcessingEnded();
-  }
-
-  private void handleReleaseLock(JobsManagerReleaseLock msg) {
-    msg.logProcessingStarted();
-    unlock(msg);
-    msg.logProcessingEnded();
-  }
-
-  private void handleReleaseAllLocks(JobsManagerReleaseAllLocks msg) {
-    objectsLocked = new HashMap<>();
-    requestUuidLites = new HashMap<>();
-    waitingToAcquireLockRequests = new ArrayList<>();
-  }
-
   private void log(String msg, String jobId) {
     LOGGER.info("{} '{}' (max: {}| exec: {}| wait: {})", msg, jobId, maxNumberOfJobsInParallel,
       jobsBeingExecuted.getCount(), jobsWaitingToBeExecuted.getCount());
@@ -618,14 +430,6 @@ public class AkkaJobsManager extends AkkaBaseActor {
     jobsWaitingToBeExecutedHisto = metrics
       .histogram(MetricRegistry.name(className, "jobsWaitingToBeExecutedHistogram"));
     jobsTimeInTheQueueInMilis = metrics.histogram(MetricRegistry.name(className, "jobsTimeInTheQueueInMilis"));
-    // locks related metrics
-    lockRequestsWaitingToAcquireLock = metrics
-      .counter(MetricRegistry.name(className, LOCK_REQUESTS_WAITING_TO_ACQUIRE_LOCK));
-    lockRequestsWaitingToAcquireLockHisto = metrics
-      .histogram(MetricRegistry.name(className, "lockRequestsWaitingToAcquireLockHisto"));
-    objectsWaitingToAcquireLock = metrics.counter(MetricRegistry.name(className, "objectsWaitingToAcquireLock"));
-    objectsWaitingToAcquireLockHisto = metrics
-      .histogram(MetricRegistry.name(className, "objectsWaitingToAcquireLockHisto"));
 
     messagesProcessingTimeInMilis = metrics.histogram(MetricRegistry.name(className, "messagesProcessingTimeInMilis"));
 
@@ -673,34 +477,4 @@ public class AkkaJobsManager extends AkkaBaseActor {
     }
   }
 
-  private class LockInfo {
-    public Date lockDate;
-    public String requestUuid;
-    public int reentrantAmount;
-
-    public LockInfo(String requestUuid) {
-      refreshLockDate();
-      this.requestUuid = requestUuid;
-      reentrantAmount = 0;
-    }
-
-    public void refreshLockDate() {
-      lockDate = new Date();
-    }
-
-    public void increaseReentrantAmount() {
-      reentrantAmount++;
-      refreshLockDate();
-    }
-
-    public void decreaseReentrantAmount() {
-      reentrantAmount--;
-      refreshLockDate();
-    }
-
-    public boolean releaseLockDueToExpire(long lockTimeout) {
-      return new Date().after(new Date(lockDate.getTime() + (lockTimeout * 1000)));
-    }
-  }
-
 }
@@ -62,6 +62,8 @@ public class AkkaWorkerActor extends AkkaBaseActor {
     Plugin<IsRODAObject> messagePlugin = message.getPlugin();
     try {
       messagePlugin.execute(index, model, storage, objectsToBeProcessed);
+      // reports of the processed objects must be durable before the block is done
+      model.flushJobReports(PluginHelper.getJobId(messagePlugin));
       getSender().tell(Messages.newPluginExecuteIsDone(messagePlugin, false).withParallelism(message.getParallelism())
         .withJobPriority(message.getJobPriority()), getSelf());
     } catch (Throwable e) {
@@ -69,6 +71,7 @@ public class AkkaWorkerActor extends AkkaBaseActor {
       // linking errors that only will happen during the execution (e.g.
       // java.lang.NoSuchMethodError)
       LOGGER.error("Error executing plugin.execute()", e);
+      model.flushJobReports(PluginHelper.getJobId(messagePlugin));
       getSender().tell(Messages.newPluginExecuteIsDone(messagePlugin, true, getErrorMessage(e))
         .withParallelism(message.getParallelism()).withJobPriority(message.getJobPriority()), getSelf());
     }
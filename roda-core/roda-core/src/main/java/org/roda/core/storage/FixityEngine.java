@@ -0,0 +1,216 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Hex;
+import org.roda.core.storage.fs.FSPathContentPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Computes the fixity (message digests) of binaries.
+ *
+ * <p>
+ * Each binary is read exactly once, through a direct {@link ByteBuffer} (and a
+ * {@link FileChannel} when the content is a file), and all the requested
+ * algorithms are updated with each chunk read. Binaries can be submitted to a
+ * pool of threads so that several files are checked at the same time; reads
+ * of files on the same file store (disk) are limited to avoid seek thrashing.
+ * </p>
+ *
+ * <p>
+ * Throughput is reported in the metric registry: {@code bytes} and
+ * {@code files} meters, a {@code megabytesPerSecond} gauge (one minute rate)
+ * and a {@code file} timer.
+ * </p>
+ */
+public class FixityEngine {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FixityEngine.class);
+
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+  public static final int DEFAULT_MAX_READS_PER_STORE = 4;
+  private static final double MEGABYTE = 1024d * 1024d;
+
+  private final ExecutorService executor;
+  private final int bufferSize;
+  private final int maxReadsPerStore;
+  private final Map<FileStore, Semaphore> storeReads = new ConcurrentHashMap<>();
+  private final ThreadLocal<ByteBuffer> buffers;
+
+  private final Meter bytesMeter;
+  private final Meter filesMeter;
+  private final Timer fileTimer;
+
+  /**
+   * @param threads
+   *          number of binaries computed at the same time (if not positive,
+   *          the number of available processors is used).
+   * @param maxReadsPerStore
+   *          maximum number of files read at the same time from the same file
+   *          store.
+   * @param bufferSize
+   *          size of the read buffer of each thread, in bytes.
+   */
+  public FixityEngine(MetricRegistry metricRegistry, int threads, int maxReadsPerStore, int bufferSize) {
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    this.executor = Executors.newFixedThreadPool(poolSize, new FixityThreadFactory());
+    this.maxReadsPerStore = maxReadsPerStore > 0 ? maxReadsPerStore : DEFAULT_MAX_READS_PER_STORE;
+    this.bufferSize = bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE;
+    this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(this.bufferSize));
+
+    String name = FixityEngine.class.getSimpleName();
+    this.bytesMeter = metricRegistry.meter(MetricRegistry.name(name, "bytes"));
+    this.filesMeter = metricRegistry.meter(MetricRegistry.name(name, "files"));
+    this.fileTimer = metricRegistry.timer(MetricRegistry.name(name, "file"));
+    metricRegistry.gauge(MetricRegistry.name(name, "megabytesPerSecond"),
+      () -> (Gauge<Double>) () -> bytesMeter.getOneMinuteRate() / MEGABYTE);
+
+    LOGGER.debug("Fixity engine started with {} threads and up to {} reads per file store", poolSize,
+      this.maxReadsPerStore);
+  }
+
+  /**
+   * Computes, in the calling thread, the digests of the content for all the
+   * given algorithms.
+   *
+   * @return a map from algorithm to the (upper case hexadecimal) digest.
+   */
+  public Map<String, String> compute(ContentPayload payload, Collection<String> algorithms)
+    throws IOException, NoSuchAlgorithmException {
+    List<MessageDigest> digests = new ArrayList<>();
+    for (String algorithm : new LinkedHashSet<>(algorithms)) {
+      digests.add(MessageDigest.getInstance(algorithm));
+    }
+
+    Path path = getPath(payload);
+    Semaphore storeSemaphore = path != null ? getStoreSemaphore(path) : null;
+
+    try (Timer.Context ctx = fileTimer.time()) {
+      if (storeSemaphore != null) {
+        storeSemaphore.acquireUninterruptibly();
+      }
+      try (ReadableByteChannel channel = path != null ? FileChannel.open(path, StandardOpenOption.READ)
+        : Channels.newChannel(payload.createInputStream())) {
+        read(channel, digests);
+      } finally {
+        if (storeSemaphore != null) {
+          storeSemaphore.release();
+        }
+      }
+    }
+    filesMeter.mark();
+
+    Map<String, String> ret = new HashMap<>();
+    for (MessageDigest digest : digests) {
+      ret.put(digest.getAlgorithm(), Hex.encodeHexString(digest.digest()).toUpperCase());
+    }
+    return ret;
+  }
+
+  /**
+   * Computes the digests of the content in the engine thread pool.
+   *
+   * @see #compute(ContentPayload, Collection)
+   */
+  public CompletableFuture<Map<String, String>> submit(ContentPayload payload, Collection<String> algorithms) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return compute(payload, algorithms);
+      } catch (IOException | NoSuchAlgorithmException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void read(ReadableByteChannel channel, List<MessageDigest> digests) throws IOException {
+    ByteBuffer buffer = buffers.get();
+    buffer.clear();
+    int read;
+    while ((read = channel.read(buffer)) != -1) {
+      if (read == 0 && buffer.hasRemaining()) {
+        continue;
+      }
+      buffer.flip();
+      for (MessageDigest digest : digests) {
+        buffer.mark();
+        digest.update(buffer);
+        buffer.reset();
+      }
+      bytesMeter.mark(buffer.remaining());
+      buffer.clear();
+    }
+  }
+
+  private Path getPath(ContentPayload payload) {
+    if (payload instanceof FSPathContentPayload) {
+      try {
+        return Paths.get(payload.getURI());
+      } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+        LOGGER.debug("Could not get path of payload, reading it as a stream", e);
+      }
+    }
+    return null;
+  }
+
+  private Semaphore getStoreSemaphore(Path path) {
+    try {
+      FileStore store = Files.getFileStore(path);
+      return storeReads.computeIfAbsent(store, s -> new Semaphore(maxReadsPerStore));
+    } catch (IOException e) {
+      // file does not exist or store is not accessible, reading it will fail
+      return null;
+    }
+  }
+
+  private static class FixityThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "Fixity engine " + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.utils.JsonUtils;
+
+/**
+ * An object serialized as JSON. When written to a path, the object is
+ * serialized straight into the file, without building the JSON string first.
+ */
+public class JsonObjectContentPayload implements ContentPayload {
+  private final Object object;
+  private Path contentPath;
+
+  public JsonObjectContentPayload(Object object) {
+    this.object = object;
+  }
+
+  @Override
+  public InputStream createInputStream() {
+    return new ByteArrayInputStream(JsonUtils.getJsonFromObject(object).getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void writeToPath(Path path) throws IOException {
+    // written to a temporary file first, so that the previous content is
+    // replaced atomically
+    Path tempPath = path.getParent().resolve(path.getFileName().toString() + ".temp" + System.nanoTime());
+    try {
+      JsonUtils.writeObjectToFile(object, tempPath);
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (GenericException e) {
+      throw new IOException(e.getMessage(), e);
+    } finally {
+      Files.deleteIfExists(tempPath);
+    }
+  }
+
+  @Override
+  public URI getURI() throws IOException, UnsupportedOperationException {
+    if (contentPath == null) {
+      contentPath = Files.createTempFile("content", ".json");
+      writeToPath(contentPath);
+    }
+    return contentPath.toUri();
+  }
+}
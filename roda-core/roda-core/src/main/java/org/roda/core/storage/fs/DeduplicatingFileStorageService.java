@@ -0,0 +1,322 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AlreadyExistsException;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.ContentPayload;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StorageServiceWrapper;
+import org.roda.core.util.FileUtility;
+import org.roda.core.util.IdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * {@link FileStorageService} that keeps a single copy of each distinct binary
+ * content.
+ *
+ * <p>
+ * Binary contents are stored once in a blob folder (sibling of the storage
+ * folder, named after it with the {@value #BLOBS_SUFFIX} suffix) addressed by
+ * their SHA-256 digest. Binaries in the storage, their versions in the history
+ * folder and copies made inside the storage are hard links to those blobs, so
+ * the {@link StoragePath} API and the folder layout stay the same and the
+ * reference count of a blob is the link count of the file. Creating or
+ * reverting a version only creates a link.
+ * </p>
+ *
+ * <p>
+ * Blobs are never modified in place: new content is always written to a new
+ * blob and then atomically linked into the storage. If the file system does not
+ * support hard links the service falls back to regular copies.
+ * </p>
+ *
+ * <p>
+ * Blobs are also made read-only, but that does not stop the root user: when
+ * RODA runs as root (as in the default Docker image) a file of the storage
+ * opened for writing by anything other than this service changes the content
+ * of every binary and version sharing its blob. Storage files must only be
+ * changed through the storage service.
+ * </p>
+ *
+ * <p>
+ * To use it set {@code core.storage.new_service} to this class name.
+ * </p>
+ */
+public class DeduplicatingFileStorageService extends FileStorageService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DeduplicatingFileStorageService.class);
+
+  public static final String BLOBS_SUFFIX = "-blobs";
+  private static final String BLOBS_TMP_FOLDER = "tmp";
+  private static final String DIGEST_ALGORITHM = RodaConstants.SHA256;
+
+  private static final int LOCK_STRIPES = 64;
+
+  private final Path blobsPath;
+  private final Path blobsTmpPath;
+  // held, by digest, while a blob is linked or deleted
+  private final Striped<Lock> blobLocks = Striped.lock(LOCK_STRIPES);
+
+  public DeduplicatingFileStorageService(Path basePath, boolean createTrash, String trashDirName,
+    boolean createHistory) throws GenericException {
+    super(basePath, createTrash, trashDirName, createHistory);
+    blobsPath = getRodaDataPath().resolve(basePath.getFileName() + BLOBS_SUFFIX);
+    blobsTmpPath = blobsPath.resolve(BLOBS_TMP_FOLDER);
+    try {
+      Files.createDirectories(blobsTmpPath);
+    } catch (IOException e) {
+      throw new GenericException("Could not create path " + blobsTmpPath, e);
+    }
+  }
+
+  public DeduplicatingFileStorageService(Path basePath, String trashDirName) throws GenericException {
+    this(basePath, true, trashDirName, true);
+  }
+
+  public DeduplicatingFileStorageService(Path basePath) throws GenericException {
+    this(basePath, null);
+  }
+
+  @Override
+  protected void writePayload(ContentPayload payload, Path binPath) throws IOException {
+    Path tmp = Files.createTempFile(blobsTmpPath, "blob", null);
+    try {
+      String digest;
+      try (InputStream in = payload.createInputStream(); OutputStream out = Files.newOutputStream(tmp)) {
+        digest = FileUtility.copyAndChecksums(in, out, Collections.singletonList(DIGEST_ALGORITHM))
+          .get(DIGEST_ALGORITHM);
+      } catch (NoSuchAlgorithmException e) {
+        throw new IOException("Could not compute digest", e);
+      }
+      Lock lock = blobLocks.get(digest);
+      lock.lock();
+      try {
+        Path blob = storeBlob(tmp, digest);
+        linkInto(blob, binPath);
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  @Override
+  protected void copyToHistory(Path binPath, Path versionPath) throws IOException {
+    linkInto(adopt(binPath), versionPath);
+  }
+
+  @Override
+  protected void restoreFromHistory(Path versionPath, Path binPath) throws IOException {
+    linkInto(adopt(versionPath), binPath);
+  }
+
+  @Override
+  public void copy(StorageService fromService, StoragePath fromStoragePath, StoragePath toStoragePath)
+    throws AlreadyExistsException, GenericException, RequestNotValidException, NotFoundException,
+    AuthorizationDeniedException {
+    // in production this service is wrapped (e.g. to check the node type)
+    StorageService sourceService = fromService;
+    while (sourceService instanceof StorageServiceWrapper) {
+      sourceService = ((StorageServiceWrapper) sourceService).getWrappedStorageService();
+    }
+
+    if (sourceService != this) {
+      super.copy(fromService, fromStoragePath, toStoragePath);
+      return;
+    }
+
+    Path sourcePath = resolve(fromStoragePath);
+    Path targetPath = resolve(toStoragePath);
+    if (FSUtils.exists(targetPath)) {
+      throw new AlreadyExistsException("Cannot copy because target path already exists: " + targetPath);
+    }
+    if (!FSUtils.exists(sourcePath)) {
+      throw new NotFoundException("Cannot copy because source path does not exist: " + sourcePath);
+    }
+
+    try {
+      Files.createDirectories(targetPath.getParent());
+      Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+          Files.createDirectories(targetPath.resolve(sourcePath.relativize(dir).toString()));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          linkInto(adopt(file), targetPath.resolve(sourcePath.relativize(file).toString()));
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      throw new GenericException("Error while copying " + sourcePath + " to " + targetPath, e);
+    }
+  }
+
+  /**
+   * Number of storage binaries, versions and trashed files sharing the blob with
+   * the given digest (0 if there is no such blob).
+   */
+  public int getReferenceCount(String digest) throws IOException {
+    Path blob = getBlobPath(digest);
+    return FSUtils.exists(blob) ? getLinkCount(blob) - 1 : 0;
+  }
+
+  /**
+   * Deletes the blobs that are no longer referenced by any binary.
+   *
+   * @return the number of deleted blobs.
+   */
+  public long collectGarbage() throws GenericException {
+    AtomicLong deleted = new AtomicLong(0);
+    try {
+      Files.walkFileTree(blobsPath, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          return dir.equals(blobsTmpPath) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          // blobs are named after their digest
+          Lock lock = blobLocks.get(file.getFileName().toString());
+          lock.lock();
+          try {
+            if (getLinkCount(file) <= 1) {
+              Files.delete(file);
+              deleted.incrementAndGet();
+            }
+          } finally {
+            lock.unlock();
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      throw new GenericException("Error collecting unreferenced blobs", e);
+    }
+    LOGGER.info("Deleted {} unreferenced blobs", deleted.get());
+    return deleted.get();
+  }
+
+  private Path getBlobPath(String digest) {
+    return blobsPath.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+  }
+
+  /**
+   * Moves a freshly written file into the blob folder, unless a blob with the
+   * same content already exists. Must be called holding the lock of the blob.
+   */
+  private Path storeBlob(Path file, String digest) throws IOException {
+    Path blob = getBlobPath(digest);
+    if (!FSUtils.exists(blob)) {
+      Files.createDirectories(blob.getParent());
+      file.toFile().setWritable(false, false);
+      try {
+        Files.createLink(blob, file);
+      } catch (FileAlreadyExistsException e) {
+        // stored concurrently by another thread
+      }
+    }
+    return blob;
+  }
+
+  /**
+   * Ensures a file of this storage is backed by a blob and returns the file that
+   * should be linked (the file itself if it is already shared).
+   */
+  private Path adopt(Path file) throws IOException {
+    if (getLinkCount(file) > 1) {
+      return file;
+    }
+
+    String digest;
+    try (InputStream in = Files.newInputStream(file)) {
+      digest = FileUtility.checksum(in, DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("Could not compute digest", e);
+    }
+
+    Path blob = getBlobPath(digest);
+    Lock lock = blobLocks.get(digest);
+    lock.lock();
+    try {
+      if (FSUtils.exists(blob)) {
+        // same content already stored, replace the file by a link to it
+        linkInto(blob, file);
+      } else {
+        Files.createDirectories(blob.getParent());
+        file.toFile().setWritable(false, false);
+        try {
+          Files.createLink(blob, file);
+        } catch (FileAlreadyExistsException e) {
+          linkInto(blob, file);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+          LOGGER.debug("Could not link {} into blob folder", file, e);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return file;
+  }
+
+  /**
+   * Atomically makes {@code target} point to the same content as {@code source},
+   * replacing it if it exists.
+   */
+  private void linkInto(Path source, Path target) throws IOException {
+    Files.createDirectories(target.getParent());
+    Path link = blobsTmpPath.resolve(IdUtils.createUUID());
+    try {
+      Files.createLink(link, source);
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      LOGGER.debug("Hard links not supported, copying {} to {}", source, target, e);
+      Files.copy(source, link);
+    }
+    try {
+      Files.move(link, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(link);
+    }
+  }
+
+  private static int getLinkCount(Path path) throws IOException {
+    try {
+      return (Integer) Files.getAttribute(path, "unix:nlink");
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      return 1;
+    }
+  }
+}
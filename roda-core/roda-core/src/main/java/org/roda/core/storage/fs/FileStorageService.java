@@ -384,7 +384,7 @@ public class FileStorageService implements StorageService {
           }
 
           // writing file
-          payload.writeToPath(binPath);
+          writePayload(payload, binPath);
           ContentPayload newPayload = new FSPathContentPayload(binPath);
           Long sizeInBytes = Files.size(binPath);
           boolean isReference = false;
@@ -417,7 +417,7 @@ public class FileStorageService implements StorageService {
         Path binPath = FSUtils.createRandomFile(parent);
 
         // writing file
-        payload.writeToPath(binPath);
+        writePayload(payload, binPath);
         StoragePath storagePath = FSUtils.getStoragePath(basePath, binPath);
         ContentPayload newPayload = new FSPathContentPayload(binPath);
         Long sizeInBytes = Files.size(binPath);
@@ -472,7 +472,7 @@ public class FileStorageService implements StorageService {
         throw new GenericException("Looking for a binary but found something else");
       } else {
         try {
-          payload.writeToPath(binaryPath);
+          writePayload(payload, binaryPath);
         } catch (IOException e) {
           throw new GenericException("Could not update binary content", e);
         }
@@ -487,6 +487,35 @@ public class FileStorageService implements StorageService {
     }
   }
 
+  /**
+   * Writes the content of a (non reference) binary into the storage.
+   */
+  protected void writePayload(ContentPayload payload, Path binPath) throws IOException {
+    payload.writeToPath(binPath);
+  }
+
+  /**
+   * Keeps the current content of a binary as a version in the history folder.
+   */
+  protected void copyToHistory(Path binPath, Path versionPath) throws IOException {
+    Files.copy(binPath, versionPath);
+  }
+
+  /**
+   * Replaces the content of a binary with the content of one of its versions.
+   */
+  protected void restoreFromHistory(Path versionPath, Path binPath) throws IOException {
+    Files.copy(versionPath, binPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  protected Path getRodaDataPath() {
+    return rodaDataPath;
+  }
+
+  protected Path getBasePath() {
+    return basePath;
+  }
+
   @Override
   public Binary getBinary(StoragePath storagePath)
     throws RequestNotValidException, NotFoundException, GenericException {
@@ -750,7 +779,7 @@ public class FileStorageService implements StorageService {
       }
 
       // writing file
-      Files.copy(binPath, dataPath);
+      copyToHistory(binPath, dataPath);
 
       // Creating metadata
       DefaultBinaryVersion b = new DefaultBinaryVersion();
@@ -792,7 +821,7 @@ public class FileStorageService implements StorageService {
 
     try {
       // writing file
-      Files.copy(binVersionPath, binPath, StandardCopyOption.REPLACE_EXISTING);
+      restoreFromHistory(binVersionPath, binPath);
     } catch (IOException e) {
       throw new GenericException("Could not create binary", e);
     }
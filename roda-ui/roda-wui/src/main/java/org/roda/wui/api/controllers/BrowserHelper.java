@@ -31,6 +31,8 @@ import java.util.Map.Entry;
 import java.util.MissingResourceException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.core.MultivaluedMap;
@@ -49,7 +51,6 @@ import org.roda.core.common.PremisV3Utils;
 import org.roda.core.common.RodaUtils;
 import org.roda.core.common.StreamResponse;
 import org.roda.core.common.iterables.CloseableIterable;
-import org.roda.core.common.iterables.CloseableIterables;
 import org.roda.core.common.monitor.TransferredResourcesScanner;
 import org.roda.core.common.notifications.NotificationProcessor;
 import org.roda.core.common.tools.ZipEntryInfo;
@@ -235,6 +236,23 @@ public class BrowserHelper {
     String aipId = aip.getId();
     boolean justActive = aip.getState().equals(AIPState.ACTIVE);
 
+    // counts are made concurrently, while the rest of the bundle is retrieved
+    CompletableFuture<Long> childAIPCount = countIfPermitted(user, RodaConstants.PERMISSION_METHOD_FIND_AIP,
+      IndexedAIP.class, new Filter(new SimpleFilterParameter(RodaConstants.AIP_PARENT_ID, aipId)), justActive);
+    CompletableFuture<Long> repCount = countIfPermitted(user, RodaConstants.PERMISSION_METHOD_FIND_REPRESENTATION,
+      IndexedRepresentation.class, new Filter(new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aipId)),
+      justActive);
+    CompletableFuture<Long> dipCount = countIfPermitted(user, RodaConstants.PERMISSION_METHOD_FIND_DIP,
+      IndexedDIP.class, new Filter(new SimpleFilterParameter(RodaConstants.DIP_AIP_UUIDS, aipId)), justActive);
+    CompletableFuture<Long> riskIncidenceCount = countIfPermitted(user,
+      RodaConstants.PERMISSION_METHOD_FIND_RISK_INCIDENCE, RiskIncidence.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_AIP_ID, aipId)), justActive);
+    CompletableFuture<Long> preservationEventCount = countIfPermitted(user,
+      RodaConstants.PERMISSION_METHOD_FIND_PRESERVATION_EVENT, IndexedPreservationEvent.class,
+      new Filter(new SimpleFilterParameter(RodaConstants.PRESERVATION_EVENT_AIP_ID, aipId)), false);
+    CompletableFuture<Long> logCount = countIfPermitted(user, RodaConstants.PERMISSION_METHOD_FIND_LOG_ENTRY,
+      LogEntry.class, new Filter(new SimpleFilterParameter(RodaConstants.LOG_RELATED_OBJECT_ID, aipId)), justActive);
+
     // set aip ancestors
     List<IndexedAIP> ancestors = retrieveAncestors(aip, user, aipAncestorsFieldsToReturn);
     bundle.setAIPAncestors(ancestors);
@@ -254,60 +272,12 @@ public class BrowserHelper {
       }
     }
 
-    // Count child AIPs
-    if (UserUtility.hasPermissions(user, RodaConstants.PERMISSION_METHOD_FIND_AIP)) {
-      Filter childAIPfilter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_PARENT_ID, aip.getId()));
-      Long childAIPCount = RodaCoreFactory.getIndexService().count(IndexedAIP.class, childAIPfilter, user, justActive);
-      bundle.setChildAIPCount(childAIPCount);
-    } else {
-      bundle.setChildAIPCount(-1L);
-    }
-
-    // Count representations
-    if (UserUtility.hasPermissions(user, RodaConstants.PERMISSION_METHOD_FIND_REPRESENTATION)) {
-      Filter repFilter = new Filter(new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aipId));
-      Long repCount = RodaCoreFactory.getIndexService().count(IndexedRepresentation.class, repFilter, user, justActive);
-      bundle.setRepresentationCount(repCount);
-    } else {
-      bundle.setRepresentationCount(-1L);
-    }
-
-    // Count DIPs
-    if (UserUtility.hasPermissions(user, RodaConstants.PERMISSION_METHOD_FIND_DIP)) {
-      Filter dipsFilter = new Filter(new SimpleFilterParameter(RodaConstants.DIP_AIP_UUIDS, aip.getId()));
-      Long dipCount = RodaCoreFactory.getIndexService().count(IndexedDIP.class, dipsFilter, user, justActive);
-      bundle.setDipCount(dipCount);
-    } else {
-      bundle.setDipCount(-1L);
-    }
-
-    // Count risk incidences
-    if (UserUtility.hasPermissions(user, RodaConstants.PERMISSION_METHOD_FIND_RISK_INCIDENCE)) {
-      Filter riskIncidenceFilter = new Filter(new SimpleFilterParameter(RodaConstants.RISK_INCIDENCE_AIP_ID, aipId));
-      Long riskIncidenceCount = RodaCoreFactory.getIndexService().count(RiskIncidence.class, riskIncidenceFilter, user,
-        justActive);
-      bundle.setRiskIncidenceCount(riskIncidenceCount);
-    } else {
-      bundle.setRiskIncidenceCount(-1L);
-    }
-
-    if (UserUtility.hasPermissions(user, RodaConstants.PERMISSION_METHOD_FIND_PRESERVATION_EVENT)) {
-      Filter preservationEventFilter = new Filter(
-        new SimpleFilterParameter(RodaConstants.PRESERVATION_EVENT_AIP_ID, aipId));
-      Long preservationEventCount = RodaCoreFactory.getIndexService().count(IndexedPreservationEvent.class,
-        preservationEventFilter, user, false);
-      bundle.setPreservationEventCount(preservationEventCount);
-    } else {
-      bundle.setPreservationEventCount(-1L);
-    }
-
-    if (UserUtility.hasPermissions(user, RodaConstants.PERMISSION_METHOD_FIND_LOG_ENTRY)) {
-      Filter logFilter = new Filter(new SimpleFilterParameter(RodaConstants.LOG_RELATED_OBJECT_ID, aipId));
-      Long logCount = RodaCoreFactory.getIndexService().count(LogEntry.class, logFilter, user, justActive);
-      bundle.setLogCount(logCount);
-    } else {
-      bundle.setLogCount(-1L);
-    }
+    bundle.setChildAIPCount(getCount(childAIPCount));
+    bundle.setRepresentationCount(getCount(repCount));
+    bundle.setDipCount(getCount(dipCount));
+    bundle.setRiskIncidenceCount(getCount(riskIncidenceCount));
+    bundle.setPreservationEventCount(getCount(preservationEventCount));
+    bundle.setLogCount(getCount(logCount));
 
     if (UserUtility.hasPermissions(user, RodaConstants.PERMISSION_METHOD_FIND_REPRESENTATION_INFORMATION)) {
       List<String> rodaConfigurationAsList = RodaCoreFactory.getRodaConfigurationAsList("ui.ri.rule.AIP").stream()
@@ -328,6 +298,32 @@ public class BrowserHelper {
     return bundle;
   }
 
+  /**
+   * @return the count, or -1 if the user is not allowed to count.
+   */
+  private static <T extends IsIndexed> CompletableFuture<Long> countIfPermitted(User user, String permission,
+    Class<T> classToCount, Filter filter, boolean justActive) {
+    if (UserUtility.hasPermissions(user, permission)) {
+      return RodaCoreFactory.getIndexService().countAsync(classToCount, filter, user, justActive);
+    } else {
+      return CompletableFuture.completedFuture(-1L);
+    }
+  }
+
+  private static Long getCount(CompletableFuture<Long> count) throws GenericException, RequestNotValidException {
+    try {
+      return count.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RequestNotValidException) {
+        throw (RequestNotValidException) e.getCause();
+      } else if (e.getCause() instanceof GenericException) {
+        throw (GenericException) e.getCause();
+      } else {
+        throw new GenericException("Error counting objects", e.getCause());
+      }
+    }
+  }
+
   public static BrowseRepresentationBundle retrieveBrowseRepresentationBundle(User user, IndexedAIP aip,
     IndexedRepresentation representation, Locale locale)
     throws GenericException, RequestNotValidException, AuthorizationDeniedException {
@@ -616,15 +612,7 @@ public class BrowserHelper {
     }
 
     try {
-      StoragePath storagePath;
-      if (representationId != null) {
-        storagePath = ModelUtils.getDescriptiveMetadataStoragePath(aipId, representationId,
-          descriptiveMetadata.getId());
-      } else {
-        storagePath = ModelUtils.getDescriptiveMetadataStoragePath(aipId, descriptiveMetadata.getId());
-      }
-
-      bundle.setHasHistory(!CloseableIterables.isEmpty(model.getStorage().listBinaryVersions(storagePath)));
+      bundle.setHasHistory(model.hasDescriptiveMetadataVersions(aipId, representationId, descriptiveMetadata.getId()));
     } catch (RODAException | RuntimeException e) {
       bundle.setHasHistory(false);
     }
@@ -2373,9 +2361,8 @@ public class BrowserHelper {
   public static void deleteDescriptiveMetadataVersion(String aipId, String representationId,
     String descriptiveMetadataId, String versionId)
     throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException {
-    StoragePath storagePath = ModelUtils.getDescriptiveMetadataStoragePath(aipId, representationId,
-      descriptiveMetadataId);
-    RodaCoreFactory.getStorageService().deleteBinaryVersion(storagePath, versionId);
+    RodaCoreFactory.getModelService().deleteDescriptiveMetadataVersion(aipId, representationId,
+      descriptiveMetadataId, versionId);
   }
 
   public static Job updateAIPPermissions(User user, SelectedItems<IndexedAIP> aips, Permissions permissions,
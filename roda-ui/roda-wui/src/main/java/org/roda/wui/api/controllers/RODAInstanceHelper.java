@@ -20,7 +20,6 @@ import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.EntityResponse;
 import org.roda.core.common.SyncUtils;
-import org.roda.core.common.synchronization.BundleManifestCreator;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
@@ -47,6 +46,7 @@ import org.roda.core.index.IndexService;
 import org.roda.core.plugins.base.synchronization.instanceIdentifier.LocalInstanceRegisterPlugin;
 import org.roda.core.plugins.base.synchronization.proccess.ImportSyncBundlePlugin;
 import org.roda.core.plugins.base.synchronization.proccess.SynchronizeInstancePlugin;
+import org.roda.core.storage.fs.FSUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -221,6 +221,8 @@ public class RODAInstanceHelper {
       try {
         Boolean deleteFromOutcome = Files.deleteIfExists(syncBundlePath);
         if (deleteFromOutcome == true) {
+          // the instance removes the bundle after importing it
+          SyncUtils.acknowledgeCentralSyncBundle(bundlename);
           message = "Deleted bundle from outcome folder with success";
         } else {
           message = "Could not find bundle in outcome folder";
@@ -235,19 +237,21 @@ public class RODAInstanceHelper {
   public static EntityResponse createCentralSyncBundle(String instanceIdentifier) throws AuthorizationDeniedException,
     AlreadyExistsException, RequestNotValidException, GenericException, NotFoundException {
 
+    Path workingDir = null;
     try {
-      Path workingDir = SyncUtils.getBundleWorkingDirectory(instanceIdentifier);
+      workingDir = SyncUtils.getBundleWorkingDirectory(instanceIdentifier);
       String bundleName = SyncUtils.getInstanceBundleName(instanceIdentifier);
-      if (SyncUtils.createCentralSyncBundle(workingDir, instanceIdentifier)) {
-        BundleManifestCreator bundleManifestCreator = new BundleManifestCreator(
-          RodaConstants.DistributedModeType.CENTRAL, workingDir);
-        bundleManifestCreator.create();
-        Path zipPath = SyncUtils.compress(workingDir, bundleName);
+      Path zipPath = SyncUtils.createCentralSyncBundle(workingDir, instanceIdentifier, bundleName);
+      if (zipPath != null) {
         return SyncUtils.createBundleStreamResponse(zipPath);
       }
       return null;
     } catch (IOException e) {
-      throw new GenericException("Cannot create temporary directory");
+      throw new GenericException("Cannot create synchronization bundle", e);
+    } finally {
+      if (workingDir != null) {
+        FSUtils.deletePathQuietly(workingDir);
+      }
     }
   }
 }
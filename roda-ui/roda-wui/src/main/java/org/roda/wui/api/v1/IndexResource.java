@@ -21,6 +21,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -29,6 +30,8 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.lang3.StringUtils;
 import org.glassfish.jersey.server.JSONP;
 import org.roda.core.RodaCoreFactory;
+import org.roda.core.common.ConsumesOutputStream;
+import org.roda.core.common.iterables.CloseableIterables;
 import org.roda.core.model.utils.UserUtility;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
@@ -51,11 +54,14 @@ import org.roda.core.data.v2.index.sort.SortParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.wui.api.controllers.Browser;
 import org.roda.wui.api.v1.utils.ApiUtils;
 import org.roda.wui.api.v1.utils.ExtraMediaType;
 import org.roda.wui.api.v1.utils.FacetsCSVOutputStream;
+import org.roda.wui.api.v1.utils.GzipOutputStream;
 import org.roda.wui.api.v1.utils.ResultsCSVOutputStream;
+import org.roda.wui.api.v1.utils.ResultsNDJSONOutputStream;
 import org.roda.wui.common.I18nUtility;
 import org.roda.wui.common.server.RodaStreamingOutput;
 import org.slf4j.Logger;
@@ -96,10 +102,22 @@ public class IndexResource {
    * Default filename for CSV files.
    */
   private static final String DEFAULT_CSV_FILENAME = "export.csv";
+  /**
+   * Default filename for NDJSON files.
+   */
+  private static final String DEFAULT_NDJSON_FILENAME = "export.ndjson";
   /**
    * CSV type.
    */
   private static final String TYPE_CSV = "csv";
+  /**
+   * NDJSON type.
+   */
+  private static final String TYPE_NDJSON = "ndjson";
+  /**
+   * GZIP content encoding.
+   */
+  private static final String ENCODING_GZIP = "gzip";
   /**
    * Default value for <i>facetLimit</i> parameter.
    */
@@ -136,8 +154,11 @@ public class IndexResource {
    *          Return only active resources?
    * @param exportFacets
    *          for CSV results, export only facets?
+   * @param exportAll
+   *          for CSV and NDJSON results, export all results streaming them from
+   *          the index?
    * @param filename
-   *          the filename for exported CSV.
+   *          the filename for exported CSV or NDJSON.
    * @param <T>
    *          Type of the resources to return.
    * @return a {@link Response} with the resources.
@@ -146,7 +167,7 @@ public class IndexResource {
    */
   @GET
   @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.TEXT_CSV,
-    ExtraMediaType.APPLICATION_JAVASCRIPT})
+    ExtraMediaType.APPLICATION_NDJSON, ExtraMediaType.APPLICATION_JAVASCRIPT})
   @JSONP(callback = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK, queryParam = RodaConstants.API_QUERY_KEY_JSONP_CALLBACK)
   @Operation(summary = "Find indexed resources", description = "Find indexed resources", responses = {
     @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = IndexResult.class)))})
@@ -161,6 +182,7 @@ public class IndexResource {
     @Parameter(description = "Language", example = "en", schema = @Schema(defaultValue = "en")) @QueryParam(RodaConstants.API_QUERY_KEY_LANG) final String localeString,
     @Parameter(description = "Return only active resources?", schema = @Schema(defaultValue = "true")) @QueryParam(RodaConstants.API_QUERY_KEY_ONLY_ACTIVE) final Boolean onlyActive,
     @Parameter(description = "Export facet data", schema = @Schema(defaultValue = "false")) @QueryParam(RodaConstants.API_QUERY_KEY_EXPORT_FACETS) final boolean exportFacets,
+    @Parameter(description = "Export all results, ignoring sort, start and limit (CSV and NDJSON only)", schema = @Schema(defaultValue = "false")) @QueryParam(RodaConstants.API_QUERY_KEY_EXPORT_ALL) final boolean exportAll,
     @Parameter(description = "Filename", schema = @Schema(defaultValue = DEFAULT_CSV_FILENAME)) @QueryParam(RodaConstants.API_QUERY_KEY_FILENAME) final String filename,
     @Parameter(description = "Choose format in which to get the response") @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat,
     @Parameter(description = "JSONP callback name", required = false, schema = @Schema(defaultValue = RodaConstants.API_QUERY_DEFAULT_JSONP_CALLBACK)) @QueryParam(RodaConstants.API_QUERY_KEY_JSONP_CALLBACK) String jsonpCallbackName)
@@ -172,7 +194,14 @@ public class IndexResource {
     final FindRequest findRequest = new FindRequest();
     findRequest.classToReturn = returnClass;
     findRequest.exportFacets = exportFacets;
-    findRequest.filename = StringUtils.isBlank(filename) ? DEFAULT_CSV_FILENAME : filename;
+    findRequest.exportAll = exportAll;
+    if (StringUtils.isNotBlank(filename)) {
+      findRequest.filename = filename;
+    } else if (ExtraMediaType.APPLICATION_NDJSON.equals(mediaType)) {
+      findRequest.filename = DEFAULT_NDJSON_FILENAME;
+    } else {
+      findRequest.filename = DEFAULT_CSV_FILENAME;
+    }
 
     findRequest.filter = new Filter();
     for (String filterParameter : filterParameters) {
@@ -215,6 +244,8 @@ public class IndexResource {
     final Response response;
     if (ExtraMediaType.TEXT_CSV.equals(mediaType)) {
       response = csvResponse(findRequest, user, localeString);
+    } else if (ExtraMediaType.APPLICATION_NDJSON.equals(mediaType)) {
+      response = ndjsonResponse(findRequest, user);
     } else {
       final Class<T> classToReturn = getClass(findRequest.classToReturn);
 
@@ -242,7 +273,8 @@ public class IndexResource {
   @POST
   @Path("/find")
   @Consumes({MediaType.APPLICATION_JSON})
-  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.TEXT_CSV})
+  @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, ExtraMediaType.TEXT_CSV,
+    ExtraMediaType.APPLICATION_NDJSON})
   @Operation(summary = "Find indexed resources", description = "Finds existing indexed resources", responses = {
     @ApiResponse(responseCode = "200", description = "OK", content = @Content(schema = @Schema(implementation = IsIndexed.class)))})
   public <T extends IsIndexed> Response find(@Parameter(description = "Find parameters") final FindRequest findRequest)
@@ -253,6 +285,8 @@ public class IndexResource {
 
     if (ExtraMediaType.TEXT_CSV.equals(mediaType)) {
       return csvResponse(findRequest, user, null);
+    } else if (ExtraMediaType.APPLICATION_NDJSON.equals(mediaType)) {
+      return ndjsonResponse(findRequest, user);
     } else {
       final IndexResult<T> result = Browser.find(getClass(findRequest.classToReturn), findRequest.filter,
         findRequest.sorter, findRequest.sublist, findRequest.facets, user, findRequest.onlyActive,
@@ -268,7 +302,7 @@ public class IndexResource {
    * @param findRequestString
    *          find parameters.
    * @param type
-   *          the type of output ("csv").
+   *          the type of output ("csv" or "ndjson").
    * @return a {@link Response} with the resources.
    * @throws RODAException
    *           if some error occurs.
@@ -284,6 +318,8 @@ public class IndexResource {
 
     if (type.equals(IndexResource.TYPE_CSV)) {
       return csvResponse(findRequest, user, null);
+    } else if (type.equals(IndexResource.TYPE_NDJSON)) {
+      return ndjsonResponse(findRequest, user);
     } else {
       // TODO support JSON type
       throw new GenericException("Type not yet supported:" + type);
@@ -353,6 +389,10 @@ public class IndexResource {
       return ApiUtils.okResponse(
         new RodaStreamingOutput(new FacetsCSVOutputStream(result.getFacetResults(), findRequest.filename, delimiter))
           .toStreamResponse());
+    } else if (findRequest.exportAll) {
+      final IterableIndexResult<T> result = Browser.findAll(returnClass, findRequest.filter, user,
+        findRequest.onlyActive, findRequest.fieldsToReturn);
+      return streamResponse(new ResultsCSVOutputStream<>(result, findRequest.filename, delimiter));
     } else {
       IndexResult<T> result = Browser.find(returnClass, findRequest.filter, findRequest.sorter, findRequest.sublist,
         findRequest.facets, user, findRequest.onlyActive, findRequest.fieldsToReturn);
@@ -366,6 +406,60 @@ public class IndexResource {
     }
   }
 
+  /**
+   * Produces a NDJSON (one JSON object per line) response with results.
+   *
+   * @param findRequest
+   *          the request parameters.
+   * @param user
+   *          the current {@link User}.
+   * @param <T>
+   *          Type of the resources to return.
+   * @return a {@link Response} with NDJSON.
+   * @throws RequestNotValidException
+   *           it the request is not valid.
+   * @throws AuthorizationDeniedException
+   *           if the user is not authorized to perform this operation.
+   * @throws GenericException
+   *           if some other error occurs.
+   */
+  private <T extends IsIndexed> Response ndjsonResponse(final FindRequest findRequest, final User user)
+    throws RequestNotValidException, AuthorizationDeniedException, GenericException {
+    final Class<T> returnClass = getClass(findRequest.classToReturn);
+
+    if (findRequest.exportAll) {
+      final IterableIndexResult<T> result = Browser.findAll(returnClass, findRequest.filter, user,
+        findRequest.onlyActive, findRequest.fieldsToReturn);
+      return streamResponse(new ResultsNDJSONOutputStream<>(result, findRequest.filename));
+    } else {
+      final IndexResult<T> result = Browser.find(returnClass, findRequest.filter, findRequest.sorter,
+        findRequest.sublist, Facets.NONE, user, findRequest.onlyActive, findRequest.fieldsToReturn);
+      return streamResponse(
+        new ResultsNDJSONOutputStream<>(CloseableIterables.fromList(result.getResults()), findRequest.filename));
+    }
+  }
+
+  /**
+   * Produces a streamed response, compressed on the fly if the client accepts
+   * GZIP content encoding. Results are written while they are fetched from the
+   * index, so a client that closes the connection stops the export.
+   *
+   * @param stream
+   *          the output stream to send.
+   * @return a {@link Response} with the output stream.
+   */
+  private Response streamResponse(final ConsumesOutputStream stream) {
+    final String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (acceptEncoding != null && acceptEncoding.toLowerCase().contains(ENCODING_GZIP)) {
+      final Response response = ApiUtils
+        .okResponse(new RodaStreamingOutput(new GzipOutputStream(stream)).toStreamResponse());
+      return Response.fromResponse(response).header(HttpHeaders.CONTENT_ENCODING, ENCODING_GZIP)
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+    } else {
+      return ApiUtils.okResponse(new RodaStreamingOutput(stream).toStreamResponse());
+    }
+  }
+
   /**
    * Return the {@link Class} with the specified class name.
    *
@@ -75,7 +75,7 @@ public class ApiOriginFilter implements ContainerRequestFilter, ContainerRespons
     if (origin != null && !HttpMethod.OPTIONS.equalsIgnoreCase(requestContext.getMethod())
       && requestContext.getProperty(CORS_FAILURE) == null) {
       responseContext.getHeaders().putSingle(ACCESS_CONTROL_ALLOW_ORIGIN, origin);
-      responseContext.getHeaders().putSingle(CACHE_VARY, ORIGIN);
+      responseContext.getHeaders().add(CACHE_VARY, ORIGIN);
       responseContext.getHeaders().putSingle(ACCESS_CONTROL_ALLOW_CREDENTIALS, getAllowCredentials());
       responseContext.getHeaders().putSingle(ACCESS_CONTROL_EXPOSE_HEADERS, getExposedHeaders());
     }
@@ -130,6 +130,8 @@ public class ApiUtils {
         mediaType = MediaType.TEXT_HTML;
       } else if (RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_CSV.contains(acceptFormat)) {
         mediaType = ExtraMediaType.TEXT_CSV;
+      } else if (RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_NDJSON.equalsIgnoreCase(acceptFormat)) {
+        mediaType = ExtraMediaType.APPLICATION_NDJSON;
       }
     } else if (StringUtils.isNotBlank(acceptHeaders)) {
       if (acceptHeaders.contains(MediaType.APPLICATION_XML)) {
@@ -139,6 +141,8 @@ public class ApiUtils {
         mediaType = applicationJs;
       } else if (acceptHeaders.contains(ExtraMediaType.TEXT_CSV)) {
         mediaType = ExtraMediaType.TEXT_CSV;
+      } else if (acceptHeaders.contains(ExtraMediaType.APPLICATION_NDJSON)) {
+        mediaType = ExtraMediaType.APPLICATION_NDJSON;
       }
     }
 
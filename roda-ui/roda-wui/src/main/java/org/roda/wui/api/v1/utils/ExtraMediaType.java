@@ -23,6 +23,7 @@ public final class ExtraMediaType {
   public static final String TEXT_CSV = "text/csv";
   public static final String APPLICATION_ZIP = "application/zip";
   public static final String APPLICATION_JAVASCRIPT = "application/javascript";
+  public static final String APPLICATION_NDJSON = "application/x-ndjson";
 
   /**
    * Constructor.
@@ -0,0 +1,69 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.wui.api.v1.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import org.roda.core.common.ConsumesOutputStream;
+
+/**
+ * Output stream that compresses, with GZIP, the output of another
+ * {@link ConsumesOutputStream} as it is being written. Meant to be sent with
+ * the {@code Content-Encoding: gzip} header, so file name and media type are
+ * the ones of the wrapped output stream.
+ */
+public class GzipOutputStream implements ConsumesOutputStream {
+
+  /** Size of the compression buffer. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The output stream to compress. */
+  private final ConsumesOutputStream stream;
+
+  /**
+   * Constructor.
+   *
+   * @param stream
+   *          the output stream to compress.
+   */
+  public GzipOutputStream(final ConsumesOutputStream stream) {
+    this.stream = stream;
+  }
+
+  @Override
+  public void consumeOutputStream(final OutputStream out) throws IOException {
+    // sync flush so that flushes of the wrapped stream reach the client
+    final GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE, true);
+    stream.consumeOutputStream(gzip);
+    gzip.finish();
+    gzip.flush();
+  }
+
+  @Override
+  public long getSize() {
+    return -1;
+  }
+
+  @Override
+  public Date getLastModified() {
+    return stream.getLastModified();
+  }
+
+  @Override
+  public String getFileName() {
+    return stream.getFileName();
+  }
+
+  @Override
+  public String getMediaType() {
+    return stream.getMediaType();
+  }
+}
@@ -8,17 +8,25 @@
 package org.roda.wui.api.v1.utils;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.Date;
 
 import org.apache.commons.csv.CSVPrinter;
+import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.index.utils.IterableIndexResult;
 
 /**
- * CSV output stream for {@link IterableIndexResult}.
+ * CSV output stream for {@link IndexResult} or {@link IterableIndexResult}.
+ *
+ * <p>
+ * When streaming an {@link IterableIndexResult}, the output is flushed every
+ * {@link #FLUSH_INTERVAL} records so that a client that went away is noticed
+ * (the write fails) and no more pages are requested from the index.
+ * </p>
  *
  * @param <T>
  *          the type of results.
@@ -26,8 +34,11 @@ import org.roda.core.index.utils.IterableIndexResult;
  */
 public class ResultsCSVOutputStream<T extends IsIndexed> extends CSVOutputStream {
 
+  /** Number of records written between flushes. */
+  static final int FLUSH_INTERVAL = 1000;
+
   /** The results to write to output stream. */
-  private final IndexResult<T> results;
+  private final Iterable<T> results;
 
   /**
    * Constructor.
@@ -40,21 +51,56 @@ public class ResultsCSVOutputStream<T extends IsIndexed> extends CSVOutputStream
    *          the CSV field delimiter.
    */
   public ResultsCSVOutputStream(final IndexResult<T> results, final String filename, final char delimiter) {
+    super(filename, delimiter);
+    this.results = results.getResults();
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param results
+   *          the results to write to output stream, which are closed after
+   *          being written.
+   * @param filename
+   *          the filename.
+   * @param delimiter
+   *          the CSV field delimiter.
+   */
+  public ResultsCSVOutputStream(final CloseableIterable<T> results, final String filename, final char delimiter) {
     super(filename, delimiter);
     this.results = results;
   }
 
   @Override
   public void consumeOutputStream(final OutputStream out) throws IOException {
-    final OutputStreamWriter writer = new OutputStreamWriter(out);
-    CSVPrinter printer = null;
-    boolean isFirst = true;
-    for (final T result : this.results.getResults()) {
-      if (isFirst) {
-        printer = getFormat().withHeader(result.toCsvHeaders().toArray(new String[0])).print(writer);
-        isFirst = false;
+    try {
+      final OutputStreamWriter writer = new OutputStreamWriter(out);
+      CSVPrinter printer = null;
+      long count = 0;
+      for (final T result : this.results) {
+        if (printer == null) {
+          printer = getFormat().withHeader(result.toCsvHeaders().toArray(new String[0])).print(writer);
+        }
+        printer.printRecord(result.toCsvValues());
+        if (++count % FLUSH_INTERVAL == 0) {
+          flush(writer);
+        }
+      }
+      writer.flush();
+    } finally {
+      if (results instanceof CloseableIterable) {
+        ((CloseableIterable<T>) results).close();
       }
-      printer.printRecord(result.toCsvValues());
+    }
+  }
+
+  /**
+   * Flushes the written records to the client, stopping if the request thread
+   * was interrupted (e.g. the request was cancelled).
+   */
+  static void flush(final OutputStreamWriter writer) throws IOException {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedIOException("Export was cancelled");
     }
     writer.flush();
   }
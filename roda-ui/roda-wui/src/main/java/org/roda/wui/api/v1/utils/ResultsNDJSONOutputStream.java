@@ -0,0 +1,93 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.wui.api.v1.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.roda.core.common.ConsumesOutputStream;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.v2.index.IsIndexed;
+import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
+import org.roda.core.data.v2.ip.metadata.DescriptiveMetadataMixIn;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Newline delimited JSON (one JSON object per line) output stream for index
+ * results.
+ *
+ * @param <T>
+ *          the type of results.
+ */
+public class ResultsNDJSONOutputStream<T extends IsIndexed> implements ConsumesOutputStream {
+
+  /** The results to write to output stream. */
+  private final CloseableIterable<T> results;
+  /** The filename. */
+  private final String filename;
+
+  /**
+   * Constructor.
+   *
+   * @param results
+   *          the results to write to output stream, which are closed after
+   *          being written.
+   * @param filename
+   *          the filename.
+   */
+  public ResultsNDJSONOutputStream(final CloseableIterable<T> results, final String filename) {
+    this.results = results;
+    this.filename = filename;
+  }
+
+  @Override
+  public void consumeOutputStream(final OutputStream out) throws IOException {
+    try {
+      final ObjectWriter objectWriter = new ObjectMapper(new JsonFactory())
+        .addMixIn(DescriptiveMetadata.class, DescriptiveMetadataMixIn.class).writer();
+      final OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+      long count = 0;
+      for (final T result : this.results) {
+        writer.write(objectWriter.writeValueAsString(result));
+        writer.write('\n');
+        if (++count % ResultsCSVOutputStream.FLUSH_INTERVAL == 0) {
+          ResultsCSVOutputStream.flush(writer);
+        }
+      }
+      writer.flush();
+    } finally {
+      results.close();
+    }
+  }
+
+  @Override
+  public String getFileName() {
+    return filename;
+  }
+
+  @Override
+  public String getMediaType() {
+    return ExtraMediaType.APPLICATION_NDJSON;
+  }
+
+  @Override
+  public Date getLastModified() {
+    return null;
+  }
+
+  @Override
+  public long getSize() {
+    return -1;
+  }
+}
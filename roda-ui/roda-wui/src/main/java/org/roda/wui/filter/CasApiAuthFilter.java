@@ -140,7 +140,7 @@ public class CasApiAuthFilter implements Filter {
     UserUtility.checkUserApiBasicAuth(username);
     // check if user is internal
     if (UserUtility.getLdapUtility().isInternal(username)) {
-      final User user = UserUtility.getLdapUtility().getAuthenticatedUser(username, password);
+      final User user = RodaCoreFactory.getModelService().retrieveAuthenticatedUser(username, password);
       UserUtility.setUser(request, user);
     }
     filterChain.doFilter(request, response);
@@ -153,7 +153,7 @@ public class CasApiAuthFilter implements Filter {
     String username = JwtUtils.getSubjectFromToken(token);
     // check if user is internal
     if (UserUtility.getLdapUtility().isInternal(username)) {
-      User user = UserUtility.getLdapUtility().getUser(username);
+      User user = RodaCoreFactory.getModelService().retrieveTokenAuthenticatedUser(username);
       UserUtility.setUser(request, user);
     }
 
@@ -107,7 +107,7 @@ public class InternalApiAuthFilter implements Filter {
     String token = new BearerAuthRequestWrapper(request).getBearerToken();
     if (token != null) {
       String username = JwtUtils.getSubjectFromToken(token);
-      user = UserUtility.getLdapUtility().getUser(username);
+      user = RodaCoreFactory.getModelService().retrieveTokenAuthenticatedUser(username);
     }
     return user;
   }
@@ -131,7 +131,8 @@ public class InternalApiAuthFilter implements Filter {
       return UserUtility.getGuest(request.getRemoteAddr());
     } else {
       UserUtility.checkUserApiBasicAuth(credentials.getFirst());
-      return UserUtility.getLdapUtility().getAuthenticatedUser(credentials.getFirst(), credentials.getSecond());
+      return RodaCoreFactory.getModelService().retrieveAuthenticatedUser(credentials.getFirst(),
+        credentials.getSecond());
     }
   }
 